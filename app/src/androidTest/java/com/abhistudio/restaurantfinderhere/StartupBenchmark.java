@@ -0,0 +1,105 @@
+package com.abhistudio.restaurantfinderhere;
+
+import android.app.Instrumentation;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Startup benchmark, which will execute on an Android device.
+ * Launches MainActivity a few times and measures the time from onCreate until the map accepts long presses,
+ * see StartupTrace. The median and minimum are reported as instrumentation status, e.g. with
+ * ./gradlew connectedAndroidTest, and in the log.
+ *
+ * The process of the app is already running, so the HERE SDK and the classes are loaded once for all runs.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+
+    private static final int RUNS = 5;
+    private static final long TIMEOUT_MILLIS = 30000;
+
+    @Test
+    public void startToInteractive() throws IOException {
+        grantLocationPermissions();
+        long[] interactiveNanos = new long[RUNS];
+        long[] enginesReadyNanos = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            ActivityScenario<MainActivity> scenario = ActivityScenario.launch(MainActivity.class);
+            try {
+                interactiveNanos[run] = waitForMark(scenario, StartupPipeline.INTERACTIVE);
+                enginesReadyNanos[run] = waitForMark(scenario, StartupPipeline.ENGINES_READY);
+            } finally {
+                scenario.close();
+            }
+        }
+        Arrays.sort(interactiveNanos);
+        Arrays.sort(enginesReadyNanos);
+
+        Bundle status = new Bundle();
+        status.putLong("interactive_median_ms", interactiveNanos[RUNS / 2] / 1000000);
+        status.putLong("interactive_min_ms", interactiveNanos[0] / 1000000);
+        status.putLong("engines_ready_median_ms", enginesReadyNanos[RUNS / 2] / 1000000);
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, status);
+        Log.d("StartupBenchmark", status.toString());
+    }
+
+    /**
+     * Waits until the StartupTrace of the activity reached the milestone, returns its time since onCreate
+     * */
+    private static long waitForMark(ActivityScenario<MainActivity> scenario, final String milestone) {
+        final long[] nanos = {-1};
+        long deadline = SystemClock.elapsedRealtime() + TIMEOUT_MILLIS;
+        while (nanos[0] < 0) {
+            assertTrue("No " + milestone + " within " + TIMEOUT_MILLIS + " ms",
+                    SystemClock.elapsedRealtime() < deadline);
+            SystemClock.sleep(20);
+            scenario.onActivity(new ActivityScenario.ActivityAction<MainActivity>() {
+                @Override
+                public void perform(MainActivity activity) {
+                    nanos[0] = activity.getStartupTrace().getMarkNanos(milestone);
+                }
+            });
+        }
+        return nanos[0];
+    }
+
+    /**
+     * Grants the permissions requested by MainActivity, so no dialog holds up the start
+     * */
+    private static void grantLocationPermissions() throws IOException {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        String packageName = instrumentation.getTargetContext().getPackageName();
+        String[] permissions = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                ? new String[]{"ACCESS_FINE_LOCATION", "ACCESS_COARSE_LOCATION", "ACCESS_BACKGROUND_LOCATION"}
+                : new String[]{"ACCESS_FINE_LOCATION", "ACCESS_COARSE_LOCATION"};
+        for (String permission : permissions) {
+            ParcelFileDescriptor output = instrumentation.getUiAutomation()
+                    .executeShellCommand("pm grant " + packageName + " android.permission." + permission);
+            // the command runs until its output is read to the end
+            InputStream input = new ParcelFileDescriptor.AutoCloseInputStream(output);
+            try {
+                while (input.read() != -1) {
+                    // output of pm is ignored, a permission the device does not know is not needed there
+                }
+            } finally {
+                input.close();
+            }
+        }
+    }
+}
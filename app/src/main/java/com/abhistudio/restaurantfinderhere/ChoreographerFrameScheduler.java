@@ -0,0 +1,34 @@
+package com.abhistudio.restaurantfinderhere;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+/**
+ * FrameScheduler running the callbacks on the next frame of the main thread Choreographer.
+ * Frames scheduled from a worker thread are first handed to the main thread.
+ */
+public class ChoreographerFrameScheduler implements FrameBatcher.FrameScheduler {
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    @Override
+    public void scheduleFrame(final Runnable onFrame) {
+        final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                onFrame.run();
+            }
+        };
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+            return;
+        }
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                Choreographer.getInstance().postFrameCallback(frameCallback);
+            }
+        });
+    }
+}
@@ -0,0 +1,93 @@
+package com.abhistudio.restaurantfinderhere;
+
+import com.here.sdk.core.GeoCircle;
+import com.here.sdk.core.GeoCoordinates;
+import com.here.sdk.core.GeoCorridor;
+import com.here.sdk.core.LanguageCode;
+import com.here.sdk.search.CategoryQuery;
+import com.here.sdk.search.Place;
+import com.here.sdk.search.PlaceCategory;
+import com.here.sdk.search.SearchCallback;
+import com.here.sdk.search.SearchEngine;
+import com.here.sdk.search.SearchError;
+import com.here.sdk.search.SearchOptions;
+import com.here.sdk.search.TextQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PlaceSearchBackend running the searches with the SearchEngine of the HERE SDK.
+ * Converts SearchAreas to GeoCircle / GeoCorridor and the found Places to PlaceRecords.
+ * Category queries of a SearchCategory are searched with a CategoryQuery, all others with a TextQuery.
+ */
+public class HerePlaceSearchBackend implements PlaceSearchBackend {
+
+    private final SearchEngine searchEngine;
+
+    public HerePlaceSearchBackend(SearchEngine searchEngine) {
+        this.searchEngine = searchEngine;
+    }
+
+    @Override
+    public void search(SearchArea area, String query, int maxItems, final Callback callback) {
+        GeoCoordinates center = new GeoCoordinates(area.centerLatitude, area.centerLongitude);
+        GeoCorridor geoCorridor = null;
+        if (area.isCorridor()) {
+            List<GeoCoordinates> polyline = new ArrayList<>(area.latitudes.length);
+            for (int i = 0; i < area.latitudes.length; i++) {
+                polyline.add(new GeoCoordinates(area.latitudes[i], area.longitudes[i]));
+            }
+            geoCorridor = new GeoCorridor(polyline, (int) Math.ceil(area.sizeInMeters));
+        }
+        // Search Options with language code and maxItems
+        SearchOptions searchOptions = new SearchOptions(LanguageCode.EN_US, maxItems);
+        SearchCallback searchCallback = toSearchCallback(callback);
+
+        if (SearchCategory.isCategoryQuery(query)) {
+            List<PlaceCategory> categories = new ArrayList<>();
+            for (String categoryId : SearchCategory.categoryIds(query)) {
+                categories.add(new PlaceCategory(categoryId));
+            }
+            CategoryQuery categoryQuery = geoCorridor != null
+                    ? new CategoryQuery(categories, geoCorridor, center)
+                    : new CategoryQuery(categories, new GeoCircle(center, area.sizeInMeters));
+            searchEngine.search(categoryQuery, searchOptions, searchCallback);
+        } else {
+            TextQuery textQuery = geoCorridor != null
+                    ? new TextQuery(query, geoCorridor, center)
+                    : new TextQuery(query, new GeoCircle(center, area.sizeInMeters));
+            searchEngine.search(textQuery, searchOptions, searchCallback);
+        }
+    }
+
+    private static SearchCallback toSearchCallback(final Callback callback) {
+        return new SearchCallback() {
+            @Override
+            public void onSearchCompleted(SearchError searchError, List<Place> items) {
+                if (searchError == SearchError.NO_RESULTS_FOUND) {
+                    callback.onSearchCompleted(null, new ArrayList<PlaceRecord>());
+                } else if (searchError == SearchError.POLYLINE_TOO_LONG) {
+                    callback.onSearchCompleted(SearchFailure.POLYLINE_TOO_LONG, null);
+                } else if (searchError != null) {
+                    callback.onSearchCompleted(SearchFailure.OTHER, null);
+                } else {
+                    // If error is null, it is guaranteed that the items will not be null.
+                    callback.onSearchCompleted(null, toPlaceRecords(items));
+                }
+            }
+        };
+    }
+
+    private static List<PlaceRecord> toPlaceRecords(List<Place> items) {
+        List<PlaceRecord> places = new ArrayList<>(items.size());
+        for (Place place : items) {
+            GeoCoordinates coordinates = place.getGeoCoordinates();
+            if (coordinates == null) {
+                continue;
+            }
+            places.add(new PlaceRecord(place.getId(), place.getTitle(), coordinates.latitude, coordinates.longitude));
+        }
+        return places;
+    }
+}
@@ -0,0 +1,87 @@
+package com.abhistudio.restaurantfinderhere;
+
+import androidx.annotation.Nullable;
+
+import com.here.sdk.core.GeoCoordinates;
+import com.here.sdk.core.threading.TaskHandle;
+import com.here.sdk.routing.CalculateRouteCallback;
+import com.here.sdk.routing.CarOptions;
+import com.here.sdk.routing.Route;
+import com.here.sdk.routing.RoutingEngine;
+import com.here.sdk.routing.RoutingError;
+import com.here.sdk.routing.Section;
+import com.here.sdk.routing.SectionNotice;
+import com.here.sdk.routing.Waypoint;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RouteBackend calculating car routes with the RoutingEngine of the HERE SDK.
+ * Converts the waypoints to Waypoints and the calculated Route to a RouteRecord.
+ * Cancelling a calculation cancels the TaskHandle of the RoutingEngine and drops a result already on its way.
+ */
+public class HereRouteBackend implements RouteBackend {
+
+    private final RoutingEngine routingEngine;
+    private final CarOptions carOptions;
+
+    public HereRouteBackend(RoutingEngine routingEngine, CarOptions carOptions) {
+        this.routingEngine = routingEngine;
+        this.carOptions = carOptions;
+    }
+
+    @Override
+    public Cancellable calculateRoute(double[] waypointLatitudes, double[] waypointLongitudes, final Callback callback) {
+        List<Waypoint> waypoints = new ArrayList<>(waypointLatitudes.length);
+        for (int i = 0; i < waypointLatitudes.length; i++) {
+            waypoints.add(new Waypoint(new GeoCoordinates(waypointLatitudes[i], waypointLongitudes[i])));
+        }
+        final CancellationToken token = new CancellationToken();
+        final TaskHandle taskHandle = routingEngine.calculateRoute(waypoints, carOptions, new CalculateRouteCallback() {
+            @Override
+            public void onRouteCalculated(@Nullable RoutingError routingError, @Nullable List<Route> list) {
+                if (token.isCancelled()) {
+                    return;
+                }
+                if (routingError != null) {
+                    callback.onRouteCalculated(routingError.toString(), null);
+                    return;
+                }
+                // When routingError is null, routes is guaranteed to contain at least one route.
+                callback.onRouteCalculated(null, toRouteRecord(list.get(0)));
+            }
+        });
+        return new Cancellable() {
+            @Override
+            public void cancel() {
+                token.cancel();
+                taskHandle.cancel();
+            }
+        };
+    }
+
+    private static RouteRecord toRouteRecord(Route route) {
+        List<GeoCoordinates> polyline = route.getPolyline();
+        double[] latitudes = new double[polyline.size()];
+        double[] longitudes = new double[polyline.size()];
+        for (int i = 0; i < polyline.size(); i++) {
+            latitudes[i] = polyline.get(i).latitude;
+            longitudes[i] = polyline.get(i).longitude;
+        }
+        List<Section> sections = route.getSections();
+        double[] lengths = new double[sections.size()];
+        double[] durations = new double[sections.size()];
+        // A route may contain several warnings, for example, when a certain route option could not be fulfilled.
+        List<String> notices = new ArrayList<>();
+        for (int i = 0; i < sections.size(); i++) {
+            Section section = sections.get(i);
+            lengths[i] = section.getLengthInMeters();
+            durations[i] = section.getDurationInSeconds();
+            for (SectionNotice notice : section.getSectionNotices()) {
+                notices.add(String.valueOf(notice.code));
+            }
+        }
+        return new RouteRecord(latitudes, longitudes, lengths, durations, notices);
+    }
+}
@@ -5,6 +5,7 @@ import androidx.appcompat.app.AppCompatActivity;
 import android.os.Bundle;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.appcompat.app.AppCompatActivity;
 
 import android.os.Bundle;
@@ -26,33 +27,45 @@ public class MainActivity extends AppCompatActivity {
     private MapView mapView;
     // Class to search Restaurant along any route
     private  RestaurantFinder restaurantFinder;
+    // Phases of the app start until the map accepts long presses, logged and shown in systrace
+    private StartupTrace startupTrace;
+    // Creates the engines and decodes the marker images in the background while the map scene loads
+    private StartupPipeline startupPipeline;
 
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        startupTrace = new StartupTrace(StartupPipeline.ANDROID_TRACER);
+        StartupTrace.Section onCreateSection = startupTrace.begin("activity.onCreate");
         super.onCreate(savedInstanceState);
+        // started before the MapView, so the engines are created while the view inflates and the scene loads
+        startupPipeline = new StartupPipeline(getApplicationContext(), startupTrace);
         setContentView(R.layout.activity_main);
 
         // Get a MapView instance from layout.
         mapView = findViewById(R.id.map_view);
         mapView.onCreate(savedInstanceState);
+        onCreateSection.end();
 
         handleAndroidPermissions();
 
 
     }
     private void handleAndroidPermissions() {
+        final StartupTrace.Section permissionsSection = startupTrace.begin("permissions");
         permissionsRequestor = new PermissionsRequestor(this.getParent());
         permissionsRequestor.request(new PermissionsRequestor.ResultListener(){
 
             @Override
             public void permissionsGranted() {
+                permissionsSection.end();
                 // Permissions granted by user then load the Map Scene
                 loadMapScene();
             }
 
             @Override
             public void permissionsDenied() {
+                permissionsSection.end();
                 Log.e(TAG, "Permissions denied by user.");
             }
         });
@@ -65,13 +78,23 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void loadMapScene() {
+        final StartupTrace.Section loadSceneSection = startupTrace.begin("map.loadScene");
         // Normal Day Map is loaded with MapScheme
         mapView.getMapScene().loadScene(MapScheme.NORMAL_DAY, new MapScene.LoadSceneCallback() {
             @Override
             public void onLoadScene(@Nullable MapError mapError) {
+                loadSceneSection.end();
                 if (mapError == null) {
-                    // if no error on loading then instatiate the Restaurant search class
-                    restaurantFinder = new RestaurantFinder(MainActivity.this, mapView);
+                    // if no error on loading then instatiate the Restaurant search class, its engines
+                    // may still be created by the startupPipeline, requests wait for them
+                    StartupTrace.Section finderSection = startupTrace.begin("restaurantFinder.init");
+                    restaurantFinder = new RestaurantFinder(MainActivity.this, mapView,
+                            startupPipeline.getRouteBackend(), startupPipeline.getPlaceSearchBackend(),
+                            startupPipeline.getMapItemPool());
+                    finderSection.end();
+                    // long presses add waypoints from now on
+                    startupTrace.mark(StartupPipeline.INTERACTIVE);
+                    Log.d("Startup", "\n" + startupTrace.dump());
 
                 } else {
                     Log.d(TAG, "Loading map failed: mapErrorCode: " + mapError.name());
@@ -80,6 +103,14 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
+    /**
+     * Phases of the app start, the startup benchmark waits for StartupPipeline.INTERACTIVE
+     * */
+    @VisibleForTesting
+    public StartupTrace getStartupTrace() {
+        return startupTrace;
+    }
+
     /** Function to listen changes to Search query for restaurants
      */
     public void addResRouteButtonClicked(View view) {
@@ -109,6 +140,9 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        if (restaurantFinder != null) {
+            restaurantFinder.onDestroy();
+        }
         mapView.onDestroy();
         Log.d( "On Destroy: ","map on destroy called");
     }
@@ -0,0 +1,130 @@
+package com.abhistudio.restaurantfinderhere;
+
+import android.content.Context;
+import android.util.SparseArray;
+import android.widget.TextView;
+
+import com.here.sdk.core.Anchor2D;
+import com.here.sdk.core.GeoCoordinates;
+import com.here.sdk.mapview.MapImage;
+import com.here.sdk.mapview.MapImageFactory;
+import com.here.sdk.mapview.MapMarker;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * MapItemPool caches the MapImages of the marker drawables and recycles MapMarkers and label TextViews,
+ * so repeated searches and clearMap() cycles reuse the same instances instead of allocating new ones.
+ */
+public class MapItemPool {
+
+    // maximum no. of idle markers (per drawable) and labels kept for reuse
+    private static final int MAX_IDLE_ITEMS = 256;
+
+    private final Context context;
+    // resourceId of drawable -> decoded MapImage
+    private final SparseArray<MapImage> images = new SparseArray<>();
+    // resourceId of drawable -> idle markers using that drawable
+    private final SparseArray<ObjectPool<MapMarker>> markerPools = new SparseArray<>();
+    // marker handed out -> resourceId of its drawable, needed to release it to the right pool
+    private final Map<MapMarker, Integer> markerResources = new IdentityHashMap<>();
+    private final ObjectPool<TextView> labelPool;
+    private int imagesDecoded;
+
+    public MapItemPool(final Context context) {
+        this.context = context;
+        labelPool = new ObjectPool<>(new ObjectPool.Factory<TextView>() {
+            @Override
+            public TextView create() {
+                TextView textView = new TextView(context.getApplicationContext());
+                textView.setTextSize(8);
+                return textView;
+            }
+        }, MAX_IDLE_ITEMS);
+    }
+
+    /**
+     * Returns the MapImage of a drawable, decoding it only the first time
+     * */
+    public MapImage getImage(int resourceId) {
+        MapImage mapImage = images.get(resourceId);
+        if (mapImage == null) {
+            // MapImage represents a drawable resource that can be used by a MapMarker to be shown on the map
+            mapImage = MapImageFactory.fromResource(context.getResources(), resourceId);
+            images.put(resourceId, mapImage);
+            imagesDecoded++;
+        }
+        return mapImage;
+    }
+
+    /**
+     * Adds the MapImage of a drawable decoded elsewhere, e.g. by the StartupPipeline, unless it is decoded already
+     * */
+    public void putImage(int resourceId, MapImage mapImage) {
+        if (images.get(resourceId) == null) {
+            images.put(resourceId, mapImage);
+        }
+    }
+
+    /**
+     * Returns a MapMarker showing the drawable at the given coordinates, anchored at its bottom center
+     * */
+    public MapMarker acquireMarker(final GeoCoordinates geoCoordinates, final int resourceId) {
+        ObjectPool<MapMarker> pool = markerPools.get(resourceId);
+        if (pool == null) {
+            pool = new ObjectPool<>(new ObjectPool.Factory<MapMarker>() {
+                @Override
+                public MapMarker create() {
+                    MapMarker mapMarker = new MapMarker(geoCoordinates, getImage(resourceId));
+                    // anchoring map marker of better view
+                    mapMarker.setAnchor(new Anchor2D(0.5, 1.0));
+                    return mapMarker;
+                }
+            }, MAX_IDLE_ITEMS);
+            markerPools.put(resourceId, pool);
+        }
+        MapMarker mapMarker = pool.acquire();
+        mapMarker.setCoordinates(geoCoordinates);
+        markerResources.put(mapMarker, resourceId);
+        return mapMarker;
+    }
+
+    /**
+     * Gives back a marker that has been removed from the MapScene
+     * */
+    public void releaseMarker(MapMarker mapMarker) {
+        Integer resourceId = markerResources.remove(mapMarker);
+        if (resourceId != null) {
+            markerPools.get(resourceId).release(mapMarker);
+        }
+    }
+
+    public TextView acquireLabel(String title) {
+        TextView textView = labelPool.acquire();
+        textView.setText(title);
+        return textView;
+    }
+
+    /**
+     * Gives back a label that has been unpinned from the MapView
+     * */
+    public void releaseLabel(TextView textView) {
+        labelPool.release(textView);
+    }
+
+    /**
+     * Allocation counters, a repeated search of the same route should only increase the reused counts
+     * */
+    public String getStats() {
+        int markersCreated = 0;
+        int markersReused = 0;
+        for (int i = 0; i < markerPools.size(); i++) {
+            markersCreated += markerPools.valueAt(i).getCreatedCount();
+            markersReused += markerPools.valueAt(i).getReusedCount();
+        }
+        return "images decoded: " + imagesDecoded
+                + ", markers created: " + markersCreated + ", reused: " + markersReused
+                + ", labels created: " + labelPool.getCreatedCount() + ", reused: " + labelPool.getReusedCount();
+    }
+}
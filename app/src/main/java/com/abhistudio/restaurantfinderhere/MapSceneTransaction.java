@@ -0,0 +1,78 @@
+package com.abhistudio.restaurantfinderhere;
+
+import com.here.sdk.mapview.MapMarker;
+import com.here.sdk.mapview.MapPolyline;
+import com.here.sdk.mapview.MapScene;
+
+import java.util.List;
+
+/**
+ * MapSceneTransaction queues the markers and polylines added to and removed from the MapScene and applies
+ * them on commit(), see SceneTransaction. Markers are added and removed with one call for all of them,
+ * the MapScene has no bulk calls for polylines, there are only a few of them.
+ *
+ * Everything queued until commit() shows up on the map in the same frame, e.g. the old restaurants of
+ * a route are removed in the frame the new ones are added.
+ */
+public class MapSceneTransaction {
+
+    private final SceneTransaction<MapMarker> markers;
+    private final SceneTransaction<MapPolyline> polylines;
+
+    public MapSceneTransaction(final MapScene mapScene) {
+        markers = new SceneTransaction<>(new SceneTransaction.Scene<MapMarker>() {
+            @Override
+            public void addAll(List<MapMarker> items) {
+                mapScene.addMapMarkers(items);
+            }
+
+            @Override
+            public void removeAll(List<MapMarker> items) {
+                mapScene.removeMapMarkers(items);
+            }
+        });
+        polylines = new SceneTransaction<>(new SceneTransaction.Scene<MapPolyline>() {
+            @Override
+            public void addAll(List<MapPolyline> items) {
+                for (MapPolyline mapPolyline : items) {
+                    mapScene.addMapPolyline(mapPolyline);
+                }
+            }
+
+            @Override
+            public void removeAll(List<MapPolyline> items) {
+                for (MapPolyline mapPolyline : items) {
+                    mapScene.removeMapPolyline(mapPolyline);
+                }
+            }
+        });
+    }
+
+    public void addMapMarker(MapMarker mapMarker) {
+        markers.add(mapMarker);
+    }
+
+    public void removeMapMarker(MapMarker mapMarker) {
+        markers.remove(mapMarker);
+    }
+
+    public void addMapPolyline(MapPolyline mapPolyline) {
+        polylines.add(mapPolyline);
+    }
+
+    public void removeMapPolyline(MapPolyline mapPolyline) {
+        polylines.remove(mapPolyline);
+    }
+
+    /**
+     * Applies everything queued since the last commit to the MapScene
+     * */
+    public void commit() {
+        polylines.commit();
+        markers.commit();
+    }
+
+    public int getPendingCount() {
+        return markers.getPendingCount() + polylines.getPendingCount();
+    }
+}
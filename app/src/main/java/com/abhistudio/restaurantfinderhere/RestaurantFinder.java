@@ -1,53 +1,43 @@
 package com.abhistudio.restaurantfinderhere;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import android.util.TypedValue;
 import android.view.View;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
 import androidx.appcompat.app.AlertDialog;
 
-import com.here.sdk.core.Anchor2D;
 import com.here.sdk.core.Color;
-import com.here.sdk.core.GeoCircle;
 import com.here.sdk.core.GeoCoordinates;
-import com.here.sdk.core.GeoCorridor;
 import com.here.sdk.core.GeoPolyline;
-import com.here.sdk.core.LanguageCode;
 import com.here.sdk.core.Point2D;
 import com.here.sdk.core.errors.InstantiationErrorException;
 import com.here.sdk.gestures.GestureState;
 import com.here.sdk.gestures.LongPressListener;
 import com.here.sdk.mapview.MapCamera;
-import com.here.sdk.mapview.MapImage;
-import com.here.sdk.mapview.MapImageFactory;
 import com.here.sdk.mapview.MapMarker;
-import com.here.sdk.mapview.MapPolygon;
 import com.here.sdk.mapview.MapPolyline;
 import com.here.sdk.mapview.MapView;
-import com.here.sdk.routing.CalculateRouteCallback;
 import com.here.sdk.routing.CarOptions;
 
-import com.here.sdk.routing.Route;
 import com.here.sdk.routing.RoutingEngine;
-import com.here.sdk.routing.RoutingError;
-import com.here.sdk.routing.Section;
-import com.here.sdk.routing.SectionNotice;
 import com.here.sdk.routing.Waypoint;
-import com.here.sdk.search.CategoryQuery;
-import com.here.sdk.search.Place;
-import com.here.sdk.search.PlaceCategory;
-import com.here.sdk.search.SearchCallback;
 import com.here.sdk.search.SearchEngine;
-import com.here.sdk.search.SearchError;
-import com.here.sdk.search.SearchOptions;
-import com.here.sdk.search.TextQuery;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 /**
  *  RestaurantFinder class for finding restaurants along a route
@@ -55,50 +45,342 @@ import java.util.List;
  */
 public class RestaurantFinder {
 
-    // Variables for calculating the center of a GeoCircle with a list of GeoCoordinates
-    private static double pi = Math.PI / 180;
-    private static double xpi = 180 / Math.PI;
+    // In sparse regions the corridor is widened up to MAX_HALF_WIDTH_IN_METERS to find about
+    // TARGET_RESTAURANTS_PER_CHUNK, see AdaptiveSearchController
+    private static final double MAX_HALF_WIDTH_IN_METERS = 1000;
+    private static final int TARGET_RESTAURANTS_PER_CHUNK = 10;
+    private static final int MAX_ITEMS_PER_REQUEST = 100;
+    // Chunks within 20 km or 15 minutes ahead of the vehicle are prefetched, one request at a time, see RoutePrefetcher
+    private static final double PREFETCH_LOOK_AHEAD_IN_METERS = 20000;
+    private static final double PREFETCH_LOOK_AHEAD_IN_SECONDS = 15 * 60;
+    private static final int MAX_PREFETCHES_IN_FLIGHT = 1;
+    private static final int MAX_PREFETCHES_PER_ROUTE = 50;
+    private static final int MAX_SEARCHES_IN_FLIGHT = 4;
+    // On device cache of the places found, see PlaceTileCache
+    private static final String PLACE_TILE_CACHE_DIRECTORY = "place_tiles";
+    private static final long PLACE_TILE_CACHE_TIME_TO_LIVE_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final long PLACE_TILE_CACHE_MAX_BYTES = 20 * 1024 * 1024L;
+    private static final int PLACE_TILE_LEVEL = 14;
+    private static final int MAX_ITEMS_PER_TILE = 50;
+    // Offline restaurants imported with PoiPackImporter and copied to the files directory of the app
+    private static final String POI_PACK_FILE = "restaurants.pack";
+    // Restaurants closer than CLUSTER_CELL_SIZE_IN_PIXELS are clustered up to MAX_CLUSTER_ZOOM_LEVEL
+    private static final int MAX_CLUSTER_ZOOM_LEVEL = 16;
+    private static final int CLUSTER_CELL_SIZE_IN_PIXELS = 80;
+    // Only restaurants within half a screen around the visible area get markers, labels only from zoom level 13
+    private static final double VIEWPORT_MARGIN = 0.5;
+    private static final int MIN_LABEL_ZOOM_LEVEL = 13;
+    // maximum no. of calculated routes kept in memory
+    private static final int MAX_CACHED_ROUTES = 8;
+    // Restaurants kept along the route for an all day session, see ResultStore: at most MAX_STORED_RESULTS
+    // or MAX_STORED_RESULT_BYTES, dropped 2 km behind the vehicle or 2 hours after they were found
+    private static final int MAX_STORED_RESULTS = 500;
+    private static final long MAX_STORED_RESULT_BYTES = 256 * 1024L;
+    private static final double KEEP_RESULTS_BEHIND_IN_METERS = 2000;
+    private static final long MAX_RESULT_AGE_MILLIS = 2 * 60 * 60 * 1000L;
+    // maximum no. of restaurant markers added to the map in one frame
+    private static final int MAX_MARKERS_PER_FRAME = 8;
+    // Worker threads of the computeExecutor running the route geometry
+    private static final int COMPUTE_THREADS = 2;
+    // Metrics of a search from the button press to the last marker on the map, recorded in debug builds
+    private static final Metrics.Timer ROUTE_TIMER = Metrics.timer("search.route");
+    private static final Metrics.Timer FIRST_MARKER_TIMER = Metrics.timer("search.firstMarker");
+    private static final Metrics.Timer LAST_MARKER_TIMER = Metrics.timer("search.lastMarker");
+    private static final Metrics.Timer RENDER_RESULT_TIMER = Metrics.timer("map.renderResult");
+    private static final Metrics.Timer ADD_MARKER_TIMER = Metrics.timer("map.addMarker");
+    private static final Metrics.Counter SEARCHES = Metrics.counter("search.searches");
 
     private Context context;
     private MapView mapView;
+    // Queues the markers and polylines added to and removed from the map, committed at once per frame or action
+    private MapSceneTransaction sceneTransaction;
+    // Cache of marker images and pool of markers and label views reused across searches
+    private MapItemPool mapItemPool;
+    // Restaurants found along the route, shown as clusters depending on the zoom level
+    private ResultClusterLayer resultClusterLayer;
     private List<Waypoint> wayPoints = new ArrayList<>();
     private List<MapMarker> mapMarkers = new ArrayList<>();
+    // labels pinned next to the waypoint markers, unpinned with them
+    private List<MapView.ViewPin> waypointPins = new ArrayList<>();
     private List<MapPolyline> mapPolylines = new ArrayList<>();
-    private List<MapPolygon> mapPolygons = new ArrayList<>();
-    private RoutingEngine routingEngine;
-    private SearchEngine searchEngine;
-    private GeoCoordinates startGeoCoordinates;
-    private GeoCoordinates destinationGeoCoordinates;
-    private List<String> chargingStationsIDs = new ArrayList<>();
-    private  List<GeoCoordinates> mapCoordinates;
+    // Calculates the routes and searches the places, the HERE SDK engines unless others are injected
+    private RouteBackend routeBackend;
+    // Keeps one match per found restaurant along the current route, handed over by the incrementalSearch
+    private PlaceMatchAssembler<PlaceRecord> placeMatchAssembler = new PlaceMatchAssembler<>();
+    // Compares a new route with the current one, so only the changed stretches are searched again
+    private IncrementalRouteSearch incrementalSearch;
+    // Prepares routes and searches them in corridor chunks with a bounded number of requests in flight
+    private RouteSearchEngine routeSearchEngine;
+    private CorridorSearch.Session searchSession;
+    // Route of the last search, searchCategoriesAlongRoute() reuses its geometry and index
+    private PreparedRoute activeRoute;
+    private MultiCategorySearch categorySearch;
+    // Caches calculated routes and coalesces identical route requests
+    private RequestCoalescer<RouteRecord, String> routeRequests = new RequestCoalescer<>(MAX_CACHED_ROUTES);
+    // Listeners of the restaurants found along the route
+    private List<PlaceMatchListener> placeMatchListeners = new ArrayList<>();
+    // Adds the found restaurants to the resultClusterLayer and notifies the listeners, a few per frame
+    private FrameBatcher<PlaceMatchAssembler.Match<PlaceRecord>> markerBatcher;
+    // Best restaurants of the current search by detour, only used on the main thread
+    private PlaceRanker<PlaceRecord> placeRanker;
+    // Every restaurant found along the route within a memory budget, the placeRanker picks the shown ones from it
+    private ResultStore<PlaceRecord> resultStore = new ResultStore<>(MAX_STORED_RESULTS, MAX_STORED_RESULT_BYTES,
+            KEEP_RESULTS_BEHIND_IN_METERS, MAX_RESULT_AGE_MILLIS, new ResultStore.Sizer<PlaceRecord>() {
+        @Override
+        public long estimateBytes(PlaceRecord place) {
+            return place.estimateRetainedBytes();
+        }
+    }, PlaceTileCache.SYSTEM_CLOCK);
+    private long searchStartTime;
+    private boolean firstMarkerLogged;
+    // Metrics.now() of the button press of the running search, 0 once its last marker is on the map
+    private long searchStartNanos;
+    private boolean searchFinished;
+    // Runs the route geometry and the filtering of the found places off the main thread
+    private ComputeExecutor computeExecutor;
+    // Token of the route being prepared, cancelled once a newer route arrives
+    private CancellationToken prepareToken;
+    // Token of the running search, cancelled by the next search, clearMap() and onDestroy()
+    private volatile CancellationToken searchToken;
+    // Warms the place cache along the active route ahead of the vehicle, paused while a search is running
+    private RoutePrefetcher routePrefetcher;
+
+    /**
+     * The RouteOrderedEmitter of every search hands the places to the result dispatcher of the search in route order,
+     * starting with the ones nearest to the origin, as soon as the chunks covering them completed.
+     * It is called on the compute threads, the map is only changed from the main thread.
+     * Once the token of the search is cancelled, none of its places reach the markerBatcher anymore
+     * */
+    private PlaceMatchListener createResultDispatcher(final CancellationToken token) {
+        return new PlaceMatchListener() {
+            @Override
+            public void onPlaceMatched(PlaceMatchAssembler.Match<PlaceRecord> match) {
+                // Markers are added to the map in batches, once per frame, see cancelSearchResults()
+                synchronized (markerBatcher) {
+                    if (!token.isCancelled()) {
+                        markerBatcher.add(match);
+                    }
+                }
+            }
+
+            @Override
+            public void onSearchFinished(final int matchCount, final int duplicatesAvoided) {
+                computeExecutor.postToMainThread(token, new Runnable() {
+                    @Override
+                    public void run() {
+                        Log.d("Search", "Restaurants along the route: " + matchCount
+                                + ", duplicate markers avoided: " + duplicatesAvoided
+                                + ", results stored: " + resultStore.getStats());
+                        for (PlaceMatchListener listener : placeMatchListeners) {
+                            listener.onSearchFinished(matchCount, duplicatesAvoided);
+                        }
+                        searchFinished = true;
+                        routePrefetcher.setPaused(false);
+                        if (markerBatcher.getPendingCount() == 0) {
+                            onLastMarkerRendered();
+                        }
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Cancels the token of the running search and drops its restaurants waiting for a frame. Both happen
+     * while holding the markerBatcher, so a compute thread can not add a restaurant of the cancelled search
+     * after the markerBatcher was cleared
+     * */
+    private void cancelSearchResults() {
+        synchronized (markerBatcher) {
+            if (searchToken != null) {
+                searchToken.cancel();
+            }
+            markerBatcher.clear();
+        }
+    }
+
+    /**
+     * A prepared route, its changes to the current route and the GeoPolyline drawing it, all made on the compute threads
+     * */
+    private static class MapRoute {
+        PreparedRoute prepared;
+        IncrementalRouteSearch.Delta delta;
+        GeoPolyline geoPolyline;
+    }
 
 
     /**
      * Constructor for RestaurantFinder Class
      * Here, RoutingEngine routes from point A to B with a number of waypoints in between them
-     * and SearchEngine for search, geocoding and suggestions of HERE services from HERE SDK is instantiated
+     * and SearchEngine for search, geocoding and suggestions of HERE services from HERE SDK is instantiated.
+     * The engines are created on the calling thread, MainActivity creates them in the background with the
+     * StartupPipeline instead
      * */
     public RestaurantFinder(Context context, MapView mapView) {
+        this(context, mapView, createRouteBackend(), createPlaceSearchBackend(context));
+    }
+
+    /**
+     * Constructor for RestaurantFinder with the given backends, for example the FakeRouteBackend and
+     * FakePlaceSearchBackend to run the app without the HERE services
+     * */
+    public RestaurantFinder(Context context, MapView mapView, RouteBackend routeBackend,
+                            PlaceSearchBackend placeSearchBackend) {
+        this(context, mapView, routeBackend, placeSearchBackend, new MapItemPool(context));
+    }
+
+    /**
+     * Constructor for RestaurantFinder with the given backends and a MapItemPool that may already hold
+     * the decoded marker images, see StartupPipeline
+     * */
+    public RestaurantFinder(Context context, MapView mapView, RouteBackend routeBackend,
+                            PlaceSearchBackend placeSearchBackend, MapItemPool mapItemPool) {
         this.context = context;
         this.mapView = mapView;
+        this.routeBackend = routeBackend;
+        this.mapItemPool = mapItemPool;
+        this.sceneTransaction = new MapSceneTransaction(mapView.getMapScene());
+        this.resultClusterLayer = new ResultClusterLayer(mapView, sceneTransaction, mapItemPool, R.drawable.marker,
+                new PlaceClusterer(MAX_CLUSTER_ZOOM_LEVEL, CLUSTER_CELL_SIZE_IN_PIXELS),
+                new ViewportCuller(VIEWPORT_MARGIN, MIN_LABEL_ZOOM_LEVEL));
         MapCamera camera = mapView.getCamera();
         double distanceInMeters = 1000 * 10;
         camera.lookAt(new GeoCoordinates(52.520798, 13.409408), distanceInMeters);
 
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        computeExecutor = new ComputeExecutor(COMPUTE_THREADS, new ComputeExecutor.MainThread() {
+            @Override
+            public void post(Runnable runnable) {
+                mainHandler.post(runnable);
+            }
+        }, new ComputeExecutor.FailureHandler() {
+            @Override
+            public void onTaskFailed(RuntimeException error) {
+                Log.e("Compute", "Route geometry failed", error);
+                showDialog("Error while preparing the route: ", String.valueOf(error.getMessage()));
+            }
+        });
+        if (BuildConfig.DEBUG) {
+            // timings of the search pipeline, dumped to the log after every search. Android has no supported
+            // per thread allocation counter, the allocations are measured by the benchmark module
+            Metrics.enable(null);
+            // strict mode for the route geometry, fails fast when it runs on the main thread
+            ThreadGuard.install(new ThreadGuard.MainThreadChecker() {
+                @Override
+                public boolean isMainThread() {
+                    return Looper.myLooper() == Looper.getMainLooper();
+                }
+            });
+        }
+        // learns the restaurant density along the routes and retries failed chunk searches, backing off on the main thread
+        AdaptiveSearchController searchController = new AdaptiveSearchController(MAX_HALF_WIDTH_IN_METERS,
+                TARGET_RESTAURANTS_PER_CHUNK, MAX_ITEMS_PER_REQUEST, new AdaptiveSearchController.Scheduler() {
+            @Override
+            public void schedule(Runnable task, long delayInMillis) {
+                mainHandler.postDelayed(task, delayInMillis);
+            }
+        });
+        routeSearchEngine = new RouteSearchEngine(placeSearchBackend, MAX_SEARCHES_IN_FLIGHT, computeExecutor,
+                searchController, MAX_CACHED_ROUTES);
+        incrementalSearch = new IncrementalRouteSearch(routeSearchEngine);
+        routePrefetcher = new RoutePrefetcher(placeSearchBackend, SearchCategory.RESTAURANTS.query, routeSearchEngine.getMaxItemsPerChunk(),
+                PREFETCH_LOOK_AHEAD_IN_METERS, PREFETCH_LOOK_AHEAD_IN_SECONDS, MAX_PREFETCHES_IN_FLIGHT,
+                MAX_PREFETCHES_PER_ROUTE);
+        markerBatcher = new FrameBatcher<>(new ChoreographerFrameScheduler(), MAX_MARKERS_PER_FRAME,
+                new FrameBatcher.Renderer<PlaceMatchAssembler.Match<PlaceRecord>>() {
+            @Override
+            public void render(PlaceMatchAssembler.Match<PlaceRecord> match) {
+                long renderStart = Metrics.now();
+                long allocatedAtStart = Metrics.allocatedBytes();
+                // the store may be full of restaurants closer to the vehicle, the match is then evicted right away
+                List<PlaceMatchAssembler.Match<PlaceRecord>> evicted = resultStore.add(match);
+                if (resultStore.contains(match.id)) {
+                    rank(match);
+                }
+                evictResults(evicted);
+                for (PlaceMatchListener listener : placeMatchListeners) {
+                    listener.onPlaceMatched(match);
+                }
+                RENDER_RESULT_TIMER.stop(renderStart, allocatedAtStart);
+                if (!firstMarkerLogged) {
+                    firstMarkerLogged = true;
+                    FIRST_MARKER_TIMER.stop(searchStartNanos);
+                    Log.d("Search", "First restaurant marker after "
+                            + (SystemClock.elapsedRealtime() - searchStartTime) + " ms");
+                }
+            }
+        }, new FrameBatcher.FrameListener() {
+            @Override
+            public void onFrameRendered(int itemCount) {
+                // the markers of the frame are added to the map with one commit
+                sceneTransaction.commit();
+                if (searchFinished && markerBatcher.getPendingCount() == 0) {
+                    onLastMarkerRendered();
+                }
+            }
+        });
+        // Gesture Listener for placing the Source and Destination Map Markers along which routing has to be done
+        setGestureMapMarkers();
+    }
+
+    /**
+     * RouteBackend calculating car routes with the RoutingEngine of the HERE SDK, may be called on any thread
+     * */
+    static RouteBackend createRouteBackend() {
         try {
-            routingEngine = new RoutingEngine();
+            return new HereRouteBackend(new RoutingEngine(), new CarOptions());
         } catch (InstantiationErrorException e) {
             throw new RuntimeException("Initialization of RoutingEngine failed: " + e.error.name());
         }
+    }
 
+    /**
+     * PlaceSearchBackend searching with the SearchEngine of the HERE SDK, behind the tile cache and the offline pack.
+     * Reads the offline pack from disk, the StartupPipeline calls it on its background thread
+     * */
+    static PlaceSearchBackend createPlaceSearchBackend(Context context) {
+        SearchEngine searchEngine;
         try {
             // Add search engine to search for places along a route.
             searchEngine = new SearchEngine();
         } catch (InstantiationErrorException e) {
             throw new RuntimeException("Initialization of SearchEngine failed: " + e.error.name());
         }
-        // Gesture Listener for placing the Source and Destination Map Markers along which routing has to be done
-        setGestureMapMarkers();
+        // Places found are cached on the device per tile, a route through an area searched before is served from the cache
+        PlaceTileCache placeTileCache = new PlaceTileCache(new File(context.getCacheDir(), PLACE_TILE_CACHE_DIRECTORY),
+                PLACE_TILE_CACHE_TIME_TO_LIVE_MILLIS, PLACE_TILE_CACHE_MAX_BYTES, PlaceTileCache.SYSTEM_CLOCK);
+        // the tiles are read and written on a background thread, the searches start and end on the main thread
+        PlaceSearchBackend placeSearchBackend = new CachingPlaceSearchBackend(new HerePlaceSearchBackend(searchEngine),
+                placeTileCache, PLACE_TILE_LEVEL, MAX_ITEMS_PER_TILE, MAX_SEARCHES_IN_FLIGHT,
+                newBackgroundExecutor("place-cache"));
+        // Routes inside the offline pack are searched without network, the SearchEngine is used outside of it
+        // and where the pack finds nothing. The pack is read on a background thread of its own
+        File poiPackFile = new File(context.getFilesDir(), POI_PACK_FILE);
+        if (poiPackFile.isFile()) {
+            try {
+                PoiPack poiPack = PoiPack.open(poiPackFile);
+                placeSearchBackend = new OfflinePlaceSearchBackend(poiPack, placeSearchBackend,
+                        newBackgroundExecutor("poi-pack"));
+                Log.d("Search", "Offline pack with " + poiPack.size() + " " + poiPack.getCategory() + " loaded");
+            } catch (IOException e) {
+                Log.e("Search", "Offline pack can not be read: " + e.getMessage());
+            }
+        }
+        return placeSearchBackend;
+    }
+
+    /**
+     * Single daemon thread running the disk I/O of a place search backend in submission order
+     * */
+    private static Executor newBackgroundExecutor(final String name) {
+        return Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
     }
 
     /**
@@ -127,59 +409,156 @@ public class RestaurantFinder {
     /**
      * Listener for Restaurant search along a route Button
      * Calculates Car route based on start and destination coordinates selected by user through setGestureMapMarkers function
-     * routingEngine -> takes 3 parameters (List<WayPoints>, CarOptions, RouteCallback)
+     * routeBackend -> takes the waypoint coordinates and a callback
      */
     public void addResRouteButtonClicked() {
 
-        // Creating a car option
-        CarOptions carOptions = new CarOptions();
-        //carOptions.routeOptions.alternatives = 0;
+        SEARCHES.increment();
+        searchStartNanos = Metrics.now();
+        searchFinished = false;
 
-        routingEngine.calculateRoute(wayPoints, carOptions, new CalculateRouteCallback() {
+        // the waypoints of this request, later long presses must not change them
+        final double[] latitudes = new double[wayPoints.size()];
+        final double[] longitudes = new double[wayPoints.size()];
+        for (int i = 0; i < wayPoints.size(); i++) {
+            latitudes[i] = wayPoints.get(i).coordinates.latitude;
+            longitudes[i] = wayPoints.get(i).coordinates.longitude;
+        }
+
+        /*
+          Routes are calculated through the routeRequests front end: a route already calculated for the same
+          waypoints and options comes from its cache, a double tap joins the calculation already running,
+          and the calculation of a request superseded by a newer one is cancelled, its route is never rendered
+        */
+        routeRequests.request(routeKey(latitudes, longitudes), new RequestCoalescer.Loader<RouteRecord, String>() {
+            @Override
+            public Cancellable load(final RequestCoalescer.Callback<RouteRecord, String> callback) {
+                final long routeStart = Metrics.now();
+                return routeBackend.calculateRoute(latitudes, longitudes, new RouteBackend.Callback() {
+                    @Override
+                    public void onRouteCalculated(String error, RouteRecord route) {
+                        ROUTE_TIMER.stop(routeStart);
+                        callback.onResult(error, route);
+                    }
+                });
+            }
+        }, new RequestCoalescer.Callback<RouteRecord, String>() {
             @Override
-            public void onRouteCalculated(@Nullable RoutingError routingError, @Nullable List<Route> list) {
+            public void onResult(String routingError, RouteRecord route) {
 
                 if (routingError != null) {
-                    showDialog("Error while calculating a route: ", routingError.toString());
+                    showDialog("Error while calculating a route: ", routingError);
                     return;
                 }
-                // When routingError is null, routes is guaranteed to contain at least one route.
-                Route route = list.get(0);
-                // below function show route on the map with this function
-                showRouteOnMap(route);
+                // the route geometry is prepared on the compute threads, only drawing it is left to the main thread
+                prepareRoute(route);
+
+            }
+        });
+    }
+
+    /**
+     * Function prepareRoute simplifies, indexes and splits the route on the compute threads and then
+     * draws it and starts the search on the main thread. A newer route and clearing the map drop a route
+     * still being prepared
+     * */
+    private void prepareRoute(final RouteRecord route) {
+        if (prepareToken != null) {
+            prepareToken.cancel();
+        }
+        prepareToken = computeExecutor.newToken();
+        computeExecutor.submit(prepareToken, new ComputeExecutor.Task<MapRoute>() {
+            @Override
+            public MapRoute compute(CancellationToken token) {
+                MapRoute mapRoute = new MapRoute();
                 // shows warning for route that can not be calculated
                 logRouteViolations(route);
-                // below function searches and adds restaurants along the given route
-                searchAlongARoute(route);
-
+                // simplified, indexed and split by the routeSearchEngine, all geometry of the search works on the
+                // packed polyline, GeoCoordinates are only created for drawing
+                mapRoute.prepared = routeSearchEngine.prepare(route);
+                logSimplifiedRoute(mapRoute.prepared.polyline);
+                if (token.isCancelled()) {
+                    return null;
+                }
+                // only the stretches that differ from the route on the map are searched again, the route on the
+                // map stays the current one of the incrementalSearch until the delta is searched
+                mapRoute.delta = incrementalSearch.diff(mapRoute.prepared);
+                mapRoute.geoPolyline = toGeoPolyline(mapRoute.prepared.polyline);
+                return mapRoute;
+            }
+        }, new ComputeExecutor.Callback<MapRoute>() {
+            @Override
+            public void onResult(MapRoute mapRoute) {
+                if (incrementalSearch.isStale(mapRoute.delta)) {
+                    // the route on the map changed while this one was diffed
+                    prepareRoute(route);
+                    return;
+                }
+                // below function replaces the route on the map with the new one
+                clearRoute();
+                showRouteOnMap(mapRoute.geoPolyline);
+                // below function searches and adds restaurants along the changed stretches of the route
+                searchAlongARoute(mapRoute.delta);
+                // the new route and the restaurants it keeps replace the old ones in the same frame
+                sceneTransaction.commit();
             }
         });
     }
+
+    /**
+     * Cache key of a route request, made of the waypoint coordinates
+     * */
+    private static String routeKey(double[] latitudes, double[] longitudes) {
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < latitudes.length; i++) {
+            key.append(latitudes[i]).append(',').append(longitudes[i]).append(';');
+        }
+        return key.toString();
+    }
+
     // A route may contain several warnings, for example, when a certain route option could not be fulfilled.
     // An implementation may decide to reject a route if one or more violations are detected.
-    private void logRouteViolations(Route route) {
-        List<Section> sections = route.getSections();
-        for (Section section : sections) {
-            for (SectionNotice notice : section.getSectionNotices()) {
-                Log.d("RouteViolations", "This route contains the following warning: " + notice.code);
-            }
+    private void logRouteViolations(RouteRecord route) {
+        for (String notice : route.notices) {
+            Log.d("RouteViolations", "This route contains the following warning: " + notice);
         }
     }
     /**
-     * showRouteOnMap Function takes the Route parameter and draws the route from point A to B
+     * Function logSimplifiedRoute logs how far the PolylineSimplifier reduced the vertices of the route polyline
      * */
-    private void showRouteOnMap(Route route) {
-        // Show route as polyline.
+    private static void logSimplifiedRoute(PolylineSimplifier.Result simplified) {
+        Log.d("Route", "Polyline simplified from " + simplified.originalVertexCount + " to "
+                + simplified.getVertexCount() + " vertices (" + Math.round(simplified.getReductionRatio() * 10) / 10.0
+                + "x) in " + simplified.durationNanos / 1000 + " us");
+    }
+
+    /**
+     * Function toGeoPolyline converts the simplified route polyline to the GeoPolyline drawn on the map
+     * */
+    private static GeoPolyline toGeoPolyline(PolylineSimplifier.Result routePolyline) {
         // GeoPolyline is a list of geographic coordinates representing the vertices of a polyline.
-        GeoPolyline routeGeoPolyline;
+        List<GeoCoordinates> vertices = new ArrayList<>(routePolyline.getVertexCount());
+        for (int i = 0; i < routePolyline.getVertexCount(); i++) {
+            vertices.add(new GeoCoordinates(routePolyline.latitudes[i], routePolyline.longitudes[i]));
+        }
         // we must instantiate the GeoPolyline in try-catch block to avoid errors for
         // when we have less than two vertices for showing route
         try {
-            routeGeoPolyline = new GeoPolyline(route.getPolyline());
+            return new GeoPolyline(vertices);
         } catch (InstantiationErrorException e) {
             // It should never happen that a route polyline contains less than two vertices.
+            return null;
+        }
+    }
+
+    /**
+     * showRouteOnMap Function takes the simplified route polyline and draws the route from point A to B
+     * */
+    private void showRouteOnMap(GeoPolyline routeGeoPolyline) {
+        if (routeGeoPolyline == null) {
             return;
         }
+        // Show route as polyline.
 
         float widthInPixels = 20;
         // Selecting the width and color of the route
@@ -187,8 +566,8 @@ public class RestaurantFinder {
                 widthInPixels,
                 Color.valueOf(0, 0.56f, 0.54f, 0.63f)); // RGBA
 
-        // Adding the routeMapPolyline to the MapVIew
-        mapView.getMapScene().addMapPolyline(routeMapPolyline);
+        // Adding the routeMapPolyline to the MapVIew with the next commit
+        sceneTransaction.addMapPolyline(routeMapPolyline);
         mapPolylines.add(routeMapPolyline);
 
     }
@@ -196,125 +575,340 @@ public class RestaurantFinder {
     /**
      * Main Function for searching the places along a given route
      * Perform a search for Restaurants along the found route.
-     * Function searchAlongARoute, takes Route as parameter and
+     * Function searchAlongARoute, takes the changes of the route as parameter and
      * plots the Map Markers on the MapView at the found Geo-Coordinates
-     * along the given route
+     * along the changed stretches of the given route
     */
-    private void searchAlongARoute(Route route) {
-
-        // We specify here that we only want to include results
-        // within a max distance of x meters from any point of the route.
-
-        int halfWidthInMeters = 200;
+    private void searchAlongARoute(IncrementalRouteSearch.Delta delta) {
+        PreparedRoute preparedRoute = delta.route;
+        // We only want to include results within preparedRoute.halfWidthInMeters of any point of the route,
+        // chunks in sparse regions are searched with wider corridors, up to preparedRoute.maxHalfWidthInMeters
 
         /**
          *                    Algorithm for finding restaurants along a route
-         * We are calculating a center Geo Coordinate for a Geo Circle around the given route
-         * and take radius for the geo circle as the length of the given route to cover the
-         * restauarant coordinates around the given route.
-         * Geo Circle represents a circle area in 2D space
+         * We split the route in overlapping corridor chunks of a few kilometers with the corridorPlanner
+         * and search every chunk with a GeoCorridor of halfWidthInMeters around it.
+         * Searching one big Geo Circle around the whole route covers an area growing with the square
+         * of the route length, while the chunks only cover the route itself and every chunk gets
+         * its own maxItems budget.
         */
-        // newCenter -> calculates the center based on the list of Geo Coordinates
-        GeoCoordinates center = newCenter(route.getPolyline());
-        double radius = route.getLengthInMeters();
-        GeoCircle geoCircle = new GeoCircle(center,radius);
-
-        /*
-          We are performing TextQuery with the query text "restaurants" and around the geoCircle
-          that we got from above calculation
-        * */
-        TextQuery textQuery = new TextQuery("restaurants", geoCircle);
+        List<CorridorPlanner.Chunk> chunks = delta.chunks;
+        Log.d("Search", "Searching " + chunks.size() + " of " + preparedRoute.chunks.size()
+                + " corridor chunks along the route, " + Math.round(delta.getChangedLengthInMeters()) + " m changed, "
+                + delta.kept.size() + " restaurants kept, " + delta.removed.size() + " removed");
 
-        // maximum no. of items to search along the route
-        int maxItems = 30;
-        // Search Options with language code and maxItems
-        SearchOptions searchOptions = new SearchOptions(LanguageCode.EN_US, maxItems);
+        searchStartTime = SystemClock.elapsedRealtime();
+        firstMarkerLogged = false;
 
+        // Cancel the results of a previous search that might still be running
+        if (searchSession != null) {
+            searchSession.cancel();
+        }
+        // the categories searched along the previous route are not wanted anymore
+        cancelCategorySearch();
+        cancelSearchResults();
+        searchToken = computeExecutor.newToken();
+        // the restaurants of the previous route still along this one stay on the map, only the difference is applied
+        List<PlaceRanker.RankedPlace<PlaceRecord>> shownBefore = getRankedRestaurants();
+        placeRanker = new PlaceRanker<>(preparedRoute.detourEstimator, SearchCategory.RESTAURANTS.maxResults);
+        // the kept restaurants are stored again with their offsets along the new route
+        resultStore.clear();
+        List<PlaceMatchAssembler.Match<PlaceRecord>> evicted = new ArrayList<>();
+        for (PlaceMatchAssembler.Match<PlaceRecord> kept : delta.kept) {
+            evicted.addAll(resultStore.add(kept));
+        }
+        synchronized (delta.assembler) {
+            for (PlaceMatchAssembler.Match<PlaceRecord> match : evicted) {
+                delta.assembler.remove(match.id);
+            }
+        }
+        for (PlaceMatchAssembler.Match<PlaceRecord> stored : resultStore.getMatches()) {
+            placeRanker.offer(stored);
+        }
+        applyRankedDelta(shownBefore, placeRanker.getRanked());
+        placeMatchAssembler = delta.assembler;
+        activeRoute = preparedRoute;
 
         /**
-         * Here, we are using the Search Engine instantiated in the constructor
-         * SearchEngine.search take 3 parameters (TextQuery, SearchOptions, SearchCallback)
+         * Here, we are using the routeSearchEngine instantiated in the constructor, it runs at most
+         * MAX_SEARCHES_IN_FLIGHT chunk searches at the same time and streams the places of every chunk
+         * once it completes. Places are filtered with the route index on the compute threads, deduplicated
+         * by the placeMatchAssembler and plotted with the marker drawable, also pinning the title of restaurant with it
          */
-        searchEngine.search(textQuery, searchOptions, new SearchCallback() {
-            // After the search is completed we come to this block
+        RouteOrderedEmitter routeOrderedEmitter = new RouteOrderedEmitter(chunks, preparedRoute.maxHalfWidthInMeters,
+                createResultDispatcher(searchToken)) {
             @Override
-            public void onSearchCompleted(SearchError searchError, List<Place> items) {
-                if (searchError != null) {
-                    if (searchError == SearchError.POLYLINE_TOO_LONG) {
-                        // Increasing halfWidthInMeters will result in less precise results with the benefit of a less
-                        // complex route shape.
-                        Log.d("Search", "Route too long or halfWidthInMeters too small.");
-                    } else {
-                        Log.d("Search", "No Restaurants found along the route. Error: " + searchError);
-                    }
-                    return;
+            public void onChunkFailed(CorridorPlanner.Chunk chunk, SearchFailure failure) {
+                // the routeSearchEngine already retried the chunk with wider, simplified and split corridors
+                if (failure == SearchFailure.POLYLINE_TOO_LONG) {
+                    Log.d("Search", "Route chunk " + chunk.index + " still too long after splitting it.");
+                } else {
+                    Log.d("Search", "No Restaurants found along route chunk " + chunk.index + " after retrying. Error: "
+                            + failure);
                 }
+                super.onChunkFailed(chunk, failure);
+            }
+        };
+        // the prefetcher follows the vehicle along the new route once the search is finished
+        routePrefetcher.setPaused(true);
+        routePrefetcher.setRoute(preparedRoute.routeIndex, preparedRoute.chunks, preparedRoute.halfWidthInMeters,
+                preparedRoute.detourEstimator);
+        searchSession = incrementalSearch.search(delta, SearchCategory.RESTAURANTS.query, routeOrderedEmitter);
 
-                // If error is null, it is guaranteed that the items will not be null.
-                Log.d("Search","Search along route found " + items.size() + " Restaurants:");
-                /**
-                 * We have got a list of search restaurants around our Geo Circle as List of Places
-                 * Place represents a location object, such as a country, a city, a point of interest (POI) etc.
-                 * We loop every place instance and check for the given below condition and if that condition matches
-                 * we add those instance of place (restaurant) on the MapView along the route
-
-                **/
-                for (Place place : items) {
+    }
 
+    /**
+     * Offers a stored restaurant to the placeRanker, only the best SearchCategory.RESTAURANTS.maxResults
+     * restaurants are on the map and a better one replaces the worst
+     * */
+    private void rank(PlaceMatchAssembler.Match<PlaceRecord> match) {
+        PlaceRanker.RankedPlace<PlaceRecord> unranked = placeRanker.offer(match);
+        if (unranked == null || unranked.match != match) {
+            resultClusterLayer.add(match.place);
+        }
+        if (unranked != null && unranked.match != match) {
+            resultClusterLayer.remove(unranked.match.place);
+        }
+    }
 
-                    /**
-                     * To check for restaurants along the route we take all the coordinates along the
-                     * given route using (route.getPolyline()) and calculate the distance
-                     * between the place and the coordinates along the given route and if it
-                     * is less than equal to halfWidthInMeters, we plot it on the map
-                     * */
-                    for(GeoCoordinates geo: route.getPolyline()){
+    /**
+     * Takes the restaurants evicted from the resultStore off the map and out of the placeMatchAssembler.
+     * When shown restaurants are evicted, the best stored ones take their places
+     * */
+    private void evictResults(List<PlaceMatchAssembler.Match<PlaceRecord>> evicted) {
+        if (evicted.isEmpty()) {
+            return;
+        }
+        // the compute threads filter the places of late chunks while holding the assembler
+        synchronized (placeMatchAssembler) {
+            for (PlaceMatchAssembler.Match<PlaceRecord> match : evicted) {
+                placeMatchAssembler.remove(match.id);
+            }
+        }
+        if (placeRanker == null) {
+            return;
+        }
+        boolean shownEvicted = false;
+        for (PlaceMatchAssembler.Match<PlaceRecord> match : evicted) {
+            if (placeRanker.remove(match.id)) {
+                resultClusterLayer.remove(match.place);
+                shownEvicted = true;
+            }
+        }
+        if (shownEvicted) {
+            for (PlaceMatchAssembler.Match<PlaceRecord> stored : resultStore.getMatches()) {
+                if (!placeRanker.contains(stored.id)) {
+                    rank(stored);
+                }
+            }
+        }
+    }
 
-                        //Log.d("Distance from polyline: ",String.valueOf(place.getGeoCoordinates().distanceTo(geo)));
-                        if(place.getGeoCoordinates().distanceTo(geo) <= halfWidthInMeters){
+    /**
+     * Estimated bytes retained by the restaurants stored along the route, stays within MAX_STORED_RESULT_BYTES
+     * */
+    public long getRetainedResultBytes() {
+        return resultStore.getRetainedBytes();
+    }
 
-                            // This is our desired restaurant instances
-                            // We are ploting our instance using marker drawable and also pinning the title of restaurant with it
-                            addCircleMapMarker(place.getGeoCoordinates(), R.drawable.marker, place.getTitle());
+    /**
+     * Removes the restaurants that were shown and are not ranked anymore from the map and adds the newly ranked ones,
+     * restaurants in both stay untouched
+     * */
+    private void applyRankedDelta(List<PlaceRanker.RankedPlace<PlaceRecord>> before,
+                                  List<PlaceRanker.RankedPlace<PlaceRecord>> after) {
+        Set<String> beforeIds = new HashSet<>();
+        for (PlaceRanker.RankedPlace<PlaceRecord> ranked : before) {
+            beforeIds.add(ranked.match.id);
+        }
+        Set<String> afterIds = new HashSet<>();
+        for (PlaceRanker.RankedPlace<PlaceRecord> ranked : after) {
+            afterIds.add(ranked.match.id);
+            if (!beforeIds.contains(ranked.match.id)) {
+                resultClusterLayer.add(ranked.match.place);
+            }
+        }
+        for (PlaceRanker.RankedPlace<PlaceRecord> ranked : before) {
+            if (!afterIds.contains(ranked.match.id)) {
+                resultClusterLayer.remove(ranked.match.place);
+            }
+        }
+    }
 
-                            //Log.d("Filtered Distance from the polyline-> ",String.valueOf(place.getGeoCoordinates().distanceTo(geo)));
+    /**
+     * Called on the main thread once the last restaurant of the search is on the map, records the time
+     * since the button press and, in debug builds, dumps the metrics of all searches so far
+     * */
+    private void onLastMarkerRendered() {
+        if (searchStartNanos == 0) {
+            return;
+        }
+        LAST_MARKER_TIMER.stop(searchStartNanos);
+        searchStartNanos = 0;
+        if (BuildConfig.DEBUG) {
+            Log.d("Metrics", "\n" + Metrics.dump());
+        }
+    }
 
-                        }
+    /**
+     * Searches other categories along the route of the last search, e.g. SearchCategory.FUEL_STATIONS and
+     * SearchCategory.EV_CHARGING_STATIONS. The route is not prepared again, the categories are searched at the
+     * same time and their results merged, at most maxResults per category. The listener is called on the
+     * main thread. Returns null when no route has been searched yet
+     * */
+    public MultiCategorySearch searchCategoriesAlongRoute(List<SearchCategory> categories,
+                                                          final MultiCategorySearch.Listener listener) {
+        if (activeRoute == null) {
+            return null;
+        }
+        if (categorySearch != null) {
+            categorySearch.cancel();
+        }
+        final CancellationToken token = searchToken;
+        categorySearch = routeSearchEngine.searchCategories(activeRoute, categories, new MultiCategorySearch.Listener() {
+            @Override
+            public void onPlaceMatched(final SearchCategory category, final PlaceMatchAssembler.Match<PlaceRecord> match) {
+                computeExecutor.postToMainThread(token, new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onPlaceMatched(category, match);
                     }
-                }
+                });
             }
 
+            @Override
+            public void onSearchFinished(final List<MultiCategorySearch.CategorizedPlace> results) {
+                computeExecutor.postToMainThread(token, new Runnable() {
+                    @Override
+                    public void run() {
+                        Log.d("Search", "Places along the route in all categories: " + results.size());
+                        listener.onSearchFinished(results);
+                    }
+                });
+            }
         });
+        return categorySearch;
+    }
 
+    /**
+     * Position of the vehicle, from the positioning of the car. Moves the prefetch window along the active
+     * route, so the restaurants ahead are in the cache before the vehicle gets there
+     * */
+    public void onPositionChanged(GeoCoordinates position) {
+        routePrefetcher.updatePosition(position.latitude, position.longitude);
+        // the restaurants the vehicle has passed and the ones found hours ago leave the map and the memory
+        evictResults(resultStore.updateVehicleOffset(routePrefetcher.getOffsetInMeters()));
+        evictResults(resultStore.evictExpired());
+        sceneTransaction.commit();
     }
+
+    /**
+     * Adds a listener receiving every restaurant found along the route, in route order
+     * */
+    public void addPlaceMatchListener(PlaceMatchListener listener) {
+        placeMatchListeners.add(listener);
+    }
+
+    public void removePlaceMatchListener(PlaceMatchListener listener) {
+        placeMatchListeners.remove(listener);
+    }
+
+    /**
+     * The restaurants shown on the map, the ones with the shortest estimated detour, in route order
+     * */
+    public List<PlaceRanker.RankedPlace<PlaceRecord>> getRankedRestaurants() {
+        if (placeRanker == null) {
+            return new ArrayList<>();
+        }
+        return placeRanker.getRanked();
+    }
+
     /**
      *  clearMap(), clearRoute(), removePins(), clearWaypointMapMarker() Functions are used to clear the MapView
      *  when clearMapButtonClicked button is triggered
      * */
     public void clearMap() {
+        // a route still being calculated or prepared must not be drawn on the cleared map
+        routeRequests.cancelPending();
+        computeExecutor.cancelAll();
+        routePrefetcher.clear();
+        if (searchSession != null) {
+            searchSession.cancel();
+            searchSession = null;
+        }
+        cancelCategorySearch();
+        cancelSearchResults();
+        incrementalSearch.clear();
+        resultStore.clear();
+        activeRoute = null;
+        if (placeRanker != null) {
+            placeRanker.clear();
+        }
+        resultClusterLayer.clear();
         clearWaypointMapMarker();
         clearRoute();
         wayPoints.clear();
         removePins();
+        // the restaurants, waypoints and the route leave the map in one frame
+        sceneTransaction.commit();
+        // the compute threads filter the places of late chunks while holding the assembler
+        synchronized (placeMatchAssembler) {
+            placeMatchAssembler.clear();
+        }
+        Log.d("MapItemPool", mapItemPool.getStats());
     }
+    /**
+     * Cancels all running work and stops the compute threads, called when the activity is destroyed
+     * */
+    public void onDestroy() {
+        routeRequests.cancelPending();
+        routePrefetcher.clear();
+        if (searchSession != null) {
+            searchSession.cancel();
+            searchSession = null;
+        }
+        cancelCategorySearch();
+        cancelSearchResults();
+        computeExecutor.shutdown();
+    }
+
+    private void cancelCategorySearch() {
+        if (categorySearch != null) {
+            categorySearch.cancel();
+            categorySearch = null;
+        }
+    }
+
     // unpining all pins added to the views
     public void removePins(){
         List<MapView.ViewPin> viewPins = mapView.getViewPins();
         for(MapView.ViewPin p : viewPins){
+            View view = p.getView();
             p.unpin();
+            // labels are given back to the pool to be reused by the next search
+            if (view instanceof TextView) {
+                mapItemPool.releaseLabel((TextView) view);
+            }
         }
     }
 
     private void clearWaypointMapMarker() {
         for (MapMarker mapMarker : mapMarkers) {
-            mapView.getMapScene().removeMapMarker(mapMarker);
+            sceneTransaction.removeMapMarker(mapMarker);
+            mapItemPool.releaseMarker(mapMarker);
         }
         mapMarkers.clear();
+        for (MapView.ViewPin pin : waypointPins) {
+            View view = pin.getView();
+            pin.unpin();
+            mapItemPool.releaseLabel((TextView) view);
+        }
+        waypointPins.clear();
     }
 
     private void clearRoute() {
         for (MapPolyline mapPolyline : mapPolylines) {
-            mapView.getMapScene().removeMapPolyline(mapPolyline);
+            sceneTransaction.removeMapPolyline(mapPolyline);
         }
         mapPolylines.clear();
     }
@@ -323,30 +917,29 @@ public class RestaurantFinder {
      * This function takes 3 arguments -> (GeoCoordinates,resourceId of Drawable, String Tittle for pinning)
      * */
     private void addCircleMapMarker(GeoCoordinates geoCoordinates, int resourceId, String title) {
+        long addStart = Metrics.now();
+        long allocatedAtStart = Metrics.allocatedBytes();
 
-
-        // MapImage represents a drawable resource that can be used by a MapMarker to be shown on the map
-        MapImage mapImage = MapImageFactory.fromResource(context.getResources(), resourceId);
-        // MapMarker is used to draw images on the map
-        MapMarker mapMarker = new MapMarker(geoCoordinates, mapImage);
+        // MapMarker is used to draw images on the map, the mapItemPool reuses the markers
+        // of previous searches and decodes every drawable to a MapImage only once
+        MapMarker mapMarker = mapItemPool.acquireMarker(geoCoordinates, resourceId);
         /*
         getMapScene() -> gets the map scene associated with this map view
         This can be used to request different map schemes to be displayed in the map view,
-         and to add and remove map items from the map.
+         and to add and remove map items from the map. The sceneTransaction queues the changes
+         to the map scene, the waypoint marker is committed right away.
 
          */
-        mapView.getMapScene().addMapMarker(mapMarker);
+        sceneTransaction.addMapMarker(mapMarker);
+        sceneTransaction.commit();
         mapMarkers.add(mapMarker);
 
-        // Initializing views
-        TextView textView = new TextView(context.getApplicationContext());
-        textView.setText(title.toString());
-        textView.setTextSize(8);
-
-        mapView.pinView(textView,geoCoordinates);
-
-        // anchoring map marker of better view
-        mapMarker.setAnchor(new Anchor2D(0.5,1.0));
+        // Label views are recycled by the mapItemPool as well, blank titles get no label at all
+        if (!title.trim().isEmpty()) {
+            TextView textView = mapItemPool.acquireLabel(title);
+            waypointPins.add(mapView.pinView(textView, geoCoordinates));
+        }
+        ADD_MARKER_TIMER.stop(addStart, allocatedAtStart);
     }
 
     /**
@@ -362,41 +955,16 @@ public class RestaurantFinder {
 
     /**
      * Function to calculate the center GeoCoordinates of a list of GeoCoordinates
-     * for creating a Geo Circle
+     * for creating a Geo Circle, the calculation itself is done by GeoMath.center
      * */
     public GeoCoordinates newCenter(List<GeoCoordinates> geoCoordinates) {
-
-        /**
-         *        Algorithm for center calculation of Geo Circle
-         *
-         * 1. Convert each lat/long pair into a unit-length 3D vector.
-         * 2. Sum each of those vectors
-         * 3. Normalise the resulting vector
-         * 4. Convert back to spherical coordinates
-         * */
-        if (geoCoordinates.size() == 1) {
-            return geoCoordinates.get(0);
+        double[] latitudes = new double[geoCoordinates.size()];
+        double[] longitudes = new double[geoCoordinates.size()];
+        for (int i = 0; i < geoCoordinates.size(); i++) {
+            latitudes[i] = geoCoordinates.get(i).latitude;
+            longitudes[i] = geoCoordinates.get(i).longitude;
         }
-        double x = 0, y = 0, z = 0;
-
-        for (GeoCoordinates c : geoCoordinates) {
-            double latitude = c.latitude * pi, longitude = c.longitude* pi;
-            double cl = Math.cos(latitude);
-            x += cl * Math.cos(longitude);
-            y += cl * Math.sin(longitude);
-            z += Math.sin(latitude);
-        }
-
-        int total = geoCoordinates.size();
-
-        x = x / total;
-        y = y / total;
-        z = z / total;
-
-        double centralLongitude = Math.atan2(y, x);
-        double centralSquareRoot = Math.sqrt(x * x + y * y);
-        double centralLatitude = Math.atan2(z, centralSquareRoot);
-
-        return new GeoCoordinates(centralLatitude * xpi, centralLongitude * xpi);
+        double[] center = GeoMath.center(latitudes, longitudes);
+        return new GeoCoordinates(center[0], center[1]);
     }
 }
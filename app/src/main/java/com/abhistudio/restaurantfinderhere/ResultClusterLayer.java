@@ -0,0 +1,236 @@
+package com.abhistudio.restaurantfinderhere;
+
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+
+import com.here.sdk.core.GeoBox;
+import com.here.sdk.core.GeoCoordinates;
+import com.here.sdk.mapview.MapCamera;
+import com.here.sdk.mapview.MapCameraListener;
+import com.here.sdk.mapview.MapMarker;
+import com.here.sdk.mapview.MapView;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ResultClusterLayer shows the restaurants found along the route as clusters on the MapView.
+ * A cluster of several restaurants is one marker with the number of restaurants as label, a single restaurant
+ * is a marker with its title. Clusters expand and merge as the MapCamera zooms, only the clusters that changed
+ * are updated on the map.
+ *
+ * Only the clusters inside the visible area plus a margin get a marker and a pinned label, see ViewportCuller,
+ * so the views Android lays out on every camera move do not grow with the no. of results. Labels are only
+ * pinned from the label zoom level on. When the camera leaves the margin the clusters are culled again and
+ * only the ones entering or leaving the region are added or removed.
+ *
+ * Markers are added and removed through the MapSceneTransaction, add(), remove() and clear() only queue
+ * their changes and the caller commits them, so a batch of restaurants lands on the map in one frame.
+ * Culling after a camera move is committed by the layer itself.
+ */
+public class ResultClusterLayer {
+
+    private static class RenderedCluster {
+        MapMarker marker;
+        // null while labels are hidden
+        TextView label;
+        MapView.ViewPin pin;
+        int count;
+    }
+
+    private final MapView mapView;
+    private final MapSceneTransaction sceneTransaction;
+    private final MapItemPool mapItemPool;
+    private final int markerResourceId;
+    private final PlaceClusterer clusterer;
+    private final ViewportCuller culler;
+    // cluster key -> markers and labels on the map, only of the clusters inside the region of the culler
+    private final Map<String, RenderedCluster> rendered = new HashMap<>();
+    private int zoom;
+
+    public ResultClusterLayer(MapView mapView, MapSceneTransaction sceneTransaction, MapItemPool mapItemPool,
+                              int markerResourceId, PlaceClusterer clusterer, ViewportCuller culler) {
+        this.mapView = mapView;
+        this.sceneTransaction = sceneTransaction;
+        this.mapItemPool = mapItemPool;
+        this.markerResourceId = markerResourceId;
+        this.clusterer = clusterer;
+        this.culler = culler;
+        final MapCamera camera = mapView.getCamera();
+        this.zoom = zoomOf(camera.getState());
+        updateViewport(camera);
+        camera.addListener(new MapCameraListener() {
+            @Override
+            public void onMapCameraUpdated(@NonNull MapCamera.State state) {
+                zoom = zoomOf(state);
+                if (updateViewport(camera)) {
+                    onViewportChanged();
+                    sceneTransaction.commit();
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds a restaurant, only the cluster it joins at the current zoom level is updated on the map
+     * */
+    public void add(PlaceRecord place) {
+        clusterer.add(place);
+        PlaceClusterer.Cluster cluster = clusterer.clusterOf(place, zoom);
+        if (cluster.getCount() == 2) {
+            // the single restaurant of the cell became a cluster
+            removeFromMap(rendered.remove("p:" + cluster.getFirstPlace().id));
+        }
+        renderIfVisible(cluster);
+    }
+
+    /**
+     * Removes a restaurant, the cluster it leaves shrinks, turns into a single restaurant or disappears
+     * */
+    public void remove(PlaceRecord place) {
+        PlaceClusterer.Cluster cluster = clusterer.clusterOf(place, zoom);
+        if (cluster == null) {
+            return;
+        }
+        String key = cluster.getKey(zoom);
+        if (!clusterer.remove(place)) {
+            return;
+        }
+        if (zoom > clusterer.getMaxZoom() || cluster.getCount() == 0) {
+            removeFromMap(rendered.remove(key));
+            return;
+        }
+        if (cluster.getCount() == 1) {
+            // the cluster is down to a single restaurant, shown with its title
+            removeFromMap(rendered.remove(key));
+        }
+        renderIfVisible(cluster);
+    }
+
+    /**
+     * No. of clusters with a marker on the map, at most the ones inside the region of the culler
+     * */
+    public int getRenderedCount() {
+        return rendered.size();
+    }
+
+    /**
+     * Removes every cluster from the map and forgets the restaurants, all markers go with one commit
+     * */
+    public void clear() {
+        for (RenderedCluster renderedCluster : rendered.values()) {
+            removeFromMap(renderedCluster);
+        }
+        rendered.clear();
+        clusterer.clear();
+    }
+
+    /**
+     * Moves the culler to the visible area of the camera, returns true when the clusters have to be culled again
+     * */
+    private boolean updateViewport(MapCamera camera) {
+        GeoBox box = camera.getBoundingBox();
+        if (box == null) {
+            // the visible area is unknown, e.g. the camera looks at the horizon
+            return culler.showAll(zoom);
+        }
+        return culler.update(box.southWestCorner.latitude, box.southWestCorner.longitude,
+                box.northEastCorner.latitude, box.northEastCorner.longitude, zoom);
+    }
+
+    private void onViewportChanged() {
+        Collection<PlaceClusterer.Cluster> clusters = clusterer.getClusters(zoom);
+        Set<String> keys = new HashSet<>();
+        for (PlaceClusterer.Cluster cluster : clusters) {
+            if (isVisible(cluster)) {
+                keys.add(cluster.getKey(zoom));
+            }
+        }
+        // single restaurants and clusters still in the region keep their marker, the others are removed
+        Iterator<Map.Entry<String, RenderedCluster>> iterator = rendered.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, RenderedCluster> entry = iterator.next();
+            if (!keys.contains(entry.getKey())) {
+                removeFromMap(entry.getValue());
+                iterator.remove();
+            }
+        }
+        for (PlaceClusterer.Cluster cluster : clusters) {
+            if (isVisible(cluster)) {
+                render(cluster);
+            }
+        }
+    }
+
+    private boolean isVisible(PlaceClusterer.Cluster cluster) {
+        return culler.contains(cluster.getLatitude(), cluster.getLongitude());
+    }
+
+    /**
+     * Renders the cluster when it is inside the region, removes it from the map when its center moved out of it
+     * */
+    private void renderIfVisible(PlaceClusterer.Cluster cluster) {
+        if (isVisible(cluster)) {
+            render(cluster);
+        } else {
+            removeFromMap(rendered.remove(cluster.getKey(zoom)));
+        }
+    }
+
+    private void render(PlaceClusterer.Cluster cluster) {
+        String key = cluster.getKey(zoom);
+        RenderedCluster renderedCluster = rendered.get(key);
+        boolean showLabel = culler.showsLabels();
+        if (renderedCluster != null && renderedCluster.count == cluster.getCount()
+                && (renderedCluster.label != null) == showLabel) {
+            return;
+        }
+        GeoCoordinates geoCoordinates = new GeoCoordinates(cluster.getLatitude(), cluster.getLongitude());
+        String title = cluster.isSinglePlace()
+                ? cluster.getFirstPlace().title
+                : cluster.getCount() + " restaurants";
+        if (renderedCluster == null) {
+            renderedCluster = new RenderedCluster();
+            renderedCluster.marker = mapItemPool.acquireMarker(geoCoordinates, markerResourceId);
+            sceneTransaction.addMapMarker(renderedCluster.marker);
+            rendered.put(key, renderedCluster);
+        } else {
+            // the cluster grew or the labels switched, move it to its new center and update the count
+            renderedCluster.marker.setCoordinates(geoCoordinates);
+            unpinLabel(renderedCluster);
+        }
+        if (showLabel) {
+            renderedCluster.label = mapItemPool.acquireLabel(title);
+            renderedCluster.pin = mapView.pinView(renderedCluster.label, geoCoordinates);
+        }
+        renderedCluster.count = cluster.getCount();
+    }
+
+    private void removeFromMap(RenderedCluster renderedCluster) {
+        if (renderedCluster == null) {
+            return;
+        }
+        sceneTransaction.removeMapMarker(renderedCluster.marker);
+        mapItemPool.releaseMarker(renderedCluster.marker);
+        unpinLabel(renderedCluster);
+    }
+
+    private void unpinLabel(RenderedCluster renderedCluster) {
+        if (renderedCluster.label == null) {
+            return;
+        }
+        renderedCluster.pin.unpin();
+        mapItemPool.releaseLabel(renderedCluster.label);
+        renderedCluster.label = null;
+        renderedCluster.pin = null;
+    }
+
+    private static int zoomOf(MapCamera.State state) {
+        return (int) Math.floor(state.zoomLevel);
+    }
+}
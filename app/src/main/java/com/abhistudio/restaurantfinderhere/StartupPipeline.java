@@ -0,0 +1,152 @@
+package com.abhistudio.restaurantfinderhere;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Trace;
+import android.util.Log;
+
+import com.here.sdk.mapview.MapImage;
+import com.here.sdk.mapview.MapImageFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * StartupPipeline moves the slow parts of the app start off the main thread. It is started first thing in
+ * onCreate, so its background thread creates the engines and decodes the marker images while the MapView
+ * is created, the permissions are requested and the map scene loads:
+ *  - the MapImages of the marker drawables, handed to the MapItemPool on the main thread
+ *  - the RoutingEngine behind the route backend
+ *  - the SearchEngine, the place tile cache and the offline pack behind the place search backend
+ *
+ * The backends can be handed to RestaurantFinder right away, route requests and searches started before
+ * the engines are ready wait for them, see Deferred. Every phase is recorded in the StartupTrace.
+ */
+public class StartupPipeline {
+
+    // Milestone of the StartupTrace once the map accepts long presses, and once both engines are created
+    public static final String INTERACTIVE = "interactive";
+    public static final String ENGINES_READY = "enginesReady";
+
+    // Drawables of the result and waypoint markers of RestaurantFinder
+    private static final int[] MARKER_RESOURCE_IDS = {R.drawable.marker, R.drawable.green_dot};
+
+    /**
+     * Async trace sections of the startup phases, they can end on another thread than they began.
+     * Before Android 10 there are no async sections, the phases are then only in the StartupTrace
+     * */
+    public static final StartupTrace.Tracer ANDROID_TRACER = new StartupTrace.Tracer() {
+        @Override
+        public void beginSection(String name, int cookie) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                Trace.beginAsyncSection(name, cookie);
+            }
+        }
+
+        @Override
+        public void endSection(String name, int cookie) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                Trace.endAsyncSection(name, cookie);
+            }
+        }
+    };
+
+    private final StartupTrace trace;
+    private final MapItemPool mapItemPool;
+    private final Deferred<RouteBackend> routeBackend;
+    private final Deferred<PlaceSearchBackend> placeSearchBackend;
+
+    public StartupPipeline(final Context context, final StartupTrace trace) {
+        this.trace = trace;
+        this.mapItemPool = new MapItemPool(context);
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        Executor mainThread = new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                mainHandler.post(runnable);
+            }
+        };
+        // one thread, the marker images first as the first long press needs them, it ends after the last task
+        ExecutorService startupThread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "startup");
+            }
+        });
+
+        Deferred<MapImage[]> markerImages = Deferred.create(startupThread, mainThread, new Deferred.Factory<MapImage[]>() {
+            @Override
+            public MapImage[] create() {
+                StartupTrace.Section section = trace.begin("markerImages.decode");
+                MapImage[] images = new MapImage[MARKER_RESOURCE_IDS.length];
+                for (int i = 0; i < images.length; i++) {
+                    images[i] = MapImageFactory.fromResource(context.getResources(), MARKER_RESOURCE_IDS[i]);
+                }
+                section.end();
+                return images;
+            }
+        });
+        markerImages.whenReady(new Deferred.Consumer<MapImage[]>() {
+            @Override
+            public void accept(MapImage[] images) {
+                for (int i = 0; i < images.length; i++) {
+                    mapItemPool.putImage(MARKER_RESOURCE_IDS[i], images[i]);
+                }
+            }
+        });
+        routeBackend = Deferred.create(startupThread, mainThread, new Deferred.Factory<RouteBackend>() {
+            @Override
+            public RouteBackend create() {
+                StartupTrace.Section section = trace.begin("engine.routing");
+                try {
+                    return RestaurantFinder.createRouteBackend();
+                } finally {
+                    section.end();
+                }
+            }
+        });
+        placeSearchBackend = Deferred.create(startupThread, mainThread, new Deferred.Factory<PlaceSearchBackend>() {
+            @Override
+            public PlaceSearchBackend create() {
+                StartupTrace.Section section = trace.begin("engine.search");
+                try {
+                    return RestaurantFinder.createPlaceSearchBackend(context);
+                } finally {
+                    section.end();
+                }
+            }
+        });
+        startupThread.shutdown();
+        // the search engine is created last
+        placeSearchBackend.whenReady(new Deferred.Consumer<PlaceSearchBackend>() {
+            @Override
+            public void accept(PlaceSearchBackend backend) {
+                trace.mark(ENGINES_READY);
+                Log.d("Startup", "\n" + trace.dump());
+            }
+        });
+    }
+
+    /**
+     * Pool of the map items, its marker images are added once they are decoded
+     * */
+    public MapItemPool getMapItemPool() {
+        return mapItemPool;
+    }
+
+    public RouteBackend getRouteBackend() {
+        return new DeferredRouteBackend(routeBackend);
+    }
+
+    public PlaceSearchBackend getPlaceSearchBackend() {
+        return new DeferredPlaceSearchBackend(placeSearchBackend);
+    }
+
+    public StartupTrace getTrace() {
+        return trace;
+    }
+}
@@ -0,0 +1,76 @@
+package com.abhistudio.restaurantfinderhere.benchmark;
+
+import com.abhistudio.restaurantfinderhere.GeoMath;
+import com.abhistudio.restaurantfinderhere.PackedPolyline;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+
+/**
+ * Benchmarks of the distance and center calculations (newCenter of RestaurantFinder uses GeoMath.center),
+ * with the PackedPolyline variants using the precomputed sine and cosine terms next to them.
+ */
+@State(Scope.Benchmark)
+public class GeoMathBenchmark {
+
+    @Param({"1000", "100000", "500000"})
+    public int vertices;
+
+    private RouteFixtures route;
+    private PackedPolyline polyline;
+    private final double[] result = new double[2];
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        route = RouteFixtures.route(vertices);
+        polyline = new PackedPolyline(route.latitudes, route.longitudes);
+    }
+
+    @Benchmark
+    public double[] center() {
+        return GeoMath.center(route.latitudes, route.longitudes);
+    }
+
+    @Benchmark
+    public double haversine() {
+        int i = nextVertex();
+        return GeoMath.haversine(route.latitudes[i], route.longitudes[i], route.latitudes[i + 1], route.longitudes[i + 1]);
+    }
+
+    @Benchmark
+    public double[] packedCentroid() {
+        polyline.centroid(result);
+        return result;
+    }
+
+    @Benchmark
+    public double packedHaversine() {
+        int i = nextVertex();
+        return polyline.haversine(i, route.latitudes[i + 1], route.longitudes[i + 1]);
+    }
+
+    @Benchmark
+    public double packedEquirectangular() {
+        int i = nextVertex();
+        return polyline.equirectangular(i, route.latitudes[i + 1], route.longitudes[i + 1]);
+    }
+
+    @Benchmark
+    public double[] packedSegmentDistance() {
+        int i = nextVertex();
+        polyline.segmentDistance(i, route.latitudes[i + 1] + 0.001, route.longitudes[i + 1], result);
+        return result;
+    }
+
+    private int nextVertex() {
+        int i = next;
+        next = i + 1 < route.latitudes.length - 1 ? i + 1 : 0;
+        return i;
+    }
+}
@@ -0,0 +1,30 @@
+package com.abhistudio.restaurantfinderhere.benchmark;
+
+import com.abhistudio.restaurantfinderhere.Metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * AllocationCounter of the HotSpot JVM for the benchmarks. It lives here and not in :core because
+ * java.lang.management does not exist on Android. Reports -1 on JVMs without per thread allocation accounting.
+ */
+public class JvmAllocationCounter implements Metrics.AllocationCounter {
+
+    private final com.sun.management.ThreadMXBean threads;
+
+    public JvmAllocationCounter() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threads = (com.sun.management.ThreadMXBean) bean;
+        } else {
+            threads = null;
+        }
+    }
+
+    @Override
+    public long allocatedBytes() {
+        return threads == null ? -1 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,91 @@
+package com.abhistudio.restaurantfinderhere.benchmark;
+
+import com.abhistudio.restaurantfinderhere.GeoMath;
+import com.abhistudio.restaurantfinderhere.PolylineSimplifier;
+import com.abhistudio.restaurantfinderhere.RouteIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+
+/**
+ * Benchmarks of the route filter hot path: matching places against the route polyline.
+ *
+ * vertexLoop is the original filter of searchAlongARoute, comparing every place with every vertex,
+ * routeIndexFilter is the same filter through the RouteIndex, routeIndexProjection also projects the places
+ * onto the route as the search does. Run with the gc profiler, both report no allocation per op.
+ */
+@State(Scope.Benchmark)
+public class RouteFilterBenchmark {
+
+    private static final double HALF_WIDTH_IN_METERS = 200;
+    private static final double CELL_SIZE_IN_METERS = 500;
+
+    @Param({"1000", "10000", "100000", "500000"})
+    public int vertices;
+
+    @Param({"30", "300"})
+    public int places;
+
+    private RouteFixtures route;
+    private double[][] placeCoordinates;
+    private RouteIndex routeIndex;
+    private final RouteIndex.MutableProjection projection = new RouteIndex.MutableProjection();
+
+    @Setup
+    public void setUp() throws IOException {
+        route = RouteFixtures.route(vertices);
+        placeCoordinates = route.places(places, 1000, 7);
+        routeIndex = new RouteIndex(route.latitudes, route.longitudes, CELL_SIZE_IN_METERS);
+    }
+
+    @Benchmark
+    public int vertexLoop() {
+        int matches = 0;
+        for (int p = 0; p < places; p++) {
+            for (int v = 0; v < route.latitudes.length; v++) {
+                if (GeoMath.haversine(placeCoordinates[0][p], placeCoordinates[1][p],
+                        route.latitudes[v], route.longitudes[v]) <= HALF_WIDTH_IN_METERS) {
+                    matches++;
+                }
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int routeIndexFilter() {
+        int matches = 0;
+        for (int p = 0; p < places; p++) {
+            if (routeIndex.isWithin(placeCoordinates[0][p], placeCoordinates[1][p], HALF_WIDTH_IN_METERS)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public double routeIndexProjection() {
+        double offsets = 0;
+        for (int p = 0; p < places; p++) {
+            if (routeIndex.nearest(placeCoordinates[0][p], placeCoordinates[1][p], HALF_WIDTH_IN_METERS, projection)) {
+                offsets += projection.offsetInMeters;
+            }
+        }
+        return offsets;
+    }
+
+    @Benchmark
+    public RouteIndex routeIndexBuild() {
+        return new RouteIndex(route.latitudes, route.longitudes, CELL_SIZE_IN_METERS);
+    }
+
+    @Benchmark
+    public PolylineSimplifier.Result simplify() {
+        return PolylineSimplifier.simplify(route.latitudes, route.longitudes, 10);
+    }
+}
@@ -0,0 +1,102 @@
+package com.abhistudio.restaurantfinderhere.benchmark;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Routes and places replayed by the benchmarks.
+ *
+ * Synthetic routes are a seeded random walk with a vertex every 20 meters, close to the vertex density
+ * of calculated car routes. A recorded route is read from the file given with -DrouteFile, one
+ * "latitude,longitude" pair per line, and cut to the requested number of vertices.
+ */
+final class RouteFixtures {
+
+    static final String ROUTE_FILE_PROPERTY = "routeFile";
+    private static final double METERS_PER_DEGREE = Math.PI / 180 * 6371000.0;
+
+    final double[] latitudes;
+    final double[] longitudes;
+
+    private RouteFixtures(double[] latitudes, double[] longitudes) {
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+    }
+
+    /**
+     * The recorded route when -DrouteFile is set, a synthetic route otherwise
+     * */
+    static RouteFixtures route(int vertices) throws IOException {
+        String routeFile = System.getProperty(ROUTE_FILE_PROPERTY);
+        if (routeFile != null && !routeFile.isEmpty()) {
+            return recorded(routeFile, vertices);
+        }
+        return synthetic(vertices, 42);
+    }
+
+    static RouteFixtures synthetic(int vertices, long seed) {
+        Random random = new Random(seed);
+        double[] latitudes = new double[vertices];
+        double[] longitudes = new double[vertices];
+        double latitude = 48.0;
+        double longitude = 9.0;
+        double heading = 0;
+        for (int i = 0; i < vertices; i++) {
+            latitudes[i] = latitude;
+            longitudes[i] = longitude;
+            // roads mostly go straight with some gentle turns
+            heading += random.nextGaussian() * 0.05;
+            latitude += Math.cos(heading) * 20 / METERS_PER_DEGREE;
+            longitude += Math.sin(heading) * 20 / (METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude)));
+        }
+        return new RouteFixtures(latitudes, longitudes);
+    }
+
+    static RouteFixtures recorded(String file, int maxVertices) throws IOException {
+        double[] latitudes = new double[1024];
+        double[] longitudes = new double[1024];
+        int count = 0;
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while (count < maxVertices && (line = reader.readLine()) != null) {
+                String[] parts = line.trim().split(",");
+                if (parts.length < 2) {
+                    continue;
+                }
+                if (count == latitudes.length) {
+                    latitudes = Arrays.copyOf(latitudes, count * 2);
+                    longitudes = Arrays.copyOf(longitudes, count * 2);
+                }
+                latitudes[count] = Double.parseDouble(parts[0]);
+                longitudes[count] = Double.parseDouble(parts[1]);
+                count++;
+            }
+        } finally {
+            reader.close();
+        }
+        return new RouteFixtures(Arrays.copyOf(latitudes, count), Arrays.copyOf(longitudes, count));
+    }
+
+    /**
+     * Places scattered up to maxOffsetInMeters around random route vertices,
+     * as {latitudes, longitudes}
+     * */
+    double[][] places(int count, double maxOffsetInMeters, long seed) {
+        Random random = new Random(seed);
+        double[][] places = new double[2][count];
+        for (int i = 0; i < count; i++) {
+            int vertex = random.nextInt(latitudes.length);
+            // one distance in one direction, so no place is further than maxOffsetInMeters from its vertex
+            double offset = random.nextDouble() * maxOffsetInMeters;
+            double bearing = random.nextDouble() * 2 * Math.PI;
+            places[0][i] = latitudes[vertex] + offset * Math.cos(bearing) / METERS_PER_DEGREE;
+            places[1][i] = longitudes[vertex] + offset * Math.sin(bearing)
+                    / (METERS_PER_DEGREE * Math.cos(Math.toRadians(latitudes[vertex])));
+        }
+        return places;
+    }
+}
@@ -0,0 +1,128 @@
+package com.abhistudio.restaurantfinderhere.benchmark;
+
+import com.abhistudio.restaurantfinderhere.AdaptiveSearchController;
+import com.abhistudio.restaurantfinderhere.CorridorPlanner;
+import com.abhistudio.restaurantfinderhere.CorridorSearch;
+import com.abhistudio.restaurantfinderhere.FakePlaceSearchBackend;
+import com.abhistudio.restaurantfinderhere.FakeRouteBackend;
+import com.abhistudio.restaurantfinderhere.Metrics;
+import com.abhistudio.restaurantfinderhere.PlaceMatchAssembler;
+import com.abhistudio.restaurantfinderhere.PlaceMatchListener;
+import com.abhistudio.restaurantfinderhere.PlaceRecord;
+import com.abhistudio.restaurantfinderhere.PolylineSimplifier;
+import com.abhistudio.restaurantfinderhere.RouteBackend;
+import com.abhistudio.restaurantfinderhere.RouteIndex;
+import com.abhistudio.restaurantfinderhere.RouteOrderedEmitter;
+import com.abhistudio.restaurantfinderhere.RouteRecord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end benchmark of the search along a route on the fake backends: route calculation, simplification,
+ * route index, corridor planning and the chunk searches until the last place is emitted in route order.
+ *
+ * Both backends add latency with a slow tail and corridors of more than 300 vertices fail with
+ * POLYLINE_TOO_LONG, so sample mode reports the tail latency of a whole search next to the throughput.
+ * The Metrics of the pipeline stages are printed after every trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SearchPipelineBenchmark {
+
+    @Param({"50", "300"})
+    public int routeLengthInKilometers;
+
+    @Param({"0", "10"})
+    public int searchLatencyInMillis;
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService filterExecutor;
+    private FakeRouteBackend routeBackend;
+    private CorridorSearch corridorSearch;
+    private final CorridorPlanner corridorPlanner = new CorridorPlanner(20000, 1000, 300);
+    private double[] waypointLatitudes;
+    private double[] waypointLongitudes;
+
+    @Setup
+    public void setUp() {
+        Metrics.reset();
+        Metrics.enable(new JvmAllocationCounter());
+        scheduler = Executors.newScheduledThreadPool(4);
+        filterExecutor = Executors.newFixedThreadPool(2);
+        routeBackend = new FakeRouteBackend(1, scheduler).setLatency(searchLatencyInMillis, searchLatencyInMillis, 0.01, 100);
+        FakePlaceSearchBackend placeBackend = new FakePlaceSearchBackend(1, scheduler)
+                .setLatency(searchLatencyInMillis, searchLatencyInMillis, 0.01, 100)
+                .setMaxCorridorVertices(300);
+        corridorSearch = new CorridorSearch(placeBackend, 4, filterExecutor, new AdaptiveSearchController(1000, 10, 100,
+                new AdaptiveSearchController.Scheduler() {
+                    @Override
+                    public void schedule(Runnable task, long delayInMillis) {
+                        scheduler.schedule(task, delayInMillis, TimeUnit.MILLISECONDS);
+                    }
+                }));
+        // heading south east from Berlin
+        double degrees = routeLengthInKilometers / 111.0 / Math.sqrt(2);
+        waypointLatitudes = new double[]{52.52, 52.52 - degrees};
+        waypointLongitudes = new double[]{13.40, 13.40 + degrees * 1.6};
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.shutdownNow();
+        filterExecutor.shutdownNow();
+        Metrics.disable();
+        System.out.println();
+        System.out.print(Metrics.dump());
+    }
+
+    @Benchmark
+    public int searchAlongRoute() throws InterruptedException {
+        final RouteRecord[] route = new RouteRecord[1];
+        final CountDownLatch routed = new CountDownLatch(1);
+        routeBackend.calculateRoute(waypointLatitudes, waypointLongitudes, new RouteBackend.Callback() {
+            @Override
+            public void onRouteCalculated(String error, RouteRecord result) {
+                route[0] = result;
+                routed.countDown();
+            }
+        });
+        routed.await();
+
+        PolylineSimplifier.Result simplified = PolylineSimplifier.simplify(route[0].latitudes, route[0].longitudes, 10);
+        RouteIndex routeIndex = new RouteIndex(simplified.latitudes, simplified.longitudes, 500);
+        List<CorridorPlanner.Chunk> chunks = corridorPlanner.plan(routeIndex);
+
+        final int[] matches = new int[1];
+        final CountDownLatch finished = new CountDownLatch(1);
+        corridorSearch.start(routeIndex, chunks, "restaurants", 210, 30, new PlaceMatchAssembler<PlaceRecord>(),
+                new RouteOrderedEmitter(chunks, 1010, new PlaceMatchListener() {
+                    @Override
+                    public void onPlaceMatched(PlaceMatchAssembler.Match<PlaceRecord> match) {
+                    }
+
+                    @Override
+                    public void onSearchFinished(int matchCount, int duplicatesAvoided) {
+                        matches[0] = matchCount;
+                        finished.countDown();
+                    }
+                }));
+        finished.await();
+        return matches[0];
+    }
+}
@@ -0,0 +1,203 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * AdaptiveSearchController decides how the chunks of a CorridorSearch are searched and retried.
+ *
+ * It learns the density of places (places per square kilometer) of every region and query from the searches
+ * that completed there, so fuel stations and restaurants along the same route are planned on their own.
+ * In sparse regions the corridor is widened so a chunk still finds about targetPlacesPerChunk places,
+ * in dense regions the item budget is raised and a chunk is split into pieces that each fit into
+ * one request, so the results of a chunk are complete after the first round trip.
+ *
+ * Failed searches are retried: POLYLINE_TOO_LONG first with a wider corridor around a simplified polyline,
+ * then by splitting the piece in two, any other failure after an exponential backoff.
+ */
+public class AdaptiveSearchController {
+
+    /**
+     * Runs a retry after a delay, on Android this is backed by a Handler
+     * */
+    public interface Scheduler {
+        void schedule(Runnable task, long delayInMillis);
+    }
+
+    /**
+     * Runs retries right away, for tests and tools
+     * */
+    public static final Scheduler IMMEDIATE = new Scheduler() {
+        @Override
+        public void schedule(Runnable task, long delayInMillis) {
+            task.run();
+        }
+    };
+
+    /**
+     * How a chunk is searched: its corridor half width, the item budget of every request and the no. of pieces
+     * */
+    public static class ChunkPlan {
+        public final double halfWidthInMeters;
+        public final int maxItems;
+        public final int pieces;
+
+        ChunkPlan(double halfWidthInMeters, int maxItems, int pieces) {
+            this.halfWidthInMeters = halfWidthInMeters;
+            this.maxItems = maxItems;
+            this.pieces = pieces;
+        }
+    }
+
+    // Densities are learned per tile of this level, about 40 km wide
+    private static final int DENSITY_TILE_LEVEL = 10;
+    // Weight of a new observation in the learned density
+    private static final double LEARNING_RATE = 0.5;
+    // A result that filled its item budget was cut off, the density is at least this factor higher than seen
+    private static final double SATURATED_DENSITY_FACTOR = 2;
+    // Headroom of the item budget over the expected no. of places
+    private static final double ITEM_BUDGET_HEADROOM = 1.5;
+    private static final int MAX_PIECES_PER_CHUNK = 4;
+    // Splitting a piece that is still too long stops after this many halvings
+    private static final int MAX_SPLIT_DEPTH = 3;
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long BASE_BACKOFF_MILLIS = 250;
+
+    private final double maxHalfWidthInMeters;
+    private final int targetPlacesPerChunk;
+    private final int maxItemsPerRequest;
+    private final Scheduler scheduler;
+    // learned places per square kilometer, by the query (null for any query) and the cell key of the density tile
+    private final Map<String, Map<Long, Double>> densities = new HashMap<>();
+
+    /**
+     * Constructor for AdaptiveSearchController
+     * maxHalfWidthInMeters -> widest corridor searched, in sparse regions and for POLYLINE_TOO_LONG
+     * targetPlacesPerChunk -> no. of places a chunk should find, sparse regions get wider corridors until they do
+     * maxItemsPerRequest -> largest item budget the backend accepts for one request
+     * scheduler -> runs the retries after their backoff
+     * */
+    public AdaptiveSearchController(double maxHalfWidthInMeters, int targetPlacesPerChunk, int maxItemsPerRequest,
+                                    Scheduler scheduler) {
+        this.maxHalfWidthInMeters = maxHalfWidthInMeters;
+        this.targetPlacesPerChunk = targetPlacesPerChunk;
+        this.maxItemsPerRequest = maxItemsPerRequest;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Plan of a chunk of lengthInMeters around the given point. Without a learned density the chunk is
+     * searched with halfWidthInMeters and maxItems, a learned density never makes it narrower or smaller
+     * */
+    public ChunkPlan plan(double latitude, double longitude, double lengthInMeters,
+                          double halfWidthInMeters, int maxItems) {
+        return plan(null, latitude, longitude, lengthInMeters, halfWidthInMeters, maxItems);
+    }
+
+    /**
+     * Plan of a chunk searched for query, using the density learned for that query
+     * */
+    public ChunkPlan plan(String query, double latitude, double longitude, double lengthInMeters,
+                          double halfWidthInMeters, int maxItems) {
+        double density = getDensity(query, latitude, longitude);
+        if (Double.isNaN(density) || lengthInMeters <= 0) {
+            return new ChunkPlan(halfWidthInMeters, maxItems, 1);
+        }
+        double width = halfWidthInMeters;
+        if (density > 0) {
+            double widthForTarget = targetPlacesPerChunk / (density * 2 * lengthInMeters / 1e6);
+            width = Math.min(maxHalfWidthInMeters, Math.max(halfWidthInMeters, widthForTarget));
+        } else {
+            width = Math.max(halfWidthInMeters, maxHalfWidthInMeters);
+        }
+        double expected = density * areaInSquareKilometers(lengthInMeters, width) * ITEM_BUDGET_HEADROOM;
+        int pieces = (int) Math.min(MAX_PIECES_PER_CHUNK, Math.max(1, Math.ceil(expected / maxItemsPerRequest)));
+        int budget = (int) Math.min(maxItemsPerRequest, Math.max(maxItems, Math.ceil(expected / pieces)));
+        return new ChunkPlan(width, budget, pieces);
+    }
+
+    /**
+     * Learns the density around the given point from a search of a corridor that found places of maxItems
+     * */
+    public void recordResult(double latitude, double longitude, double lengthInMeters, double halfWidthInMeters,
+                             int places, int maxItems) {
+        recordResult(null, latitude, longitude, lengthInMeters, halfWidthInMeters, places, maxItems);
+    }
+
+    public void recordResult(String query, double latitude, double longitude, double lengthInMeters,
+                             double halfWidthInMeters, int places, int maxItems) {
+        double area = areaInSquareKilometers(lengthInMeters, halfWidthInMeters);
+        if (area <= 0) {
+            return;
+        }
+        double observed = places / area;
+        if (places >= maxItems) {
+            observed *= SATURATED_DENSITY_FACTOR;
+        }
+        Long key = densityKey(latitude, longitude);
+        synchronized (densities) {
+            Map<Long, Double> queryDensities = densities.get(query);
+            if (queryDensities == null) {
+                queryDensities = new HashMap<>();
+                densities.put(query, queryDensities);
+            }
+            Double density = queryDensities.get(key);
+            queryDensities.put(key, density == null ? observed : density + LEARNING_RATE * (observed - density));
+        }
+    }
+
+    /**
+     * Learned places per square kilometer around the given point, NaN when nothing was searched there yet
+     * */
+    public double getDensity(double latitude, double longitude) {
+        return getDensity(null, latitude, longitude);
+    }
+
+    public double getDensity(String query, double latitude, double longitude) {
+        Long key = densityKey(latitude, longitude);
+        synchronized (densities) {
+            Map<Long, Double> queryDensities = densities.get(query);
+            Double density = queryDensities == null ? null : queryDensities.get(key);
+            return density == null ? Double.NaN : density;
+        }
+    }
+
+    /**
+     * Widened half width of a retry after POLYLINE_TOO_LONG, the polyline may then be simplified by the
+     * difference without leaving the original corridor. Returns halfWidthInMeters when it can not be widened
+     * */
+    public double widenedHalfWidth(double halfWidthInMeters) {
+        return Math.min(maxHalfWidthInMeters, halfWidthInMeters * 2);
+    }
+
+    public boolean canSplit(int depth, int vertexCount) {
+        return depth < MAX_SPLIT_DEPTH && vertexCount > 2;
+    }
+
+    public boolean canRetry(int attempt) {
+        return attempt < MAX_ATTEMPTS;
+    }
+
+    /**
+     * Delay before retry no. attempt (starting at 1) of a failed search, doubling with every attempt
+     * */
+    public long backoffMillis(int attempt) {
+        return BASE_BACKOFF_MILLIS << Math.max(0, attempt - 1);
+    }
+
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    public double getMaxHalfWidthInMeters() {
+        return maxHalfWidthInMeters;
+    }
+
+    private static Long densityKey(double latitude, double longitude) {
+        return TileKey.cellKey(TileKey.quadKey(latitude, longitude, DENSITY_TILE_LEVEL));
+    }
+
+    private static double areaInSquareKilometers(double lengthInMeters, double halfWidthInMeters) {
+        return (lengthInMeters * 2 * halfWidthInMeters + Math.PI * halfWidthInMeters * halfWidthInMeters) / 1e6;
+    }
+}
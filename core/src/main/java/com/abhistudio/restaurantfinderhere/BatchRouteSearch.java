@@ -0,0 +1,186 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+
+/**
+ * BatchRouteSearch runs the search along a route for a stream of trips, for example the trips of a fleet
+ * over night, without any UI.
+ *
+ * Trips are read from the iterator as they are needed: at most maxTripsInFlight are searched at the same time,
+ * their routes are prepared and their places filtered on the ForkJoinPool, so the throughput grows with
+ * its parallelism. All trips share the RouteSearchEngine and with it the backend, so a caching backend
+ * serves overlapping trips from the same tiles and identical routes share their prepared route.
+ * The results of every trip are handed to the ResultWriter as soon as the trip is finished.
+ */
+public class BatchRouteSearch {
+
+    public static class Trip {
+        public final String id;
+        public final RouteRecord route;
+
+        public Trip(String id, RouteRecord route) {
+            this.id = id;
+            this.route = route;
+        }
+    }
+
+    /**
+     * Receives the places of every trip, ranked by detour in route order. Calls are serialized,
+     * failedChunks is the no. of corridor chunks of the trip whose search failed
+     * */
+    public interface ResultWriter {
+        void write(Trip trip, List<PlaceRanker.RankedPlace<PlaceRecord>> places, int failedChunks) throws IOException;
+    }
+
+    /**
+     * Counts of a finished batch
+     * */
+    public static class Summary {
+        public final int tripCount;
+        // trips whose route could not be prepared, they are not written
+        public final int failedTripCount;
+        public final int placeCount;
+        public final int failedChunkCount;
+        public final long durationNanos;
+
+        Summary(int tripCount, int failedTripCount, int placeCount, int failedChunkCount, long durationNanos) {
+            this.tripCount = tripCount;
+            this.failedTripCount = failedTripCount;
+            this.placeCount = placeCount;
+            this.failedChunkCount = failedChunkCount;
+            this.durationNanos = durationNanos;
+        }
+
+        public double getTripsPerSecond() {
+            return durationNanos == 0 ? 0 : tripCount * 1e9 / durationNanos;
+        }
+    }
+
+    private static final Metrics.Timer TRIP_TIMER = Metrics.timer("batch.trip");
+
+    private final RouteSearchEngine engine;
+    private final ForkJoinPool pool;
+    private final String query;
+    private final int maxTripsInFlight;
+    private final int maxPlacesPerTrip;
+    private final ResultWriter writer;
+
+    private int placeCount;
+    private int failedTripCount;
+    private int failedChunkCount;
+    private IOException writeError;
+
+    /**
+     * Constructor for BatchRouteSearch
+     * engine -> searches the trips, its filterExecutor should be the pool as well
+     * maxTripsInFlight -> no. of trips searched at the same time, bounds the memory of a batch
+     * maxPlacesPerTrip -> only the places with the shortest detour are written, see PlaceRanker
+     * */
+    public BatchRouteSearch(RouteSearchEngine engine, ForkJoinPool pool, String query, int maxTripsInFlight,
+                            int maxPlacesPerTrip, ResultWriter writer) {
+        if (maxTripsInFlight < 1) {
+            throw new IllegalArgumentException("maxTripsInFlight must be at least 1");
+        }
+        this.engine = engine;
+        this.pool = pool;
+        this.query = query;
+        this.maxTripsInFlight = maxTripsInFlight;
+        this.maxPlacesPerTrip = maxPlacesPerTrip;
+        this.writer = writer;
+    }
+
+    /**
+     * Searches every trip and returns once all results are written.
+     * Throws the first IOException of the ResultWriter, the remaining trips are still searched but not written
+     * */
+    public Summary run(Iterator<Trip> trips) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        final Semaphore slots = new Semaphore(maxTripsInFlight);
+        int tripCount = 0;
+        while (trips.hasNext()) {
+            final Trip trip = trips.next();
+            slots.acquire();
+            tripCount++;
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    search(trip, new Runnable() {
+                        @Override
+                        public void run() {
+                            slots.release();
+                        }
+                    });
+                }
+            });
+        }
+        // every trip in flight holds a slot until its results are written
+        slots.acquire(maxTripsInFlight);
+        slots.release(maxTripsInFlight);
+        synchronized (this) {
+            if (writeError != null) {
+                throw writeError;
+            }
+            return new Summary(tripCount, failedTripCount, placeCount, failedChunkCount, System.nanoTime() - start);
+        }
+    }
+
+    private void search(final Trip trip, final Runnable done) {
+        final long tripStart = Metrics.now();
+        final PreparedRoute prepared;
+        try {
+            prepared = engine.prepare(trip.route);
+        } catch (RuntimeException e) {
+            // a trip without a usable route is counted and skipped, the batch goes on
+            synchronized (this) {
+                failedTripCount++;
+            }
+            done.run();
+            return;
+        }
+        final PlaceRanker<PlaceRecord> ranker = new PlaceRanker<>(prepared.detourEstimator, maxPlacesPerTrip);
+        final int[] failedChunks = {0};
+        RouteOrderedEmitter emitter = new RouteOrderedEmitter(prepared.chunks, prepared.maxHalfWidthInMeters,
+                new PlaceMatchListener() {
+            @Override
+            public void onPlaceMatched(PlaceMatchAssembler.Match<PlaceRecord> match) {
+                ranker.offer(match);
+            }
+
+            @Override
+            public void onSearchFinished(int matchCount, int duplicatesAvoided) {
+                try {
+                    write(trip, ranker.getRanked(), failedChunks[0]);
+                } finally {
+                    TRIP_TIMER.stop(tripStart);
+                    done.run();
+                }
+            }
+        }) {
+            // synchronized like the emitter itself, so onSearchFinished sees every failed chunk
+            @Override
+            public synchronized void onChunkFailed(CorridorPlanner.Chunk chunk, SearchFailure failure) {
+                failedChunks[0]++;
+                super.onChunkFailed(chunk, failure);
+            }
+        };
+        engine.search(prepared, query, new PlaceMatchAssembler<PlaceRecord>(), emitter);
+    }
+
+    private synchronized void write(Trip trip, List<PlaceRanker.RankedPlace<PlaceRecord>> places, int failedChunks) {
+        placeCount += places.size();
+        failedChunkCount += failedChunks;
+        if (writeError != null) {
+            return;
+        }
+        try {
+            writer.write(trip, new ArrayList<>(places), failedChunks);
+        } catch (IOException e) {
+            writeError = e;
+        }
+    }
+}
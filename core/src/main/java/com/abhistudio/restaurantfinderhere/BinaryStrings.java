@@ -0,0 +1,48 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Length prefixed UTF-8 strings of the binary files, the tiles of the PlaceTileCache and the PoiPack.
+ * The length is an unsigned short, a string longer than MAX_BYTES is rejected and never cut, cutting it
+ * could split a character and would change the ID of a place.
+ */
+final class BinaryStrings {
+
+    static final int MAX_BYTES = 0xFFFF;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private BinaryStrings() {
+    }
+
+    /**
+     * True when the string can be written, null is written as an empty string
+     * */
+    static boolean fits(String value) {
+        // a char takes at most 3 bytes, only long strings need to be encoded to know
+        return value == null || value.length() <= MAX_BYTES / 3 || value.getBytes(UTF_8).length <= MAX_BYTES;
+    }
+
+    static void write(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(UTF_8);
+        if (bytes.length > MAX_BYTES) {
+            throw new IOException("String of " + bytes.length + " bytes is longer than " + MAX_BYTES + " bytes");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string at the position of the buffer and moves the position behind it
+     * */
+    static String read(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
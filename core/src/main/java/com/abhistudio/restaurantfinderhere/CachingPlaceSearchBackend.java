@@ -0,0 +1,268 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * CachingPlaceSearchBackend puts a PlaceTileCache in front of another PlaceSearchBackend.
+ *
+ * A search area is covered with tiles of a fixed level. Cached tiles are served from the cache and only
+ * the missing tiles are searched with the delegate, one circle around every tile, so a stored tile holds
+ * every place of the tile and can be reused by any later route passing through it.
+ * Concurrent searches needing the same tile share one delegate request.
+ *
+ * A tile search returning maxItemsPerTile places may have missed some, it is searched again as its four
+ * quarters, up to MAX_SPLIT_DEPTH levels down. A tile is only cached once all of its places were found,
+ * the places of a tile still saturated at the deepest level are returned but not cached.
+ *
+ * The cache is read and written on the ioExecutor and the callback is called on it, so with a background
+ * ioExecutor no disk I/O runs on the thread calling search() or on the thread of the delegate callbacks.
+ */
+public class CachingPlaceSearchBackend implements PlaceSearchBackend {
+
+    // A saturated tile is split into quarters at most this many times, 16 requests at the deepest level
+    private static final int MAX_SPLIT_DEPTH = 2;
+
+    private static final Metrics.Counter SPLIT_TILES = Metrics.counter("cache.splitTiles");
+    private static final Metrics.Counter PARTIAL_TILES = Metrics.counter("cache.partialTiles");
+
+    // Reads and writes the cache on the calling thread, for tools running the search off the main thread
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    private final PlaceSearchBackend delegate;
+    private final PlaceTileCache cache;
+    private final int tileLevel;
+    private final int maxItemsPerTile;
+    private final InFlightLimiter limiter;
+    private final Executor ioExecutor;
+    // "query/quadKey" -> callbacks waiting for the tile request already in flight
+    private final Map<String, List<TileCallback>> tilesInFlight = new HashMap<>();
+    private int tileRequestCount;
+
+    private interface TileCallback {
+        void onTile(SearchFailure failure, List<PlaceRecord> places);
+    }
+
+    /**
+     * Places of a tile searched with the delegate, complete is false when a part of it stayed saturated
+     * */
+    private interface SearchedTileCallback {
+        void onTile(SearchFailure failure, List<PlaceRecord> places, boolean complete);
+    }
+
+    /**
+     * Constructor for CachingPlaceSearchBackend reading and writing the cache on the calling thread,
+     * it must not be searched from the main thread
+     * */
+    public CachingPlaceSearchBackend(PlaceSearchBackend delegate, PlaceTileCache cache, int tileLevel,
+                                     int maxItemsPerTile, int maxTilesInFlight) {
+        this(delegate, cache, tileLevel, maxItemsPerTile, maxTilesInFlight, DIRECT);
+    }
+
+    /**
+     * Constructor for CachingPlaceSearchBackend
+     * tileLevel -> level of the cached tiles, level 14 tiles are about 1.5 km wide in central Europe
+     * maxItemsPerTile -> item budget of the delegate search of one tile
+     * maxTilesInFlight -> maximum no. of delegate searches running at the same time
+     * ioExecutor -> reads and writes the cache, e.g. a background thread so no disk I/O runs on the main thread
+     * */
+    public CachingPlaceSearchBackend(PlaceSearchBackend delegate, PlaceTileCache cache, int tileLevel,
+                                     int maxItemsPerTile, int maxTilesInFlight, Executor ioExecutor) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.tileLevel = tileLevel;
+        this.maxItemsPerTile = maxItemsPerTile;
+        this.limiter = new InFlightLimiter(maxTilesInFlight);
+        this.ioExecutor = ioExecutor;
+    }
+
+    /**
+     * Returns the places of every tile covering the area, maxItems is not applied as the caller
+     * filters the places of the tiles anyway
+     * */
+    @Override
+    public void search(SearchArea area, final String query, int maxItems, final Callback callback) {
+        final Set<String> quadKeys = area.isCorridor()
+                ? TileKey.coveringTiles(area.latitudes, area.longitudes, area.sizeInMeters, tileLevel)
+                : TileKey.coveringTiles(area.centerLatitude, area.centerLongitude, area.sizeInMeters, tileLevel);
+
+        final List<PlaceRecord> places = new ArrayList<>();
+        final int tileCount = quadKeys.size();
+        final int[] remaining = {tileCount};
+        final int[] failed = {0};
+        final SearchFailure[] firstFailure = {null};
+        final TileCallback tileCallback = new TileCallback() {
+            @Override
+            public void onTile(SearchFailure failure, List<PlaceRecord> tilePlaces) {
+                boolean finished;
+                synchronized (places) {
+                    if (failure != null) {
+                        failed[0]++;
+                        if (firstFailure[0] == null) {
+                            firstFailure[0] = failure;
+                        }
+                    } else {
+                        places.addAll(tilePlaces);
+                    }
+                    finished = --remaining[0] == 0;
+                }
+                if (finished) {
+                    // partial results are better than none, the search only fails when every tile failed
+                    if (failed[0] == tileCount) {
+                        callback.onSearchCompleted(firstFailure[0], null);
+                    } else {
+                        callback.onSearchCompleted(null, places);
+                    }
+                }
+            }
+        };
+        ioExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (quadKeys.isEmpty()) {
+                    callback.onSearchCompleted(null, places);
+                    return;
+                }
+                for (String quadKey : quadKeys) {
+                    loadTile(quadKey, query, tileCallback);
+                }
+            }
+        });
+    }
+
+    public synchronized int getTileRequestCount() {
+        return tileRequestCount;
+    }
+
+    private void loadTile(final String quadKey, final String query, TileCallback tileCallback) {
+        List<PlaceRecord> cached = cache.get(quadKey, query);
+        if (cached != null) {
+            tileCallback.onTile(null, cached);
+            return;
+        }
+        final String key = query + "/" + quadKey;
+        synchronized (this) {
+            List<TileCallback> waiting = tilesInFlight.get(key);
+            if (waiting != null) {
+                waiting.add(tileCallback);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(tileCallback);
+            tilesInFlight.put(key, waiting);
+            tileRequestCount++;
+        }
+
+        searchTile(quadKey, query, 0, new SearchedTileCallback() {
+            @Override
+            public void onTile(final SearchFailure failure, final List<PlaceRecord> tilePlaces,
+                               final boolean complete) {
+                // the delegate calls back on the main thread, the tile is written on the ioExecutor
+                ioExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (failure == null && complete) {
+                            cache.put(quadKey, query, tilePlaces);
+                        } else if (failure == null) {
+                            PARTIAL_TILES.increment();
+                        }
+                        List<TileCallback> waiting;
+                        synchronized (CachingPlaceSearchBackend.this) {
+                            waiting = tilesInFlight.remove(key);
+                        }
+                        for (TileCallback callback : waiting) {
+                            callback.onTile(failure, tilePlaces);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Searches the places inside the tile with the delegate, a saturated tile is searched again as its quarters
+     * */
+    private void searchTile(final String quadKey, final String query, final int depth,
+                            final SearchedTileCallback tileCallback) {
+        limiter.submit(new InFlightLimiter.Request() {
+            @Override
+            public void start(final Runnable done) {
+                final double[] bounds = TileKey.bounds(quadKey);
+                double centerLatitude = (bounds[0] + bounds[2]) / 2;
+                double centerLongitude = (bounds[1] + bounds[3]) / 2;
+                // circle through the corners of the tile
+                double radius = GeoMath.haversine(centerLatitude, centerLongitude, bounds[2], bounds[3]);
+                delegate.search(SearchArea.circle(centerLatitude, centerLongitude, radius), query, maxItemsPerTile,
+                        new Callback() {
+                    @Override
+                    public void onSearchCompleted(SearchFailure failure, List<PlaceRecord> found) {
+                        done.run();
+                        if (failure != null) {
+                            tileCallback.onTile(failure, null, false);
+                            return;
+                        }
+                        boolean saturated = found.size() >= maxItemsPerTile;
+                        if (saturated && depth < MAX_SPLIT_DEPTH) {
+                            SPLIT_TILES.increment();
+                            searchQuarters(quadKey, query, depth, tileCallback);
+                            return;
+                        }
+                        // the circle overlaps the neighbour tiles, only the places inside the tile are kept
+                        List<PlaceRecord> tilePlaces = new ArrayList<>();
+                        for (PlaceRecord place : found) {
+                            if (quadKey.equals(TileKey.quadKey(place.latitude, place.longitude, quadKey.length()))) {
+                                tilePlaces.add(place);
+                            }
+                        }
+                        tileCallback.onTile(null, tilePlaces, !saturated);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Searches the four quarters of a saturated tile, the tile fails when one of its quarters fails
+     * */
+    private void searchQuarters(String quadKey, String query, int depth, final SearchedTileCallback tileCallback) {
+        final List<PlaceRecord> places = new ArrayList<>();
+        final int[] remaining = {4};
+        final boolean[] complete = {true};
+        final SearchFailure[] firstFailure = {null};
+        for (int quarter = 0; quarter < 4; quarter++) {
+            searchTile(quadKey + quarter, query, depth + 1, new SearchedTileCallback() {
+                @Override
+                public void onTile(SearchFailure failure, List<PlaceRecord> quarterPlaces, boolean quarterComplete) {
+                    boolean finished;
+                    synchronized (places) {
+                        if (failure != null) {
+                            if (firstFailure[0] == null) {
+                                firstFailure[0] = failure;
+                            }
+                        } else {
+                            places.addAll(quarterPlaces);
+                            complete[0] &= quarterComplete;
+                        }
+                        finished = --remaining[0] == 0;
+                    }
+                    if (finished) {
+                        if (firstFailure[0] != null) {
+                            tileCallback.onTile(firstFailure[0], null, false);
+                        } else {
+                            tileCallback.onTile(null, places, complete[0]);
+                        }
+                    }
+                }
+            });
+        }
+    }
+}
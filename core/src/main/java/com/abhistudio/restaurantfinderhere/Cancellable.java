@@ -0,0 +1,10 @@
+package com.abhistudio.restaurantfinderhere;
+
+/**
+ * Handle of an asynchronous request that can be cancelled, e.g. a route calculation of a RouteBackend.
+ * Cancelling a request that already completed does nothing.
+ */
+public interface Cancellable {
+
+    void cancel();
+}
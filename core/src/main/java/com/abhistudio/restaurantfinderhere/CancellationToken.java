@@ -0,0 +1,29 @@
+package com.abhistudio.restaurantfinderhere;
+
+/**
+ * Cancellation flag shared by the work started for one request.
+ * Long running computations check it between steps, results of a cancelled token are never delivered.
+ * A token with a parent is cancelled with its parent as well, e.g. every request of a ComputeExecutor generation.
+ */
+public class CancellationToken implements Cancellable {
+
+    private final CancellationToken parent;
+    private volatile boolean cancelled;
+
+    public CancellationToken() {
+        this(null);
+    }
+
+    public CancellationToken(CancellationToken parent) {
+        this.parent = parent;
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled || (parent != null && parent.isCancelled());
+    }
+}
@@ -0,0 +1,199 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ComputeExecutor runs the route geometry on a bounded pool of worker threads and hands only the
+ * results back to the main thread.
+ *
+ * Every task belongs to a CancellationToken. Every request gets a token of its own, cancelled by the caller
+ * once a newer request supersedes it. cancelAll() cancels every token handed out so far, so clearing the map
+ * drops all work of the previous routes, and shutdown() stops the workers for good.
+ * A result is delivered only when its token is still active once it reaches the main thread.
+ *
+ * The queue of the workers is unbounded, nothing submitted is ever rejected with an exception since the backend
+ * callbacks submitting work run on the main thread. It stays short because the callers bound their work:
+ * one prepare per route and at most maxSearchesInFlight filter tasks per search, and the queued tasks of a
+ * cancelled token return right away. Tasks submitted after shutdown() are dropped.
+ *
+ * A task that throws is counted and reported to the FailureHandler on the main thread, its callback is not
+ * called and the worker goes on with the next task.
+ */
+public class ComputeExecutor implements Executor {
+
+    /**
+     * Runs a Runnable on the main thread, on Android this posts to a Handler of the main Looper
+     * */
+    public interface MainThread {
+        void post(Runnable runnable);
+    }
+
+    public interface Task<T> {
+        /**
+         * Runs on a worker thread, should return early when the token is cancelled
+         * */
+        T compute(CancellationToken token);
+    }
+
+    public interface Callback<T> {
+        /**
+         * Runs on the main thread
+         * */
+        void onResult(T result);
+    }
+
+    public interface FailureHandler {
+        /**
+         * Runs on the main thread with the exception of a task whose token is still active
+         * */
+        void onTaskFailed(RuntimeException error);
+    }
+
+    private static final Metrics.Counter FAILED = Metrics.counter("compute.failed");
+    private static final Metrics.Counter DROPPED = Metrics.counter("compute.dropped");
+
+    private final ThreadPoolExecutor workers;
+    private final MainThread mainThread;
+    private final FailureHandler failureHandler;
+    // token of the current generation of work, replaced by cancelAll()
+    private CancellationToken generation = new CancellationToken();
+    private boolean shutdown;
+
+    /**
+     * Constructor for ComputeExecutor only counting failed tasks
+     * */
+    public ComputeExecutor(int threads, MainThread mainThread) {
+        this(threads, mainThread, null);
+    }
+
+    /**
+     * Constructor for ComputeExecutor
+     * threads -> no. of worker threads, failureHandler -> reports the tasks that threw, may be null
+     * */
+    public ComputeExecutor(int threads, MainThread mainThread, FailureHandler failureHandler) {
+        this.mainThread = mainThread;
+        this.failureHandler = failureHandler;
+        final AtomicInteger threadCount = new AtomicInteger();
+        workers = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "compute-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+                // the queue is unbounded, only work submitted after shutdown() gets here
+                DROPPED.increment();
+            }
+        });
+        workers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Token for the work of one request, cancel it once a newer request supersedes it.
+     * It is cancelled by the next cancelAll() or shutdown() as well
+     * */
+    public synchronized CancellationToken newToken() {
+        return new CancellationToken(generation);
+    }
+
+    /**
+     * Cancels every token handed out so far, work started afterwards uses a new token
+     * */
+    public synchronized void cancelAll() {
+        generation.cancel();
+        generation = new CancellationToken();
+        if (shutdown) {
+            generation.cancel();
+        }
+    }
+
+    /**
+     * Cancels all work and stops the worker threads, no task can be submitted afterwards
+     * */
+    public void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+            generation.cancel();
+        }
+        workers.shutdownNow();
+    }
+
+    /**
+     * Computes task on a worker thread and delivers its result to callback on the main thread,
+     * unless token is cancelled in between
+     * */
+    public <T> void submit(final CancellationToken token, final Task<T> task, final Callback<T> callback) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                if (token.isCancelled()) {
+                    return;
+                }
+                final T result;
+                try {
+                    result = task.compute(token);
+                } catch (RuntimeException e) {
+                    FAILED.increment();
+                    if (failureHandler != null) {
+                        reportFailure(token, e);
+                    }
+                    return;
+                }
+                if (token.isCancelled()) {
+                    return;
+                }
+                mainThread.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!token.isCancelled()) {
+                            callback.onResult(result);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Runs the runnable on a worker thread, without handing anything back to the main thread
+     * */
+    @Override
+    public void execute(Runnable runnable) {
+        workers.execute(runnable);
+    }
+
+    private void reportFailure(final CancellationToken token, final RuntimeException error) {
+        mainThread.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!token.isCancelled()) {
+                    failureHandler.onTaskFailed(error);
+                }
+            }
+        });
+    }
+
+    /**
+     * Posts the runnable to the main thread, used for the final map mutations of work done on the workers
+     * */
+    public void postToMainThread(final CancellationToken token, final Runnable runnable) {
+        mainThread.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!token.isCancelled()) {
+                    runnable.run();
+                }
+            }
+        });
+    }
+}
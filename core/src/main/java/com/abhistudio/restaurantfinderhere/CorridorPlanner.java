@@ -0,0 +1,110 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CorridorPlanner splits a route into overlapping corridor chunks.
+ * Every chunk is searched on its own, so the searched area grows with the length of the route
+ * instead of with its square, and every chunk gets its own item budget.
+ */
+public class CorridorPlanner {
+
+    /**
+     * A slice of the route between two vertices (both included)
+     * */
+    public static class Chunk {
+        public final int index;
+        public final int startVertex;
+        public final int endVertex;
+        public final double startOffsetInMeters;
+        public final double endOffsetInMeters;
+
+        Chunk(int index, int startVertex, int endVertex, double startOffsetInMeters, double endOffsetInMeters) {
+            this.index = index;
+            this.startVertex = startVertex;
+            this.endVertex = endVertex;
+            this.startOffsetInMeters = startOffsetInMeters;
+            this.endOffsetInMeters = endOffsetInMeters;
+        }
+
+        public int getVertexCount() {
+            return endVertex - startVertex + 1;
+        }
+
+        /**
+         * Builds the corridor SearchArea of this chunk along the route of the given index
+         * */
+        public SearchArea toSearchArea(RouteIndex routeIndex, double halfWidthInMeters) {
+            int count = getVertexCount();
+            double[] latitudes = new double[count];
+            double[] longitudes = new double[count];
+            for (int i = 0; i < count; i++) {
+                latitudes[i] = routeIndex.getLatitude(startVertex + i);
+                longitudes[i] = routeIndex.getLongitude(startVertex + i);
+            }
+            return SearchArea.corridor(latitudes, longitudes, halfWidthInMeters);
+        }
+    }
+
+    private final double chunkLengthInMeters;
+    private final double overlapInMeters;
+    private final int maxVerticesPerChunk;
+
+    /**
+     * Constructor for CorridorPlanner
+     * chunkLengthInMeters -> maximum length of a chunk along the route
+     * overlapInMeters -> length every chunk shares with the previous one, so places near a chunk end are not lost
+     * maxVerticesPerChunk -> maximum number of vertices of a chunk, keeps the corridor polyline short enough for a request
+     * */
+    public CorridorPlanner(double chunkLengthInMeters, double overlapInMeters, int maxVerticesPerChunk) {
+        if (chunkLengthInMeters <= overlapInMeters) {
+            throw new IllegalArgumentException("chunkLengthInMeters must be larger than overlapInMeters");
+        }
+        if (maxVerticesPerChunk < 2) {
+            throw new IllegalArgumentException("maxVerticesPerChunk must be at least 2");
+        }
+        this.chunkLengthInMeters = chunkLengthInMeters;
+        this.overlapInMeters = overlapInMeters;
+        this.maxVerticesPerChunk = maxVerticesPerChunk;
+    }
+
+    /**
+     * Splits the whole route into chunks ordered from the origin to the destination
+     * */
+    public List<Chunk> plan(RouteIndex routeIndex) {
+        return plan(routeIndex, 0, routeIndex.getVertexCount() - 1);
+    }
+
+    /**
+     * Splits the route between firstVertex and lastVertex (both included) into chunks
+     * */
+    public List<Chunk> plan(RouteIndex routeIndex, int firstVertex, int lastVertex) {
+        ThreadGuard.assertNotMainThread("Corridor planning");
+        List<Chunk> chunks = new ArrayList<>();
+        if (lastVertex - firstVertex < 1) {
+            return chunks;
+        }
+        int start = firstVertex;
+        while (true) {
+            double startOffset = routeIndex.getOffset(start);
+            int end = start + 1;
+            while (end < lastVertex
+                    && end - start + 1 < maxVerticesPerChunk
+                    && routeIndex.getOffset(end) - startOffset < chunkLengthInMeters) {
+                end++;
+            }
+            chunks.add(new Chunk(chunks.size(), start, end, startOffset, routeIndex.getOffset(end)));
+            if (end >= lastVertex) {
+                return chunks;
+            }
+            // step back along the route to make the next chunk overlap with this one
+            int next = end;
+            double endOffset = routeIndex.getOffset(end);
+            while (next - 1 > start && endOffset - routeIndex.getOffset(next) < overlapInMeters) {
+                next--;
+            }
+            start = next;
+        }
+    }
+}
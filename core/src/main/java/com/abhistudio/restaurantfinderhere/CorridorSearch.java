@@ -0,0 +1,368 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * CorridorSearch runs the place search of every corridor chunk of a route through a PlaceSearchBackend.
+ * At most maxInFlight chunk searches run at the same time, the places found by every chunk are filtered
+ * with the RouteIndex, deduplicated with a PlaceMatchAssembler and streamed to the Listener as soon
+ * as their chunk completes.
+ *
+ * The backend callbacks usually arrive on the main thread, so the filtering runs on the filterExecutor
+ * and the Listener is called on its threads.
+ *
+ * With an AdaptiveSearchController every chunk is planned from the place density learned in its region
+ * and failed searches are retried, a chunk is only reported as failed once all of its retries failed.
+ */
+public class CorridorSearch {
+
+    public interface Listener {
+        /**
+         * New places (never reported before) found by one chunk, called once per completed chunk
+         * */
+        void onPlacesFound(CorridorPlanner.Chunk chunk, List<PlaceMatchAssembler.Match<PlaceRecord>> matches);
+
+        void onChunkFailed(CorridorPlanner.Chunk chunk, SearchFailure failure);
+
+        /**
+         * Called once after the last chunk completed
+         * */
+        void onSearchFinished(int matchCount, int duplicatesAvoided);
+    }
+
+    /**
+     * Handle of a running search, cancelling it drops the queued chunks and ignores late results
+     * */
+    public static class Session {
+        private final InFlightLimiter limiter;
+        private volatile boolean cancelled;
+
+        Session(InFlightLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        public void cancel() {
+            cancelled = true;
+            limiter.cancelQueued();
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    // Metrics of the chunk searches, recorded while Metrics are enabled
+    private static final Metrics.Timer CHUNK_SEARCH_TIMER = Metrics.timer("search.chunk");
+    private static final Metrics.Timer FILTER_TIMER = Metrics.timer("search.filter");
+    private static final Metrics.Counter CANDIDATES = Metrics.counter("search.candidates");
+    private static final Metrics.Counter MATCHES = Metrics.counter("search.matches");
+    private static final Metrics.Counter DUPLICATES = Metrics.counter("search.duplicates");
+    private static final Metrics.Counter CHUNK_FAILURES = Metrics.counter("search.chunkFailures");
+    private static final Metrics.Counter SIMPLIFIED_RETRIES = Metrics.counter("search.retry.simplified");
+    private static final Metrics.Counter SPLIT_RETRIES = Metrics.counter("search.retry.split");
+    private static final Metrics.Counter BACKOFF_RETRIES = Metrics.counter("search.retry.backoff");
+
+    // Filters the places on the thread of the backend callback
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    private final PlaceSearchBackend backend;
+    private final int maxInFlight;
+    private final Executor filterExecutor;
+    private final AdaptiveSearchController controller;
+
+    public CorridorSearch(PlaceSearchBackend backend, int maxInFlight) {
+        this(backend, maxInFlight, DIRECT);
+    }
+
+    public CorridorSearch(PlaceSearchBackend backend, int maxInFlight, Executor filterExecutor) {
+        this(backend, maxInFlight, filterExecutor, null);
+    }
+
+    /**
+     * Constructor for CorridorSearch planning and retrying the chunks with the given controller,
+     * without a controller every chunk is searched once with the half width and item budget of the search
+     * */
+    public CorridorSearch(PlaceSearchBackend backend, int maxInFlight, Executor filterExecutor,
+                          AdaptiveSearchController controller) {
+        this.backend = backend;
+        this.maxInFlight = maxInFlight;
+        this.filterExecutor = filterExecutor;
+        this.controller = controller;
+    }
+
+    /**
+     * Starts searching query along every chunk of the route.
+     * Places further than halfWidthInMeters from the route are dropped, places already in the assembler
+     * are only counted as duplicates. The controller may widen the corridor of a chunk in sparse regions,
+     * up to its maximum half width.
+     * */
+    public Session start(final RouteIndex routeIndex, List<CorridorPlanner.Chunk> chunks, final String query,
+                         final double halfWidthInMeters, final int maxItemsPerChunk,
+                         final PlaceMatchAssembler<PlaceRecord> assembler, final Listener listener) {
+        final InFlightLimiter limiter = new InFlightLimiter(maxInFlight);
+        final Session session = new Session(limiter);
+        final int[] remaining = {chunks.size()};
+        if (chunks.isEmpty()) {
+            listener.onSearchFinished(assembler.size(), assembler.getDuplicatesAvoided());
+            return session;
+        }
+
+        for (final CorridorPlanner.Chunk chunk : chunks) {
+            limiter.submit(new InFlightLimiter.Request() {
+                @Override
+                public void start(final Runnable done) {
+                    if (session.isCancelled()) {
+                        done.run();
+                        return;
+                    }
+                    new ChunkSearch(routeIndex, chunk, query,
+                            plan(routeIndex, chunk, query, halfWidthInMeters, maxItemsPerChunk), session) {
+                        @Override
+                        void onCompleted(SearchFailure failure, List<PlaceRecord> places, double filterHalfWidthInMeters) {
+                            // the slot of the chunk is only freed once its places are filtered
+                            try {
+                                if (!session.isCancelled()) {
+                                    onChunkCompleted(chunk, failure, places, filterHalfWidthInMeters);
+                                }
+                            } finally {
+                                done.run();
+                            }
+                        }
+                    }.start();
+                }
+
+                private void onChunkCompleted(CorridorPlanner.Chunk chunk, SearchFailure failure,
+                                              List<PlaceRecord> places, double filterHalfWidthInMeters) {
+                    ThreadGuard.assertNotMainThread("Place filtering");
+                    long filterStart = Metrics.now();
+                    long allocatedAtStart = Metrics.allocatedBytes();
+                    List<PlaceMatchAssembler.Match<PlaceRecord>> matches;
+                    boolean finished;
+                    // one projection reused for every place of the chunk
+                    RouteIndex.MutableProjection projection = new RouteIndex.MutableProjection();
+                    synchronized (assembler) {
+                        int duplicatesBefore = assembler.getDuplicatesAvoided();
+                        if (failure == null) {
+                            for (PlaceRecord place : places) {
+                                if (routeIndex.nearest(place.latitude, place.longitude, filterHalfWidthInMeters,
+                                        projection)) {
+                                    assembler.offer(place.id, place, projection.distanceInMeters, projection.offsetInMeters);
+                                }
+                            }
+                        }
+                        matches = assembler.takePending();
+                        finished = --remaining[0] == 0;
+                        DUPLICATES.add(assembler.getDuplicatesAvoided() - duplicatesBefore);
+                    }
+                    FILTER_TIMER.stop(filterStart, allocatedAtStart);
+                    MATCHES.add(matches.size());
+                    if (failure == null) {
+                        CANDIDATES.add(places.size());
+                    } else {
+                        CHUNK_FAILURES.increment();
+                    }
+                    if (failure != null) {
+                        listener.onChunkFailed(chunk, failure);
+                    } else {
+                        listener.onPlacesFound(chunk, matches);
+                    }
+                    if (finished) {
+                        listener.onSearchFinished(assembler.size(), assembler.getDuplicatesAvoided());
+                    }
+                }
+            });
+        }
+        return session;
+    }
+
+    private AdaptiveSearchController.ChunkPlan plan(RouteIndex routeIndex, CorridorPlanner.Chunk chunk, String query,
+                                                    double halfWidthInMeters, int maxItems) {
+        if (controller == null) {
+            return new AdaptiveSearchController.ChunkPlan(halfWidthInMeters, maxItems, 1);
+        }
+        int middle = (chunk.startVertex + chunk.endVertex) / 2;
+        return controller.plan(query, routeIndex.getLatitude(middle), routeIndex.getLongitude(middle),
+                chunk.endOffsetInMeters - chunk.startOffsetInMeters, halfWidthInMeters, maxItems);
+    }
+
+    /**
+     * A part of a chunk searched with one request, with the corridor polyline and half width of its next attempt
+     * */
+    private static class Piece {
+        final int startVertex;
+        final int endVertex;
+        final int depth;
+        double[] latitudes;
+        double[] longitudes;
+        double halfWidthInMeters;
+        boolean simplified;
+        int attempt;
+
+        Piece(RouteIndex routeIndex, int startVertex, int endVertex, int depth, double halfWidthInMeters) {
+            this.startVertex = startVertex;
+            this.endVertex = endVertex;
+            this.depth = depth;
+            this.halfWidthInMeters = halfWidthInMeters;
+            int count = endVertex - startVertex + 1;
+            latitudes = new double[count];
+            longitudes = new double[count];
+            for (int i = 0; i < count; i++) {
+                latitudes[i] = routeIndex.getLatitude(startVertex + i);
+                longitudes[i] = routeIndex.getLongitude(startVertex + i);
+            }
+        }
+    }
+
+    /**
+     * Searches the pieces of one chunk one after the other and retries the failed ones as the controller allows.
+     * onCompleted is called once, on the filterExecutor unless the search was cancelled during a backoff,
+     * with all places found or the failure of the chunk. A search cancelled while a piece is searched never completes
+     * */
+    private abstract class ChunkSearch {
+        private final RouteIndex routeIndex;
+        private final String query;
+        private final AdaptiveSearchController.ChunkPlan plan;
+        private final Session session;
+        private final Deque<Piece> pieces = new ArrayDeque<>();
+        private final List<PlaceRecord> places = new ArrayList<>();
+        private SearchFailure failure;
+        private int failedPieces;
+        private int searchedPieces;
+
+        ChunkSearch(RouteIndex routeIndex, CorridorPlanner.Chunk chunk, String query,
+                    AdaptiveSearchController.ChunkPlan plan, Session session) {
+            this.routeIndex = routeIndex;
+            this.query = query;
+            this.plan = plan;
+            this.session = session;
+            // a dense chunk is split into pieces of about the same no. of vertices, sharing their end vertices
+            int vertices = chunk.endVertex - chunk.startVertex;
+            int count = Math.max(1, Math.min(plan.pieces, vertices));
+            for (int i = 0; i < count; i++) {
+                pieces.add(new Piece(routeIndex, chunk.startVertex + vertices * i / count,
+                        chunk.startVertex + vertices * (i + 1) / count, 0, plan.halfWidthInMeters));
+            }
+        }
+
+        abstract void onCompleted(SearchFailure failure, List<PlaceRecord> places, double filterHalfWidthInMeters);
+
+        void start() {
+            searchNext();
+        }
+
+        private void searchNext() {
+            final Piece piece = pieces.peekFirst();
+            if (piece == null || session.isCancelled()) {
+                // the chunk failed when none of its pieces found places
+                boolean allFailed = failedPieces > 0 && failedPieces == searchedPieces;
+                onCompleted(allFailed ? failure : null, places, plan.halfWidthInMeters);
+                return;
+            }
+            SearchArea area = SearchArea.corridor(piece.latitudes, piece.longitudes, piece.halfWidthInMeters);
+            final long searchStart = Metrics.now();
+            backend.search(area, query, plan.maxItems, new PlaceSearchBackend.Callback() {
+                @Override
+                public void onSearchCompleted(final SearchFailure pieceFailure, final List<PlaceRecord> found) {
+                    CHUNK_SEARCH_TIMER.stop(searchStart);
+                    if (session.isCancelled()) {
+                        // nothing is filtered for a cancelled search, its limiter is not used anymore
+                        return;
+                    }
+                    // retries simplify polylines, which must not run on the main thread either
+                    filterExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            onPieceCompleted(piece, pieceFailure, found);
+                        }
+                    });
+                }
+            });
+        }
+
+        private void onPieceCompleted(Piece piece, SearchFailure pieceFailure, List<PlaceRecord> found) {
+            if (pieceFailure == null) {
+                pieces.removeFirst();
+                searchedPieces++;
+                places.addAll(found);
+                if (controller != null) {
+                    int middle = (piece.startVertex + piece.endVertex) / 2;
+                    controller.recordResult(query, routeIndex.getLatitude(middle), routeIndex.getLongitude(middle),
+                            routeIndex.getOffset(piece.endVertex) - routeIndex.getOffset(piece.startVertex),
+                            piece.halfWidthInMeters, found.size(), plan.maxItems);
+                }
+                searchNext();
+                return;
+            }
+            if (controller != null && !session.isCancelled()) {
+                if (pieceFailure == SearchFailure.POLYLINE_TOO_LONG) {
+                    if (retrySimplified(piece) || retrySplit(piece)) {
+                        searchNext();
+                        return;
+                    }
+                } else if (controller.canRetry(piece.attempt + 1)) {
+                    piece.attempt++;
+                    BACKOFF_RETRIES.increment();
+                    controller.getScheduler().schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            searchNext();
+                        }
+                    }, controller.backoffMillis(piece.attempt));
+                    return;
+                }
+            }
+            pieces.removeFirst();
+            searchedPieces++;
+            failedPieces++;
+            failure = pieceFailure;
+            searchNext();
+        }
+
+        /**
+         * Retries the piece with a wider corridor around a polyline simplified by the added width,
+         * the simplified corridor still covers the original one
+         * */
+        private boolean retrySimplified(Piece piece) {
+            if (piece.simplified) {
+                return false;
+            }
+            piece.simplified = true;
+            double widened = controller.widenedHalfWidth(piece.halfWidthInMeters);
+            PolylineSimplifier.Result simplified = PolylineSimplifier.simplify(piece.latitudes, piece.longitudes,
+                    widened - piece.halfWidthInMeters);
+            if (simplified.getVertexCount() >= piece.latitudes.length) {
+                return false;
+            }
+            piece.latitudes = simplified.latitudes;
+            piece.longitudes = simplified.longitudes;
+            piece.halfWidthInMeters = widened;
+            SIMPLIFIED_RETRIES.increment();
+            return true;
+        }
+
+        /**
+         * Replaces the piece with its two halves, both searched with the half width of the chunk
+         * */
+        private boolean retrySplit(Piece piece) {
+            int vertexCount = piece.endVertex - piece.startVertex + 1;
+            if (!controller.canSplit(piece.depth, vertexCount)) {
+                return false;
+            }
+            int middle = (piece.startVertex + piece.endVertex) / 2;
+            pieces.removeFirst();
+            pieces.addFirst(new Piece(routeIndex, middle, piece.endVertex, piece.depth + 1, plan.halfWidthInMeters));
+            pieces.addFirst(new Piece(routeIndex, piece.startVertex, middle, piece.depth + 1, plan.halfWidthInMeters));
+            SPLIT_RETRIES.increment();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Deferred holds a value created in the background, e.g. an engine of the HERE SDK whose construction would
+ * block the main thread. Work handed to whenReady() runs right away once the value is there and is queued
+ * until then. The queued work runs on the callbackExecutor in the order it was queued, work handed over while
+ * the queue is still running is queued behind it.
+ *
+ * A factory that throws fails on the thread creating the value, like the constructor it replaces.
+ */
+public class Deferred<T> {
+
+    public interface Factory<T> {
+        T create();
+    }
+
+    public interface Consumer<T> {
+        void accept(T value);
+    }
+
+    private final Executor callbackExecutor;
+    private final List<Consumer<T>> waiting = new ArrayList<>();
+    private T value;
+    private boolean hasValue;
+    // true once the work queued before the value was set has run
+    private boolean ready;
+
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            while (true) {
+                List<Consumer<T>> consumers;
+                T current;
+                synchronized (Deferred.this) {
+                    if (waiting.isEmpty()) {
+                        ready = true;
+                        return;
+                    }
+                    consumers = new ArrayList<>(waiting);
+                    waiting.clear();
+                    current = value;
+                }
+                for (Consumer<T> consumer : consumers) {
+                    consumer.accept(current);
+                }
+            }
+        }
+    };
+
+    public Deferred(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Creates the value with the factory on the executor
+     * */
+    public static <T> Deferred<T> create(Executor executor, Executor callbackExecutor, final Factory<T> factory) {
+        final Deferred<T> deferred = new Deferred<>(callbackExecutor);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                deferred.set(factory.create());
+            }
+        });
+        return deferred;
+    }
+
+    /**
+     * Sets the value and runs the queued work on the callbackExecutor, the value can only be set once
+     * */
+    public void set(T value) {
+        synchronized (this) {
+            if (hasValue) {
+                throw new IllegalStateException("The value is already set");
+            }
+            this.value = value;
+            hasValue = true;
+        }
+        callbackExecutor.execute(drain);
+    }
+
+    /**
+     * Runs the consumer with the value, right away on the calling thread when the value is ready
+     * */
+    public void whenReady(Consumer<T> consumer) {
+        T current;
+        synchronized (this) {
+            if (!ready) {
+                waiting.add(consumer);
+                return;
+            }
+            current = value;
+        }
+        consumer.accept(current);
+    }
+
+    public synchronized boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * No. of consumers waiting for the value
+     * */
+    public synchronized int getWaitingCount() {
+        return waiting.size();
+    }
+}
@@ -0,0 +1,24 @@
+package com.abhistudio.restaurantfinderhere;
+
+/**
+ * DeferredPlaceSearchBackend searches with a PlaceSearchBackend that is still being created in the background,
+ * searches started before it is ready run once it is, see Deferred.
+ */
+public class DeferredPlaceSearchBackend implements PlaceSearchBackend {
+
+    private final Deferred<PlaceSearchBackend> backend;
+
+    public DeferredPlaceSearchBackend(Deferred<PlaceSearchBackend> backend) {
+        this.backend = backend;
+    }
+
+    @Override
+    public void search(final SearchArea area, final String query, final int maxItems, final Callback callback) {
+        backend.whenReady(new Deferred.Consumer<PlaceSearchBackend>() {
+            @Override
+            public void accept(PlaceSearchBackend placeSearchBackend) {
+                placeSearchBackend.search(area, query, maxItems, callback);
+            }
+        });
+    }
+}
@@ -0,0 +1,62 @@
+package com.abhistudio.restaurantfinderhere;
+
+/**
+ * DeferredRouteBackend calculates routes with a RouteBackend that is still being created in the background,
+ * routes requested before it is ready are calculated once it is, see Deferred.
+ * A route cancelled while it waits for the backend is never calculated.
+ */
+public class DeferredRouteBackend implements RouteBackend {
+
+    // Handle of a route that is either waiting for the backend or being calculated by it
+    private static class Request implements Cancellable {
+        private boolean cancelled;
+        private Cancellable calculation;
+
+        @Override
+        public void cancel() {
+            Cancellable running;
+            synchronized (this) {
+                cancelled = true;
+                running = calculation;
+            }
+            if (running != null) {
+                running.cancel();
+            }
+        }
+
+        synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        void started(Cancellable calculation) {
+            synchronized (this) {
+                if (!cancelled) {
+                    this.calculation = calculation;
+                    return;
+                }
+            }
+            calculation.cancel();
+        }
+    }
+
+    private final Deferred<RouteBackend> backend;
+
+    public DeferredRouteBackend(Deferred<RouteBackend> backend) {
+        this.backend = backend;
+    }
+
+    @Override
+    public Cancellable calculateRoute(final double[] waypointLatitudes, final double[] waypointLongitudes,
+                                      final Callback callback) {
+        final Request request = new Request();
+        backend.whenReady(new Deferred.Consumer<RouteBackend>() {
+            @Override
+            public void accept(RouteBackend routeBackend) {
+                if (!request.isCancelled()) {
+                    request.started(routeBackend.calculateRoute(waypointLatitudes, waypointLongitudes, callback));
+                }
+            }
+        });
+        return request;
+    }
+}
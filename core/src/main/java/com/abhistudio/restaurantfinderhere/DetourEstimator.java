@@ -0,0 +1,83 @@
+package com.abhistudio.restaurantfinderhere;
+
+/**
+ * DetourEstimator estimates the extra driving time to a place next to the route.
+ *
+ * The average speed of every route section (length / duration of the Section) tells how fast the road at
+ * the point of leaving the route is. The detour drives the lateral distance there and back on smaller roads:
+ * at most maxAccessSpeedInMetersPerSecond, and longer than the straight line by the roadFactor.
+ */
+public class DetourEstimator {
+
+    // start offset of every section along the route, scaled to the offsets of the route polyline
+    private final double[] sectionStarts;
+    // average speed of every section in meters per second
+    private final double[] sectionSpeeds;
+    private final double roadFactor;
+    private final double maxAccessSpeedInMetersPerSecond;
+
+    /**
+     * Constructor for DetourEstimator
+     * sectionLengthsInMeters / sectionDurationsInSeconds -> length and duration of every section of the route
+     * routeLengthInMeters -> length of the polyline the offsets are measured on, sections are scaled to it
+     * */
+    public DetourEstimator(double[] sectionLengthsInMeters, double[] sectionDurationsInSeconds,
+                           double routeLengthInMeters, double roadFactor, double maxAccessSpeedInMetersPerSecond) {
+        if (sectionLengthsInMeters.length != sectionDurationsInSeconds.length) {
+            throw new IllegalArgumentException("every section needs a length and a duration");
+        }
+        if (maxAccessSpeedInMetersPerSecond <= 0) {
+            throw new IllegalArgumentException("maxAccessSpeedInMetersPerSecond must be positive");
+        }
+        int count = sectionLengthsInMeters.length;
+        double totalLength = 0;
+        for (double length : sectionLengthsInMeters) {
+            totalLength += length;
+        }
+        double scale = totalLength > 0 && routeLengthInMeters > 0 ? routeLengthInMeters / totalLength : 1;
+        sectionStarts = new double[count];
+        sectionSpeeds = new double[count];
+        double start = 0;
+        for (int i = 0; i < count; i++) {
+            sectionStarts[i] = start;
+            start += sectionLengthsInMeters[i] * scale;
+            sectionSpeeds[i] = sectionDurationsInSeconds[i] > 0
+                    ? sectionLengthsInMeters[i] / sectionDurationsInSeconds[i]
+                    : maxAccessSpeedInMetersPerSecond;
+        }
+        this.roadFactor = roadFactor;
+        this.maxAccessSpeedInMetersPerSecond = maxAccessSpeedInMetersPerSecond;
+    }
+
+    /**
+     * Average speed in meters per second of the section at the given offset along the route
+     * */
+    public double speedAt(double offsetInMeters) {
+        if (sectionStarts.length == 0) {
+            return maxAccessSpeedInMetersPerSecond;
+        }
+        // last section starting at or before the offset
+        int low = 0;
+        int high = sectionStarts.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (sectionStarts[middle] <= offsetInMeters) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return sectionSpeeds[low];
+    }
+
+    /**
+     * Extra seconds to drive to a place lateralDistanceInMeters next to the route at offsetInMeters and back
+     * */
+    public double estimateSeconds(double offsetInMeters, double lateralDistanceInMeters) {
+        double speed = Math.min(speedAt(offsetInMeters), maxAccessSpeedInMetersPerSecond);
+        if (speed <= 0) {
+            speed = maxAccessSpeedInMetersPerSecond;
+        }
+        return 2 * lateralDistanceInMeters * roadFactor / speed;
+    }
+}
@@ -0,0 +1,44 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency model of the fake backends: a base latency with uniform jitter and an occasional slow tail request.
+ * Requests complete on the scheduler, or directly on the calling thread without one.
+ */
+final class FakeLatency {
+
+    private final ScheduledExecutorService scheduler;
+    private long baseMillis;
+    private long jitterMillis;
+    private double tailProbability;
+    private long tailMillis;
+
+    FakeLatency(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    void set(long baseMillis, long jitterMillis, double tailProbability, long tailMillis) {
+        this.baseMillis = baseMillis;
+        this.jitterMillis = jitterMillis;
+        this.tailProbability = tailProbability;
+        this.tailMillis = tailMillis;
+    }
+
+    /**
+     * Runs the completion after the latency drawn from random
+     * */
+    void complete(Random random, Runnable completion) {
+        long latency = baseMillis + (jitterMillis > 0 ? (long) (random.nextDouble() * jitterMillis) : 0);
+        if (tailProbability > 0 && random.nextDouble() < tailProbability) {
+            latency += tailMillis;
+        }
+        if (scheduler == null) {
+            completion.run();
+        } else {
+            scheduler.schedule(completion, latency, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Deterministic in-process PlaceSearchBackend for tests and benchmarks, no HERE backend needed.
+ *
+ * The fake world has placesPerTile places in every tile of level 15 (about 1 km), derived from the seed
+ * and the tile, so every search of the same area finds the same places with the same ids.
+ * Latency and failures are drawn from a random seeded by the request, so a run is reproducible
+ * no matter in which order concurrent requests arrive. Corridors with more than maxCorridorVertices vertices
+ * fail with POLYLINE_TOO_LONG like the SearchEngine does for too complex corridors.
+ */
+public class FakePlaceSearchBackend implements PlaceSearchBackend {
+
+    private static final int TILE_LEVEL = 15;
+
+    private final long seed;
+    private final FakeLatency latency;
+    private int placesPerTile = 5;
+    private int maxCorridorVertices = Integer.MAX_VALUE;
+    private double failureRate;
+    private int searchCount;
+
+    /**
+     * Constructor for FakePlaceSearchBackend, results are delivered on the scheduler
+     * or on the calling thread when it is null
+     * */
+    public FakePlaceSearchBackend(long seed, ScheduledExecutorService scheduler) {
+        this.seed = seed;
+        this.latency = new FakeLatency(scheduler);
+    }
+
+    public FakePlaceSearchBackend setLatency(long baseMillis, long jitterMillis, double tailProbability, long tailMillis) {
+        latency.set(baseMillis, jitterMillis, tailProbability, tailMillis);
+        return this;
+    }
+
+    public FakePlaceSearchBackend setPlacesPerTile(int placesPerTile) {
+        this.placesPerTile = placesPerTile;
+        return this;
+    }
+
+    /**
+     * Corridors with more vertices fail with SearchFailure.POLYLINE_TOO_LONG
+     * */
+    public FakePlaceSearchBackend setMaxCorridorVertices(int maxCorridorVertices) {
+        this.maxCorridorVertices = maxCorridorVertices;
+        return this;
+    }
+
+    /**
+     * Share of the searches failing with SearchFailure.OTHER, like a lost connection
+     * */
+    public FakePlaceSearchBackend setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+        return this;
+    }
+
+    public synchronized int getSearchCount() {
+        return searchCount;
+    }
+
+    @Override
+    public void search(SearchArea area, String query, int maxItems, final Callback callback) {
+        synchronized (this) {
+            searchCount++;
+        }
+        Random random = new Random(seed ^ requestHash(area, query));
+        if (area.isCorridor() && area.latitudes.length > maxCorridorVertices) {
+            fail(random, SearchFailure.POLYLINE_TOO_LONG, callback);
+            return;
+        }
+        if (failureRate > 0 && random.nextDouble() < failureRate) {
+            fail(random, SearchFailure.OTHER, callback);
+            return;
+        }
+        final List<PlaceRecord> places = placesIn(area, query, maxItems);
+        latency.complete(random, new Runnable() {
+            @Override
+            public void run() {
+                callback.onSearchCompleted(null, places);
+            }
+        });
+    }
+
+    /**
+     * The places of the fake world inside the area, at most maxItems of them
+     * */
+    public List<PlaceRecord> placesIn(SearchArea area, String query, int maxItems) {
+        Iterable<String> tiles = area.isCorridor()
+                ? TileKey.coveringTiles(area.latitudes, area.longitudes, area.sizeInMeters, TILE_LEVEL)
+                : TileKey.coveringTiles(area.centerLatitude, area.centerLongitude, area.sizeInMeters, TILE_LEVEL);
+        List<PlaceRecord> places = new ArrayList<>();
+        double[] segmentDistance = new double[2];
+        for (String tile : tiles) {
+            long cellKey = TileKey.cellKey(tile);
+            double[] bounds = TileKey.bounds(tile);
+            Random random = new Random(seed * 31 + cellKey);
+            for (int i = 0; i < placesPerTile; i++) {
+                double latitude = bounds[0] + random.nextDouble() * (bounds[2] - bounds[0]);
+                double longitude = bounds[1] + random.nextDouble() * (bounds[3] - bounds[1]);
+                if (!area.contains(latitude, longitude, segmentDistance)) {
+                    continue;
+                }
+                places.add(new PlaceRecord("fake:" + cellKey + ":" + i, query + " " + cellKey + "/" + i,
+                        latitude, longitude));
+                if (places.size() >= maxItems) {
+                    return places;
+                }
+            }
+        }
+        return places;
+    }
+
+    private void fail(Random random, final SearchFailure failure, final Callback callback) {
+        latency.complete(random, new Runnable() {
+            @Override
+            public void run() {
+                callback.onSearchCompleted(failure, null);
+            }
+        });
+    }
+
+    private static long requestHash(SearchArea area, String query) {
+        long hash = query.hashCode();
+        hash = hash * 31 + Double.doubleToLongBits(area.centerLatitude);
+        hash = hash * 31 + Double.doubleToLongBits(area.centerLongitude);
+        hash = hash * 31 + Double.doubleToLongBits(area.sizeInMeters);
+        if (area.isCorridor()) {
+            hash = hash * 31 + area.latitudes.length;
+        }
+        return hash;
+    }
+}
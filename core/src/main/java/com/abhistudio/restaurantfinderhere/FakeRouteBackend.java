@@ -0,0 +1,142 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Deterministic in-process RouteBackend for tests and benchmarks, no HERE backend needed.
+ *
+ * Routes wind from waypoint to waypoint with a vertex every vertexSpacingInMeters, like the dense polylines
+ * of real car routes, and are split in sections of SECTION_LENGTH_IN_METERS alternating between motorway
+ * and town speeds. The same waypoints always give the same route.
+ */
+public class FakeRouteBackend implements RouteBackend {
+
+    private static final double SECTION_LENGTH_IN_METERS = 5000;
+    private static final double MOTORWAY_SPEED = 120 / 3.6;
+    private static final double TOWN_SPEED = 40 / 3.6;
+    private static final double METERS_PER_DEGREE = Math.PI / 180 * GeoMath.EARTH_RADIUS_IN_METERS;
+
+    private final long seed;
+    private final FakeLatency latency;
+    private double vertexSpacingInMeters = 20;
+    private double failureRate;
+    private int routeCount;
+
+    /**
+     * Constructor for FakeRouteBackend, routes are delivered on the scheduler
+     * or on the calling thread when it is null
+     * */
+    public FakeRouteBackend(long seed, ScheduledExecutorService scheduler) {
+        this.seed = seed;
+        this.latency = new FakeLatency(scheduler);
+    }
+
+    public FakeRouteBackend setLatency(long baseMillis, long jitterMillis, double tailProbability, long tailMillis) {
+        latency.set(baseMillis, jitterMillis, tailProbability, tailMillis);
+        return this;
+    }
+
+    public FakeRouteBackend setVertexSpacingInMeters(double vertexSpacingInMeters) {
+        this.vertexSpacingInMeters = vertexSpacingInMeters;
+        return this;
+    }
+
+    /**
+     * Share of the route calculations failing with NO_ROUTE_FOUND
+     * */
+    public FakeRouteBackend setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+        return this;
+    }
+
+    public synchronized int getRouteCount() {
+        return routeCount;
+    }
+
+    @Override
+    public Cancellable calculateRoute(double[] waypointLatitudes, double[] waypointLongitudes, final Callback callback) {
+        synchronized (this) {
+            routeCount++;
+        }
+        final CancellationToken token = new CancellationToken();
+        Random random = new Random(seed ^ (31 * Arrays.hashCode(waypointLatitudes) + Arrays.hashCode(waypointLongitudes)));
+        if (waypointLatitudes.length < 2 || (failureRate > 0 && random.nextDouble() < failureRate)) {
+            latency.complete(random, new Runnable() {
+                @Override
+                public void run() {
+                    if (!token.isCancelled()) {
+                        callback.onRouteCalculated("NO_ROUTE_FOUND", null);
+                    }
+                }
+            });
+            return token;
+        }
+        final RouteRecord route = route(waypointLatitudes, waypointLongitudes, random);
+        latency.complete(random, new Runnable() {
+            @Override
+            public void run() {
+                if (!token.isCancelled()) {
+                    callback.onRouteCalculated(null, route);
+                }
+            }
+        });
+        return token;
+    }
+
+    private RouteRecord route(double[] waypointLatitudes, double[] waypointLongitudes, Random random) {
+        int capacity = 1024;
+        double[] latitudes = new double[capacity];
+        double[] longitudes = new double[capacity];
+        int count = 0;
+        latitudes[count] = waypointLatitudes[0];
+        longitudes[count] = waypointLongitudes[0];
+        count++;
+        double length = 0;
+        for (int w = 1; w < waypointLatitudes.length; w++) {
+            double latitude = latitudes[count - 1];
+            double longitude = longitudes[count - 1];
+            double wobble = 0;
+            while (true) {
+                double remaining = GeoMath.haversine(latitude, longitude, waypointLatitudes[w], waypointLongitudes[w]);
+                if (remaining <= vertexSpacingInMeters) {
+                    latitude = waypointLatitudes[w];
+                    longitude = waypointLongitudes[w];
+                    length += remaining;
+                } else {
+                    // head for the waypoint with a slowly changing deviation, like a road following the terrain
+                    wobble = Math.max(-0.6, Math.min(0.6, wobble + random.nextGaussian() * 0.05));
+                    double cos = Math.cos(Math.toRadians(latitude));
+                    double heading = Math.atan2((waypointLongitudes[w] - longitude) * cos,
+                            waypointLatitudes[w] - latitude) + wobble;
+                    latitude += Math.cos(heading) * vertexSpacingInMeters / METERS_PER_DEGREE;
+                    longitude += Math.sin(heading) * vertexSpacingInMeters / (METERS_PER_DEGREE * cos);
+                    length += vertexSpacingInMeters;
+                }
+                if (count == capacity) {
+                    capacity *= 2;
+                    latitudes = Arrays.copyOf(latitudes, capacity);
+                    longitudes = Arrays.copyOf(longitudes, capacity);
+                }
+                latitudes[count] = latitude;
+                longitudes[count] = longitude;
+                count++;
+                if (latitude == waypointLatitudes[w] && longitude == waypointLongitudes[w]) {
+                    break;
+                }
+            }
+        }
+
+        int sections = Math.max(1, (int) Math.ceil(length / SECTION_LENGTH_IN_METERS));
+        double[] sectionLengths = new double[sections];
+        double[] sectionDurations = new double[sections];
+        for (int i = 0; i < sections; i++) {
+            sectionLengths[i] = Math.min(SECTION_LENGTH_IN_METERS, length - i * SECTION_LENGTH_IN_METERS);
+            sectionDurations[i] = sectionLengths[i] / (i % 2 == 0 ? MOTORWAY_SPEED : TOWN_SPEED);
+        }
+        return new RouteRecord(Arrays.copyOf(latitudes, count), Arrays.copyOf(longitudes, count),
+                sectionLengths, sectionDurations, new ArrayList<String>());
+    }
+}
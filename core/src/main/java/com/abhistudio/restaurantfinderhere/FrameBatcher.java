@@ -0,0 +1,123 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * FrameBatcher collects items and hands them to a Renderer in batches, once per frame.
+ * At most maxItemsPerFrame items are rendered in one frame so a burst of results never blocks a frame,
+ * the remaining items are rendered on the following frames.
+ *
+ * Items can be added from any thread, the Renderer is only called from the frame callbacks.
+ */
+public class FrameBatcher<T> {
+
+    public interface Renderer<T> {
+        void render(T item);
+    }
+
+    /**
+     * Called after the items of a frame were rendered, e.g. to commit them to the map at once
+     * */
+    public interface FrameListener {
+        void onFrameRendered(int itemCount);
+    }
+
+    /**
+     * Schedules a callback on the next frame, on Android this is backed by the Choreographer.
+     * It may be called from any thread.
+     * */
+    public interface FrameScheduler {
+        void scheduleFrame(Runnable onFrame);
+    }
+
+    private final FrameScheduler scheduler;
+    private final Renderer<T> renderer;
+    private final FrameListener frameListener;
+    private final int maxItemsPerFrame;
+    private final Queue<T> queue = new ArrayDeque<>();
+    // items of the frame being rendered, only used by the frame callback
+    private final Queue<T> frame = new ArrayDeque<>();
+    private boolean frameScheduled;
+    private int framesFlushed;
+
+    private final Runnable onFrame = new Runnable() {
+        @Override
+        public void run() {
+            flushFrame();
+        }
+    };
+
+    public FrameBatcher(FrameScheduler scheduler, int maxItemsPerFrame, Renderer<T> renderer) {
+        this(scheduler, maxItemsPerFrame, renderer, null);
+    }
+
+    public FrameBatcher(FrameScheduler scheduler, int maxItemsPerFrame, Renderer<T> renderer,
+                        FrameListener frameListener) {
+        if (maxItemsPerFrame < 1) {
+            throw new IllegalArgumentException("maxItemsPerFrame must be at least 1");
+        }
+        this.scheduler = scheduler;
+        this.maxItemsPerFrame = maxItemsPerFrame;
+        this.renderer = renderer;
+        this.frameListener = frameListener;
+    }
+
+    public void add(T item) {
+        synchronized (queue) {
+            queue.add(item);
+            if (frameScheduled) {
+                return;
+            }
+            frameScheduled = true;
+        }
+        scheduler.scheduleFrame(onFrame);
+    }
+
+    /**
+     * Drops the items that were not rendered yet
+     * */
+    public void clear() {
+        synchronized (queue) {
+            queue.clear();
+        }
+    }
+
+    public int getPendingCount() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    public int getFramesFlushed() {
+        synchronized (queue) {
+            return framesFlushed;
+        }
+    }
+
+    private void flushFrame() {
+        boolean scheduleNext;
+        synchronized (queue) {
+            frameScheduled = false;
+            if (queue.isEmpty()) {
+                return;
+            }
+            framesFlushed++;
+            for (int i = 0; i < maxItemsPerFrame && !queue.isEmpty(); i++) {
+                frame.add(queue.poll());
+            }
+            scheduleNext = !queue.isEmpty();
+            frameScheduled = scheduleNext;
+        }
+        int itemCount = frame.size();
+        while (!frame.isEmpty()) {
+            renderer.render(frame.poll());
+        }
+        if (frameListener != null) {
+            frameListener.onFrameRendered(itemCount);
+        }
+        if (scheduleNext) {
+            scheduler.scheduleFrame(onFrame);
+        }
+    }
+}
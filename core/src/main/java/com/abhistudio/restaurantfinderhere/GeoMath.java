@@ -0,0 +1,131 @@
+package com.abhistudio.restaurantfinderhere;
+
+/**
+ * GeoMath holds the geographic calculations shared by the route classes, on plain latitude / longitude
+ * values in degrees so they can be used and benchmarked without the HERE SDK.
+ */
+public final class GeoMath {
+
+    public static final double EARTH_RADIUS_IN_METERS = 6371000.0;
+    private static final double RAD = Math.PI / 180;
+    private static final double DEG = 180 / Math.PI;
+
+    private GeoMath() {
+    }
+
+    /**
+     * Great circle distance in meters between two points
+     * */
+    public static double haversine(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double dLatitude = (latitude2 - latitude1) * RAD;
+        double dLongitude = (longitude2 - longitude1) * RAD;
+        double a = Math.sin(dLatitude / 2) * Math.sin(dLatitude / 2)
+                + Math.cos(latitude1 * RAD) * Math.cos(latitude2 * RAD)
+                * Math.sin(dLongitude / 2) * Math.sin(dLongitude / 2);
+        return 2 * EARTH_RADIUS_IN_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Equirectangular approximation of the distance in meters between two points,
+     * close to the haversine distance for points a few kilometers apart
+     * */
+    public static double equirectangular(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double x = normalizeLongitude(longitude2 - longitude1) * RAD * Math.cos((latitude1 + latitude2) / 2 * RAD);
+        double y = (latitude2 - latitude1) * RAD;
+        return Math.sqrt(x * x + y * y) * EARTH_RADIUS_IN_METERS;
+    }
+
+    /**
+     * Distance from the point to the segment (a, b) in a local equirectangular projection around the point.
+     * result[0] holds the distance in meters and result[1] the position of the nearest point
+     * on the segment, from 0 at a to 1 at b
+     * */
+    public static void pointToSegment(double latitude, double longitude, double latitudeA, double longitudeA,
+                                      double latitudeB, double longitudeB, double[] result) {
+        pointToSegment(latitude, longitude, Math.cos(latitude * RAD), latitudeA, longitudeA, latitudeB, longitudeB,
+                result);
+    }
+
+    /**
+     * pointToSegment with the cosine of the point latitude computed by the caller, once for all segments
+     * */
+    public static void pointToSegment(double latitude, double longitude, double cos, double latitudeA,
+                                      double longitudeA, double latitudeB, double longitudeB, double[] result) {
+        double scale = RAD * EARTH_RADIUS_IN_METERS;
+        double ax = normalizeLongitude(longitudeA - longitude) * cos * scale;
+        double ay = (latitudeA - latitude) * scale;
+        double bx = normalizeLongitude(longitudeB - longitude) * cos * scale;
+        double by = (latitudeB - latitude) * scale;
+
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = 0;
+        if (lengthSquared > 0) {
+            // the point is the origin, so the projection parameter is -a.(b - a) / |b - a|^2
+            t = Math.max(0, Math.min(1, -(ax * dx + ay * dy) / lengthSquared));
+        }
+        double px = ax + t * dx;
+        double py = ay + t * dy;
+        result[0] = Math.sqrt(px * px + py * py);
+        result[1] = t;
+    }
+
+    /**
+     * Center of a list of points as {latitude, longitude}
+     * */
+    public static double[] center(double[] latitudes, double[] longitudes) {
+        double[] result = new double[2];
+        center(latitudes, longitudes, result);
+        return result;
+    }
+
+    /**
+     * Center of a list of points written to result as {latitude, longitude}
+     *
+     * 1. Convert each lat/long pair into a unit-length 3D vector.
+     * 2. Sum each of those vectors
+     * 3. Normalise the resulting vector
+     * 4. Convert back to spherical coordinates
+     * */
+    public static void center(double[] latitudes, double[] longitudes, double[] result) {
+        if (latitudes.length == 1) {
+            result[0] = latitudes[0];
+            result[1] = longitudes[0];
+            return;
+        }
+        double x = 0, y = 0, z = 0;
+        for (int i = 0; i < latitudes.length; i++) {
+            double latitude = latitudes[i] * RAD, longitude = longitudes[i] * RAD;
+            double cl = Math.cos(latitude);
+            x += cl * Math.cos(longitude);
+            y += cl * Math.sin(longitude);
+            z += Math.sin(latitude);
+        }
+        toLatitudeLongitude(x, y, z, result);
+    }
+
+    /**
+     * Converts the sum of unit vectors back to spherical coordinates, the length of the vector does not matter
+     * */
+    static void toLatitudeLongitude(double x, double y, double z, double[] result) {
+        double centralLongitude = Math.atan2(y, x);
+        double centralSquareRoot = Math.sqrt(x * x + y * y);
+        double centralLatitude = Math.atan2(z, centralSquareRoot);
+        result[0] = centralLatitude * DEG;
+        result[1] = centralLongitude * DEG;
+    }
+
+    /**
+     * Longitude difference in degrees wrapped to [-180, 180], for routes crossing the antimeridian
+     * */
+    static double normalizeLongitude(double delta) {
+        if (delta > 180) {
+            return delta - 360;
+        }
+        if (delta < -180) {
+            return delta + 360;
+        }
+        return delta;
+    }
+}
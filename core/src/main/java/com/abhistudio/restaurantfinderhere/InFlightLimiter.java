@@ -0,0 +1,79 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * InFlightLimiter starts asynchronous requests while keeping at most maxInFlight of them running.
+ * Requests that do not fit are queued and started in submission order as running ones complete.
+ */
+public class InFlightLimiter {
+
+    /**
+     * An asynchronous request, it must call done.run() exactly once when it completes
+     * */
+    public interface Request {
+        void start(Runnable done);
+    }
+
+    private final int maxInFlight;
+    private final Queue<Request> queue = new ArrayDeque<>();
+    private int inFlight;
+
+    public InFlightLimiter(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.maxInFlight = maxInFlight;
+    }
+
+    public void submit(Request request) {
+        synchronized (this) {
+            queue.add(request);
+        }
+        drain();
+    }
+
+    /**
+     * Drops every request that has not been started yet
+     * */
+    public synchronized void cancelQueued() {
+        queue.clear();
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return queue.size();
+    }
+
+    private void drain() {
+        while (true) {
+            Request request;
+            synchronized (this) {
+                if (inFlight >= maxInFlight || queue.isEmpty()) {
+                    return;
+                }
+                request = queue.poll();
+                inFlight++;
+            }
+            request.start(new Runnable() {
+                private boolean called;
+
+                @Override
+                public void run() {
+                    synchronized (InFlightLimiter.this) {
+                        if (called) {
+                            return;
+                        }
+                        called = true;
+                        inFlight--;
+                    }
+                    drain();
+                }
+            });
+        }
+    }
+}
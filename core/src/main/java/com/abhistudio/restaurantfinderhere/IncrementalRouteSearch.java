@@ -0,0 +1,285 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * IncrementalRouteSearch searches a changed route only where it changed, e.g. after another waypoint was added.
+ *
+ * It remembers the stretches of the current route whose corridor was searched completely and every place matched
+ * along it. diff() lays the new route over the old one: segments running along a searched stretch of the old
+ * route, within the simplification tolerances of both, in the same direction and with about the same length,
+ * are unchanged. Only the changed stretches, one segment wider on each side, are planned into chunks and searched.
+ * The places matched before are projected onto the new route, the ones still within its corridor are kept
+ * with their new offsets, the others are removed. The cost of a re-search grows with the changed length.
+ *
+ * diff() only reads the current route, so diffs of several new routes can run at the same time. The route of a
+ * delta becomes the current one when the delta is searched, a delta made before that is stale.
+ */
+public class IncrementalRouteSearch {
+
+    /**
+     * What changed between the previous route and the new one
+     * */
+    public static class Delta {
+        public final PreparedRoute route;
+        // chunks of the changed stretches, indexed from 0 in route order, the only ones to search
+        public final List<CorridorPlanner.Chunk> chunks;
+        // places of the previous route still along the new one, with their offsets along the new route
+        public final List<PlaceMatchAssembler.Match<PlaceRecord>> kept;
+        // places of the previous route that are not along the new one anymore
+        public final List<PlaceMatchAssembler.Match<PlaceRecord>> removed;
+        // holds the kept places as already rendered, the search of the chunks adds to it
+        public final PlaceMatchAssembler<PlaceRecord> assembler;
+        private final double changedLengthInMeters;
+        // the current route the delta was made against, and the stretches of the new route already searched
+        private final PreparedRoute previous;
+        private final List<double[]> unchanged;
+
+        Delta(PreparedRoute route, List<CorridorPlanner.Chunk> chunks, List<PlaceMatchAssembler.Match<PlaceRecord>> kept,
+              List<PlaceMatchAssembler.Match<PlaceRecord>> removed, PlaceMatchAssembler<PlaceRecord> assembler,
+              double changedLengthInMeters, PreparedRoute previous, List<double[]> unchanged) {
+            this.route = route;
+            this.chunks = chunks;
+            this.kept = kept;
+            this.removed = removed;
+            this.assembler = assembler;
+            this.changedLengthInMeters = changedLengthInMeters;
+            this.previous = previous;
+            this.unchanged = unchanged;
+        }
+
+        /**
+         * Length of the new route that has to be searched, the whole route when nothing could be reused
+         * */
+        public double getChangedLengthInMeters() {
+            return changedLengthInMeters;
+        }
+    }
+
+    // Segments are compared at points this far apart, so a long straight segment is checked along its whole length
+    private static final double SAMPLE_STEP_IN_METERS = 500;
+    // Allowed difference of a segment's length and its length along the old route, on top of the tolerances
+    private static final double LENGTH_SLACK = 0.05;
+    private static final double MATCH_SLACK_IN_METERS = 5;
+
+    private static final Metrics.Timer DIFF_TIMER = Metrics.timer("search.diffRoute");
+    private static final Metrics.Counter KEPT_PLACES = Metrics.counter("search.keptPlaces");
+
+    private final RouteSearchEngine engine;
+    private PreparedRoute route;
+    private PlaceMatchAssembler<PlaceRecord> assembler;
+    // sorted, disjoint offset intervals {start, end} of the current route whose corridor was searched
+    private List<double[]> searched = new ArrayList<>();
+
+    public IncrementalRouteSearch(RouteSearchEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Compares the new route with the current one, must not be called on the main thread. The current route
+     * stays until the delta is searched. Without a current route, the whole new route is changed
+     * */
+    public Delta diff(PreparedRoute next) {
+        ThreadGuard.assertNotMainThread("Route diffing");
+        long diffStart = Metrics.now();
+        PreparedRoute previous;
+        PlaceMatchAssembler<PlaceRecord> previousAssembler;
+        List<double[]> previousSearched;
+        synchronized (this) {
+            previous = route;
+            previousAssembler = assembler;
+            previousSearched = new ArrayList<>(searched);
+        }
+        RouteIndex index = next.routeIndex;
+        int segmentCount = index.getVertexCount() - 1;
+        boolean[] changed = new boolean[Math.max(segmentCount, 0)];
+        // one projection reused for every sample and place
+        RouteIndex.MutableProjection projection = new RouteIndex.MutableProjection();
+        double tolerance = next.polyline.toleranceInMeters + MATCH_SLACK_IN_METERS
+                + (previous != null ? previous.polyline.toleranceInMeters : 0);
+        if (previous == null || previous == next) {
+            // a route searched again without any change still needs the parts that were not searched
+            for (int i = 0; i < segmentCount; i++) {
+                changed[i] = previous == null || !isSearched(previousSearched, index.getOffset(i), index.getOffset(i + 1));
+            }
+        } else {
+            for (int i = 0; i < segmentCount; i++) {
+                changed[i] = !runsAlong(index, i, previous.routeIndex, previousSearched, tolerance, projection);
+            }
+        }
+
+        // changed stretches are searched one segment wider on both sides, so nothing is lost at their ends
+        List<CorridorPlanner.Chunk> chunks = new ArrayList<>();
+        List<double[]> unchanged = new ArrayList<>();
+        double changedLength = 0;
+        int i = 0;
+        while (i < segmentCount) {
+            if (!changed[i]) {
+                i++;
+                continue;
+            }
+            int first = Math.max(0, i - 1);
+            int last = i;
+            while (last + 1 < segmentCount && (changed[last + 1] || (last + 2 < segmentCount && changed[last + 2]))) {
+                last++;
+            }
+            last = Math.min(segmentCount - 1, last + 1);
+            for (CorridorPlanner.Chunk chunk : engine.planChunks(index, first, last + 1)) {
+                chunks.add(new CorridorPlanner.Chunk(chunks.size(), chunk.startVertex, chunk.endVertex,
+                        chunk.startOffsetInMeters, chunk.endOffsetInMeters));
+            }
+            changedLength += index.getOffset(last + 1) - index.getOffset(first);
+            for (int segment = first; segment <= last; segment++) {
+                changed[segment] = true;
+            }
+            i = last + 1;
+        }
+        for (int segment = 0; segment < segmentCount; segment++) {
+            if (!changed[segment]) {
+                addInterval(unchanged, index.getOffset(segment), index.getOffset(segment + 1));
+            }
+        }
+
+        // the places of the old route are kept where the new route passes them as close as the old one did,
+        // or within its corridor
+        PlaceMatchAssembler<PlaceRecord> nextAssembler = new PlaceMatchAssembler<>();
+        List<PlaceMatchAssembler.Match<PlaceRecord>> removed = new ArrayList<>();
+        if (previousAssembler != null) {
+            List<PlaceMatchAssembler.Match<PlaceRecord>> previousMatches;
+            synchronized (previousAssembler) {
+                previousMatches = previousAssembler.getMatches();
+            }
+            for (PlaceMatchAssembler.Match<PlaceRecord> match : previousMatches) {
+                double maxDistance = Math.min(next.maxHalfWidthInMeters,
+                        Math.max(next.halfWidthInMeters, match.getDistanceInMeters()) + tolerance);
+                if (!index.nearest(match.place.latitude, match.place.longitude, maxDistance, projection)) {
+                    removed.add(match);
+                } else {
+                    nextAssembler.offer(match.id, match.place, projection.distanceInMeters, projection.offsetInMeters);
+                }
+            }
+        }
+        List<PlaceMatchAssembler.Match<PlaceRecord>> kept = nextAssembler.takePending();
+        KEPT_PLACES.add(kept.size());
+        DIFF_TIMER.stop(diffStart);
+        return new Delta(next, chunks, kept, removed, nextAssembler, changedLength, previous, unchanged);
+    }
+
+    /**
+     * True when the current route changed since the delta was made, e.g. another delta was searched
+     * or the route was cleared. A stale delta must not be searched, the new route has to be diffed again
+     * */
+    public synchronized boolean isStale(Delta delta) {
+        return delta.previous != route;
+    }
+
+    /**
+     * Makes the route of the delta the current one and searches the chunks of the delta, the stretches of the
+     * chunks that complete count as searched for the next diff. The delta must not be stale
+     * */
+    public CorridorSearch.Session search(final Delta delta, String query, final CorridorSearch.Listener listener) {
+        synchronized (this) {
+            if (delta.previous != route) {
+                throw new IllegalStateException("The current route changed since the delta was made");
+            }
+            route = delta.route;
+            assembler = delta.assembler;
+            searched = new ArrayList<>(delta.unchanged);
+        }
+        return engine.search(delta.route, delta.chunks, query, delta.assembler, new CorridorSearch.Listener() {
+            @Override
+            public void onPlacesFound(CorridorPlanner.Chunk chunk, List<PlaceMatchAssembler.Match<PlaceRecord>> matches) {
+                synchronized (IncrementalRouteSearch.this) {
+                    if (route == delta.route) {
+                        addInterval(searched, chunk.startOffsetInMeters, chunk.endOffsetInMeters);
+                    }
+                }
+                listener.onPlacesFound(chunk, matches);
+            }
+
+            @Override
+            public void onChunkFailed(CorridorPlanner.Chunk chunk, SearchFailure failure) {
+                listener.onChunkFailed(chunk, failure);
+            }
+
+            @Override
+            public void onSearchFinished(int matchCount, int duplicatesAvoided) {
+                listener.onSearchFinished(matchCount, duplicatesAvoided);
+            }
+        });
+    }
+
+    /**
+     * Length of the current route whose corridor has been searched
+     * */
+    public synchronized double getSearchedLengthInMeters() {
+        double length = 0;
+        for (double[] interval : searched) {
+            length += interval[1] - interval[0];
+        }
+        return length;
+    }
+
+    /**
+     * Forgets the current route, the next diff searches the whole route
+     * */
+    public synchronized void clear() {
+        route = null;
+        assembler = null;
+        searched = new ArrayList<>();
+    }
+
+    /**
+     * True when segment i of the new route runs along a searched stretch of the old route
+     * */
+    private static boolean runsAlong(RouteIndex index, int i, RouteIndex old, List<double[]> oldSearched,
+                                     double tolerance, RouteIndex.MutableProjection projection) {
+        double length = index.getOffset(i + 1) - index.getOffset(i);
+        int steps = Math.max(1, (int) Math.ceil(length / SAMPLE_STEP_IN_METERS));
+        double firstOffset = 0;
+        double previousOffset = 0;
+        for (int step = 0; step <= steps; step++) {
+            double t = (double) step / steps;
+            double latitude = index.getLatitude(i) + t * (index.getLatitude(i + 1) - index.getLatitude(i));
+            double longitude = index.getLongitude(i) + t * (index.getLongitude(i + 1) - index.getLongitude(i));
+            if (!old.nearest(latitude, longitude, tolerance, projection)
+                    || !isSearched(oldSearched, projection.offsetInMeters, projection.offsetInMeters)) {
+                return false;
+            }
+            // the old route has to be driven in the same direction
+            if (step == 0) {
+                firstOffset = projection.offsetInMeters;
+            } else if (projection.offsetInMeters < previousOffset - tolerance) {
+                return false;
+            }
+            previousOffset = projection.offsetInMeters;
+        }
+        return Math.abs(previousOffset - firstOffset - length) <= 2 * tolerance + LENGTH_SLACK * length;
+    }
+
+    private static boolean isSearched(List<double[]> intervals, double start, double end) {
+        for (double[] interval : intervals) {
+            if (interval[0] <= start && end <= interval[1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds an interval to the sorted, disjoint intervals, merging it with the ones it touches
+     * */
+    static void addInterval(List<double[]> intervals, double start, double end) {
+        int i = 0;
+        while (i < intervals.size() && intervals.get(i)[1] < start) {
+            i++;
+        }
+        while (i < intervals.size() && intervals.get(i)[0] <= end) {
+            double[] merged = intervals.remove(i);
+            start = Math.min(start, merged[0]);
+            end = Math.max(end, merged[1]);
+        }
+        intervals.add(i, new double[]{start, end});
+    }
+}
@@ -0,0 +1,268 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics is the registry of the timers and counters of the search pipeline, from the button press
+ * to the last marker on the map. Timers keep a Histogram of their durations and, when an AllocationCounter
+ * is installed, a Histogram of the bytes allocated by the thread while they ran. Only the JMH benchmarks
+ * install one, the app records timings only since Android has no supported per thread allocation counter.
+ *
+ * Metrics are disabled by default. While disabled now() returns 0, which every Timer ignores, and counters
+ * are not changed, so the instrumented code only pays a volatile read. Timers and counters are usually kept
+ * in static final fields and are registered when their class is loaded.
+ */
+public final class Metrics {
+
+    /**
+     * Bytes allocated by the current thread so far, -1 when not supported by the runtime
+     * */
+    public interface AllocationCounter {
+        long allocatedBytes();
+    }
+
+    public static class Timer {
+        private final String name;
+        private final Histogram nanos = new Histogram();
+        private final Histogram allocatedBytes = new Histogram();
+
+        Timer(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Records the time since start, a value of now(). Does nothing for a start of 0, taken while disabled
+         * */
+        public void stop(long start) {
+            if (start != 0) {
+                nanos.record(System.nanoTime() - start);
+            }
+        }
+
+        /**
+         * Records the time since start and the bytes allocated since allocatedBytesAtStart, a value of
+         * allocatedBytes() taken on the same thread
+         * */
+        public void stop(long start, long allocatedBytesAtStart) {
+            if (start == 0) {
+                return;
+            }
+            nanos.record(System.nanoTime() - start);
+            if (allocatedBytesAtStart >= 0) {
+                long allocated = allocatedBytes();
+                if (allocated >= 0) {
+                    allocatedBytes.record(allocated - allocatedBytesAtStart);
+                }
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Histogram getNanos() {
+            return nanos;
+        }
+
+        public Histogram getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+
+    public static class Counter {
+        private final String name;
+        private final AtomicLong value = new AtomicLong();
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        public void add(long delta) {
+            if (enabled) {
+                value.addAndGet(delta);
+            }
+        }
+
+        public void increment() {
+            add(1);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long get() {
+            return value.get();
+        }
+    }
+
+    private static volatile boolean enabled;
+    private static volatile AllocationCounter allocationCounter;
+    // sorted by name, so related metrics like search.* are dumped together
+    private static final Map<String, Timer> timers = new TreeMap<>();
+    private static final Map<String, Counter> counters = new TreeMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Starts recording, allocations are only sampled with an allocationCounter, which may be null
+     * */
+    public static void enable(AllocationCounter counter) {
+        allocationCounter = counter;
+        enabled = true;
+    }
+
+    public static void disable() {
+        enabled = false;
+        allocationCounter = null;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The timer with the given name, created on first use
+     * */
+    public static Timer timer(String name) {
+        synchronized (timers) {
+            Timer timer = timers.get(name);
+            if (timer == null) {
+                timer = new Timer(name);
+                timers.put(name, timer);
+            }
+            return timer;
+        }
+    }
+
+    /**
+     * The counter with the given name, created on first use
+     * */
+    public static Counter counter(String name) {
+        synchronized (counters) {
+            Counter counter = counters.get(name);
+            if (counter == null) {
+                counter = new Counter(name);
+                counters.put(name, counter);
+            }
+            return counter;
+        }
+    }
+
+    /**
+     * Start of a Timer, System.nanoTime() while enabled and 0 while disabled
+     * */
+    public static long now() {
+        if (!enabled) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        // 0 means disabled, a nanoTime of exactly 0 is moved by a nanosecond
+        return now == 0 ? 1 : now;
+    }
+
+    /**
+     * Bytes allocated by the current thread, -1 while disabled or without an AllocationCounter
+     * */
+    public static long allocatedBytes() {
+        AllocationCounter counter = allocationCounter;
+        if (!enabled || counter == null) {
+            return -1;
+        }
+        return counter.allocatedBytes();
+    }
+
+    /**
+     * Clears the recorded values, the timers and counters stay registered
+     * */
+    public static void reset() {
+        synchronized (timers) {
+            for (Timer timer : timers.values()) {
+                timer.nanos.reset();
+                timer.allocatedBytes.reset();
+            }
+        }
+        synchronized (counters) {
+            for (Counter counter : counters.values()) {
+                counter.value.set(0);
+            }
+        }
+    }
+
+    /**
+     * Human readable table of every timer that ran and every counter, durations in milliseconds
+     * */
+    public static String dump() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.US, "%-24s %8s %10s %10s %10s %10s %12s%n",
+                "timer (ms)", "count", "p50", "p90", "p99", "max", "alloc p50"));
+        synchronized (timers) {
+            for (Timer timer : timers.values()) {
+                Histogram nanos = timer.nanos;
+                if (nanos.getCount() == 0) {
+                    continue;
+                }
+                out.append(String.format(Locale.US, "%-24s %8d %10.3f %10.3f %10.3f %10.3f %12s%n",
+                        timer.name, nanos.getCount(),
+                        nanos.getValueAtPercentile(50) / 1e6, nanos.getValueAtPercentile(90) / 1e6,
+                        nanos.getValueAtPercentile(99) / 1e6, nanos.getMax() / 1e6,
+                        timer.allocatedBytes.getCount() == 0 ? "-" : timer.allocatedBytes.getValueAtPercentile(50) + " B"));
+            }
+        }
+        synchronized (counters) {
+            for (Counter counter : counters.values()) {
+                out.append(String.format(Locale.US, "%-24s %8d%n", counter.name, counter.get()));
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * The same metrics as JSON for tools, durations in nanoseconds and allocations in bytes
+     * */
+    public static String toJson() {
+        StringBuilder out = new StringBuilder("{\"timers\":{");
+        synchronized (timers) {
+            boolean first = true;
+            for (Timer timer : timers.values()) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                out.append('"').append(timer.name).append("\":{\"nanos\":");
+                appendJson(out, timer.nanos);
+                out.append(",\"allocatedBytes\":");
+                appendJson(out, timer.allocatedBytes);
+                out.append('}');
+            }
+        }
+        out.append("},\"counters\":{");
+        synchronized (counters) {
+            boolean first = true;
+            for (Counter counter : counters.values()) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                out.append('"').append(counter.name).append("\":").append(counter.get());
+            }
+        }
+        return out.append("}}").toString();
+    }
+
+    private static void appendJson(StringBuilder out, Histogram histogram) {
+        out.append("{\"count\":").append(histogram.getCount())
+                .append(",\"min\":").append(histogram.getMin())
+                .append(",\"mean\":").append(Math.round(histogram.getMean()))
+                .append(",\"p50\":").append(histogram.getValueAtPercentile(50))
+                .append(",\"p90\":").append(histogram.getValueAtPercentile(90))
+                .append(",\"p99\":").append(histogram.getValueAtPercentile(99))
+                .append(",\"p999\":").append(histogram.getValueAtPercentile(99.9))
+                .append(",\"max\":").append(histogram.getMax())
+                .append('}');
+    }
+}
@@ -0,0 +1,171 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * MultiCategorySearch searches several categories of places along one prepared route at the same time,
+ * e.g. restaurants, cafes and EV charging stations.
+ *
+ * The simplified polyline, the RouteIndex and the corridor chunks of the route are shared by all categories,
+ * only the chunk requests and the filtering of their places run once per category. Every category has its own
+ * assembler and PlaceRanker capped at its maxResults, the results are merged into one list in route order
+ * with the category of every place. A place found by two categories is kept in both.
+ */
+public class MultiCategorySearch {
+
+    /**
+     * Receives the places of every category, called on the filter threads of the RouteSearchEngine
+     * */
+    public interface Listener {
+        /**
+         * A place of the category, in route order within the category
+         * */
+        void onPlaceMatched(SearchCategory category, PlaceMatchAssembler.Match<PlaceRecord> match);
+
+        /**
+         * Called once after the last category finished, with the merged results
+         * */
+        void onSearchFinished(List<CategorizedPlace> results);
+    }
+
+    /**
+     * A place of the merged results with the category it was found for
+     * */
+    public static class CategorizedPlace {
+        public final SearchCategory category;
+        public final PlaceRanker.RankedPlace<PlaceRecord> ranked;
+
+        CategorizedPlace(SearchCategory category, PlaceRanker.RankedPlace<PlaceRecord> ranked) {
+            this.category = category;
+            this.ranked = ranked;
+        }
+
+        public PlaceRecord getPlace() {
+            return ranked.match.place;
+        }
+    }
+
+    private static final Comparator<CategorizedPlace> BY_OFFSET = new Comparator<CategorizedPlace>() {
+        @Override
+        public int compare(CategorizedPlace a, CategorizedPlace b) {
+            return Double.compare(a.ranked.getOffsetInMeters(), b.ranked.getOffsetInMeters());
+        }
+    };
+
+    private final PreparedRoute route;
+    private final List<SearchCategory> categories;
+    private final List<PlaceRanker<PlaceRecord>> rankers = new ArrayList<>();
+    private final List<CorridorSearch.Session> sessions = new ArrayList<>();
+    private final int[] failedChunks;
+    private int remaining;
+    private volatile boolean cancelled;
+
+    MultiCategorySearch(PreparedRoute route, List<SearchCategory> categories) {
+        Set<String> names = new HashSet<>();
+        for (SearchCategory category : categories) {
+            if (!names.add(category.name)) {
+                throw new IllegalArgumentException("Category " + category.name + " is searched twice");
+            }
+            rankers.add(new PlaceRanker<PlaceRecord>(route.detourEstimator, category.maxResults));
+        }
+        this.route = route;
+        this.categories = new ArrayList<>(categories);
+        this.failedChunks = new int[categories.size()];
+        this.remaining = categories.size();
+    }
+
+    /**
+     * Starts the corridor search of every category, they all run at the same time
+     * */
+    void start(RouteSearchEngine engine, final Listener listener) {
+        if (categories.isEmpty()) {
+            listener.onSearchFinished(new ArrayList<CategorizedPlace>());
+            return;
+        }
+        for (int i = 0; i < categories.size(); i++) {
+            final int index = i;
+            final SearchCategory category = categories.get(i);
+            final PlaceRanker<PlaceRecord> ranker = rankers.get(i);
+            RouteOrderedEmitter emitter = new RouteOrderedEmitter(route.chunks, route.maxHalfWidthInMeters,
+                    new PlaceMatchListener() {
+                @Override
+                public void onPlaceMatched(PlaceMatchAssembler.Match<PlaceRecord> match) {
+                    if (cancelled) {
+                        return;
+                    }
+                    ranker.offer(match);
+                    listener.onPlaceMatched(category, match);
+                }
+
+                @Override
+                public void onSearchFinished(int matchCount, int duplicatesAvoided) {
+                    if (onCategoryFinished() && !cancelled) {
+                        listener.onSearchFinished(getResults());
+                    }
+                }
+            }) {
+                // synchronized like the emitter itself, so the count is complete once the category finished
+                @Override
+                public synchronized void onChunkFailed(CorridorPlanner.Chunk chunk, SearchFailure failure) {
+                    synchronized (MultiCategorySearch.this) {
+                        failedChunks[index]++;
+                    }
+                    super.onChunkFailed(chunk, failure);
+                }
+            };
+            CorridorSearch.Session session = engine.search(route, category.query,
+                    new PlaceMatchAssembler<PlaceRecord>(), emitter);
+            synchronized (this) {
+                sessions.add(session);
+            }
+        }
+    }
+
+    /**
+     * Cancels the searches of all categories, the listener is not called anymore
+     * */
+    public void cancel() {
+        cancelled = true;
+        synchronized (this) {
+            for (CorridorSearch.Session session : sessions) {
+                session.cancel();
+            }
+        }
+    }
+
+    public List<SearchCategory> getCategories() {
+        return Collections.unmodifiableList(categories);
+    }
+
+    /**
+     * The best places of every category so far, at most maxResults per category, merged in route order
+     * */
+    public List<CategorizedPlace> getResults() {
+        List<CategorizedPlace> results = new ArrayList<>();
+        for (int i = 0; i < categories.size(); i++) {
+            for (PlaceRanker.RankedPlace<PlaceRecord> ranked : rankers.get(i).getRanked()) {
+                results.add(new CategorizedPlace(categories.get(i), ranked));
+            }
+        }
+        Collections.sort(results, BY_OFFSET);
+        return results;
+    }
+
+    /**
+     * No. of chunks of the category whose search failed, the category has to be one of the search
+     * */
+    public synchronized int getFailedChunkCount(SearchCategory category) {
+        return failedChunks[categories.indexOf(category)];
+    }
+
+    // true for the last category to finish
+    private synchronized boolean onCategoryFinished() {
+        remaining--;
+        return remaining == 0;
+    }
+}
@@ -0,0 +1,66 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.ArrayDeque;
+
+/**
+ * ObjectPool keeps released objects around so they can be reused instead of allocated again.
+ * At most maxIdle objects are kept, the counters tell how many objects were created and reused.
+ */
+public class ObjectPool<T> {
+
+    public interface Factory<T> {
+        T create();
+    }
+
+    private final Factory<T> factory;
+    private final int maxIdle;
+    private final ArrayDeque<T> idle = new ArrayDeque<>();
+    private int createdCount;
+    private int reusedCount;
+    private int droppedCount;
+
+    public ObjectPool(Factory<T> factory, int maxIdle) {
+        this.factory = factory;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Returns an idle object, or a new one when the pool is empty
+     * */
+    public T acquire() {
+        T item = idle.poll();
+        if (item != null) {
+            reusedCount++;
+            return item;
+        }
+        createdCount++;
+        return factory.create();
+    }
+
+    /**
+     * Gives an object back to the pool, it is dropped when the pool already holds maxIdle objects
+     * */
+    public void release(T item) {
+        if (idle.size() < maxIdle) {
+            idle.push(item);
+        } else {
+            droppedCount++;
+        }
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getCreatedCount() {
+        return createdCount;
+    }
+
+    public int getReusedCount() {
+        return reusedCount;
+    }
+
+    public int getDroppedCount() {
+        return droppedCount;
+    }
+}
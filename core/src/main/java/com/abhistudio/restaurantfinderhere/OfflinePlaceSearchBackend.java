@@ -0,0 +1,98 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * PlaceSearchBackend answering from an offline PoiPack before going to the network.
+ *
+ * Searches for the category of the pack inside its bounds are served from the pack, everything else
+ * goes to the online backend. The bounds of the pack are only those of its places, so a search the pack
+ * finds nothing for is searched online as well, a pack missing newer places or with gaps in its bounds does
+ * not hide them. Without network the search along a route still finds the places of the pack.
+ *
+ * The pack is read on the lookupExecutor and the callback of an offline search is called on it.
+ */
+public class OfflinePlaceSearchBackend implements PlaceSearchBackend {
+
+    // Reads the pack on the calling thread, for tools running the search off the main thread
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    private final PoiPack pack;
+    private final PlaceSearchBackend online;
+    private final Executor lookupExecutor;
+    private int offlineSearchCount;
+    private int fallbackCount;
+
+    /**
+     * Constructor for OfflinePlaceSearchBackend reading the pack on the calling thread,
+     * it must not be searched from the main thread
+     * */
+    public OfflinePlaceSearchBackend(PoiPack pack, PlaceSearchBackend online) {
+        this(pack, online, DIRECT);
+    }
+
+    /**
+     * Constructor for OfflinePlaceSearchBackend
+     * lookupExecutor -> reads the pack, e.g. a background thread so no page of the mapped file is read on the main thread
+     * */
+    public OfflinePlaceSearchBackend(PoiPack pack, PlaceSearchBackend online, Executor lookupExecutor) {
+        this.pack = pack;
+        this.online = online;
+        this.lookupExecutor = lookupExecutor;
+    }
+
+    @Override
+    public void search(final SearchArea area, final String query, final int maxItems, final Callback callback) {
+        if (!pack.getCategory().equalsIgnoreCase(query) || !pack.covers(area)) {
+            online.search(area, query, maxItems, callback);
+            return;
+        }
+        lookupExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<PlaceRecord> places = pack.search(area, maxItems);
+                if (!places.isEmpty()) {
+                    synchronized (OfflinePlaceSearchBackend.this) {
+                        offlineSearchCount++;
+                    }
+                    callback.onSearchCompleted(null, places);
+                    return;
+                }
+                synchronized (OfflinePlaceSearchBackend.this) {
+                    fallbackCount++;
+                }
+                online.search(area, query, maxItems, new Callback() {
+                    @Override
+                    public void onSearchCompleted(SearchFailure failure, List<PlaceRecord> onlinePlaces) {
+                        // without network the empty answer of the pack is still an answer
+                        if (failure != null) {
+                            callback.onSearchCompleted(null, places);
+                        } else {
+                            callback.onSearchCompleted(null, onlinePlaces);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * No. of searches answered from the pack
+     * */
+    public synchronized int getOfflineSearchCount() {
+        return offlineSearchCount;
+    }
+
+    /**
+     * No. of searches inside the pack it found nothing for, searched online instead
+     * */
+    public synchronized int getFallbackCount() {
+        return fallbackCount;
+    }
+}
@@ -0,0 +1,146 @@
+package com.abhistudio.restaurantfinderhere;
+
+/**
+ * PackedPolyline keeps the vertices of a route in packed latitude / longitude arrays together with the
+ * sine and cosine terms every distance calculation needs, computed once when the polyline is created.
+ *
+ * All calculations work on primitive values and write into arrays given by the caller,
+ * so measuring thousands of places against a route does not allocate anything.
+ * The HERE SDK types are only created from it when the route is drawn.
+ */
+public final class PackedPolyline {
+
+    private static final double RAD = Math.PI / 180;
+    private static final double METERS_PER_RADIAN = GeoMath.EARTH_RADIUS_IN_METERS;
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+    // sine and cosine of the latitude and longitude of every vertex
+    private final double[] sinLatitudes;
+    private final double[] cosLatitudes;
+    private final double[] sinLongitudes;
+    private final double[] cosLongitudes;
+
+    /**
+     * Constructor for PackedPolyline, latitudes and longitudes are the vertices in degrees.
+     * The arrays are not copied and must not be changed afterwards
+     * */
+    public PackedPolyline(double[] latitudes, double[] longitudes) {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("latitudes and longitudes must have the same length");
+        }
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        int count = latitudes.length;
+        sinLatitudes = new double[count];
+        cosLatitudes = new double[count];
+        sinLongitudes = new double[count];
+        cosLongitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            sinLatitudes[i] = Math.sin(latitudes[i] * RAD);
+            cosLatitudes[i] = Math.cos(latitudes[i] * RAD);
+            sinLongitudes[i] = Math.sin(longitudes[i] * RAD);
+            cosLongitudes[i] = Math.cos(longitudes[i] * RAD);
+        }
+    }
+
+    public int getVertexCount() {
+        return latitudes.length;
+    }
+
+    public double getLatitude(int vertex) {
+        return latitudes[vertex];
+    }
+
+    public double getLongitude(int vertex) {
+        return longitudes[vertex];
+    }
+
+    /**
+     * Great circle distance in meters between the vertex and a point,
+     * using the precomputed cosine of the vertex latitude
+     * */
+    public double haversine(int vertex, double latitude, double longitude) {
+        double sinLatitude = Math.sin((latitude - latitudes[vertex]) * RAD / 2);
+        double sinLongitude = Math.sin((longitude - longitudes[vertex]) * RAD / 2);
+        double a = sinLatitude * sinLatitude
+                + cosLatitudes[vertex] * Math.cos(latitude * RAD) * sinLongitude * sinLongitude;
+        return 2 * METERS_PER_RADIAN * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Great circle distance in meters between two vertices, only needs the precomputed terms
+     * */
+    public double haversine(int vertex1, int vertex2) {
+        double sinLatitude = Math.sin((latitudes[vertex2] - latitudes[vertex1]) * RAD / 2);
+        double sinLongitude = Math.sin((longitudes[vertex2] - longitudes[vertex1]) * RAD / 2);
+        double a = sinLatitude * sinLatitude
+                + cosLatitudes[vertex1] * cosLatitudes[vertex2] * sinLongitude * sinLongitude;
+        return 2 * METERS_PER_RADIAN * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Equirectangular approximation of the distance in meters between the vertex and a point.
+     * Without any trigonometric call it is the cheapest check, accurate within a fraction of a percent
+     * over the few kilometers a place can be away from the route
+     * */
+    public double equirectangular(int vertex, double latitude, double longitude) {
+        double x = GeoMath.normalizeLongitude(longitude - longitudes[vertex]) * RAD * cosLatitudes[vertex];
+        double y = (latitude - latitudes[vertex]) * RAD;
+        return Math.sqrt(x * x + y * y) * METERS_PER_RADIAN;
+    }
+
+    /**
+     * Distance from a point to the segment (vertex, vertex + 1) in a local equirectangular projection
+     * around the point. result[0] holds the distance in meters and result[1] the position of the
+     * nearest point on the segment, from 0 at the vertex to 1 at the next vertex
+     * */
+    public void segmentDistance(int vertex, double latitude, double longitude, double[] result) {
+        segmentDistance(vertex, latitude, longitude, Math.cos(latitude * RAD), result);
+    }
+
+    /**
+     * segmentDistance with the cosine of the point latitude computed by the caller, once for all segments
+     * */
+    public void segmentDistance(int vertex, double latitude, double longitude, double cosLatitude, double[] result) {
+        GeoMath.pointToSegment(latitude, longitude, cosLatitude, latitudes[vertex], longitudes[vertex],
+                latitudes[vertex + 1], longitudes[vertex + 1], result);
+    }
+
+    /**
+     * Distance in meters from a point to the segment (vertex, vertex + 1), like segmentDistance without
+     * the position on the segment, so it needs no result array
+     * */
+    public double distanceToSegment(int vertex, double latitude, double longitude, double cosLatitude) {
+        double scale = RAD * METERS_PER_RADIAN;
+        double ax = GeoMath.normalizeLongitude(longitudes[vertex] - longitude) * cosLatitude * scale;
+        double ay = (latitudes[vertex] - latitude) * scale;
+        double dx = GeoMath.normalizeLongitude(longitudes[vertex + 1] - longitude) * cosLatitude * scale - ax;
+        double dy = (latitudes[vertex + 1] - latitude) * scale - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = 0;
+        if (lengthSquared > 0) {
+            t = Math.max(0, Math.min(1, -(ax * dx + ay * dy) / lengthSquared));
+        }
+        double px = ax + t * dx;
+        double py = ay + t * dy;
+        return Math.sqrt(px * px + py * py);
+    }
+
+    /**
+     * Spherical centroid of the vertices written to result as {latitude, longitude}, see GeoMath.center
+     * */
+    public void centroid(double[] result) {
+        int count = latitudes.length;
+        if (count == 0) {
+            throw new IllegalStateException("polyline has no vertices");
+        }
+        double x = 0, y = 0, z = 0;
+        for (int i = 0; i < count; i++) {
+            x += cosLatitudes[i] * cosLongitudes[i];
+            y += cosLatitudes[i] * sinLongitudes[i];
+            z += sinLatitudes[i];
+        }
+        GeoMath.toLatitudeLongitude(x, y, z, result);
+    }
+}
@@ -0,0 +1,192 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PlaceClusterer groups places into clusters for every zoom level of the map.
+ *
+ * Every zoom level has a grid of cells of cellSizeInPixels screen pixels, all places inside one cell form
+ * a cluster. The clusters of every level are kept up to date as places are added, so adding a place costs
+ * one cell update per level and switching zoom levels needs no re-clustering. Removing a place works the same way.
+ * Above maxZoom every place is shown on its own.
+ */
+public class PlaceClusterer {
+
+    // size of a map tile in pixels at zoom level 0
+    private static final double TILE_SIZE = 256;
+    private static final double MAX_LATITUDE = 85.05112878;
+
+    /**
+     * A group of places in one grid cell, or a single place
+     * */
+    public static class Cluster {
+        private final long cell;
+        // places of the cluster in the order they were added
+        private final List<PlaceRecord> members = new ArrayList<>(1);
+        private double latitudeSum;
+        private double longitudeSum;
+
+        Cluster(long cell) {
+            this.cell = cell;
+        }
+
+        /**
+         * Stable key of the cluster, a single place keeps the same key on every zoom level
+         * */
+        public String getKey(int zoom) {
+            return members.size() == 1 ? "p:" + members.get(0).id : "c:" + zoom + ":" + cell;
+        }
+
+        public int getCount() {
+            return members.size();
+        }
+
+        public boolean isSinglePlace() {
+            return members.size() == 1;
+        }
+
+        /**
+         * The first place added to the cluster that is still in it
+         * */
+        public PlaceRecord getFirstPlace() {
+            return members.get(0);
+        }
+
+        public double getLatitude() {
+            return latitudeSum / members.size();
+        }
+
+        public double getLongitude() {
+            return longitudeSum / members.size();
+        }
+
+        void add(PlaceRecord place) {
+            members.add(place);
+            latitudeSum += place.latitude;
+            longitudeSum += place.longitude;
+        }
+
+        void remove(PlaceRecord place) {
+            if (members.remove(place)) {
+                latitudeSum -= place.latitude;
+                longitudeSum -= place.longitude;
+            }
+        }
+    }
+
+    private final int maxZoom;
+    private final double cellSizeInPixels;
+    // zoom level -> cell -> cluster
+    private final List<Map<Long, Cluster>> levels = new ArrayList<>();
+    // place id -> place, in the order they were added
+    private final Map<String, PlaceRecord> places = new LinkedHashMap<>();
+
+    public PlaceClusterer(int maxZoom, int cellSizeInPixels) {
+        this.maxZoom = maxZoom;
+        this.cellSizeInPixels = cellSizeInPixels;
+        for (int zoom = 0; zoom <= maxZoom; zoom++) {
+            levels.add(new HashMap<Long, Cluster>());
+        }
+    }
+
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    public int size() {
+        return places.size();
+    }
+
+    /**
+     * Adds a place to its cluster on every zoom level
+     * */
+    public void add(PlaceRecord place) {
+        places.put(place.id, place);
+        for (int zoom = 0; zoom <= maxZoom; zoom++) {
+            long cell = cell(place, zoom);
+            Map<Long, Cluster> level = levels.get(zoom);
+            Cluster cluster = level.get(cell);
+            if (cluster == null) {
+                cluster = new Cluster(cell);
+                level.put(cell, cluster);
+            }
+            cluster.add(place);
+        }
+    }
+
+    /**
+     * Removes a place from its cluster on every zoom level, empty clusters are dropped.
+     * Returns false when the place was not added before
+     * */
+    public boolean remove(PlaceRecord place) {
+        if (places.remove(place.id) == null) {
+            return false;
+        }
+        for (int zoom = 0; zoom <= maxZoom; zoom++) {
+            long cell = cell(place, zoom);
+            Map<Long, Cluster> level = levels.get(zoom);
+            Cluster cluster = level.get(cell);
+            if (cluster == null) {
+                continue;
+            }
+            cluster.remove(place);
+            if (cluster.getCount() == 0) {
+                level.remove(cell);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The cluster containing the place at the given zoom level, or a single place cluster above maxZoom
+     * */
+    public Cluster clusterOf(PlaceRecord place, int zoom) {
+        if (zoom > maxZoom) {
+            return single(place);
+        }
+        return levels.get(Math.max(zoom, 0)).get(cell(place, zoom));
+    }
+
+    /**
+     * All clusters of the given zoom level
+     * */
+    public Collection<Cluster> getClusters(int zoom) {
+        if (zoom > maxZoom) {
+            List<Cluster> singles = new ArrayList<>(places.size());
+            for (PlaceRecord place : places.values()) {
+                singles.add(single(place));
+            }
+            return singles;
+        }
+        return levels.get(Math.max(zoom, 0)).values();
+    }
+
+    public void clear() {
+        places.clear();
+        for (Map<Long, Cluster> level : levels) {
+            level.clear();
+        }
+    }
+
+    private static Cluster single(PlaceRecord place) {
+        Cluster cluster = new Cluster(-1);
+        cluster.add(place);
+        return cluster;
+    }
+
+    // web mercator pixel grid cell of the place at the zoom level
+    private long cell(PlaceRecord place, int zoom) {
+        double worldSize = TILE_SIZE * Math.pow(2, Math.max(zoom, 0));
+        double x = (place.longitude + 180) / 360 * worldSize;
+        double sin = Math.sin(Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, place.latitude))));
+        double y = (0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI)) * worldSize;
+        long cellX = (long) Math.floor(x / cellSizeInPixels);
+        long cellY = (long) Math.floor(y / cellSizeInPixels);
+        return (cellX << 32) ^ (cellY & 0xffffffffL);
+    }
+}
@@ -0,0 +1,125 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PlaceMatchAssembler collapses the places matched along a route to one result per place.
+ * Matches are keyed by the place ID, the nearest distance to the route and its route offset are kept,
+ * and every place is handed out for rendering only once until the assembler is cleared.
+ *
+ * Matches are immutable: a nearer offer replaces the match of the place instead of changing it, so a match
+ * handed out to the main thread, e.g. into the heap of the PlaceRanker or the ResultStore, never changes under it.
+ *
+ * The type of the place is generic so the class can be used and unit tested without the HERE SDK.
+ */
+public class PlaceMatchAssembler<T> {
+
+    /**
+     * One matched place, immutable so it can be shared between threads
+     * distanceInMeters -> nearest lateral distance between the place and the route
+     * offsetInMeters -> distance along the route of the nearest point to the place
+     * */
+    public static class Match<T> {
+        public final String id;
+        public final T place;
+        private final double distanceInMeters;
+        private final double offsetInMeters;
+
+        Match(String id, T place, double distanceInMeters, double offsetInMeters) {
+            this.id = id;
+            this.place = place;
+            this.distanceInMeters = distanceInMeters;
+            this.offsetInMeters = offsetInMeters;
+        }
+
+        public double getDistanceInMeters() {
+            return distanceInMeters;
+        }
+
+        public double getOffsetInMeters() {
+            return offsetInMeters;
+        }
+    }
+
+    private final Map<String, Match<T>> matches = new HashMap<>();
+    // matches that were not handed out for rendering yet, by place ID in the order they were found
+    private final Map<String, Match<T>> pending = new LinkedHashMap<>();
+    private int duplicatesAvoided;
+
+    /**
+     * Offers a matched place to the assembler.
+     * Returns true when the place is new, false when it was already matched. A nearer offer replaces the match,
+     * a match already handed out keeps the distance and offset it had then.
+     * */
+    public boolean offer(String id, T place, double distanceInMeters, double offsetInMeters) {
+        Match<T> match = matches.get(id);
+        if (match == null) {
+            match = new Match<>(id, place, distanceInMeters, offsetInMeters);
+            matches.put(id, match);
+            pending.put(id, match);
+            return true;
+        }
+        duplicatesAvoided++;
+        if (distanceInMeters < match.distanceInMeters) {
+            Match<T> nearer = new Match<>(id, match.place, distanceInMeters, offsetInMeters);
+            matches.put(id, nearer);
+            if (pending.containsKey(id)) {
+                pending.put(id, nearer);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the matches that have not been rendered yet and marks them as rendered
+     * */
+    public List<Match<T>> takePending() {
+        List<Match<T>> result = new ArrayList<>(pending.values());
+        pending.clear();
+        return result;
+    }
+
+    /**
+     * All matches so far, rendered or not
+     * */
+    public List<Match<T>> getMatches() {
+        return new ArrayList<>(matches.values());
+    }
+
+    /**
+     * Forgets a match, e.g. one evicted from the ResultStore, the place is handed out again when it is offered again
+     * */
+    public boolean remove(String id) {
+        if (matches.remove(id) == null) {
+            return false;
+        }
+        pending.remove(id);
+        return true;
+    }
+
+    public boolean contains(String id) {
+        return matches.containsKey(id);
+    }
+
+    public int size() {
+        return matches.size();
+    }
+
+    /**
+     * Number of times a place was offered again after it had already been matched,
+     * i.e. the number of duplicate markers that were not rendered
+     * */
+    public int getDuplicatesAvoided() {
+        return duplicatesAvoided;
+    }
+
+    public void clear() {
+        matches.clear();
+        pending.clear();
+        duplicatesAvoided = 0;
+    }
+}
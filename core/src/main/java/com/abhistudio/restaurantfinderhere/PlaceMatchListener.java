@@ -0,0 +1,14 @@
+package com.abhistudio.restaurantfinderhere;
+
+/**
+ * Listener of the places matched along a route, in the order they sit along the route
+ */
+public interface PlaceMatchListener {
+
+    void onPlaceMatched(PlaceMatchAssembler.Match<PlaceRecord> match);
+
+    /**
+     * Called once after the last place of the search has been emitted
+     * */
+    void onSearchFinished(int matchCount, int duplicatesAvoided);
+}
@@ -0,0 +1,130 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * PlaceRanker keeps the maxResults places with the shortest detour out of all matches offered to it.
+ *
+ * The ranked places are held in a bounded heap with the worst place on top, so offering a match costs
+ * O(log maxResults) and the full candidate list is never sorted. getRanked() returns the kept places
+ * in route order, starting with the place nearest to the origin.
+ */
+public class PlaceRanker<T> {
+
+    /**
+     * A matched place with its position along the route and the estimated detour
+     * */
+    public static class RankedPlace<T> {
+        public final PlaceMatchAssembler.Match<T> match;
+        public final double detourSeconds;
+
+        RankedPlace(PlaceMatchAssembler.Match<T> match, double detourSeconds) {
+            this.match = match;
+            this.detourSeconds = detourSeconds;
+        }
+
+        public double getOffsetInMeters() {
+            return match.getOffsetInMeters();
+        }
+
+        public double getLateralDistanceInMeters() {
+            return match.getDistanceInMeters();
+        }
+    }
+
+    private final DetourEstimator detourEstimator;
+    private final int maxResults;
+    // worst kept place first: longest detour, then furthest along the route
+    private final PriorityQueue<RankedPlace<T>> heap;
+
+    public PlaceRanker(DetourEstimator detourEstimator, int maxResults) {
+        if (maxResults < 1) {
+            throw new IllegalArgumentException("maxResults must be at least 1");
+        }
+        this.detourEstimator = detourEstimator;
+        this.maxResults = maxResults;
+        this.heap = new PriorityQueue<>(maxResults + 1, new Comparator<RankedPlace<T>>() {
+            @Override
+            public int compare(RankedPlace<T> a, RankedPlace<T> b) {
+                return compareRank(b, a);
+            }
+        });
+    }
+
+    /**
+     * Offers a match to the ranking. Returns the place that is no longer ranked because of it:
+     * the match itself when it does not make it into the best maxResults, the place it pushed out,
+     * or null when the match was added without pushing out another place
+     * */
+    public synchronized RankedPlace<T> offer(PlaceMatchAssembler.Match<T> match) {
+        RankedPlace<T> candidate = new RankedPlace<>(match,
+                detourEstimator.estimateSeconds(match.getOffsetInMeters(), match.getDistanceInMeters()));
+        if (heap.size() < maxResults) {
+            heap.add(candidate);
+            return null;
+        }
+        RankedPlace<T> worst = heap.peek();
+        if (compareRank(candidate, worst) >= 0) {
+            return candidate;
+        }
+        heap.poll();
+        heap.add(candidate);
+        return worst;
+    }
+
+    /**
+     * The ranked places in route order
+     * */
+    public synchronized List<RankedPlace<T>> getRanked() {
+        List<RankedPlace<T>> ranked = new ArrayList<>(heap);
+        Collections.sort(ranked, new Comparator<RankedPlace<T>>() {
+            @Override
+            public int compare(RankedPlace<T> a, RankedPlace<T> b) {
+                return Double.compare(a.getOffsetInMeters(), b.getOffsetInMeters());
+            }
+        });
+        return ranked;
+    }
+
+    /**
+     * Removes a ranked place, returns false when it was not ranked
+     * */
+    public synchronized boolean remove(String id) {
+        Iterator<RankedPlace<T>> iterator = heap.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().match.id.equals(id)) {
+                iterator.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized boolean contains(String id) {
+        for (RankedPlace<T> ranked : heap) {
+            if (ranked.match.id.equals(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized int size() {
+        return heap.size();
+    }
+
+    public synchronized void clear() {
+        heap.clear();
+    }
+
+    // negative when a ranks better than b
+    private static int compareRank(RankedPlace<?> a, RankedPlace<?> b) {
+        int byDetour = Double.compare(a.detourSeconds, b.detourSeconds);
+        return byDetour != 0 ? byDetour : Double.compare(a.getOffsetInMeters(), b.getOffsetInMeters());
+    }
+}
@@ -0,0 +1,37 @@
+package com.abhistudio.restaurantfinderhere;
+
+/**
+ * PlaceRecord is the SDK independent representation of a found place.
+ * Search backends convert their own place types to PlaceRecord so the search pipeline
+ * can be used and unit tested without the HERE SDK.
+ */
+public class PlaceRecord {
+    public final String id;
+    public final String title;
+    public final double latitude;
+    public final double longitude;
+
+    public PlaceRecord(String id, String title, double latitude, double longitude) {
+        this.id = id;
+        this.title = title;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    /**
+     * Rough no. of bytes retained by the record and its strings, for the budget of a ResultStore
+     * */
+    public long estimateRetainedBytes() {
+        // object with two references and two doubles, strings with their char arrays
+        return 40 + estimateStringBytes(id) + estimateStringBytes(title);
+    }
+
+    private static long estimateStringBytes(String value) {
+        return value == null ? 0 : 40 + 2L * value.length();
+    }
+
+    @Override
+    public String toString() {
+        return title + " (" + latitude + ", " + longitude + ")";
+    }
+}
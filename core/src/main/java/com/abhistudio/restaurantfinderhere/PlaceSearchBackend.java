@@ -0,0 +1,19 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.List;
+
+/**
+ * PlaceSearchBackend searches places inside a SearchArea.
+ * Implementations call back asynchronously, on the thread of their choice.
+ */
+public interface PlaceSearchBackend {
+
+    interface Callback {
+        /**
+         * failure is null when the search succeeded, places is then guaranteed to be non null
+         * */
+        void onSearchCompleted(SearchFailure failure, List<PlaceRecord> places);
+    }
+
+    void search(SearchArea area, String query, int maxItems, Callback callback);
+}
@@ -0,0 +1,329 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PlaceTileCache stores the places found in a tile for a query on disk, one file per tile and query.
+ * Entries older than the time to live are ignored, and the least recently used entries are deleted
+ * once the cache holds more than maxBytes.
+ *
+ * Tile files use a compact binary format read through a memory mapped buffer:
+ * <pre>
+ *   int magic, short version, long createdAtMillis, int count,
+ *   count x (int latitudeE7, int longitudeE7, short idLength, id bytes, short titleLength, title bytes)
+ * </pre>
+ * Strings are UTF-8 with an unsigned length, all numbers are big endian. A tile with a string too long for
+ * it is not cached, see BinaryStrings.
+ *
+ * The lock of the cache only guards the in-memory index of the entries, the files are read, written and
+ * deleted outside of it so concurrent searches do not wait for each other's disk I/O. The cache still does
+ * disk I/O on the calling thread, it must not be used from the main thread.
+ */
+public class PlaceTileCache {
+
+    /**
+     * Source of the current time, replaced by tests
+     * */
+    public interface Clock {
+        long currentTimeMillis();
+    }
+
+    public static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    private static final int MAGIC = 0x52465054; // "RFPT"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 2 + 8 + 4;
+    private static final String SUFFIX = ".tile";
+    private static final double E7 = 1e7;
+
+    private static class Entry {
+        final File file;
+        final long sizeInBytes;
+        final long createdAtMillis;
+
+        Entry(File file, long sizeInBytes, long createdAtMillis) {
+            this.file = file;
+            this.sizeInBytes = sizeInBytes;
+            this.createdAtMillis = createdAtMillis;
+        }
+    }
+
+    private final File directory;
+    private final long timeToLiveMillis;
+    private final long maxBytes;
+    private final Clock clock;
+    // file name -> entry, in least recently used order
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+    // makes the temporary file of every write unique, concurrent writes of a tile do not share one
+    private long writeCount;
+    private int hitCount;
+    private int missCount;
+
+    /**
+     * Constructor for PlaceTileCache, the entries already stored in directory are loaded
+     * */
+    public PlaceTileCache(File directory, long timeToLiveMillis, long maxBytes, Clock clock) {
+        this.directory = directory;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.maxBytes = maxBytes;
+        this.clock = clock;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalStateException("Can not create cache directory " + directory);
+        }
+        loadEntries();
+    }
+
+    /**
+     * Returns the cached places of the tile for the query, or null when the tile is not cached or expired
+     * */
+    public List<PlaceRecord> get(String quadKey, String query) {
+        String name = fileName(quadKey, query);
+        Entry entry;
+        boolean expired;
+        synchronized (this) {
+            entry = entries.get(name);
+            if (entry == null) {
+                missCount++;
+                return null;
+            }
+            expired = isExpired(entry) && remove(name, entry);
+            if (expired) {
+                missCount++;
+            }
+        }
+        if (expired) {
+            entry.file.delete();
+            return null;
+        }
+        try {
+            List<PlaceRecord> places = read(entry.file);
+            synchronized (this) {
+                hitCount++;
+            }
+            return places;
+        } catch (IOException | RuntimeException e) {
+            // a broken file, or one evicted while it was read, is dropped and the tile searched again
+            synchronized (this) {
+                remove(name, entry);
+                missCount++;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Stores the places of the tile for the query, replacing a previous entry
+     * */
+    public void put(String quadKey, String query, List<PlaceRecord> places) {
+        String name = fileName(quadKey, query);
+        File file = new File(directory, name);
+        File temporary;
+        synchronized (this) {
+            temporary = new File(directory, name + "." + writeCount++ + ".tmp");
+        }
+        long createdAtMillis = clock.currentTimeMillis();
+        try {
+            write(temporary, createdAtMillis, places);
+            if (!temporary.renameTo(file)) {
+                temporary.delete();
+                return;
+            }
+        } catch (IOException e) {
+            temporary.delete();
+            return;
+        }
+        Entry entry = new Entry(file, file.length(), createdAtMillis);
+        List<Entry> evicted;
+        synchronized (this) {
+            Entry previous = entries.remove(name);
+            if (previous != null) {
+                totalBytes -= previous.sizeInBytes;
+            }
+            entries.put(name, entry);
+            totalBytes += entry.sizeInBytes;
+            evicted = trimToSize();
+        }
+        deleteFiles(evicted);
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized long getSizeInBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized int getMissCount() {
+        return missCount;
+    }
+
+    private boolean isExpired(Entry entry) {
+        return clock.currentTimeMillis() - entry.createdAtMillis > timeToLiveMillis;
+    }
+
+    /**
+     * Drops the least recently used entries from the index until the cache fits into maxBytes,
+     * returns them so their files are deleted once the lock is released
+     * */
+    private List<Entry> trimToSize() {
+        List<Entry> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Entry eldest = iterator.next().getValue();
+            iterator.remove();
+            totalBytes -= eldest.sizeInBytes;
+            evicted.add(eldest);
+        }
+        return evicted;
+    }
+
+    /**
+     * Drops the entry from the index, unless the tile was written again in the meantime
+     * */
+    private boolean remove(String name, Entry entry) {
+        if (entries.get(name) != entry) {
+            return false;
+        }
+        entries.remove(name);
+        totalBytes -= entry.sizeInBytes;
+        return true;
+    }
+
+    /**
+     * Deletes the files of evicted entries. A tile written again right after its eviction may lose its new file,
+     * the next get() then drops the entry as broken
+     * */
+    private static void deleteFiles(List<Entry> evicted) {
+        for (Entry entry : evicted) {
+            entry.file.delete();
+        }
+    }
+
+    private void loadEntries() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        List<Entry> loaded = new ArrayList<>();
+        for (File file : files) {
+            if (!file.getName().endsWith(SUFFIX)) {
+                // left over temporary files of an interrupted write
+                file.delete();
+                continue;
+            }
+            try {
+                loaded.add(new Entry(file, file.length(), readCreatedAt(file)));
+            } catch (IOException e) {
+                file.delete();
+            }
+        }
+        // oldest first, so the least recently written entries are evicted first
+        Collections.sort(loaded, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry a, Entry b) {
+                return Long.compare(a.createdAtMillis, b.createdAtMillis);
+            }
+        });
+        for (Entry entry : loaded) {
+            if (isExpired(entry)) {
+                entry.file.delete();
+                continue;
+            }
+            entries.put(entry.file.getName(), entry);
+            totalBytes += entry.sizeInBytes;
+        }
+        deleteFiles(trimToSize());
+    }
+
+    static String fileName(String quadKey, String query) {
+        StringBuilder name = new StringBuilder();
+        for (char c : query.toLowerCase().toCharArray()) {
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                name.append(c);
+            } else {
+                name.append('_');
+            }
+        }
+        return name.append('-').append(quadKey).append(SUFFIX).toString();
+    }
+
+    private static void write(File file, long createdAtMillis, List<PlaceRecord> places) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(createdAtMillis);
+            out.writeInt(places.size());
+            for (PlaceRecord place : places) {
+                out.writeInt((int) Math.round(place.latitude * E7));
+                out.writeInt((int) Math.round(place.longitude * E7));
+                BinaryStrings.write(out, place.id);
+                BinaryStrings.write(out, place.title);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static long readCreatedAt(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            if (randomAccessFile.length() < HEADER_SIZE || randomAccessFile.readInt() != MAGIC
+                    || randomAccessFile.readShort() != VERSION) {
+                throw new IOException("Not a place tile: " + file);
+            }
+            return randomAccessFile.readLong();
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static List<PlaceRecord> read(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                throw new IOException("Not a place tile: " + file);
+            }
+            buffer.getLong();
+            int count = buffer.getInt();
+            List<PlaceRecord> places = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                double latitude = buffer.getInt() / E7;
+                double longitude = buffer.getInt() / E7;
+                String id = BinaryStrings.read(buffer);
+                String title = BinaryStrings.read(buffer);
+                places.add(new PlaceRecord(id, title, latitude, longitude));
+            }
+            return places;
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * PoiPack is an offline set of places of one category, read through a memory mapped buffer.
+ *
+ * The places are sorted by the quad key of their tile at the pack level, and a cell index maps every
+ * non empty tile to its first place. A search looks up the tiles covering the search area with a binary
+ * search in the index and only reads the places of those tiles, so a pack of any size needs no heap
+ * besides the places returned.
+ * <pre>
+ *   int magic, short version, byte level, int count, int cellCount,
+ *   double south, west, north, east, short categoryLength, category bytes,
+ *   cellCount x (long cellKey, int firstPlace),
+ *   count x (int latitudeE7, int longitudeE7, int stringOffset),
+ *   strings: short idLength, id bytes, short titleLength, title bytes
+ * </pre>
+ * Strings are UTF-8 with an unsigned length, see BinaryStrings, all numbers are big endian and stringOffset
+ * is relative to the start of the strings.
+ */
+public class PoiPack {
+
+    private static final int MAGIC = 0x52465050; // "RFPP"
+    private static final short VERSION = 1;
+    private static final int CELL_SIZE = 8 + 4;
+    private static final int PLACE_SIZE = 4 + 4 + 4;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final double E7 = 1e7;
+
+    private final ByteBuffer buffer;
+    private final String category;
+    private final int level;
+    private final int count;
+    private final int cellCount;
+    // bounds of all places as {south, west, north, east}
+    private final double[] bounds;
+    private final int cellsOffset;
+    private final int placesOffset;
+    private final int stringsOffset;
+
+    private PoiPack(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+            throw new IOException("Not a POI pack");
+        }
+        level = buffer.get(6);
+        count = buffer.getInt(7);
+        cellCount = buffer.getInt(11);
+        bounds = new double[]{buffer.getDouble(15), buffer.getDouble(23), buffer.getDouble(31), buffer.getDouble(39)};
+        int categoryLength = buffer.getShort(47) & 0xFFFF;
+        byte[] categoryBytes = new byte[categoryLength];
+        ByteBuffer header = buffer.duplicate();
+        header.position(49);
+        header.get(categoryBytes);
+        category = new String(categoryBytes, UTF_8);
+        cellsOffset = 49 + categoryLength;
+        placesOffset = cellsOffset + cellCount * CELL_SIZE;
+        stringsOffset = placesOffset + count * PLACE_SIZE;
+        if (stringsOffset > buffer.capacity()) {
+            throw new IOException("Truncated POI pack");
+        }
+    }
+
+    /**
+     * Opens a pack file written by write(), the file is mapped and not read into the heap
+     * */
+    public static PoiPack open(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            return new PoiPack(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * True when every point of the area is inside the bounds of the pack, so the pack can answer for it
+     * */
+    public boolean covers(SearchArea area) {
+        if (!area.isCorridor()) {
+            return contains(area.centerLatitude, area.centerLongitude);
+        }
+        for (int i = 0; i < area.latitudes.length; i++) {
+            if (!contains(area.latitudes[i], area.longitudes[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Places inside the area, at most maxItems of them. Corridor results are in order along the corridor
+     * */
+    public List<PlaceRecord> search(SearchArea area, int maxItems) {
+        Set<String> tiles = area.isCorridor()
+                ? TileKey.coveringTiles(area.latitudes, area.longitudes, area.sizeInMeters, level)
+                : TileKey.coveringTiles(area.centerLatitude, area.centerLongitude, area.sizeInMeters, level);
+        List<PlaceRecord> places = new ArrayList<>();
+        // absolute reads only, so several searches can share the mapped buffer
+        ByteBuffer strings = buffer.duplicate();
+        double[] segmentDistance = new double[2];
+        for (String tile : tiles) {
+            int cell = findCell(TileKey.cellKey(tile));
+            if (cell < 0) {
+                continue;
+            }
+            int first = buffer.getInt(cellsOffset + cell * CELL_SIZE + 8);
+            int end = cell + 1 < cellCount ? buffer.getInt(cellsOffset + (cell + 1) * CELL_SIZE + 8) : count;
+            for (int i = first; i < end; i++) {
+                int offset = placesOffset + i * PLACE_SIZE;
+                double latitude = buffer.getInt(offset) / E7;
+                double longitude = buffer.getInt(offset + 4) / E7;
+                if (!area.contains(latitude, longitude, segmentDistance)) {
+                    continue;
+                }
+                strings.position(stringsOffset + buffer.getInt(offset + 8));
+                String id = BinaryStrings.read(strings);
+                String title = BinaryStrings.read(strings);
+                places.add(new PlaceRecord(id, title, latitude, longitude));
+                if (places.size() >= maxItems) {
+                    return places;
+                }
+            }
+        }
+        return places;
+    }
+
+    /**
+     * Writes the places to a pack file of the given tile level, through a temporary file.
+     * Places with an ID or title too long for the pack are skipped, returns the no. of places written
+     * */
+    public static int write(File file, String category, int level, List<PlaceRecord> places) throws IOException {
+        if (level < 1 || level > 30) {
+            throw new IllegalArgumentException("level must be between 1 and 30");
+        }
+        if (!BinaryStrings.fits(category)) {
+            throw new IllegalArgumentException("category is too long");
+        }
+        final List<PlaceRecord> sorted = new ArrayList<>(places.size());
+        for (PlaceRecord place : places) {
+            if (BinaryStrings.fits(place.id) && BinaryStrings.fits(place.title)) {
+                sorted.add(place);
+            }
+        }
+        final List<Long> cellKeys = new ArrayList<>(sorted.size());
+        for (PlaceRecord place : sorted) {
+            cellKeys.add(TileKey.cellKey(TileKey.quadKey(place.latitude, place.longitude, level)));
+        }
+        Integer[] order = new Integer[sorted.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Long.compare(cellKeys.get(a), cellKeys.get(b));
+            }
+        });
+
+        double south = 90, west = 180, north = -90, east = -180;
+        ByteArrayOutputStream stringBytes = new ByteArrayOutputStream();
+        DataOutputStream strings = new DataOutputStream(stringBytes);
+        List<long[]> cells = new ArrayList<>();
+        int[] stringOffsets = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            PlaceRecord place = sorted.get(order[i]);
+            long cellKey = cellKeys.get(order[i]);
+            if (cells.isEmpty() || cells.get(cells.size() - 1)[0] != cellKey) {
+                cells.add(new long[]{cellKey, i});
+            }
+            south = Math.min(south, place.latitude);
+            north = Math.max(north, place.latitude);
+            west = Math.min(west, place.longitude);
+            east = Math.max(east, place.longitude);
+            stringOffsets[i] = strings.size();
+            BinaryStrings.write(strings, place.id);
+            BinaryStrings.write(strings, place.title);
+        }
+        if (order.length == 0) {
+            south = west = north = east = 0;
+        }
+
+        File temporary = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeByte(level);
+            out.writeInt(order.length);
+            out.writeInt(cells.size());
+            out.writeDouble(south);
+            out.writeDouble(west);
+            out.writeDouble(north);
+            out.writeDouble(east);
+            BinaryStrings.write(out, category);
+            for (long[] cell : cells) {
+                out.writeLong(cell[0]);
+                out.writeInt((int) cell[1]);
+            }
+            for (int i = 0; i < order.length; i++) {
+                PlaceRecord place = sorted.get(order[i]);
+                out.writeInt((int) Math.round(place.latitude * E7));
+                out.writeInt((int) Math.round(place.longitude * E7));
+                out.writeInt(stringOffsets[i]);
+            }
+            stringBytes.writeTo(out);
+        } finally {
+            out.close();
+        }
+        if (file.exists() && !file.delete() || !temporary.renameTo(file)) {
+            temporary.delete();
+            throw new IOException("Can not write " + file);
+        }
+        return order.length;
+    }
+
+    private boolean contains(double latitude, double longitude) {
+        return count > 0 && latitude >= bounds[0] && latitude <= bounds[2]
+                && longitude >= bounds[1] && longitude <= bounds[3];
+    }
+
+    // index of the cell with the key in the sorted cell index, or -1
+    private int findCell(long cellKey) {
+        int low = 0;
+        int high = cellCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long key = buffer.getLong(cellsOffset + middle * CELL_SIZE);
+            if (key < cellKey) {
+                low = middle + 1;
+            } else if (key > cellKey) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,106 @@
+package com.abhistudio.restaurantfinderhere;
+
+/**
+ * PolylineSimplifier reduces the vertices of a route polyline with the Douglas-Peucker algorithm.
+ *
+ * Every vertex of the original polyline is within toleranceInMeters of the simplified polyline, and as the
+ * simplified vertices are original vertices, so is every point of the original polyline. A place within
+ * N meters of the original route is therefore always within N + toleranceInMeters of the simplified one.
+ */
+public final class PolylineSimplifier {
+
+    /**
+     * A simplified polyline
+     * */
+    public static class Result {
+        public final double[] latitudes;
+        public final double[] longitudes;
+        public final int originalVertexCount;
+        public final double toleranceInMeters;
+        public final long durationNanos;
+
+        Result(double[] latitudes, double[] longitudes, int originalVertexCount, double toleranceInMeters, long durationNanos) {
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.originalVertexCount = originalVertexCount;
+            this.toleranceInMeters = toleranceInMeters;
+            this.durationNanos = durationNanos;
+        }
+
+        public int getVertexCount() {
+            return latitudes.length;
+        }
+
+        /**
+         * Original vertex count divided by the simplified vertex count
+         * */
+        public double getReductionRatio() {
+            return latitudes.length == 0 ? 1 : (double) originalVertexCount / latitudes.length;
+        }
+    }
+
+    private PolylineSimplifier() {
+    }
+
+    public static Result simplify(double[] latitudes, double[] longitudes, double toleranceInMeters) {
+        ThreadGuard.assertNotMainThread("Polyline simplification");
+        long start = System.nanoTime();
+        int count = latitudes.length;
+        if (count < 3 || toleranceInMeters <= 0) {
+            return new Result(latitudes.clone(), longitudes.clone(), count, Math.max(toleranceInMeters, 0),
+                    System.nanoTime() - start);
+        }
+
+        boolean[] keep = new boolean[count];
+        keep[0] = true;
+        keep[count - 1] = true;
+        // explicit stack of (first, last) ranges, long routes would overflow a recursive implementation
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = count - 1;
+        int kept = 2;
+        // distance and segment position written by GeoMath.pointToSegment, shared by all vertices
+        double[] segmentDistance = new double[2];
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            double maxDistance = -1;
+            int farthest = -1;
+            for (int i = first + 1; i < last; i++) {
+                GeoMath.pointToSegment(latitudes[i], longitudes[i], latitudes[first], longitudes[first],
+                        latitudes[last], longitudes[last], segmentDistance);
+                double distance = segmentDistance[0];
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    farthest = i;
+                }
+            }
+            if (farthest >= 0 && maxDistance > toleranceInMeters) {
+                keep[farthest] = true;
+                kept++;
+                if (top + 4 > stack.length) {
+                    int[] grown = new int[stack.length * 2];
+                    System.arraycopy(stack, 0, grown, 0, top);
+                    stack = grown;
+                }
+                stack[top++] = first;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = last;
+            }
+        }
+
+        double[] simplifiedLatitudes = new double[kept];
+        double[] simplifiedLongitudes = new double[kept];
+        int index = 0;
+        for (int i = 0; i < count; i++) {
+            if (keep[i]) {
+                simplifiedLatitudes[index] = latitudes[i];
+                simplifiedLongitudes[index] = longitudes[i];
+                index++;
+            }
+        }
+        return new Result(simplifiedLatitudes, simplifiedLongitudes, count, toleranceInMeters, System.nanoTime() - start);
+    }
+}
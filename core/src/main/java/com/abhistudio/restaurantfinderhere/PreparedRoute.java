@@ -0,0 +1,29 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.List;
+
+/**
+ * Geometry of a calculated route prepared for the search along it by a RouteSearchEngine: the simplified
+ * polyline, the RouteIndex filtering the found places, the corridor chunks and the detour estimate.
+ * It is immutable, so one prepared route can be shared by every search of the same route.
+ */
+public class PreparedRoute {
+    public final PolylineSimplifier.Result polyline;
+    public final RouteIndex routeIndex;
+    public final List<CorridorPlanner.Chunk> chunks;
+    public final DetourEstimator detourEstimator;
+    // Places within halfWidthInMeters of the route are found, the simplification tolerance included
+    public final double halfWidthInMeters;
+    // Widest corridor a chunk can be searched with, places can be this far before the start of a chunk
+    public final double maxHalfWidthInMeters;
+
+    PreparedRoute(PolylineSimplifier.Result polyline, RouteIndex routeIndex, List<CorridorPlanner.Chunk> chunks,
+                  DetourEstimator detourEstimator, double halfWidthInMeters, double maxHalfWidthInMeters) {
+        this.polyline = polyline;
+        this.routeIndex = routeIndex;
+        this.chunks = chunks;
+        this.detourEstimator = detourEstimator;
+        this.halfWidthInMeters = halfWidthInMeters;
+        this.maxHalfWidthInMeters = maxHalfWidthInMeters;
+    }
+}
@@ -0,0 +1,207 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RequestCoalescer is a front end for expensive asynchronous requests such as route calculations.
+ *
+ * Successful results are cached by key, a request for a key already in flight joins that request instead
+ * of starting a new one, and only the latest request is ever answered: a newer request supersedes all
+ * earlier ones. The loads of superseded requests are cancelled, a result arriving anyway is still cached
+ * but never answered.
+ */
+public class RequestCoalescer<V, E> {
+
+    public interface Callback<V, E> {
+        /**
+         * error is null when the request succeeded
+         * */
+        void onResult(E error, V value);
+    }
+
+    public interface Loader<V, E> {
+        /**
+         * Starts loading the value, returns the handle cancelling the load or null when it can not be cancelled
+         * */
+        Cancellable load(Callback<V, E> callback);
+    }
+
+    private static class Waiter<V, E> {
+        final long generation;
+        final Callback<V, E> callback;
+
+        Waiter(long generation, Callback<V, E> callback) {
+            this.generation = generation;
+            this.callback = callback;
+        }
+    }
+
+    // One load in flight and the requests waiting for it, guarded by the RequestCoalescer
+    private static class Load<V, E> {
+        final List<Waiter<V, E>> waiters = new ArrayList<>();
+        Cancellable handle;
+        boolean cancelled;
+    }
+
+    private final Map<String, V> cache;
+    private final Map<String, Load<V, E>> inFlight = new LinkedHashMap<>();
+    private long generation;
+    private int cacheHitCount;
+    private int coalescedCount;
+    private int loadCount;
+    private int cancelledCount;
+    private int staleDroppedCount;
+
+    public RequestCoalescer(final int maxCachedValues) {
+        cache = new LinkedHashMap<String, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxCachedValues;
+            }
+        };
+    }
+
+    /**
+     * Requests the value of key. The callback is only called if no other request is made before the value
+     * is available, it is called right away for a cached value. The loads of all other keys are cancelled
+     * */
+    public void request(final String key, Loader<V, E> loader, Callback<V, E> callback) {
+        V cached;
+        final Load<V, E> load;
+        List<Cancellable> superseded;
+        synchronized (this) {
+            long requestGeneration = ++generation;
+            superseded = cancelLoads(key);
+            cached = cache.get(key);
+            if (cached == null) {
+                Load<V, E> running = inFlight.get(key);
+                if (running != null) {
+                    coalescedCount++;
+                    running.waiters.add(new Waiter<>(requestGeneration, callback));
+                    load = null;
+                } else {
+                    load = new Load<>();
+                    load.waiters.add(new Waiter<>(requestGeneration, callback));
+                    inFlight.put(key, load);
+                    loadCount++;
+                }
+            } else {
+                cacheHitCount++;
+                load = null;
+            }
+        }
+        cancel(superseded);
+        if (cached != null) {
+            callback.onResult(null, cached);
+            return;
+        }
+        if (load == null) {
+            return;
+        }
+
+        Cancellable handle = loader.load(new Callback<V, E>() {
+            @Override
+            public void onResult(E error, V value) {
+                List<Waiter<V, E>> current = new ArrayList<>();
+                synchronized (RequestCoalescer.this) {
+                    if (error == null) {
+                        cache.put(key, value);
+                    }
+                    if (load.cancelled || inFlight.get(key) != load) {
+                        return;
+                    }
+                    inFlight.remove(key);
+                    for (Waiter<V, E> waiter : load.waiters) {
+                        if (waiter.generation == generation) {
+                            current.add(waiter);
+                        } else {
+                            staleDroppedCount++;
+                        }
+                    }
+                }
+                for (Waiter<V, E> waiter : current) {
+                    waiter.callback.onResult(error, value);
+                }
+            }
+        });
+        if (handle != null) {
+            synchronized (this) {
+                if (!load.cancelled) {
+                    load.handle = handle;
+                    return;
+                }
+            }
+            // superseded while the load was started
+            handle.cancel();
+        }
+    }
+
+    /**
+     * Supersedes every pending request without making a new one and cancels their loads
+     * */
+    public void cancelPending() {
+        List<Cancellable> superseded;
+        synchronized (this) {
+            generation++;
+            superseded = cancelLoads(null);
+        }
+        cancel(superseded);
+    }
+
+    /**
+     * Removes every load in flight except the one of keep, returns the handles to cancel outside the lock
+     * */
+    private List<Cancellable> cancelLoads(String keep) {
+        List<Cancellable> handles = new ArrayList<>();
+        Iterator<Map.Entry<String, Load<V, E>>> loads = inFlight.entrySet().iterator();
+        while (loads.hasNext()) {
+            Map.Entry<String, Load<V, E>> entry = loads.next();
+            if (entry.getKey().equals(keep)) {
+                continue;
+            }
+            Load<V, E> load = entry.getValue();
+            loads.remove();
+            load.cancelled = true;
+            cancelledCount++;
+            staleDroppedCount += load.waiters.size();
+            if (load.handle != null) {
+                handles.add(load.handle);
+            }
+        }
+        return handles;
+    }
+
+    private static void cancel(List<Cancellable> handles) {
+        for (Cancellable handle : handles) {
+            handle.cancel();
+        }
+    }
+
+    public synchronized void clearCache() {
+        cache.clear();
+    }
+
+    public synchronized int getCacheHitCount() {
+        return cacheHitCount;
+    }
+
+    public synchronized int getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    public synchronized int getLoadCount() {
+        return loadCount;
+    }
+
+    public synchronized int getCancelledCount() {
+        return cancelledCount;
+    }
+
+    public synchronized int getStaleDroppedCount() {
+        return staleDroppedCount;
+    }
+}
@@ -0,0 +1,211 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * ResultStore holds the places found along the route within a budget of items and estimated bytes, so the heap
+ * of a session running all day in the vehicle stays flat instead of growing with every kilometer driven.
+ *
+ * Places are evicted
+ *  - once the vehicle is more than keepBehindInMeters past them along the route
+ *  - once they are older than maxAgeInMillis
+ *  - when the budget is exceeded, the places furthest behind the vehicle first, then the ones furthest ahead
+ * The evicted matches are returned, so the caller can take them off the map and out of the assembler.
+ *
+ * The route offset of a place is taken when it is added, later updates of the match do not move it.
+ * Not thread safe, used on the main thread like the map.
+ */
+public class ResultStore<T> {
+
+    /**
+     * Estimates the bytes retained by a place, e.g. PlaceRecord.estimateRetainedBytes()
+     * */
+    public interface Sizer<T> {
+        long estimateBytes(T place);
+    }
+
+    // Match, map entries and the entry of the store itself, on top of the place
+    private static final long ENTRY_OVERHEAD_BYTES = 200;
+
+    private static final Metrics.Counter EVICTED = Metrics.counter("results.evicted");
+
+    private static class Entry<T> {
+        final PlaceMatchAssembler.Match<T> match;
+        final double offsetInMeters;
+        final long addedAtMillis;
+        final long bytes;
+        final long sequence;
+
+        Entry(PlaceMatchAssembler.Match<T> match, long addedAtMillis, long bytes, long sequence) {
+            this.match = match;
+            this.offsetInMeters = match.getOffsetInMeters();
+            this.addedAtMillis = addedAtMillis;
+            this.bytes = bytes;
+            this.sequence = sequence;
+        }
+    }
+
+    private final int maxItems;
+    private final long maxBytes;
+    private final double keepBehindInMeters;
+    private final long maxAgeInMillis;
+    private final Sizer<T> sizer;
+    private final PlaceTileCache.Clock clock;
+    // id -> entry, oldest first
+    private final Map<String, Entry<T>> byAge = new LinkedHashMap<>();
+    // entries in route order
+    private final TreeSet<Entry<T>> byOffset = new TreeSet<>(new Comparator<Entry<T>>() {
+        @Override
+        public int compare(Entry<T> a, Entry<T> b) {
+            int byOffset = Double.compare(a.offsetInMeters, b.offsetInMeters);
+            return byOffset != 0 ? byOffset : Long.compare(a.sequence, b.sequence);
+        }
+    });
+    private double vehicleOffsetInMeters;
+    private long retainedBytes;
+    private long nextSequence;
+    private int evictedCount;
+
+    /**
+     * Constructor for ResultStore
+     * maxItems, maxBytes -> budget of the store, the bytes are estimated with the sizer
+     * keepBehindInMeters -> places further behind the vehicle are evicted
+     * maxAgeInMillis -> places added longer ago are evicted by evictExpired(), 0 keeps them regardless of age
+     * */
+    public ResultStore(int maxItems, long maxBytes, double keepBehindInMeters, long maxAgeInMillis, Sizer<T> sizer,
+                       PlaceTileCache.Clock clock) {
+        if (maxItems < 1) {
+            throw new IllegalArgumentException("maxItems must be at least 1");
+        }
+        this.maxItems = maxItems;
+        this.maxBytes = maxBytes;
+        this.keepBehindInMeters = keepBehindInMeters;
+        this.maxAgeInMillis = maxAgeInMillis;
+        this.sizer = sizer;
+        this.clock = clock;
+    }
+
+    /**
+     * Adds a match, a match with an id already in the store replaces it. Returns the matches evicted to stay
+     * within the budget, possibly the added one when it is the furthest from the vehicle
+     * */
+    public List<PlaceMatchAssembler.Match<T>> add(PlaceMatchAssembler.Match<T> match) {
+        Entry<T> previous = byAge.remove(match.id);
+        if (previous != null) {
+            byOffset.remove(previous);
+            retainedBytes -= previous.bytes;
+        }
+        Entry<T> entry = new Entry<>(match, clock.currentTimeMillis(),
+                sizer.estimateBytes(match.place) + ENTRY_OVERHEAD_BYTES, nextSequence++);
+        byAge.put(match.id, entry);
+        byOffset.add(entry);
+        retainedBytes += entry.bytes;
+
+        List<PlaceMatchAssembler.Match<T>> evicted = new ArrayList<>();
+        while (byAge.size() > maxItems || (retainedBytes > maxBytes && !byAge.isEmpty())) {
+            Entry<T> first = byOffset.first();
+            evict(first.offsetInMeters < vehicleOffsetInMeters ? first : byOffset.last(), evicted);
+        }
+        return evicted;
+    }
+
+    /**
+     * Moves the vehicle along the route, returns the matches evicted because it is too far past them
+     * */
+    public List<PlaceMatchAssembler.Match<T>> updateVehicleOffset(double offsetInMeters) {
+        vehicleOffsetInMeters = offsetInMeters;
+        List<PlaceMatchAssembler.Match<T>> evicted = new ArrayList<>();
+        while (!byOffset.isEmpty() && byOffset.first().offsetInMeters < offsetInMeters - keepBehindInMeters) {
+            evict(byOffset.first(), evicted);
+        }
+        return evicted;
+    }
+
+    /**
+     * Returns the matches evicted because they are older than maxAgeInMillis
+     * */
+    public List<PlaceMatchAssembler.Match<T>> evictExpired() {
+        List<PlaceMatchAssembler.Match<T>> evicted = new ArrayList<>();
+        if (maxAgeInMillis <= 0) {
+            return evicted;
+        }
+        long oldestKept = clock.currentTimeMillis() - maxAgeInMillis;
+        List<Entry<T>> expired = new ArrayList<>();
+        for (Entry<T> entry : byAge.values()) {
+            if (entry.addedAtMillis >= oldestKept) {
+                break;
+            }
+            expired.add(entry);
+        }
+        for (Entry<T> entry : expired) {
+            evict(entry, evicted);
+        }
+        return evicted;
+    }
+
+    public boolean contains(String id) {
+        return byAge.containsKey(id);
+    }
+
+    /**
+     * The matches in the store in route order
+     * */
+    public List<PlaceMatchAssembler.Match<T>> getMatches() {
+        List<PlaceMatchAssembler.Match<T>> matches = new ArrayList<>(byOffset.size());
+        for (Entry<T> entry : byOffset) {
+            matches.add(entry.match);
+        }
+        return matches;
+    }
+
+    public int size() {
+        return byAge.size();
+    }
+
+    /**
+     * Estimated bytes retained by the places in the store
+     * */
+    public long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    /**
+     * No. of matches evicted since the store was created, clear() does not count
+     * */
+    public int getEvictedCount() {
+        return evictedCount;
+    }
+
+    /**
+     * Forgets every match, e.g. for a new route, the vehicle is back at its start
+     * */
+    public void clear() {
+        byAge.clear();
+        byOffset.clear();
+        retainedBytes = 0;
+        vehicleOffsetInMeters = 0;
+    }
+
+    /**
+     * Summary for the log, e.g. "120 places, 38.2 KB retained, 40 evicted"
+     * */
+    public String getStats() {
+        return byAge.size() + " places, " + String.format(Locale.US, "%.1f", retainedBytes / 1024.0)
+                + " KB retained, " + evictedCount + " evicted";
+    }
+
+    private void evict(Entry<T> entry, List<PlaceMatchAssembler.Match<T>> evicted) {
+        byOffset.remove(entry);
+        byAge.remove(entry.match.id);
+        retainedBytes -= entry.bytes;
+        evictedCount++;
+        EVICTED.increment();
+        evicted.add(entry.match);
+    }
+}
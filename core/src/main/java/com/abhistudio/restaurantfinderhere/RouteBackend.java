@@ -0,0 +1,21 @@
+package com.abhistudio.restaurantfinderhere;
+
+/**
+ * Calculates routes, implemented with the RoutingEngine of the HERE SDK in the app
+ * and by FakeRouteBackend for tests and benchmarks.
+ */
+public interface RouteBackend {
+
+    interface Callback {
+        /**
+         * error is null on success, otherwise route is null and error describes the failure
+         * */
+        void onRouteCalculated(String error, RouteRecord route);
+    }
+
+    /**
+     * Calculates a route through the waypoints, given in degrees. Cancelling the returned handle stops
+     * the calculation, the callback of a cancelled calculation is not called anymore
+     * */
+    Cancellable calculateRoute(double[] waypointLatitudes, double[] waypointLongitudes, Callback callback);
+}
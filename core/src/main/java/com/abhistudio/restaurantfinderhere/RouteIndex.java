@@ -0,0 +1,314 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * RouteIndex is a segment level grid index over the vertices of a route.
+ * It is built once per route and answers "is this point within N meters of the route?"
+ * without looping over every vertex of the polyline.
+ *
+ * The class only works with a PackedPolyline of plain latitude / longitude values so it can be used and
+ * unit tested without the HERE SDK.
+ *
+ * The grid is kept in sorted primitive arrays, isWithin() and nearest() with a caller owned MutableProjection
+ * allocate nothing per query.
+ */
+public class RouteIndex {
+
+    private static final double EARTH_RADIUS_IN_METERS = GeoMath.EARTH_RADIUS_IN_METERS;
+    private static final double RAD = Math.PI / 180;
+
+    private final PackedPolyline polyline;
+    // distance along the route (in meters) at every vertex
+    private final double[] offsets;
+    private final double cellSizeInMeters;
+    // cosine of the reference latitude used to lay out the grid
+    private final double referenceCos;
+    // sorted keys of the grid cells, the segments passing through or next to cell i are
+    // cellSegments[cellStarts[i]] up to cellSegments[cellStarts[i + 1]]
+    private long[] cellKeys;
+    private int[] cellStarts;
+    private int[] cellSegments;
+
+    /**
+     * Result of projecting a point onto the route
+     * distanceInMeters -> lateral distance between the point and the nearest segment
+     * offsetInMeters -> distance along the route from the first vertex to the projected point
+     * */
+    public static class Projection {
+        public final double distanceInMeters;
+        public final double offsetInMeters;
+        public final int segmentIndex;
+
+        Projection(double distanceInMeters, double offsetInMeters, int segmentIndex) {
+            this.distanceInMeters = distanceInMeters;
+            this.offsetInMeters = offsetInMeters;
+            this.segmentIndex = segmentIndex;
+        }
+    }
+
+    /**
+     * Result of nearest() owned by the caller and reused for every query, so filtering thousands of places
+     * allocates nothing. Not thread safe, every thread uses its own
+     * */
+    public static final class MutableProjection {
+        // distance and segment position written by PackedPolyline.segmentDistance
+        private final double[] segmentDistance = new double[2];
+        public double distanceInMeters;
+        public double offsetInMeters;
+        public int segmentIndex;
+    }
+
+    /**
+     * Constructor for RouteIndex
+     * latitudes and longitudes are the route vertices in degrees, cellSizeInMeters is the size of a grid cell
+     * */
+    public RouteIndex(double[] latitudes, double[] longitudes, double cellSizeInMeters) {
+        this(new PackedPolyline(latitudes, longitudes), cellSizeInMeters);
+    }
+
+    /**
+     * Constructor for RouteIndex over a PackedPolyline, reusing its precomputed terms
+     * */
+    public RouteIndex(PackedPolyline polyline, double cellSizeInMeters) {
+        if (cellSizeInMeters <= 0) {
+            throw new IllegalArgumentException("cellSizeInMeters must be positive");
+        }
+        ThreadGuard.assertNotMainThread("Route index build");
+        this.polyline = polyline;
+        this.cellSizeInMeters = cellSizeInMeters;
+        int count = polyline.getVertexCount();
+
+        double latitudeSum = 0;
+        for (int i = 0; i < count; i++) {
+            latitudeSum += polyline.getLatitude(i);
+        }
+        double referenceLatitude = count == 0 ? 0 : latitudeSum / count;
+        this.referenceCos = Math.max(Math.cos(referenceLatitude * RAD), 0.01);
+
+        offsets = new double[count];
+        for (int i = 1; i < count; i++) {
+            offsets[i] = offsets[i - 1] + polyline.haversine(i - 1, i);
+        }
+        buildCells();
+    }
+
+    public PackedPolyline getPolyline() {
+        return polyline;
+    }
+
+    public int getVertexCount() {
+        return polyline.getVertexCount();
+    }
+
+    public double getLengthInMeters() {
+        return offsets.length == 0 ? 0 : offsets[offsets.length - 1];
+    }
+
+    public double getLatitude(int vertex) {
+        return polyline.getLatitude(vertex);
+    }
+
+    public double getLongitude(int vertex) {
+        return polyline.getLongitude(vertex);
+    }
+
+    /**
+     * Distance along the route in meters from the first vertex to the given vertex
+     * */
+    public double getOffset(int vertex) {
+        return offsets[vertex];
+    }
+
+    /**
+     * Returns true when the given point is within maxDistanceInMeters of any segment of the route
+     * */
+    public boolean isWithin(double latitude, double longitude, double maxDistanceInMeters) {
+        int count = polyline.getVertexCount();
+        if (count <= 1) {
+            return count == 1 && polyline.haversine(0, latitude, longitude) <= maxDistanceInMeters;
+        }
+        return nearestSegment(latitude, longitude, maxDistanceInMeters, true) >= 0;
+    }
+
+    /**
+     * Finds the nearest segment of the route to the given point.
+     * Returns null when no segment is within maxDistanceInMeters.
+     * */
+    public Projection nearest(double latitude, double longitude, double maxDistanceInMeters) {
+        MutableProjection projection = new MutableProjection();
+        if (!nearest(latitude, longitude, maxDistanceInMeters, projection)) {
+            return null;
+        }
+        return new Projection(projection.distanceInMeters, projection.offsetInMeters, projection.segmentIndex);
+    }
+
+    /**
+     * Finds the nearest segment of the route to the given point and writes it to projection, without allocating.
+     * Returns false when no segment is within maxDistanceInMeters, projection is then left unchanged
+     * */
+    public boolean nearest(double latitude, double longitude, double maxDistanceInMeters,
+                           MutableProjection projection) {
+        int count = polyline.getVertexCount();
+        if (count == 0) {
+            return false;
+        }
+        if (count == 1) {
+            double distance = polyline.haversine(0, latitude, longitude);
+            if (distance > maxDistanceInMeters) {
+                return false;
+            }
+            projection.distanceInMeters = distance;
+            projection.offsetInMeters = 0;
+            projection.segmentIndex = 0;
+            return true;
+        }
+        int segment = nearestSegment(latitude, longitude, maxDistanceInMeters, false);
+        if (segment < 0) {
+            return false;
+        }
+        // only the nearest segment is measured again for the position of the point along it
+        double[] segmentDistance = projection.segmentDistance;
+        polyline.segmentDistance(segment, latitude, longitude, Math.cos(latitude * RAD), segmentDistance);
+        projection.distanceInMeters = segmentDistance[0];
+        projection.offsetInMeters = offsets[segment] + segmentDistance[1] * (offsets[segment + 1] - offsets[segment]);
+        projection.segmentIndex = segment;
+        return true;
+    }
+
+    /**
+     * Index of the nearest segment within maxDistanceInMeters of the point, -1 if there is none.
+     * With anyWithin the first segment found within maxDistanceInMeters is returned
+     * */
+    private int nearestSegment(double latitude, double longitude, double maxDistanceInMeters, boolean anyWithin) {
+        /*
+          The grid is laid out with the cosine of the reference latitude, so a distance on the ground
+          at the query latitude can span more grid cells in x direction. We widen the x range to stay exact.
+        */
+        double cosLatitude = Math.cos(latitude * RAD);
+        double queryCos = Math.max(cosLatitude, 0.01);
+        double xRadius = maxDistanceInMeters * Math.max(1.0, referenceCos / queryCos);
+        double x = projectX(longitude);
+        double y = projectY(latitude);
+        long minCellX = cell(x - xRadius);
+        long maxCellX = cell(x + xRadius);
+        long minCellY = cell(y - maxDistanceInMeters);
+        long maxCellY = cell(y + maxDistanceInMeters);
+
+        double bestDistance = Double.MAX_VALUE;
+        int bestSegment = -1;
+        for (long cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (long cellY = minCellY; cellY <= maxCellY; cellY++) {
+                int cellIndex = Arrays.binarySearch(cellKeys, key(cellX, cellY));
+                if (cellIndex < 0) {
+                    continue;
+                }
+                for (int i = cellStarts[cellIndex]; i < cellStarts[cellIndex + 1]; i++) {
+                    int segment = cellSegments[i];
+                    double distance = polyline.distanceToSegment(segment, latitude, longitude, cosLatitude);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        bestSegment = segment;
+                        if (anyWithin && distance <= maxDistanceInMeters) {
+                            return bestSegment;
+                        }
+                    }
+                }
+            }
+        }
+        return bestDistance <= maxDistanceInMeters ? bestSegment : -1;
+    }
+
+    /**
+     * Adds every segment to the grid cells it passes through.
+     * Each segment is sampled every half cell and registered in the 3x3 block around every sample,
+     * which guarantees that every point on the segment lies inside a cell the segment is registered in.
+     * */
+    private void buildCells() {
+        Map<Long, IntList> builder = new HashMap<>();
+        for (int i = 0; i + 1 < polyline.getVertexCount(); i++) {
+            double ax = projectX(polyline.getLongitude(i));
+            double ay = projectY(polyline.getLatitude(i));
+            double bx = ax + GeoMath.normalizeLongitude(polyline.getLongitude(i + 1) - polyline.getLongitude(i))
+                    * RAD * referenceCos * EARTH_RADIUS_IN_METERS;
+            double by = projectY(polyline.getLatitude(i + 1));
+            double length = Math.hypot(bx - ax, by - ay);
+            int steps = (int) Math.ceil(length / (cellSizeInMeters / 2));
+
+            long lastCellX = Long.MIN_VALUE;
+            long lastCellY = Long.MIN_VALUE;
+            for (int step = 0; step <= steps; step++) {
+                double t = steps == 0 ? 0 : (double) step / steps;
+                long cellX = cell(ax + t * (bx - ax));
+                long cellY = cell(ay + t * (by - ay));
+                if (cellX == lastCellX && cellY == lastCellY) {
+                    continue;
+                }
+                lastCellX = cellX;
+                lastCellY = cellY;
+                for (long nx = cellX - 1; nx <= cellX + 1; nx++) {
+                    for (long ny = cellY - 1; ny <= cellY + 1; ny++) {
+                        Long key = key(nx, ny);
+                        IntList list = builder.get(key);
+                        if (list == null) {
+                            list = new IntList();
+                            builder.put(key, list);
+                        }
+                        list.addIfLast(i);
+                    }
+                }
+            }
+        }
+        cellKeys = new long[builder.size()];
+        int k = 0;
+        int segmentCount = 0;
+        for (Map.Entry<Long, IntList> entry : builder.entrySet()) {
+            cellKeys[k++] = entry.getKey();
+            segmentCount += entry.getValue().size;
+        }
+        Arrays.sort(cellKeys);
+        cellStarts = new int[cellKeys.length + 1];
+        cellSegments = new int[segmentCount];
+        for (int i = 0; i < cellKeys.length; i++) {
+            IntList list = builder.get(cellKeys[i]);
+            System.arraycopy(list.values, 0, cellSegments, cellStarts[i], list.size);
+            cellStarts[i + 1] = cellStarts[i] + list.size;
+        }
+    }
+
+    private double projectX(double longitude) {
+        return longitude * RAD * referenceCos * EARTH_RADIUS_IN_METERS;
+    }
+
+    private double projectY(double latitude) {
+        return latitude * RAD * EARTH_RADIUS_IN_METERS;
+    }
+
+    private long cell(double value) {
+        return (long) Math.floor(value / cellSizeInMeters);
+    }
+
+    private static long key(long cellX, long cellY) {
+        return (cellX << 32) ^ (cellY & 0xffffffffL);
+    }
+
+    // Small growable int array, segments are added in increasing order so duplicates are always last
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void addIfLast(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                int[] grown = new int[size * 2];
+                System.arraycopy(values, 0, grown, 0, size);
+                values = grown;
+            }
+            values[size++] = value;
+        }
+    }
+}
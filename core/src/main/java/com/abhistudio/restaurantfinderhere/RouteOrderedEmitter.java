@@ -0,0 +1,78 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * RouteOrderedEmitter turns the chunk results of a CorridorSearch into a stream of places ordered by
+ * their offset along the route, starting with the places nearest to the origin.
+ *
+ * Chunks can complete in any order. A place is only emitted once every chunk that could still find a place
+ * before it along the route has completed, so the first places are emitted as soon as the first chunk is in.
+ */
+public class RouteOrderedEmitter implements CorridorSearch.Listener {
+
+    private static final Comparator<PlaceMatchAssembler.Match<PlaceRecord>> BY_OFFSET =
+            new Comparator<PlaceMatchAssembler.Match<PlaceRecord>>() {
+                @Override
+                public int compare(PlaceMatchAssembler.Match<PlaceRecord> a, PlaceMatchAssembler.Match<PlaceRecord> b) {
+                    return Double.compare(a.getOffsetInMeters(), b.getOffsetInMeters());
+                }
+            };
+
+    private final List<CorridorPlanner.Chunk> chunks;
+    private final double marginInMeters;
+    private final PlaceMatchListener listener;
+    private final boolean[] completed;
+    private final PriorityQueue<PlaceMatchAssembler.Match<PlaceRecord>> buffer = new PriorityQueue<>(16, BY_OFFSET);
+    // index of the first chunk that has not completed yet
+    private int frontier;
+
+    /**
+     * Constructor for RouteOrderedEmitter
+     * chunks -> the chunks of the search, ordered along the route
+     * marginInMeters -> how far before its first vertex a chunk can still find places, usually the corridor half width
+     * */
+    public RouteOrderedEmitter(List<CorridorPlanner.Chunk> chunks, double marginInMeters, PlaceMatchListener listener) {
+        this.chunks = chunks;
+        this.marginInMeters = marginInMeters;
+        this.listener = listener;
+        this.completed = new boolean[chunks.size()];
+    }
+
+    @Override
+    public synchronized void onPlacesFound(CorridorPlanner.Chunk chunk, List<PlaceMatchAssembler.Match<PlaceRecord>> matches) {
+        buffer.addAll(matches);
+        complete(chunk);
+    }
+
+    @Override
+    public synchronized void onChunkFailed(CorridorPlanner.Chunk chunk, SearchFailure failure) {
+        complete(chunk);
+    }
+
+    @Override
+    public synchronized void onSearchFinished(int matchCount, int duplicatesAvoided) {
+        emitUpTo(Double.POSITIVE_INFINITY);
+        listener.onSearchFinished(matchCount, duplicatesAvoided);
+    }
+
+    private void complete(CorridorPlanner.Chunk chunk) {
+        completed[chunk.index] = true;
+        while (frontier < completed.length && completed[frontier]) {
+            frontier++;
+        }
+        if (frontier == chunks.size()) {
+            emitUpTo(Double.POSITIVE_INFINITY);
+        } else {
+            emitUpTo(chunks.get(frontier).startOffsetInMeters - marginInMeters);
+        }
+    }
+
+    private void emitUpTo(double offsetInMeters) {
+        while (!buffer.isEmpty() && buffer.peek().getOffsetInMeters() < offsetInMeters) {
+            listener.onPlaceMatched(buffer.poll());
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RoutePrefetcher searches the corridor chunks ahead of the vehicle before it gets there, so the
+ * PlaceTileCache behind the backend already holds their places when they are searched for real.
+ *
+ * Every position update moves the look ahead window along the active route: chunks starting within
+ * lookAheadInMeters, or within lookAheadInSeconds at the speeds of the route sections, are searched in
+ * route order. Prefetching runs at low priority: at most maxInFlight requests, at most maxRequestsPerRoute
+ * for a route, and nothing new is started while it is paused for a search the user is waiting for.
+ * Chunks the vehicle has passed are evicted, queued ones are never searched and late results are dropped.
+ */
+public class RoutePrefetcher {
+
+    // States of the chunks of the active route
+    private static final int PENDING = 0;
+    private static final int IN_FLIGHT = 1;
+    private static final int PREFETCHED = 2;
+    private static final int FAILED = 3;
+    private static final int EVICTED = 4;
+    // Positions further than this from the route are off route and do not move the window
+    private static final double MAX_DISTANCE_FROM_ROUTE_IN_METERS = 100;
+    // Step of the integration of the section speeds over the time window
+    private static final double TIME_WINDOW_STEP_IN_METERS = 250;
+
+    private final PlaceSearchBackend backend;
+    private final String query;
+    private final int maxItemsPerChunk;
+    private final double lookAheadInMeters;
+    private final double lookAheadInSeconds;
+    private final int maxInFlight;
+    private final int maxRequestsPerRoute;
+
+    private RouteIndex routeIndex;
+    private List<CorridorPlanner.Chunk> chunks = new ArrayList<>();
+    private double halfWidthInMeters;
+    private DetourEstimator speeds;
+    private int[] states = new int[0];
+    // incremented with every route, results of the requests of an older route are dropped
+    private int generation;
+    private double offsetInMeters;
+    private double windowEndInMeters;
+    private int inFlight;
+    private int requestCount;
+    private int prefetchedCount;
+    private int evictedCount;
+    private boolean paused;
+
+    /**
+     * Constructor for RoutePrefetcher
+     * lookAheadInMeters / lookAheadInSeconds -> the window ends at the farther of the two ahead of the vehicle
+     * maxInFlight -> maximum no. of prefetch requests running at the same time
+     * maxRequestsPerRoute -> maximum no. of prefetch requests for one route
+     * */
+    public RoutePrefetcher(PlaceSearchBackend backend, String query, int maxItemsPerChunk, double lookAheadInMeters,
+                           double lookAheadInSeconds, int maxInFlight, int maxRequestsPerRoute) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.backend = backend;
+        this.query = query;
+        this.maxItemsPerChunk = maxItemsPerChunk;
+        this.lookAheadInMeters = lookAheadInMeters;
+        this.lookAheadInSeconds = lookAheadInSeconds;
+        this.maxInFlight = maxInFlight;
+        this.maxRequestsPerRoute = maxRequestsPerRoute;
+    }
+
+    /**
+     * Makes the route the active one, the vehicle is assumed at its origin until the first position update.
+     * speeds may be null, then only lookAheadInMeters is used
+     * */
+    public void setRoute(RouteIndex routeIndex, List<CorridorPlanner.Chunk> chunks, double halfWidthInMeters,
+                         DetourEstimator speeds) {
+        synchronized (this) {
+            this.routeIndex = routeIndex;
+            this.chunks = chunks;
+            this.halfWidthInMeters = halfWidthInMeters;
+            this.speeds = speeds;
+            states = new int[chunks.size()];
+            generation++;
+            inFlight = 0;
+            requestCount = 0;
+            offsetInMeters = 0;
+            windowEndInMeters = windowEnd(0);
+        }
+        startRequests();
+    }
+
+    /**
+     * Moves the window to the position of the vehicle, evicts the chunks it has passed
+     * and starts prefetching the chunks that entered the window
+     * */
+    public void updatePosition(double latitude, double longitude) {
+        synchronized (this) {
+            if (routeIndex == null) {
+                return;
+            }
+            RouteIndex.Projection projection =
+                    routeIndex.nearest(latitude, longitude, MAX_DISTANCE_FROM_ROUTE_IN_METERS);
+            // the vehicle only moves forward along the route, off route positions keep the window where it is
+            if (projection == null || projection.offsetInMeters <= offsetInMeters) {
+                return;
+            }
+            offsetInMeters = projection.offsetInMeters;
+            windowEndInMeters = windowEnd(offsetInMeters);
+            for (int i = 0; i < states.length && chunks.get(i).endOffsetInMeters < offsetInMeters; i++) {
+                if (states[i] != EVICTED) {
+                    states[i] = EVICTED;
+                    evictedCount++;
+                }
+            }
+        }
+        startRequests();
+    }
+
+    /**
+     * Paused while a search the user waits for is running, so the prefetch requests do not compete with it
+     * */
+    public void setPaused(boolean paused) {
+        synchronized (this) {
+            this.paused = paused;
+        }
+        if (!paused) {
+            startRequests();
+        }
+    }
+
+    /**
+     * Drops the active route, requests still running are ignored when they complete
+     * */
+    public synchronized void clear() {
+        routeIndex = null;
+        chunks = new ArrayList<>();
+        states = new int[0];
+        generation++;
+        inFlight = 0;
+    }
+
+    public synchronized double getOffsetInMeters() {
+        return offsetInMeters;
+    }
+
+    public synchronized double getWindowEndInMeters() {
+        return windowEndInMeters;
+    }
+
+    public synchronized int getRequestCount() {
+        return requestCount;
+    }
+
+    public synchronized int getPrefetchedCount() {
+        return prefetchedCount;
+    }
+
+    public synchronized int getEvictedCount() {
+        return evictedCount;
+    }
+
+    /**
+     * True when the chunk with the given index has been prefetched and not been passed yet
+     * */
+    public synchronized boolean isPrefetched(int chunkIndex) {
+        return chunkIndex < states.length && states[chunkIndex] == PREFETCHED;
+    }
+
+    private double windowEnd(double offset) {
+        double end = offset + lookAheadInMeters;
+        if (speeds != null && lookAheadInSeconds > 0) {
+            // distance driven within lookAheadInSeconds at the speed of every section ahead
+            double seconds = 0;
+            double position = offset;
+            double routeLength = routeIndex.getLengthInMeters();
+            while (seconds < lookAheadInSeconds && position < routeLength) {
+                double speed = speeds.speedAt(position);
+                if (speed <= 0) {
+                    break;
+                }
+                double step = Math.min(TIME_WINDOW_STEP_IN_METERS, speed * (lookAheadInSeconds - seconds));
+                seconds += step / speed;
+                position += step;
+            }
+            end = Math.max(end, position);
+        }
+        return end;
+    }
+
+    /**
+     * Starts the requests of the next pending chunks in the window, nearest first, as far as the budget allows
+     * */
+    private void startRequests() {
+        while (true) {
+            final int chunkIndex;
+            final int requestGeneration;
+            final SearchArea area;
+            synchronized (this) {
+                if (paused || routeIndex == null || inFlight >= maxInFlight || requestCount >= maxRequestsPerRoute) {
+                    return;
+                }
+                int next = -1;
+                for (int i = 0; i < states.length && chunks.get(i).startOffsetInMeters <= windowEndInMeters; i++) {
+                    if (states[i] == PENDING) {
+                        next = i;
+                        break;
+                    }
+                }
+                if (next < 0) {
+                    return;
+                }
+                chunkIndex = next;
+                requestGeneration = generation;
+                states[chunkIndex] = IN_FLIGHT;
+                inFlight++;
+                requestCount++;
+                area = chunks.get(chunkIndex).toSearchArea(routeIndex, halfWidthInMeters);
+            }
+            backend.search(area, query, maxItemsPerChunk, new PlaceSearchBackend.Callback() {
+                @Override
+                public void onSearchCompleted(SearchFailure failure, List<PlaceRecord> places) {
+                    synchronized (RoutePrefetcher.this) {
+                        if (requestGeneration != generation) {
+                            return;
+                        }
+                        inFlight--;
+                        if (states[chunkIndex] == IN_FLIGHT) {
+                            states[chunkIndex] = failure == null ? PREFETCHED : FAILED;
+                            if (failure == null) {
+                                prefetchedCount++;
+                            }
+                        }
+                    }
+                    startRequests();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.List;
+
+/**
+ * RouteRecord is the SDK independent representation of a calculated route: its polyline, the length and
+ * duration of every section and the notices of the route, in the same way PlaceRecord represents a place.
+ */
+public class RouteRecord {
+    // route polyline in degrees
+    public final double[] latitudes;
+    public final double[] longitudes;
+    // length and duration of every section of the route
+    public final double[] sectionLengthsInMeters;
+    public final double[] sectionDurationsInSeconds;
+    // warnings of the route, for example a route option that could not be fulfilled
+    public final List<String> notices;
+
+    public RouteRecord(double[] latitudes, double[] longitudes, double[] sectionLengthsInMeters,
+                       double[] sectionDurationsInSeconds, List<String> notices) {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("latitudes and longitudes must have the same length");
+        }
+        if (sectionLengthsInMeters.length != sectionDurationsInSeconds.length) {
+            throw new IllegalArgumentException("every section needs a length and a duration");
+        }
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.sectionLengthsInMeters = sectionLengthsInMeters;
+        this.sectionDurationsInSeconds = sectionDurationsInSeconds;
+        this.notices = notices;
+    }
+}
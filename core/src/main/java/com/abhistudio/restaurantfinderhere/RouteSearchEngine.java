@@ -0,0 +1,156 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * RouteSearchEngine is the headless search for places along a route, shared by the app and the batch tools.
+ *
+ * prepare() simplifies, indexes and splits a calculated route, search() runs the corridor searches of a
+ * prepared route and filters their places, searchCategories() does so for several categories sharing the
+ * prepared route. Prepared routes are kept in a small LRU cache keyed by their geometry, so identical routes
+ * share their RouteIndex. The engine holds no UI state and can be used by many threads at the same time.
+ */
+public class RouteSearchEngine {
+
+    // Size of a grid cell of the RouteIndex used for filtering places along the route
+    private static final double ROUTE_INDEX_CELL_SIZE_IN_METERS = 500;
+    // Maximum distance between the route and its simplified polyline, see PolylineSimplifier
+    private static final double ROUTE_SIMPLIFY_TOLERANCE_IN_METERS = 10;
+    // Corridor chunks searched along a route, see CorridorPlanner
+    private static final double CHUNK_LENGTH_IN_METERS = 20000;
+    private static final double CHUNK_OVERLAP_IN_METERS = 1000;
+    private static final int MAX_VERTICES_PER_CHUNK = 300;
+    // maximum no. of items to search along every chunk of the route
+    private static final int MAX_ITEMS_PER_CHUNK = 30;
+    // Places within HALF_WIDTH_IN_METERS of the route are found, the AdaptiveSearchController may widen it
+    private static final double HALF_WIDTH_IN_METERS = 200;
+    // Detours are driven on roads about DETOUR_ROAD_FACTOR longer than the straight line, at most at 50 km/h
+    private static final double DETOUR_ROAD_FACTOR = 1.4;
+    private static final double MAX_DETOUR_SPEED_IN_METERS_PER_SECOND = 50 / 3.6;
+
+    private static final Metrics.Timer PREPARE_ROUTE_TIMER = Metrics.timer("search.prepareRoute");
+    private static final Metrics.Counter PREPARED_ROUTES_SHARED = Metrics.counter("search.preparedRoutesShared");
+
+    private final CorridorPlanner corridorPlanner = new CorridorPlanner(CHUNK_LENGTH_IN_METERS,
+            CHUNK_OVERLAP_IN_METERS, MAX_VERTICES_PER_CHUNK);
+    private final CorridorSearch corridorSearch;
+    private final double maxHalfWidthInMeters;
+    // prepared routes by the key of their geometry, in access order
+    private final Map<String, PreparedRoute> preparedRoutes;
+
+    /**
+     * Constructor for RouteSearchEngine
+     * maxSearchesInFlight -> maximum no. of chunk searches of one route running at the same time
+     * filterExecutor -> runs the filtering of the found places, see CorridorSearch
+     * controller -> plans and retries the chunk searches, may be null
+     * maxPreparedRoutes -> no. of prepared routes kept for identical routes, 0 disables the cache
+     * */
+    public RouteSearchEngine(PlaceSearchBackend backend, int maxSearchesInFlight, Executor filterExecutor,
+                             AdaptiveSearchController controller, final int maxPreparedRoutes) {
+        this.corridorSearch = new CorridorSearch(backend, maxSearchesInFlight, filterExecutor, controller);
+        this.maxHalfWidthInMeters = controller == null
+                ? HALF_WIDTH_IN_METERS : Math.max(HALF_WIDTH_IN_METERS, controller.getMaxHalfWidthInMeters());
+        this.preparedRoutes = new LinkedHashMap<String, PreparedRoute>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedRoute> eldest) {
+                return size() > maxPreparedRoutes;
+            }
+        };
+    }
+
+    /**
+     * Simplifies, indexes and splits the route, must not be called on the main thread.
+     * An identical route prepared before is returned from the cache
+     * */
+    public PreparedRoute prepare(RouteRecord route) {
+        if (route.latitudes.length < 2) {
+            throw new IllegalArgumentException("A route needs at least 2 vertices");
+        }
+        String key = geometryKey(route.latitudes, route.longitudes);
+        synchronized (preparedRoutes) {
+            PreparedRoute shared = preparedRoutes.get(key);
+            if (shared != null) {
+                PREPARED_ROUTES_SHARED.increment();
+                return shared;
+            }
+        }
+        long prepareStart = Metrics.now();
+        long allocatedAtStart = Metrics.allocatedBytes();
+        // the route polyline is simplified once, drawing and searching use the simplified polyline
+        PolylineSimplifier.Result polyline =
+                PolylineSimplifier.simplify(route.latitudes, route.longitudes, ROUTE_SIMPLIFY_TOLERANCE_IN_METERS);
+        // Index over the route segments, built once per route and used to filter the found places.
+        // All geometry of the search works on the packed polyline
+        RouteIndex routeIndex = new RouteIndex(new PackedPolyline(polyline.latitudes, polyline.longitudes),
+                ROUTE_INDEX_CELL_SIZE_IN_METERS);
+        List<CorridorPlanner.Chunk> chunks = corridorPlanner.plan(routeIndex);
+        DetourEstimator detourEstimator = new DetourEstimator(route.sectionLengthsInMeters,
+                route.sectionDurationsInSeconds, routeIndex.getLengthInMeters(), DETOUR_ROAD_FACTOR,
+                MAX_DETOUR_SPEED_IN_METERS_PER_SECOND);
+        // As the simplified polyline can be up to its tolerance away from the route, the tolerance is added
+        // so no place within HALF_WIDTH_IN_METERS of the route is lost
+        PreparedRoute prepared = new PreparedRoute(polyline, routeIndex, chunks, detourEstimator,
+                HALF_WIDTH_IN_METERS + polyline.toleranceInMeters, maxHalfWidthInMeters + polyline.toleranceInMeters);
+        PREPARE_ROUTE_TIMER.stop(prepareStart, allocatedAtStart);
+        synchronized (preparedRoutes) {
+            preparedRoutes.put(key, prepared);
+        }
+        return prepared;
+    }
+
+    /**
+     * Starts searching query along the prepared route. The places are filtered with its RouteIndex,
+     * deduplicated by the assembler and handed to the listener per chunk, see CorridorSearch
+     * */
+    public CorridorSearch.Session search(PreparedRoute route, String query, PlaceMatchAssembler<PlaceRecord> assembler,
+                                         CorridorSearch.Listener listener) {
+        return search(route, route.chunks, query, assembler, listener);
+    }
+
+    /**
+     * Starts searching query along some chunks of the prepared route only, e.g. the changed ones of an
+     * IncrementalRouteSearch. The chunks have to be indexed from 0 in route order
+     * */
+    public CorridorSearch.Session search(PreparedRoute route, List<CorridorPlanner.Chunk> chunks, String query,
+                                         PlaceMatchAssembler<PlaceRecord> assembler, CorridorSearch.Listener listener) {
+        return corridorSearch.start(route.routeIndex, chunks, query, route.halfWidthInMeters,
+                MAX_ITEMS_PER_CHUNK, assembler, listener);
+    }
+
+    /**
+     * Chunks of the route between firstVertex and lastVertex (both included), planned like the chunks of prepare()
+     * */
+    List<CorridorPlanner.Chunk> planChunks(RouteIndex routeIndex, int firstVertex, int lastVertex) {
+        return corridorPlanner.plan(routeIndex, firstVertex, lastVertex);
+    }
+
+    /**
+     * Starts searching every category along the prepared route at the same time. The route is prepared once,
+     * every category gets its own chunk requests and is capped at its maxResults, see MultiCategorySearch
+     * */
+    public MultiCategorySearch searchCategories(PreparedRoute route, List<SearchCategory> categories,
+                                                MultiCategorySearch.Listener listener) {
+        MultiCategorySearch search = new MultiCategorySearch(route, categories);
+        search.start(this, listener);
+        return search;
+    }
+
+    public int getMaxItemsPerChunk() {
+        return MAX_ITEMS_PER_CHUNK;
+    }
+
+    /**
+     * Key of a route geometry, the vertex count and a 64 bit hash of all coordinates
+     * */
+    static String geometryKey(double[] latitudes, double[] longitudes) {
+        long hash = 1125899906842597L;
+        for (int i = 0; i < latitudes.length; i++) {
+            hash = 31 * hash + Double.doubleToLongBits(latitudes[i]);
+            hash = 31 * hash + Double.doubleToLongBits(longitudes[i]);
+        }
+        return latitudes.length + ":" + Long.toHexString(hash);
+    }
+}
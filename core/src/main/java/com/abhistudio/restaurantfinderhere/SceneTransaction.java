@@ -0,0 +1,99 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * SceneTransaction queues the items added to and removed from a Scene and applies them in bulk on commit(),
+ * with one call per kind of change instead of one call per item. On Android every call crosses into the native
+ * map renderer, so clearing or replacing hundreds of markers is one commit instead of hundreds of calls.
+ *
+ * Only the net change is applied: an item added and removed again before the commit is never added, an item
+ * removed and added again, e.g. a pooled marker reused right away, stays on the scene. The removals are applied
+ * before the additions, so a layer replaced in one transaction is swapped at once.
+ *
+ * Not thread safe, used on the main thread like the scene itself.
+ */
+public class SceneTransaction<T> {
+
+    /**
+     * The scene the changes are applied to, e.g. the MapScene of the MapView
+     * */
+    public interface Scene<T> {
+        void addAll(List<T> items);
+
+        void removeAll(List<T> items);
+    }
+
+    private static final Metrics.Timer COMMIT_TIMER = Metrics.timer("map.commit");
+    private static final Metrics.Counter COMMITTED_ITEMS = Metrics.counter("map.committedItems");
+
+    private final Scene<T> scene;
+    // in the order of the calls, an item is in at most one of them
+    private final Set<T> added = new LinkedHashSet<>();
+    private final Set<T> removed = new LinkedHashSet<>();
+    private int commitCount;
+
+    public SceneTransaction(Scene<T> scene) {
+        this.scene = scene;
+    }
+
+    /**
+     * Queues an item to be added, it must not be on the scene already
+     * */
+    public void add(T item) {
+        if (!removed.remove(item)) {
+            added.add(item);
+        }
+    }
+
+    /**
+     * Queues an item to be removed, it must be on the scene or queued to be added
+     * */
+    public void remove(T item) {
+        if (!added.remove(item)) {
+            removed.add(item);
+        }
+    }
+
+    /**
+     * Applies the queued changes to the scene, returns the no. of items added and removed
+     * */
+    public int commit() {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return 0;
+        }
+        long commitStart = Metrics.now();
+        // copies, so the scene may start the next transaction while it applies this one
+        List<T> toRemove = new ArrayList<>(removed);
+        List<T> toAdd = new ArrayList<>(added);
+        removed.clear();
+        added.clear();
+        if (!toRemove.isEmpty()) {
+            scene.removeAll(toRemove);
+        }
+        if (!toAdd.isEmpty()) {
+            scene.addAll(toAdd);
+        }
+        commitCount++;
+        COMMITTED_ITEMS.add(toRemove.size() + toAdd.size());
+        COMMIT_TIMER.stop(commitStart);
+        return toRemove.size() + toAdd.size();
+    }
+
+    /**
+     * No. of items queued to be added or removed
+     * */
+    public int getPendingCount() {
+        return added.size() + removed.size();
+    }
+
+    /**
+     * No. of commits that changed the scene
+     * */
+    public int getCommitCount() {
+        return commitCount;
+    }
+}
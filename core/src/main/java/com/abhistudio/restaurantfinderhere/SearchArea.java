@@ -0,0 +1,64 @@
+package com.abhistudio.restaurantfinderhere;
+
+/**
+ * SearchArea describes where a PlaceSearchBackend should search for places.
+ * It is either a circle (center and radius) or a corridor (polyline and half width),
+ * all coordinates are in degrees.
+ */
+public class SearchArea {
+
+    // Corridor polyline, null for a circle
+    public final double[] latitudes;
+    public final double[] longitudes;
+    // Half width of the corridor or radius of the circle
+    public final double sizeInMeters;
+    // Center of the circle, or the point the corridor results are ranked around
+    public final double centerLatitude;
+    public final double centerLongitude;
+
+    private SearchArea(double[] latitudes, double[] longitudes, double sizeInMeters,
+                       double centerLatitude, double centerLongitude) {
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.sizeInMeters = sizeInMeters;
+        this.centerLatitude = centerLatitude;
+        this.centerLongitude = centerLongitude;
+    }
+
+    public static SearchArea circle(double centerLatitude, double centerLongitude, double radiusInMeters) {
+        return new SearchArea(null, null, radiusInMeters, centerLatitude, centerLongitude);
+    }
+
+    /**
+     * Corridor along the given polyline, the middle vertex is used as the center of the area
+     * */
+    public static SearchArea corridor(double[] latitudes, double[] longitudes, double halfWidthInMeters) {
+        if (latitudes.length < 2 || latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("A corridor needs at least two vertices");
+        }
+        int middle = latitudes.length / 2;
+        return new SearchArea(latitudes, longitudes, halfWidthInMeters, latitudes[middle], longitudes[middle]);
+    }
+
+    public boolean isCorridor() {
+        return latitudes != null;
+    }
+
+    /**
+     * True when the point is inside the circle or within the half width of the corridor polyline.
+     * segmentDistance is a scratch array of two values, so checking many points does not allocate
+     * */
+    public boolean contains(double latitude, double longitude, double[] segmentDistance) {
+        if (!isCorridor()) {
+            return GeoMath.haversine(centerLatitude, centerLongitude, latitude, longitude) <= sizeInMeters;
+        }
+        for (int i = 0; i + 1 < latitudes.length; i++) {
+            GeoMath.pointToSegment(latitude, longitude, latitudes[i], longitudes[i],
+                    latitudes[i + 1], longitudes[i + 1], segmentDistance);
+            if (segmentDistance[0] <= sizeInMeters) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,71 @@
+package com.abhistudio.restaurantfinderhere;
+
+/**
+ * A kind of place searched along the route, with the query sent to the PlaceSearchBackend and the
+ * maximum no. of places of this kind kept in the results.
+ *
+ * Queries starting with CATEGORY_PREFIX name HERE place category ids, e.g. "category:700-7600-0116",
+ * and are searched with a CategoryQuery, every other query is searched as text.
+ */
+public final class SearchCategory {
+
+    public static final String CATEGORY_PREFIX = "category:";
+
+    // Text search, as answered by the offline POI pack
+    public static final SearchCategory RESTAURANTS = new SearchCategory("restaurants", "restaurants", 50);
+    // HERE place categories of coffee shops, petrol stations and EV charging stations
+    public static final SearchCategory CAFES = byCategoryId("cafes", "100-1100-0010", 20);
+    public static final SearchCategory FUEL_STATIONS = byCategoryId("fuel", "700-7600-0116", 20);
+    public static final SearchCategory EV_CHARGING_STATIONS = byCategoryId("evCharging", "700-7600-0322", 20);
+
+    public final String name;
+    public final String query;
+    public final int maxResults;
+
+    /**
+     * Constructor for SearchCategory
+     * name -> tells the categories of the results apart
+     * maxResults -> only this many places with the shortest detour are kept, see PlaceRanker
+     * */
+    public SearchCategory(String name, String query, int maxResults) {
+        if (maxResults < 1) {
+            throw new IllegalArgumentException("maxResults must be at least 1");
+        }
+        this.name = name;
+        this.query = query;
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * Category searched by one or more comma separated HERE place category ids
+     * */
+    public static SearchCategory byCategoryId(String name, String categoryIds, int maxResults) {
+        return new SearchCategory(name, CATEGORY_PREFIX + categoryIds, maxResults);
+    }
+
+    /**
+     * The same category with another cap on its results
+     * */
+    public SearchCategory withMaxResults(int maxResults) {
+        return new SearchCategory(name, query, maxResults);
+    }
+
+    /**
+     * True when query names place category ids instead of text
+     * */
+    public static boolean isCategoryQuery(String query) {
+        return query.startsWith(CATEGORY_PREFIX);
+    }
+
+    /**
+     * The place category ids of a category query
+     * */
+    public static String[] categoryIds(String query) {
+        return query.substring(CATEGORY_PREFIX.length()).split(",");
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
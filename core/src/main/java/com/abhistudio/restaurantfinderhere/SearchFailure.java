@@ -0,0 +1,11 @@
+package com.abhistudio.restaurantfinderhere;
+
+/**
+ * Reasons a PlaceSearchBackend can fail a search with
+ */
+public enum SearchFailure {
+    // The corridor polyline is too long or too complex for a single search request
+    POLYLINE_TOO_LONG,
+    // Any other error reported by the backend
+    OTHER
+}
@@ -0,0 +1,138 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * StartupTrace records the phases of the app start, from onCreate of the activity until the map accepts
+ * long presses. Phases may run on any thread and overlap, e.g. the engines are created on a background thread
+ * while the map scene loads. Every phase is also handed to the Tracer, on Android an async trace section
+ * shown by systrace and Perfetto.
+ *
+ * Unlike Metrics the trace is always on, it only records a handful of phases once per start.
+ */
+public class StartupTrace {
+
+    /**
+     * Receives the begin and end of every phase, cookie tells apart phases of the same name
+     * */
+    public interface Tracer {
+        void beginSection(String name, int cookie);
+
+        void endSection(String name, int cookie);
+    }
+
+    public static final Tracer NO_TRACER = new Tracer() {
+        @Override
+        public void beginSection(String name, int cookie) {
+        }
+
+        @Override
+        public void endSection(String name, int cookie) {
+        }
+    };
+
+    /**
+     * A running phase, ended once from any thread
+     * */
+    public final class Section {
+        private final String name;
+        private final int cookie;
+        private final long startNanos;
+        private boolean ended;
+
+        private Section(String name, int cookie, long startNanos) {
+            this.name = name;
+            this.cookie = cookie;
+            this.startNanos = startNanos;
+        }
+
+        public void end() {
+            long endNanos = System.nanoTime();
+            synchronized (StartupTrace.this) {
+                if (ended) {
+                    return;
+                }
+                ended = true;
+                durations.put(name, endNanos - startNanos);
+            }
+            tracer.endSection(name, cookie);
+        }
+    }
+
+    private final Tracer tracer;
+    private final long startNanos;
+    // phase -> duration, -1 while it is running, in the order the phases began
+    private final Map<String, Long> durations = new LinkedHashMap<>();
+    // milestone -> time since the start of the trace
+    private final Map<String, Long> marks = new LinkedHashMap<>();
+    private int nextCookie;
+
+    public StartupTrace(Tracer tracer) {
+        this.tracer = tracer;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Begins a phase, a phase of the same name begun again replaces the earlier one
+     * */
+    public Section begin(String phase) {
+        Section section;
+        synchronized (this) {
+            section = new Section(phase, nextCookie++, System.nanoTime());
+            durations.put(phase, -1L);
+        }
+        tracer.beginSection(phase, section.cookie);
+        return section;
+    }
+
+    /**
+     * Records the time since the start of the trace, only the first time a milestone is reached
+     * */
+    public void mark(String milestone) {
+        long nanos = System.nanoTime() - startNanos;
+        synchronized (this) {
+            if (!marks.containsKey(milestone)) {
+                marks.put(milestone, nanos);
+            }
+        }
+    }
+
+    /**
+     * Duration of a phase, -1 while it is running or when it never began
+     * */
+    public synchronized long getPhaseNanos(String phase) {
+        Long nanos = durations.get(phase);
+        return nanos == null ? -1 : nanos;
+    }
+
+    /**
+     * Time from the start of the trace to a milestone, -1 when it was not reached yet
+     * */
+    public synchronized long getMarkNanos(String milestone) {
+        Long nanos = marks.get(milestone);
+        return nanos == null ? -1 : nanos;
+    }
+
+    /**
+     * Phases and milestones in milliseconds, one per line
+     * */
+    public synchronized String dump() {
+        StringBuilder dump = new StringBuilder();
+        for (Map.Entry<String, Long> phase : durations.entrySet()) {
+            dump.append(phase.getKey()).append(": ");
+            if (phase.getValue() < 0) {
+                dump.append("running");
+            } else {
+                dump.append(String.format(Locale.US, "%.1f ms", phase.getValue() / 1e6));
+            }
+            dump.append('\n');
+        }
+        for (Map.Entry<String, Long> mark : marks.entrySet()) {
+            dump.append(mark.getKey()).append(String.format(Locale.US, " after %.1f ms", mark.getValue() / 1e6))
+                    .append('\n');
+        }
+        return dump.toString();
+    }
+}
@@ -0,0 +1,38 @@
+package com.abhistudio.restaurantfinderhere;
+
+/**
+ * ThreadGuard is a strict mode check for the route geometry: once a MainThreadChecker is installed,
+ * building route indices, simplifying polylines or filtering places on the main thread throws an
+ * IllegalStateException instead of silently blocking the UI.
+ *
+ * Nothing is installed by default, so the geometry classes can be used on any thread in tools and benchmarks.
+ */
+public final class ThreadGuard {
+
+    public interface MainThreadChecker {
+        boolean isMainThread();
+    }
+
+    private static volatile MainThreadChecker checker;
+
+    private ThreadGuard() {
+    }
+
+    public static void install(MainThreadChecker mainThreadChecker) {
+        checker = mainThreadChecker;
+    }
+
+    public static void uninstall() {
+        checker = null;
+    }
+
+    /**
+     * Throws when called on the main thread while a checker is installed, work names the geometry being run
+     * */
+    public static void assertNotMainThread(String work) {
+        MainThreadChecker current = checker;
+        if (current != null && current.isMainThread()) {
+            throw new IllegalStateException(work + " must not run on the main thread");
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.abhistudio.restaurantfinderhere;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * TileKey computes the quad keys of the web mercator tiles used to bucket cached places.
+ * A quad key of level n is a string of n digits, every digit selects one quadrant of the parent tile.
+ */
+public final class TileKey {
+
+    private static final double MAX_LATITUDE = 85.05112878;
+    private static final double METERS_PER_DEGREE = Math.PI / 180 * GeoMath.EARTH_RADIUS_IN_METERS;
+
+    private TileKey() {
+    }
+
+    /**
+     * Quad key of the tile of the given level containing the point
+     * */
+    public static String quadKey(double latitude, double longitude, int level) {
+        int tiles = 1 << level;
+        int tileX = tileX(longitude, tiles);
+        int tileY = tileY(latitude, tiles);
+        return quadKey(tileX, tileY, level);
+    }
+
+    /**
+     * Bounds of the tile of a quad key as {south, west, north, east} in degrees
+     * */
+    public static double[] bounds(String quadKey) {
+        int level = quadKey.length();
+        int tileX = 0;
+        int tileY = 0;
+        for (int i = 0; i < level; i++) {
+            int mask = 1 << (level - i - 1);
+            int digit = quadKey.charAt(i) - '0';
+            if ((digit & 1) != 0) {
+                tileX |= mask;
+            }
+            if ((digit & 2) != 0) {
+                tileY |= mask;
+            }
+        }
+        int tiles = 1 << level;
+        double west = tileX * 360.0 / tiles - 180;
+        double east = (tileX + 1) * 360.0 / tiles - 180;
+        double north = tileLatitude(tileY, tiles);
+        double south = tileLatitude(tileY + 1, tiles);
+        return new double[]{south, west, north, east};
+    }
+
+    /**
+     * The quad key as a base 4 number. Keys of the same level sort like the quad keys themselves,
+     * so the tiles of a parent tile form a contiguous range
+     * */
+    public static long cellKey(String quadKey) {
+        long key = 0;
+        for (int i = 0; i < quadKey.length(); i++) {
+            key = (key << 2) | (quadKey.charAt(i) - '0');
+        }
+        return key;
+    }
+
+    /**
+     * Quad keys of the tiles within halfWidthInMeters of the polyline, in order along the polyline.
+     * halfWidthInMeters is expected to be smaller than a tile.
+     * */
+    public static Set<String> coveringTiles(double[] latitudes, double[] longitudes, double halfWidthInMeters, int level) {
+        Set<String> tiles = new LinkedHashSet<>();
+        // sampling every half width keeps every point of the corridor within two half widths of a sample
+        double stepInMeters = Math.max(halfWidthInMeters, 50);
+        for (int i = 0; i < latitudes.length; i++) {
+            if (i + 1 == latitudes.length) {
+                addTilesAround(tiles, latitudes[i], longitudes[i], halfWidthInMeters, level);
+                break;
+            }
+            double length = GeoMath.haversine(latitudes[i], longitudes[i], latitudes[i + 1], longitudes[i + 1]);
+            int steps = Math.max(1, (int) Math.ceil(length / stepInMeters));
+            for (int step = 0; step < steps; step++) {
+                double t = (double) step / steps;
+                addTilesAround(tiles, latitudes[i] + t * (latitudes[i + 1] - latitudes[i]),
+                        longitudes[i] + t * (longitudes[i + 1] - longitudes[i]), 2 * halfWidthInMeters, level);
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Quad keys of the tiles overlapping the bounding box of a circle
+     * */
+    public static Set<String> coveringTiles(double latitude, double longitude, double radiusInMeters, int level) {
+        Set<String> tiles = new LinkedHashSet<>();
+        double dLatitude = radiusInMeters / METERS_PER_DEGREE;
+        double dLongitude = radiusInMeters / (METERS_PER_DEGREE * Math.max(Math.cos(Math.toRadians(latitude)), 0.01));
+        int count = 1 << level;
+        int minX = tileX(longitude - dLongitude, count);
+        int maxX = tileX(longitude + dLongitude, count);
+        int minY = tileY(latitude + dLatitude, count);
+        int maxY = tileY(latitude - dLatitude, count);
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                tiles.add(quadKey(x, y, level));
+            }
+        }
+        return tiles;
+    }
+
+    private static void addTilesAround(Set<String> tiles, double latitude, double longitude, double distanceInMeters, int level) {
+        double dLatitude = distanceInMeters / METERS_PER_DEGREE;
+        double dLongitude = distanceInMeters / (METERS_PER_DEGREE * Math.max(Math.cos(Math.toRadians(latitude)), 0.01));
+        tiles.add(quadKey(latitude, longitude, level));
+        tiles.add(quadKey(latitude - dLatitude, longitude - dLongitude, level));
+        tiles.add(quadKey(latitude - dLatitude, longitude + dLongitude, level));
+        tiles.add(quadKey(latitude + dLatitude, longitude - dLongitude, level));
+        tiles.add(quadKey(latitude + dLatitude, longitude + dLongitude, level));
+    }
+
+    private static String quadKey(int tileX, int tileY, int level) {
+        char[] digits = new char[level];
+        for (int i = level; i > 0; i--) {
+            int mask = 1 << (i - 1);
+            int digit = 0;
+            if ((tileX & mask) != 0) {
+                digit += 1;
+            }
+            if ((tileY & mask) != 0) {
+                digit += 2;
+            }
+            digits[level - i] = (char) ('0' + digit);
+        }
+        return new String(digits);
+    }
+
+    private static int tileX(double longitude, int tiles) {
+        double x = (longitude + 180) / 360;
+        return clamp((int) Math.floor(x * tiles), tiles);
+    }
+
+    private static int tileY(double latitude, int tiles) {
+        double sin = Math.sin(Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude))));
+        double y = 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+        return clamp((int) Math.floor(y * tiles), tiles);
+    }
+
+    private static double tileLatitude(int tileY, int tiles) {
+        double n = Math.PI - 2 * Math.PI * tileY / tiles;
+        return Math.toDegrees(Math.atan(Math.sinh(n)));
+    }
+
+    private static int clamp(int tile, int tiles) {
+        return Math.max(0, Math.min(tiles - 1, tile));
+    }
+}
@@ -0,0 +1,118 @@
+package com.abhistudio.restaurantfinderhere;
+
+/**
+ * ViewportCuller decides which results are materialised on the map: only the ones inside the visible area
+ * of the MapCamera plus a margin get a marker, and labels only from minLabelZoom on.
+ *
+ * The materialised region is the viewport grown by marginFraction of its size on every side. A camera move
+ * that keeps the viewport inside that region changes nothing, so most frames of a pan or a fling cost
+ * one bounds check. Only when the viewport leaves the region, the zoom level changes or labels switch
+ * on or off, a new region is taken and the results have to be culled again.
+ */
+public class ViewportCuller {
+
+    private final double marginFraction;
+    private final int minLabelZoom;
+
+    // the materialised region, everything is visible until the first viewport
+    private double south = -90;
+    private double west = -180;
+    private double north = 90;
+    private double east = 180;
+    private int zoom = -1;
+    private boolean labels = true;
+    private int regionCount;
+
+    /**
+     * Constructor for ViewportCuller
+     * marginFraction -> the materialised region extends this fraction of the viewport size beyond every edge
+     * minLabelZoom -> labels are hidden below this zoom level
+     * */
+    public ViewportCuller(double marginFraction, int minLabelZoom) {
+        this.marginFraction = marginFraction;
+        this.minLabelZoom = minLabelZoom;
+    }
+
+    /**
+     * Moves the viewport, returns true when a new region was taken and the results have to be culled again.
+     * A viewport crossing the antimeridian has west > east
+     * */
+    public boolean update(double viewSouth, double viewWest, double viewNorth, double viewEast, int viewZoom) {
+        boolean viewLabels = viewZoom >= minLabelZoom;
+        if (viewZoom == zoom && viewLabels == labels && regionCount > 0
+                && viewSouth >= south && viewNorth <= north
+                && containsLongitude(viewWest) && containsLongitude(viewEast)
+                && longitudeSpan(west, east) >= longitudeSpan(viewWest, viewEast)) {
+            return false;
+        }
+        double latitudeMargin = (viewNorth - viewSouth) * marginFraction;
+        double longitudeSpan = longitudeSpan(viewWest, viewEast);
+        double longitudeMargin = longitudeSpan * marginFraction;
+        south = Math.max(-90, viewSouth - latitudeMargin);
+        north = Math.min(90, viewNorth + latitudeMargin);
+        if (longitudeSpan + 2 * longitudeMargin >= 360) {
+            west = -180;
+            east = 180;
+        } else {
+            west = wrap(viewWest - longitudeMargin);
+            east = wrap(viewEast + longitudeMargin);
+        }
+        zoom = viewZoom;
+        labels = viewLabels;
+        regionCount++;
+        return true;
+    }
+
+    /**
+     * Shows everything again, for a camera whose visible area is unknown, e.g. looking at the horizon
+     * */
+    public boolean showAll(int viewZoom) {
+        boolean viewLabels = viewZoom >= minLabelZoom;
+        if (viewZoom == zoom && viewLabels == labels && south == -90 && north == 90 && west == -180 && east == 180) {
+            return false;
+        }
+        south = -90;
+        west = -180;
+        north = 90;
+        east = 180;
+        zoom = viewZoom;
+        labels = viewLabels;
+        regionCount++;
+        return true;
+    }
+
+    /**
+     * True when a result at the given position is inside the materialised region
+     * */
+    public boolean contains(double latitude, double longitude) {
+        return latitude >= south && latitude <= north && containsLongitude(longitude);
+    }
+
+    public boolean showsLabels() {
+        return labels;
+    }
+
+    /**
+     * No. of regions taken so far, i.e. how often the results had to be culled again
+     * */
+    public int getRegionCount() {
+        return regionCount;
+    }
+
+    private boolean containsLongitude(double longitude) {
+        return west <= east
+                ? longitude >= west && longitude <= east
+                : longitude >= west || longitude <= east;
+    }
+
+    private static double longitudeSpan(double west, double east) {
+        return west <= east ? east - west : east - west + 360;
+    }
+
+    private static double wrap(double longitude) {
+        if (longitude < -180) {
+            return longitude + 360;
+        }
+        return longitude > 180 ? longitude - 360 : longitude;
+    }
+}
@@ -0,0 +1,152 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for AdaptiveSearchController and the retries of a CorridorSearch using it.
+ */
+public class AdaptiveSearchControllerTest {
+
+    // Scheduler running the retries right away and recording their backoff
+    static class RecordingScheduler implements AdaptiveSearchController.Scheduler {
+        final List<Long> delays = new ArrayList<>();
+
+        @Override
+        public void schedule(Runnable task, long delayInMillis) {
+            delays.add(delayInMillis);
+            task.run();
+        }
+    }
+
+    // Route zigzagging around a straight line, simplifying it with a tolerance below 280 m keeps every vertex
+    private static RouteIndex zigzagRoute(int vertices) {
+        double[] latitudes = new double[vertices];
+        double[] longitudes = new double[vertices];
+        for (int i = 0; i < vertices; i++) {
+            latitudes[i] = 50.0 + i * 0.001;
+            longitudes[i] = 8.0 + (i % 2) * 0.004;
+        }
+        return new RouteIndex(latitudes, longitudes, 500);
+    }
+
+    @Test
+    public void plan_widensSparseRegionsAndSplitsDenseOnes() {
+        AdaptiveSearchController controller = new AdaptiveSearchController(2000, 10, 100,
+                AdaptiveSearchController.IMMEDIATE);
+
+        AdaptiveSearchController.ChunkPlan unknown = controller.plan(50.0, 8.0, 20000, 200, 30);
+        assertEquals(200, unknown.halfWidthInMeters, 0);
+        assertEquals(30, unknown.maxItems);
+        assertEquals(1, unknown.pieces);
+        assertTrue(Double.isNaN(controller.getDensity(50.0, 8.0)));
+
+        // 2 places along 20 km of a 200 m corridor, 0.25 places per square kilometer
+        controller.recordResult(50.0, 8.0, 20000, 200, 2, 30);
+        assertEquals(2 / 8.125, controller.getDensity(50.0, 8.0), 0.01);
+        AdaptiveSearchController.ChunkPlan sparse = controller.plan(50.0, 8.0, 20000, 200, 30);
+        assertEquals(1000, sparse.halfWidthInMeters, 20);
+        assertEquals(30, sparse.maxItems);
+        assertEquals(1, sparse.pieces);
+
+        // a saturated result in the city, more than 30 places per square kilometer
+        controller.recordResult(52.52, 13.40, 20000, 200, 100, 100);
+        AdaptiveSearchController.ChunkPlan dense = controller.plan(52.52, 13.40, 20000, 200, 30);
+        assertEquals(200, dense.halfWidthInMeters, 0);
+        assertEquals(100, dense.maxItems);
+        assertEquals(3, dense.pieces);
+    }
+
+    @Test
+    public void densities_areLearnedPerQuery() {
+        AdaptiveSearchController controller = new AdaptiveSearchController(2000, 10, 100,
+                AdaptiveSearchController.IMMEDIATE);
+        // "Aa" and "BB" have the same hash code
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+
+        controller.recordResult("Aa", 50.0, 8.0, 20000, 200, 2, 30);
+        assertEquals(2 / 8.125, controller.getDensity("Aa", 50.0, 8.0), 0.01);
+        assertTrue(Double.isNaN(controller.getDensity("BB", 50.0, 8.0)));
+        assertTrue(Double.isNaN(controller.getDensity(50.0, 8.0)));
+
+        controller.recordResult(50.0, 8.0, 20000, 200, 20, 30);
+        assertEquals(20 / 8.125, controller.getDensity(50.0, 8.0), 0.01);
+        assertEquals(2 / 8.125, controller.getDensity("Aa", 50.0, 8.0), 0.01);
+    }
+
+    @Test
+    public void backoff_doublesUntilTheLastAttempt() {
+        AdaptiveSearchController controller = new AdaptiveSearchController(2000, 10, 100,
+                AdaptiveSearchController.IMMEDIATE);
+        assertEquals(250, controller.backoffMillis(1));
+        assertEquals(500, controller.backoffMillis(2));
+        assertEquals(1000, controller.backoffMillis(3));
+        assertTrue(controller.canRetry(3));
+        assertFalse(controller.canRetry(4));
+        assertEquals(2000, controller.widenedHalfWidth(1500), 0);
+    }
+
+    @Test
+    public void polylineTooLong_recoveredBySimplifyingAndSplitting() {
+        for (RouteIndex routeIndex : new RouteIndex[]{CorridorPlannerTest.straightRoute(1001), zigzagRoute(1001)}) {
+            List<CorridorPlanner.Chunk> chunks = new CorridorPlanner(20000, 1000, 1000).plan(routeIndex);
+            FakePlaceSearchBackend backend = new FakePlaceSearchBackend(7, null).setMaxCorridorVertices(30);
+
+            CorridorSearchTest.RecordingListener failing = new CorridorSearchTest.RecordingListener();
+            new CorridorSearch(backend, 2).start(routeIndex, chunks, "restaurants", 200, 30,
+                    new PlaceMatchAssembler<PlaceRecord>(), failing);
+            assertEquals(chunks.size(), failing.failedChunks.size());
+
+            CorridorSearchTest.RecordingListener recovered = new CorridorSearchTest.RecordingListener();
+            new CorridorSearch(backend, 2, new java.util.concurrent.Executor() {
+                @Override
+                public void execute(Runnable runnable) {
+                    runnable.run();
+                }
+            }, new AdaptiveSearchController(2000, 10, 100, AdaptiveSearchController.IMMEDIATE))
+                    .start(routeIndex, chunks, "restaurants", 200, 30, new PlaceMatchAssembler<PlaceRecord>(), recovered);
+            assertTrue(recovered.failedChunks.isEmpty());
+            assertTrue(recovered.finishedMatches > 0);
+        }
+    }
+
+    @Test
+    public void otherFailures_retriedWithBackoff() {
+        RouteIndex routeIndex = CorridorPlannerTest.straightRoute(101);
+        List<CorridorPlanner.Chunk> chunks = new CorridorPlanner(20000, 1000, 1000).plan(routeIndex);
+        assertEquals(1, chunks.size());
+
+        // fails the first two requests, then finds one place
+        final int[] requests = {0};
+        PlaceSearchBackend flaky = new PlaceSearchBackend() {
+            @Override
+            public void search(SearchArea area, String query, int maxItems, Callback callback) {
+                if (++requests[0] <= 2) {
+                    callback.onSearchCompleted(SearchFailure.OTHER, null);
+                } else {
+                    callback.onSearchCompleted(null,
+                            Collections.singletonList(new PlaceRecord("a", "a", 50.05, 8.0)));
+                }
+            }
+        };
+        RecordingScheduler scheduler = new RecordingScheduler();
+        CorridorSearchTest.RecordingListener listener = new CorridorSearchTest.RecordingListener();
+        new CorridorSearch(flaky, 1, new java.util.concurrent.Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                runnable.run();
+            }
+        }, new AdaptiveSearchController(2000, 10, 100, scheduler))
+                .start(routeIndex, chunks, "restaurants", 200, 30, new PlaceMatchAssembler<PlaceRecord>(), listener);
+
+        assertEquals(3, requests[0]);
+        assertEquals(java.util.Arrays.asList(250L, 500L), scheduler.delays);
+        assertEquals(java.util.Arrays.asList("0:a"), listener.found);
+        assertTrue(listener.failedChunks.isEmpty());
+    }
+}
@@ -0,0 +1,128 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for BatchRouteSearch.
+ */
+public class BatchRouteSearchTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    // about 11 km to the north, starting at the given longitude
+    private static RouteRecord route(double longitude) {
+        double[] latitudes = new double[101];
+        double[] longitudes = new double[101];
+        for (int i = 0; i < latitudes.length; i++) {
+            latitudes[i] = 50.0 + i * 0.001;
+            longitudes[i] = longitude;
+        }
+        return new RouteRecord(latitudes, longitudes, new double[0], new double[0], Collections.<String>emptyList());
+    }
+
+    private RouteSearchEngine engine(PlaceSearchBackend backend) {
+        return new RouteSearchEngine(backend, 2, pool, null, 8);
+    }
+
+    /**
+     * ResultWriter keeping the places of every trip by its id
+     * */
+    private static class CollectingWriter implements BatchRouteSearch.ResultWriter {
+        final Map<String, List<PlaceRanker.RankedPlace<PlaceRecord>>> results = new HashMap<>();
+
+        @Override
+        public void write(BatchRouteSearch.Trip trip, List<PlaceRanker.RankedPlace<PlaceRecord>> places,
+                          int failedChunks) {
+            assertNull(results.put(trip.id, places));
+        }
+    }
+
+    @Test
+    public void run_searchesEveryTripOnThePool() throws Exception {
+        List<BatchRouteSearch.Trip> trips = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            trips.add(new BatchRouteSearch.Trip("trip-" + i, route(8.0 + (i % 5) * 0.1)));
+        }
+        CollectingWriter writer = new CollectingWriter();
+        BatchRouteSearch.Summary summary = new BatchRouteSearch(engine(new FakePlaceSearchBackend(1, null)), pool,
+                "restaurants", 3, 10, writer).run(trips.iterator());
+
+        assertEquals(20, summary.tripCount);
+        assertEquals(0, summary.failedTripCount);
+        assertEquals(0, summary.failedChunkCount);
+        assertEquals(20, writer.results.size());
+        int placeCount = 0;
+        for (List<PlaceRanker.RankedPlace<PlaceRecord>> places : writer.results.values()) {
+            assertFalse(places.isEmpty());
+            assertTrue(places.size() <= 10);
+            placeCount += places.size();
+        }
+        assertEquals(placeCount, summary.placeCount);
+        // trips on the same route find the same places
+        assertEquals(ids(writer.results.get("trip-0")), ids(writer.results.get("trip-5")));
+    }
+
+    @Test
+    public void prepare_sharesIdenticalRoutes() {
+        RouteSearchEngine engine = engine(new FakePlaceSearchBackend(1, null));
+        PreparedRoute first = engine.prepare(route(8.0));
+        assertSame(first, engine.prepare(route(8.0)));
+        assertNotSame(first, engine.prepare(route(8.1)));
+    }
+
+    @Test
+    public void run_skipsTripsWithoutRoute() throws Exception {
+        RouteRecord empty = new RouteRecord(new double[0], new double[0], new double[0], new double[0],
+                Collections.<String>emptyList());
+        List<BatchRouteSearch.Trip> trips = new ArrayList<>();
+        trips.add(new BatchRouteSearch.Trip("empty", empty));
+        trips.add(new BatchRouteSearch.Trip("trip", route(8.0)));
+        CollectingWriter writer = new CollectingWriter();
+        BatchRouteSearch.Summary summary = new BatchRouteSearch(engine(new FakePlaceSearchBackend(1, null)), pool,
+                "restaurants", 2, 10, writer).run(trips.iterator());
+
+        assertEquals(2, summary.tripCount);
+        assertEquals(1, summary.failedTripCount);
+        assertEquals(Collections.singleton("trip"), writer.results.keySet());
+    }
+
+    @Test(expected = IOException.class)
+    public void run_throwsTheErrorOfTheWriter() throws Exception {
+        List<BatchRouteSearch.Trip> trips = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            trips.add(new BatchRouteSearch.Trip("trip-" + i, route(8.0)));
+        }
+        new BatchRouteSearch(engine(new FakePlaceSearchBackend(1, null)), pool, "restaurants", 2, 10,
+                new BatchRouteSearch.ResultWriter() {
+                    @Override
+                    public void write(BatchRouteSearch.Trip trip, List<PlaceRanker.RankedPlace<PlaceRecord>> places,
+                                      int failedChunks) throws IOException {
+                        throw new IOException("disk full");
+                    }
+                }).run(trips.iterator());
+    }
+
+    private static List<String> ids(List<PlaceRanker.RankedPlace<PlaceRecord>> places) {
+        List<String> ids = new ArrayList<>();
+        for (PlaceRanker.RankedPlace<PlaceRecord> place : places) {
+            ids.add(place.match.place.id);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,201 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for CachingPlaceSearchBackend with a fake search backend.
+ */
+public class CachingPlaceSearchBackendTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Fake backend returning one place in the center of every searched circle
+    static class FakeBackend implements PlaceSearchBackend {
+        int searchCount;
+        SearchFailure failure;
+
+        @Override
+        public void search(SearchArea area, String query, int maxItems, Callback callback) {
+            searchCount++;
+            if (failure != null) {
+                callback.onSearchCompleted(failure, null);
+                return;
+            }
+            List<PlaceRecord> places = new ArrayList<>();
+            places.add(new PlaceRecord(area.centerLatitude + "," + area.centerLongitude, query,
+                    area.centerLatitude, area.centerLongitude));
+            callback.onSearchCompleted(null, places);
+        }
+    }
+
+    static class Result implements PlaceSearchBackend.Callback {
+        SearchFailure failure;
+        List<PlaceRecord> places;
+        int calls;
+
+        @Override
+        public void onSearchCompleted(SearchFailure failure, List<PlaceRecord> places) {
+            this.failure = failure;
+            this.places = places;
+            calls++;
+        }
+    }
+
+    private static final SearchArea CORRIDOR = SearchArea.corridor(
+            new double[]{52.50, 52.55}, new double[]{13.40, 13.40}, 200);
+
+    @Test
+    public void repeatedSearch_isServedFromCache() throws Exception {
+        FakeBackend fake = new FakeBackend();
+        PlaceTileCache cache = new PlaceTileCache(folder.newFolder(), 60000, 1 << 20, PlaceTileCache.SYSTEM_CLOCK);
+        CachingPlaceSearchBackend backend = new CachingPlaceSearchBackend(fake, cache, 14, 50, 4);
+
+        Result first = new Result();
+        backend.search(CORRIDOR, "restaurants", 30, first);
+        assertNull(first.failure);
+        int tiles = fake.searchCount;
+        assertTrue(tiles > 1);
+        assertEquals(tiles, first.places.size());
+        assertEquals(tiles, cache.getEntryCount());
+
+        Result second = new Result();
+        backend.search(CORRIDOR, "restaurants", 30, second);
+        assertEquals(tiles, fake.searchCount);
+        assertEquals(tiles, second.places.size());
+
+        // a different query is cached separately
+        backend.search(CORRIDOR, "fuel", 30, new Result());
+        assertEquals(2 * tiles, fake.searchCount);
+    }
+
+    @Test
+    public void failedTiles_areNotCached() throws Exception {
+        FakeBackend fake = new FakeBackend();
+        fake.failure = SearchFailure.OTHER;
+        PlaceTileCache cache = new PlaceTileCache(folder.newFolder(), 60000, 1 << 20, PlaceTileCache.SYSTEM_CLOCK);
+        CachingPlaceSearchBackend backend = new CachingPlaceSearchBackend(fake, cache, 14, 50, 4);
+
+        Result result = new Result();
+        backend.search(CORRIDOR, "restaurants", 30, result);
+        assertEquals(1, result.calls);
+        assertEquals(SearchFailure.OTHER, result.failure);
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    public void concurrentSearches_shareTileRequests() throws Exception {
+        final List<PlaceSearchBackend.Callback> pending = new ArrayList<>();
+        PlaceSearchBackend deferred = new PlaceSearchBackend() {
+            @Override
+            public void search(SearchArea area, String query, int maxItems, Callback callback) {
+                pending.add(callback);
+            }
+        };
+        PlaceTileCache cache = new PlaceTileCache(folder.newFolder(), 60000, 1 << 20, PlaceTileCache.SYSTEM_CLOCK);
+        CachingPlaceSearchBackend backend = new CachingPlaceSearchBackend(deferred, cache, 14, 50, 100);
+        SearchArea point = SearchArea.circle(52.52, 13.405, 10);
+
+        Result first = new Result();
+        Result second = new Result();
+        backend.search(point, "restaurants", 30, first);
+        backend.search(point, "restaurants", 30, second);
+        assertEquals(1, pending.size());
+        assertEquals(1, backend.getTileRequestCount());
+
+        pending.get(0).onSearchCompleted(null, new ArrayList<PlaceRecord>());
+        assertEquals(1, first.calls);
+        assertEquals(1, second.calls);
+    }
+
+    // Backend returning a grid of places about 100 m apart in the searched circle, at most maxItems of them
+    static class DenseBackend implements PlaceSearchBackend {
+        int searchCount;
+
+        @Override
+        public void search(SearchArea area, String query, int maxItems, Callback callback) {
+            searchCount++;
+            List<PlaceRecord> places = new ArrayList<>();
+            for (int x = -15; x <= 15 && places.size() < maxItems; x++) {
+                for (int y = -15; y <= 15 && places.size() < maxItems; y++) {
+                    double latitude = area.centerLatitude + y * 0.0009;
+                    double longitude = area.centerLongitude + x * 0.0015;
+                    if (GeoMath.haversine(area.centerLatitude, area.centerLongitude, latitude, longitude)
+                            <= area.sizeInMeters) {
+                        places.add(new PlaceRecord(latitude + "," + longitude, query, latitude, longitude));
+                    }
+                }
+            }
+            callback.onSearchCompleted(null, places);
+        }
+    }
+
+    @Test
+    public void saturatedTile_isSplitAndCachedOnceComplete() throws Exception {
+        DenseBackend dense = new DenseBackend();
+        PlaceTileCache cache = new PlaceTileCache(folder.newFolder(), 60000, 1 << 20, PlaceTileCache.SYSTEM_CLOCK);
+        // the circle around a level 14 tile holds about 350 places of the grid, the one around a quarter about 90
+        CachingPlaceSearchBackend backend = new CachingPlaceSearchBackend(dense, cache, 14, 100, 4);
+        SearchArea point = SearchArea.circle(52.52, 13.405, 10);
+
+        Result result = new Result();
+        backend.search(point, "restaurants", 30, result);
+        assertNull(result.failure);
+        assertEquals(1 + 4, dense.searchCount);
+        assertTrue(result.places.size() > 100);
+        assertEquals(1, cache.getEntryCount());
+    }
+
+    @Test
+    public void tileSaturatedAtTheDeepestLevel_isNotCached() throws Exception {
+        DenseBackend dense = new DenseBackend();
+        PlaceTileCache cache = new PlaceTileCache(folder.newFolder(), 60000, 1 << 20, PlaceTileCache.SYSTEM_CLOCK);
+        CachingPlaceSearchBackend backend = new CachingPlaceSearchBackend(dense, cache, 14, 5, 4);
+        SearchArea point = SearchArea.circle(52.52, 13.405, 10);
+
+        Result result = new Result();
+        backend.search(point, "restaurants", 30, result);
+        assertNull(result.failure);
+        assertEquals(1 + 4 + 16, dense.searchCount);
+        assertNotNull(result.places);
+        assertEquals(0, cache.getEntryCount());
+
+        // the partial tile is searched again next time
+        backend.search(point, "restaurants", 30, new Result());
+        assertEquals(2 * 21, dense.searchCount);
+    }
+
+    @Test
+    public void cache_isOnlyUsedOnTheIoExecutor() throws Exception {
+        final List<Runnable> io = new ArrayList<>();
+        Executor ioExecutor = new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                io.add(runnable);
+            }
+        };
+        FakeBackend fake = new FakeBackend();
+        PlaceTileCache cache = new PlaceTileCache(folder.newFolder(), 60000, 1 << 20, PlaceTileCache.SYSTEM_CLOCK);
+        CachingPlaceSearchBackend backend = new CachingPlaceSearchBackend(fake, cache, 14, 50, 4, ioExecutor);
+
+        Result result = new Result();
+        backend.search(CORRIDOR, "restaurants", 30, result);
+        assertEquals(0, cache.getMissCount());
+        assertEquals(0, fake.searchCount);
+        // the tiles are looked up, the delegate answers right away and the tiles are written
+        while (!io.isEmpty()) {
+            io.remove(0).run();
+        }
+        assertEquals(1, result.calls);
+        assertEquals(fake.searchCount, cache.getMissCount());
+        assertEquals(fake.searchCount, cache.getEntryCount());
+    }
+}
@@ -0,0 +1,254 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for ComputeExecutor and ThreadGuard, with a single thread executor standing in for the main thread.
+ * The ThreadGuard is installed for every test, so any route geometry run on that thread fails the test.
+ */
+public class ComputeExecutorTest {
+
+    private ExecutorService mainExecutor;
+    private volatile Thread mainThread;
+    private ComputeExecutor computeExecutor;
+    private final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+    private final CountDownLatch failed = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws Exception {
+        mainExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                mainThread = new Thread(runnable, "main-test");
+                return mainThread;
+            }
+        });
+        onMain(new Callable<Void>() {
+            @Override
+            public Void call() {
+                return null;
+            }
+        });
+        ThreadGuard.install(new ThreadGuard.MainThreadChecker() {
+            @Override
+            public boolean isMainThread() {
+                return Thread.currentThread() == mainThread;
+            }
+        });
+        computeExecutor = new ComputeExecutor(2, new ComputeExecutor.MainThread() {
+            @Override
+            public void post(Runnable runnable) {
+                mainExecutor.execute(runnable);
+            }
+        }, new ComputeExecutor.FailureHandler() {
+            @Override
+            public void onTaskFailed(RuntimeException error) {
+                failures.add(error.getMessage());
+                failed.countDown();
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        ThreadGuard.uninstall();
+        computeExecutor.shutdown();
+        mainExecutor.shutdownNow();
+    }
+
+    @Test
+    public void geometryOnTheMainThread_fails() throws Exception {
+        try {
+            onMain(new Callable<RouteIndex>() {
+                @Override
+                public RouteIndex call() {
+                    return CorridorPlannerTest.straightRoute(100);
+                }
+            });
+            fail("building a route index on the main thread must fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void task_runsOnAWorkerAndDeliversOnTheMainThread() throws Exception {
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch delivered = new CountDownLatch(1);
+        computeExecutor.submit(computeExecutor.newToken(), new ComputeExecutor.Task<RouteIndex>() {
+            @Override
+            public RouteIndex compute(CancellationToken token) {
+                events.add("compute on main: " + (Thread.currentThread() == mainThread));
+                RouteIndex routeIndex = CorridorPlannerTest.straightRoute(1001);
+                new CorridorPlanner(20000, 1000, 300).plan(routeIndex);
+                return routeIndex;
+            }
+        }, new ComputeExecutor.Callback<RouteIndex>() {
+            @Override
+            public void onResult(RouteIndex result) {
+                events.add("result on main: " + (Thread.currentThread() == mainThread));
+                delivered.countDown();
+            }
+        });
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(2, events.size());
+        assertEquals("compute on main: false", events.get(0));
+        assertEquals("result on main: true", events.get(1));
+    }
+
+    @Test
+    public void cancelAll_dropsTheResultsOfEarlierTokens() throws Exception {
+        final CountDownLatch computing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> results = Collections.synchronizedList(new ArrayList<String>());
+        final CancellationToken token = computeExecutor.newToken();
+        computeExecutor.submit(token, new ComputeExecutor.Task<String>() {
+            @Override
+            public String compute(CancellationToken token) {
+                computing.countDown();
+                await(release);
+                return "old route";
+            }
+        }, new ComputeExecutor.Callback<String>() {
+            @Override
+            public void onResult(String result) {
+                results.add(result);
+            }
+        });
+
+        assertTrue(computing.await(5, TimeUnit.SECONDS));
+        computeExecutor.cancelAll();
+        assertTrue(token.isCancelled());
+        release.countDown();
+
+        final CountDownLatch delivered = new CountDownLatch(1);
+        CancellationToken newToken = computeExecutor.newToken();
+        assertFalse(newToken.isCancelled());
+        computeExecutor.submit(newToken, new ComputeExecutor.Task<String>() {
+            @Override
+            public String compute(CancellationToken token) {
+                return "new route";
+            }
+        }, new ComputeExecutor.Callback<String>() {
+            @Override
+            public void onResult(String result) {
+                results.add(result);
+                delivered.countDown();
+            }
+        });
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        // let a late delivery of the old route reach the main thread before checking
+        onMain(new Callable<Void>() {
+            @Override
+            public Void call() {
+                return null;
+            }
+        });
+        assertEquals(Collections.singletonList("new route"), results);
+    }
+
+    @Test
+    public void shutdown_cancelsAllTokens() {
+        CancellationToken token = computeExecutor.newToken();
+        computeExecutor.shutdown();
+        assertTrue(token.isCancelled());
+        computeExecutor.cancelAll();
+        assertTrue(computeExecutor.newToken().isCancelled());
+    }
+
+    @Test
+    public void tokens_areCancelledOnTheirOwnAndWithTheirGeneration() {
+        CancellationToken first = computeExecutor.newToken();
+        CancellationToken second = computeExecutor.newToken();
+        first.cancel();
+        assertTrue(first.isCancelled());
+        assertFalse(second.isCancelled());
+        computeExecutor.cancelAll();
+        assertTrue(second.isCancelled());
+    }
+
+    @Test
+    public void busyWorkers_queueTheTasksInsteadOfRejectingThem() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final int tasks = 2 + 100;
+        final CountDownLatch ran = new CountDownLatch(tasks);
+        for (int i = 0; i < tasks; i++) {
+            computeExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    await(release);
+                    ran.countDown();
+                }
+            });
+        }
+        release.countDown();
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void failingTask_isReportedAndTheQueuedTasksStillRun() throws Exception {
+        final List<String> results = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch delivered = new CountDownLatch(10);
+        for (int i = 0; i < 11; i++) {
+            final int task = i;
+            computeExecutor.submit(computeExecutor.newToken(), new ComputeExecutor.Task<String>() {
+                @Override
+                public String compute(CancellationToken token) {
+                    if (task == 0) {
+                        throw new IllegalArgumentException("broken route");
+                    }
+                    return "route " + task;
+                }
+            }, new ComputeExecutor.Callback<String>() {
+                @Override
+                public void onResult(String result) {
+                    results.add(result);
+                    delivered.countDown();
+                }
+            });
+        }
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        assertEquals(10, results.size());
+        assertEquals(Collections.singletonList("broken route"), failures);
+    }
+
+    @Test
+    public void afterShutdown_tasksAreDropped() {
+        computeExecutor.shutdown();
+        computeExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                fail("No task runs after shutdown");
+            }
+        });
+    }
+
+    private <T> T onMain(Callable<T> callable) throws Exception {
+        return mainExecutor.submit(callable).get(5, TimeUnit.SECONDS);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for CorridorPlanner.
+ */
+public class CorridorPlannerTest {
+
+    // Route going north with a vertex about every 111 meters, about 111 km long
+    static RouteIndex straightRoute(int vertices) {
+        double[] latitudes = new double[vertices];
+        double[] longitudes = new double[vertices];
+        for (int i = 0; i < vertices; i++) {
+            latitudes[i] = 50.0 + i * 0.001;
+            longitudes[i] = 8.0;
+        }
+        return new RouteIndex(latitudes, longitudes, 500);
+    }
+
+    @Test
+    public void chunks_coverRouteWithOverlap() {
+        RouteIndex routeIndex = straightRoute(1001);
+        List<CorridorPlanner.Chunk> chunks = new CorridorPlanner(20000, 1000, 1000).plan(routeIndex);
+
+        assertEquals(0, chunks.get(0).startVertex);
+        assertEquals(1000, chunks.get(chunks.size() - 1).endVertex);
+        for (int i = 0; i < chunks.size(); i++) {
+            CorridorPlanner.Chunk chunk = chunks.get(i);
+            assertEquals(i, chunk.index);
+            assertTrue(chunk.endOffsetInMeters - chunk.startOffsetInMeters <= 20000 + 112);
+            if (i > 0) {
+                double overlap = chunks.get(i - 1).endOffsetInMeters - chunk.startOffsetInMeters;
+                assertTrue(overlap >= 1000);
+                assertTrue(overlap < 1000 + 112);
+            }
+        }
+    }
+
+    @Test
+    public void chunks_respectMaxVertices() {
+        RouteIndex routeIndex = straightRoute(1001);
+        List<CorridorPlanner.Chunk> chunks = new CorridorPlanner(200000, 1000, 50).plan(routeIndex);
+
+        assertTrue(chunks.size() > 20);
+        for (CorridorPlanner.Chunk chunk : chunks) {
+            assertTrue(chunk.getVertexCount() <= 50);
+        }
+        assertEquals(1000, chunks.get(chunks.size() - 1).endVertex);
+    }
+
+    @Test
+    public void shortRoute_isOneChunk() {
+        RouteIndex routeIndex = straightRoute(10);
+        List<CorridorPlanner.Chunk> chunks = new CorridorPlanner(20000, 1000, 300).plan(routeIndex);
+
+        assertEquals(1, chunks.size());
+        assertEquals(10, chunks.get(0).getVertexCount());
+        SearchArea area = chunks.get(0).toSearchArea(routeIndex, 200);
+        assertTrue(area.isCorridor());
+        assertEquals(10, area.latitudes.length);
+        assertEquals(200, area.sizeInMeters, 0);
+    }
+
+    @Test
+    public void singleVertexRoute_hasNoChunks() {
+        assertTrue(new CorridorPlanner(20000, 1000, 300).plan(straightRoute(1)).isEmpty());
+    }
+}
@@ -0,0 +1,121 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for CorridorSearch and InFlightLimiter, using a backend that completes on demand.
+ */
+public class CorridorSearchTest {
+
+    // Backend keeping the callbacks until the test completes them
+    static class DeferredBackend implements PlaceSearchBackend {
+        final List<Callback> callbacks = new ArrayList<>();
+        final List<SearchArea> areas = new ArrayList<>();
+        int maxInFlight;
+        int completed;
+
+        @Override
+        public void search(SearchArea area, String query, int maxItems, Callback callback) {
+            areas.add(area);
+            callbacks.add(callback);
+            maxInFlight = Math.max(maxInFlight, pending());
+        }
+
+        int pending() {
+            return callbacks.size() - completed;
+        }
+
+        void complete(int request, SearchFailure failure, PlaceRecord... places) {
+            completed++;
+            callbacks.get(request).onSearchCompleted(failure, failure == null ? Arrays.asList(places) : null);
+        }
+    }
+
+    static class RecordingListener implements CorridorSearch.Listener {
+        final List<String> found = new ArrayList<>();
+        final List<Integer> failedChunks = new ArrayList<>();
+        int finishedMatches = -1;
+        int finishedDuplicates = -1;
+
+        @Override
+        public void onPlacesFound(CorridorPlanner.Chunk chunk, List<PlaceMatchAssembler.Match<PlaceRecord>> matches) {
+            for (PlaceMatchAssembler.Match<PlaceRecord> match : matches) {
+                found.add(chunk.index + ":" + match.id);
+            }
+        }
+
+        @Override
+        public void onChunkFailed(CorridorPlanner.Chunk chunk, SearchFailure failure) {
+            failedChunks.add(chunk.index);
+        }
+
+        @Override
+        public void onSearchFinished(int matchCount, int duplicatesAvoided) {
+            finishedMatches = matchCount;
+            finishedDuplicates = duplicatesAvoided;
+        }
+    }
+
+    private static PlaceRecord place(String id, double latitude, double longitude) {
+        return new PlaceRecord(id, id, latitude, longitude);
+    }
+
+    @Test
+    public void chunks_runWithBoundedInFlightAndStreamDedupedResults() {
+        RouteIndex routeIndex = CorridorPlannerTest.straightRoute(1001);
+        List<CorridorPlanner.Chunk> chunks = new CorridorPlanner(20000, 1000, 1000).plan(routeIndex);
+        assertEquals(6, chunks.size());
+
+        DeferredBackend backend = new DeferredBackend();
+        RecordingListener listener = new RecordingListener();
+        new CorridorSearch(backend, 2).start(routeIndex, chunks, "restaurants", 200, 30,
+                new PlaceMatchAssembler<PlaceRecord>(), listener);
+
+        assertEquals(2, backend.pending());
+
+        // chunk 1 completes first and its places stream out right away
+        backend.complete(1, null, place("a", 50.19, 8.0), place("far", 50.19, 8.1));
+        assertEquals(Arrays.asList("1:a"), listener.found);
+        assertEquals(2, backend.pending());
+
+        // the same place found again by the overlapping chunk 0 is not reported twice
+        backend.complete(0, null, place("a", 50.19, 8.0), place("b", 50.01, 8.0));
+        assertEquals(Arrays.asList("1:a", "0:b"), listener.found);
+
+        backend.complete(2, SearchFailure.POLYLINE_TOO_LONG);
+        backend.complete(3, null);
+        backend.complete(4, null);
+        assertEquals(-1, listener.finishedMatches);
+        backend.complete(5, null, place("c", 50.99, 8.0));
+
+        assertEquals(2, backend.maxInFlight);
+        assertEquals(Arrays.asList(2), listener.failedChunks);
+        assertEquals(3, listener.finishedMatches);
+        assertEquals(1, listener.finishedDuplicates);
+    }
+
+    @Test
+    public void cancelledSession_ignoresLateResultsAndQueuedChunks() {
+        RouteIndex routeIndex = CorridorPlannerTest.straightRoute(1001);
+        List<CorridorPlanner.Chunk> chunks = new CorridorPlanner(20000, 1000, 1000).plan(routeIndex);
+
+        DeferredBackend backend = new DeferredBackend();
+        RecordingListener listener = new RecordingListener();
+        CorridorSearch.Session session = new CorridorSearch(backend, 2).start(routeIndex, chunks, "restaurants",
+                200, 30, new PlaceMatchAssembler<PlaceRecord>(), listener);
+        session.cancel();
+
+        backend.complete(0, null, place("b", 50.01, 8.0));
+        backend.complete(1, null, place("a", 50.19, 8.0));
+
+        assertTrue(listener.found.isEmpty());
+        assertEquals(2, backend.callbacks.size());
+        assertEquals(-1, listener.finishedMatches);
+    }
+}
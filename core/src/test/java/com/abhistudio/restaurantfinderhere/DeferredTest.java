@@ -0,0 +1,172 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for Deferred, DeferredRouteBackend and DeferredPlaceSearchBackend.
+ */
+public class DeferredTest {
+
+    // Executor keeping the tasks until they are run, like the main thread queue
+    private static class QueueExecutor implements Executor {
+        final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable runnable) {
+            tasks.add(runnable);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+    }
+
+    private static class RecordingConsumer implements Deferred.Consumer<String> {
+        final List<String> values;
+        final String name;
+
+        RecordingConsumer(List<String> values, String name) {
+            this.values = values;
+            this.name = name;
+        }
+
+        @Override
+        public void accept(String value) {
+            values.add(name + ":" + value);
+        }
+    }
+
+    @Test
+    public void workBeforeTheValue_runsInOrderOnTheCallbackExecutor() {
+        QueueExecutor mainThread = new QueueExecutor();
+        final List<String> values = new ArrayList<>();
+        Deferred<String> deferred = new Deferred<>(mainThread);
+        deferred.whenReady(new RecordingConsumer(values, "first"));
+        deferred.whenReady(new RecordingConsumer(values, "second"));
+        assertEquals(2, deferred.getWaitingCount());
+
+        deferred.set("engine");
+        // not before the main thread runs
+        assertTrue(values.isEmpty());
+        assertFalse(deferred.isReady());
+        // handed over before the queue ran, queued behind it
+        deferred.whenReady(new RecordingConsumer(values, "third"));
+
+        mainThread.runAll();
+        assertEquals(Arrays.asList("first:engine", "second:engine", "third:engine"), values);
+        assertTrue(deferred.isReady());
+
+        // right away once ready
+        deferred.whenReady(new RecordingConsumer(values, "fourth"));
+        assertEquals("fourth:engine", values.get(3));
+        assertTrue(mainThread.tasks.isEmpty());
+    }
+
+    @Test
+    public void factory_runsOnTheExecutor() {
+        QueueExecutor startupThread = new QueueExecutor();
+        QueueExecutor mainThread = new QueueExecutor();
+        final int[] created = {0};
+        Deferred<String> deferred = Deferred.create(startupThread, mainThread, new Deferred.Factory<String>() {
+            @Override
+            public String create() {
+                created[0]++;
+                return "engine";
+            }
+        });
+        assertEquals(0, created[0]);
+
+        startupThread.runAll();
+        mainThread.runAll();
+        assertEquals(1, created[0]);
+        assertTrue(deferred.isReady());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void value_canOnlyBeSetOnce() {
+        Deferred<String> deferred = new Deferred<>(new QueueExecutor());
+        deferred.set("a");
+        deferred.set("b");
+    }
+
+    @Test
+    public void backends_waitForTheDeferredBackend() {
+        QueueExecutor mainThread = new QueueExecutor();
+        Deferred<RouteBackend> routeBackend = new Deferred<>(mainThread);
+        Deferred<PlaceSearchBackend> placeSearchBackend = new Deferred<>(mainThread);
+        final List<RouteRecord> routes = new ArrayList<>();
+        final List<List<PlaceRecord>> results = new ArrayList<>();
+
+        new DeferredRouteBackend(routeBackend).calculateRoute(new double[]{52.5, 52.6}, new double[]{13.4, 13.5},
+                new RouteBackend.Callback() {
+                    @Override
+                    public void onRouteCalculated(String error, RouteRecord route) {
+                        assertNull(error);
+                        routes.add(route);
+                    }
+                });
+        new DeferredPlaceSearchBackend(placeSearchBackend).search(SearchArea.circle(52.5, 13.4, 1000), "restaurants",
+                10, new PlaceSearchBackend.Callback() {
+                    @Override
+                    public void onSearchCompleted(SearchFailure failure, List<PlaceRecord> places) {
+                        assertNull(failure);
+                        results.add(places);
+                    }
+                });
+        assertTrue(routes.isEmpty());
+        assertTrue(results.isEmpty());
+
+        routeBackend.set(new RouteBackend() {
+            @Override
+            public Cancellable calculateRoute(double[] waypointLatitudes, double[] waypointLongitudes, Callback callback) {
+                callback.onRouteCalculated(null, new RouteRecord(waypointLatitudes, waypointLongitudes,
+                        new double[0], new double[0], Collections.<String>emptyList()));
+                return new CancellationToken();
+            }
+        });
+        placeSearchBackend.set(new PlaceSearchBackend() {
+            @Override
+            public void search(SearchArea area, String query, int maxItems, Callback callback) {
+                callback.onSearchCompleted(null, Collections.singletonList(
+                        new PlaceRecord("p", "Place", area.centerLatitude, area.centerLongitude)));
+            }
+        });
+        mainThread.runAll();
+        assertEquals(2, routes.get(0).latitudes.length);
+        assertEquals("p", results.get(0).get(0).id);
+    }
+
+    @Test
+    public void routeBackend_cancelledBeforeReady_neverCalculates() {
+        QueueExecutor mainThread = new QueueExecutor();
+        Deferred<RouteBackend> routeBackend = new Deferred<>(mainThread);
+        FakeRouteBackend fake = new FakeRouteBackend(1, null);
+        final List<RouteRecord> routes = new ArrayList<>();
+        RouteBackend.Callback callback = new RouteBackend.Callback() {
+            @Override
+            public void onRouteCalculated(String error, RouteRecord route) {
+                routes.add(route);
+            }
+        };
+
+        DeferredRouteBackend deferred = new DeferredRouteBackend(routeBackend);
+        Cancellable cancelled = deferred.calculateRoute(new double[]{52.5, 52.6}, new double[]{13.4, 13.5}, callback);
+        deferred.calculateRoute(new double[]{52.5, 52.7}, new double[]{13.4, 13.5}, callback);
+        cancelled.cancel();
+        routeBackend.set(fake);
+        mainThread.runAll();
+
+        assertEquals(1, fake.getRouteCount());
+        assertEquals(1, routes.size());
+    }
+}
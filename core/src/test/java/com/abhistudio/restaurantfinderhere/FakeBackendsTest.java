@@ -0,0 +1,131 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for FakeRouteBackend and FakePlaceSearchBackend, and the search pipeline running on them.
+ */
+public class FakeBackendsTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private static RouteRecord calculate(FakeRouteBackend backend, double[] latitudes, double[] longitudes) {
+        final RouteRecord[] result = new RouteRecord[1];
+        backend.calculateRoute(latitudes, longitudes, new RouteBackend.Callback() {
+            @Override
+            public void onRouteCalculated(String error, RouteRecord route) {
+                assertNull(error);
+                result[0] = route;
+            }
+        });
+        return result[0];
+    }
+
+    @Test
+    public void route_isDenseDeterministicAndEndsAtTheWaypoints() {
+        double[] latitudes = {52.52, 52.40, 52.10};
+        double[] longitudes = {13.40, 13.20, 13.60};
+        RouteRecord route = calculate(new FakeRouteBackend(1, null), latitudes, longitudes);
+        RouteRecord again = calculate(new FakeRouteBackend(1, null), latitudes, longitudes);
+
+        int last = route.latitudes.length - 1;
+        assertEquals(52.10, route.latitudes[last], 0);
+        assertEquals(13.60, route.longitudes[last], 0);
+        assertArrayEquals(route.latitudes, again.latitudes, 0);
+        // about 50 km with a vertex every 20 m
+        assertTrue(route.latitudes.length > 2000);
+        double sectionLength = 0;
+        for (double length : route.sectionLengthsInMeters) {
+            sectionLength += length;
+        }
+        RouteIndex routeIndex = new RouteIndex(route.latitudes, route.longitudes, 500);
+        assertEquals(routeIndex.getLengthInMeters(), sectionLength, 1);
+    }
+
+    @Test
+    public void places_areTheSameForOverlappingAreas() {
+        FakePlaceSearchBackend backend = new FakePlaceSearchBackend(7, null).setPlacesPerTile(20);
+        List<PlaceRecord> big = backend.placesIn(SearchArea.circle(52.5, 13.4, 2000), "restaurants", 1000);
+        List<PlaceRecord> small = backend.placesIn(SearchArea.circle(52.5, 13.4, 500), "restaurants", 1000);
+        assertFalse(small.isEmpty());
+        List<String> bigIds = new ArrayList<>();
+        for (PlaceRecord place : big) {
+            bigIds.add(place.id);
+        }
+        for (PlaceRecord place : small) {
+            assertTrue(bigIds.contains(place.id));
+        }
+    }
+
+    @Test
+    public void failures_areInjected() {
+        final List<SearchFailure> failures = new ArrayList<>();
+        PlaceSearchBackend.Callback callback = new PlaceSearchBackend.Callback() {
+            @Override
+            public void onSearchCompleted(SearchFailure failure, List<PlaceRecord> places) {
+                failures.add(failure);
+            }
+        };
+        SearchArea corridor = SearchArea.corridor(new double[]{52.0, 52.01, 52.02}, new double[]{13.0, 13.0, 13.0}, 200);
+        new FakePlaceSearchBackend(1, null).setMaxCorridorVertices(2).search(corridor, "restaurants", 10, callback);
+        new FakePlaceSearchBackend(1, null).setFailureRate(1).search(corridor, "restaurants", 10, callback);
+        new FakePlaceSearchBackend(1, null).search(corridor, "restaurants", 10, callback);
+        assertEquals(SearchFailure.POLYLINE_TOO_LONG, failures.get(0));
+        assertEquals(SearchFailure.OTHER, failures.get(1));
+        assertNull(failures.get(2));
+    }
+
+    @Test
+    public void searchPipeline_runsEndToEndOnTheFakes() throws Exception {
+        FakeRouteBackend routeBackend = new FakeRouteBackend(3, scheduler).setLatency(5, 5, 0, 0);
+        FakePlaceSearchBackend placeBackend = new FakePlaceSearchBackend(3, scheduler)
+                .setLatency(2, 3, 0.1, 20).setMaxCorridorVertices(300);
+
+        final CountDownLatch routed = new CountDownLatch(1);
+        final RouteRecord[] route = new RouteRecord[1];
+        routeBackend.calculateRoute(new double[]{52.52, 52.30}, new double[]{13.40, 13.10}, new RouteBackend.Callback() {
+            @Override
+            public void onRouteCalculated(String error, RouteRecord result) {
+                route[0] = result;
+                routed.countDown();
+            }
+        });
+        assertTrue(routed.await(5, TimeUnit.SECONDS));
+
+        PolylineSimplifier.Result simplified = PolylineSimplifier.simplify(route[0].latitudes, route[0].longitudes, 10);
+        RouteIndex routeIndex = new RouteIndex(simplified.latitudes, simplified.longitudes, 500);
+        List<CorridorPlanner.Chunk> chunks = new CorridorPlanner(20000, 1000, 300).plan(routeIndex);
+        final CountDownLatch finished = new CountDownLatch(1);
+        final int[] matches = new int[1];
+        new CorridorSearch(placeBackend, 4).start(routeIndex, chunks, "restaurants", 210, 30,
+                new PlaceMatchAssembler<PlaceRecord>(), new RouteOrderedEmitter(chunks, 210, new PlaceMatchListener() {
+                    @Override
+                    public void onPlaceMatched(PlaceMatchAssembler.Match<PlaceRecord> match) {
+                    }
+
+                    @Override
+                    public void onSearchFinished(int matchCount, int duplicatesAvoided) {
+                        matches[0] = matchCount;
+                        finished.countDown();
+                    }
+                }));
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertTrue(matches[0] > 0);
+        assertEquals(chunks.size(), placeBackend.getSearchCount());
+    }
+}
@@ -0,0 +1,233 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for IncrementalRouteSearch.
+ */
+public class IncrementalRouteSearchTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    // Backend answering every request at once with all places of its world, the corridor filter keeps the ones along the route
+    private static class WorldBackend implements PlaceSearchBackend {
+        final List<PlaceRecord> places = new ArrayList<>();
+        int requests;
+
+        WorldBackend() {
+            // a place every 550 m next to the route going north
+            for (int i = 0; i < 100; i++) {
+                places.add(new PlaceRecord("place-" + i, "Place " + i, 50.0 + i * 0.005, 8.0005));
+            }
+        }
+
+        @Override
+        public void search(SearchArea area, String query, int maxItems, Callback callback) {
+            requests++;
+            callback.onSearchCompleted(null, places);
+        }
+    }
+
+    private static class RecordingListener implements CorridorSearch.Listener {
+        final Set<String> found = new HashSet<>();
+        boolean finished;
+
+        @Override
+        public void onPlacesFound(CorridorPlanner.Chunk chunk, List<PlaceMatchAssembler.Match<PlaceRecord>> matches) {
+            for (PlaceMatchAssembler.Match<PlaceRecord> match : matches) {
+                assertTrue(found.add(match.id));
+            }
+        }
+
+        @Override
+        public void onChunkFailed(CorridorPlanner.Chunk chunk, SearchFailure failure) {
+            fail("No chunk fails");
+        }
+
+        @Override
+        public void onSearchFinished(int matchCount, int duplicatesAvoided) {
+            finished = true;
+        }
+    }
+
+    /**
+     * Route going north from 50.0, 8.0 through vertexCount vertices 111 m to the north of each other, zigzagging by 70 m so the
+     * simplified route keeps its vertices. The vertices from detourStart to detourEnd are moved 2 km to the east
+     * */
+    private static RouteRecord route(int vertexCount, int detourStart, int detourEnd) {
+        double[] latitudes = new double[vertexCount];
+        double[] longitudes = new double[vertexCount];
+        for (int i = 0; i < vertexCount; i++) {
+            latitudes[i] = 50.0 + i * 0.001;
+            longitudes[i] = 8.0 + (i % 2) * 0.001 + (i >= detourStart && i <= detourEnd ? 0.03 : 0);
+        }
+        return new RouteRecord(latitudes, longitudes, new double[0], new double[0], Collections.<String>emptyList());
+    }
+
+    private static Set<String> ids(List<PlaceMatchAssembler.Match<PlaceRecord>> matches) {
+        Set<String> ids = new HashSet<>();
+        for (PlaceMatchAssembler.Match<PlaceRecord> match : matches) {
+            ids.add(match.id);
+        }
+        return ids;
+    }
+
+    @Test
+    public void firstRoute_isSearchedCompletely() {
+        WorldBackend backend = new WorldBackend();
+        RouteSearchEngine engine = new RouteSearchEngine(backend, 4, DIRECT, null, 4);
+        IncrementalRouteSearch search = new IncrementalRouteSearch(engine);
+        PreparedRoute route = engine.prepare(route(501, -1, -1));
+
+        IncrementalRouteSearch.Delta delta = search.diff(route);
+        assertEquals(route.chunks.size(), delta.chunks.size());
+        assertEquals(route.routeIndex.getLengthInMeters(), delta.getChangedLengthInMeters(), 1e-6);
+        assertTrue(delta.kept.isEmpty());
+        assertEquals(0, search.getSearchedLengthInMeters(), 1e-6);
+
+        RecordingListener listener = new RecordingListener();
+        search.search(delta, "restaurants", listener);
+        assertTrue(listener.finished);
+        assertEquals(100, listener.found.size());
+        assertEquals(route.routeIndex.getLengthInMeters(), search.getSearchedLengthInMeters(), 1e-6);
+
+        // the same route again has nothing left to search and keeps every place
+        IncrementalRouteSearch.Delta again = search.diff(route);
+        assertTrue(again.chunks.isEmpty());
+        assertEquals(100, again.kept.size());
+        assertTrue(again.removed.isEmpty());
+    }
+
+    @Test
+    public void extendedRoute_onlySearchesTheExtension() {
+        WorldBackend backend = new WorldBackend();
+        RouteSearchEngine engine = new RouteSearchEngine(backend, 4, DIRECT, null, 4);
+        IncrementalRouteSearch search = new IncrementalRouteSearch(engine);
+        PreparedRoute start = engine.prepare(route(301, -1, -1));
+        search.search(search.diff(start), "restaurants", new RecordingListener());
+        int fullSearchRequests = backend.requests;
+
+        PreparedRoute extended = engine.prepare(route(501, -1, -1));
+        IncrementalRouteSearch.Delta delta = search.diff(extended);
+        // 200 new segments plus the one before them
+        assertEquals(extended.routeIndex.getLengthInMeters() - extended.routeIndex.getOffset(299),
+                delta.getChangedLengthInMeters(), 1e-6);
+        assertEquals(extended.routeIndex.getOffset(299), delta.chunks.get(0).startOffsetInMeters, 1e-6);
+        assertTrue(delta.removed.isEmpty());
+        // the 61 places along the first 33 km are kept, the new route starts like the old one so their offsets stay
+        assertEquals(61, delta.kept.size());
+        for (PlaceMatchAssembler.Match<PlaceRecord> kept : delta.kept) {
+            RouteIndex.Projection before = start.routeIndex.nearest(kept.place.latitude, kept.place.longitude, 200);
+            assertEquals(before.offsetInMeters, kept.getOffsetInMeters(), 1e-6);
+        }
+
+        backend.requests = 0;
+        RecordingListener listener = new RecordingListener();
+        search.search(delta, "restaurants", listener);
+        assertTrue(backend.requests <= fullSearchRequests);
+        // only the places of the extension are new, the kept ones are not reported again
+        assertEquals(39, listener.found.size());
+        assertEquals(extended.routeIndex.getLengthInMeters(), search.getSearchedLengthInMeters(), 1e-6);
+    }
+
+    @Test
+    public void detour_searchesTheChangedStretchAndRemovesThePlacesOffTheRoute() {
+        WorldBackend backend = new WorldBackend();
+        RouteSearchEngine engine = new RouteSearchEngine(backend, 4, DIRECT, null, 4);
+        IncrementalRouteSearch search = new IncrementalRouteSearch(engine);
+        PreparedRoute straight = engine.prepare(route(501, -1, -1));
+        search.search(search.diff(straight), "restaurants", new RecordingListener());
+
+        PreparedRoute detour = engine.prepare(route(501, 200, 260));
+        IncrementalRouteSearch.Delta delta = search.diff(detour);
+        // the detour and its two legs, with one segment on each side
+        assertTrue(delta.getChangedLengthInMeters() < 0.25 * detour.routeIndex.getLengthInMeters());
+        assertTrue(delta.chunks.size() < detour.chunks.size());
+
+        // the places between 22.2 km and 28.9 km are 2 km away from the detour
+        Set<String> removed = ids(delta.removed);
+        for (int i = 41; i <= 51; i++) {
+            assertTrue(removed.contains("place-" + i));
+        }
+        assertEquals(100, delta.kept.size() + delta.removed.size());
+        assertTrue(Collections.disjoint(removed, ids(delta.kept)));
+
+        RecordingListener listener = new RecordingListener();
+        search.search(delta, "restaurants", listener);
+        // the removed places are not along the detour either
+        assertTrue(Collections.disjoint(removed, listener.found));
+        assertEquals(detour.routeIndex.getLengthInMeters(), search.getSearchedLengthInMeters(), 1e-6);
+
+        // going back to the straight route searches the stretch of the detour again
+        IncrementalRouteSearch.Delta back = search.diff(straight);
+        assertFalse(back.chunks.isEmpty());
+        assertTrue(back.getChangedLengthInMeters() < 0.25 * straight.routeIndex.getLengthInMeters());
+    }
+
+    @Test
+    public void cleared_searchesTheWholeRouteAgain() {
+        RouteSearchEngine engine = new RouteSearchEngine(new WorldBackend(), 4, DIRECT, null, 4);
+        IncrementalRouteSearch search = new IncrementalRouteSearch(engine);
+        PreparedRoute route = engine.prepare(route(501, -1, -1));
+        search.search(search.diff(route), "restaurants", new RecordingListener());
+
+        search.clear();
+        IncrementalRouteSearch.Delta delta = search.diff(route);
+        assertEquals(route.chunks.size(), delta.chunks.size());
+        assertTrue(delta.kept.isEmpty());
+    }
+
+    @Test
+    public void diff_leavesTheCurrentRouteUntilTheDeltaIsSearched() {
+        RouteSearchEngine engine = new RouteSearchEngine(new WorldBackend(), 4, DIRECT, null, 4);
+        IncrementalRouteSearch search = new IncrementalRouteSearch(engine);
+        PreparedRoute straight = engine.prepare(route(501, -1, -1));
+        search.search(search.diff(straight), "restaurants", new RecordingListener());
+
+        // two routes diffed one after the other, e.g. on two compute threads
+        IncrementalRouteSearch.Delta detour = search.diff(engine.prepare(route(501, 200, 260)));
+        IncrementalRouteSearch.Delta extended = search.diff(engine.prepare(route(601, -1, -1)));
+        assertFalse(search.isStale(detour));
+        assertFalse(search.isStale(extended));
+        assertEquals(100, detour.kept.size() + detour.removed.size());
+        assertEquals(100, extended.kept.size());
+
+        search.search(extended, "restaurants", new RecordingListener());
+        assertTrue(search.isStale(detour));
+        assertFalse(search.isStale(search.diff(detour.route)));
+        try {
+            search.search(detour, "restaurants", new RecordingListener());
+            fail("A stale delta must not be searched");
+        } catch (IllegalStateException expected) {
+            // the detour has to be diffed against the extended route again
+        }
+    }
+
+    @Test
+    public void intervals_areMergedWhereTheyTouch() {
+        List<double[]> intervals = new ArrayList<>();
+        IncrementalRouteSearch.addInterval(intervals, 10, 20);
+        IncrementalRouteSearch.addInterval(intervals, 40, 50);
+        IncrementalRouteSearch.addInterval(intervals, 0, 5);
+        assertEquals(3, intervals.size());
+
+        IncrementalRouteSearch.addInterval(intervals, 15, 40);
+        assertEquals(2, intervals.size());
+        assertArrayEquals(new double[]{0, 5}, intervals.get(0), 0);
+        assertArrayEquals(new double[]{10, 50}, intervals.get(1), 0);
+    }
+}
@@ -0,0 +1,120 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for Histogram and Metrics.
+ */
+public class MetricsTest {
+
+    // AllocationCounter of the HotSpot JVM running the tests, -1 without per thread allocation accounting.
+    // Test only like the one of the benchmarks, java.lang.management does not exist on Android
+    static class JvmAllocationCounter implements Metrics.AllocationCounter {
+        private final com.sun.management.ThreadMXBean threads;
+
+        JvmAllocationCounter() {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+                threads = (com.sun.management.ThreadMXBean) bean;
+            } else {
+                threads = null;
+            }
+        }
+
+        @Override
+        public long allocatedBytes() {
+            return threads == null ? -1 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        Metrics.disable();
+        Metrics.reset();
+    }
+
+    @Test
+    public void histogram_percentilesWithinBucketPrecision() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 100000; value++) {
+            histogram.record(value * 1000);
+        }
+        assertEquals(100000, histogram.getCount());
+        assertEquals(1000, histogram.getMin());
+        assertEquals(100000000, histogram.getMax());
+        assertEquals(50000500, histogram.getMean(), 1);
+        assertEquals(50000000, histogram.getValueAtPercentile(50), 50000000 * 0.04);
+        assertEquals(99000000, histogram.getValueAtPercentile(99), 99000000 * 0.04);
+        assertEquals(100000000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void histogram_smallValuesExactAndBucketsContiguous() {
+        Histogram histogram = new Histogram();
+        histogram.record(3);
+        histogram.record(7);
+        histogram.record(-5);
+        assertEquals(0, histogram.getMin());
+        assertEquals(3, histogram.getValueAtPercentile(50));
+        assertEquals(7, histogram.getValueAtPercentile(99));
+
+        for (long value = 1; value > 0 && value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+            int index = Histogram.bucketIndex(value);
+            assertTrue(Histogram.highestValueInBucket(index) >= value);
+            assertTrue(index == 0 || Histogram.highestValueInBucket(index - 1) < value);
+        }
+        assertEquals(Long.MAX_VALUE, Histogram.highestValueInBucket(Histogram.bucketIndex(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void disabled_recordsNothing() {
+        Metrics.Timer timer = Metrics.timer("test.disabled");
+        Metrics.Counter counter = Metrics.counter("test.disabledCount");
+        assertEquals(0, Metrics.now());
+        assertEquals(-1, Metrics.allocatedBytes());
+        timer.stop(Metrics.now(), Metrics.allocatedBytes());
+        counter.add(5);
+        assertEquals(0, timer.getNanos().getCount());
+        assertEquals(0, counter.get());
+    }
+
+    @Test
+    public void enabled_recordsTimesAllocationsAndCounters() {
+        Metrics.enable(new JvmAllocationCounter());
+        Metrics.Timer timer = Metrics.timer("test.enabled");
+        assertSame(timer, Metrics.timer("test.enabled"));
+
+        long start = Metrics.now();
+        long allocatedAtStart = Metrics.allocatedBytes();
+        List<long[]> garbage = Collections.singletonList(new long[1024]);
+        timer.stop(start, allocatedAtStart);
+        Metrics.counter("test.matches").add(3);
+        Metrics.counter("test.matches").increment();
+
+        assertEquals(1, garbage.size());
+        assertEquals(1, timer.getNanos().getCount());
+        if (allocatedAtStart >= 0) {
+            assertTrue(timer.getAllocatedBytes().getMax() >= 8 * 1024);
+        }
+        assertEquals(4, Metrics.counter("test.matches").get());
+
+        String dump = Metrics.dump();
+        assertTrue(dump.contains("test.enabled"));
+        assertTrue(dump.contains("test.matches"));
+        assertFalse(dump.contains("test.disabled "));
+        assertTrue(Metrics.toJson().contains("\"test.matches\":4"));
+
+        Metrics.reset();
+        assertEquals(0, timer.getNanos().getCount());
+        assertEquals(0, Metrics.counter("test.matches").get());
+    }
+}
@@ -0,0 +1,179 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for MultiCategorySearch and SearchCategory.
+ */
+public class MultiCategorySearchTest {
+
+    private static final SearchCategory RESTAURANTS = SearchCategory.RESTAURANTS.withMaxResults(10);
+    private static final SearchCategory CAFES = SearchCategory.CAFES;
+    private static final SearchCategory FUEL = SearchCategory.FUEL_STATIONS.withMaxResults(3);
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    // Backend keeping the requests until they are completed, with the query of every request
+    private static class QueryBackend implements PlaceSearchBackend {
+        final List<String> queries = new ArrayList<>();
+        final List<Callback> callbacks = new ArrayList<>();
+
+        @Override
+        public void search(SearchArea area, String query, int maxItems, Callback callback) {
+            queries.add(query);
+            callbacks.add(callback);
+        }
+
+        /**
+         * Completes all requests so far, every query finds count places spread along the route
+         * */
+        void completeAll(Map<String, Integer> counts, String failingQuery) {
+            for (int i = 0; i < callbacks.size(); i++) {
+                Callback callback = callbacks.get(i);
+                String query = queries.get(i);
+                callbacks.set(i, null);
+                if (callback == null) {
+                    continue;
+                }
+                if (query.equals(failingQuery)) {
+                    callback.onSearchCompleted(SearchFailure.OTHER, null);
+                    continue;
+                }
+                List<PlaceRecord> places = new ArrayList<>();
+                Integer count = counts.get(query);
+                for (int j = 0; count != null && j < count; j++) {
+                    places.add(new PlaceRecord(query + "/" + j, query + " " + j, 50.0 + j * 0.01, 8.0));
+                }
+                callback.onSearchCompleted(null, places);
+            }
+        }
+    }
+
+    // about 55 km to the north, zigzagging by 70 m so the simplified route keeps its vertices and has several chunks
+    private static RouteRecord route() {
+        double[] latitudes = new double[501];
+        double[] longitudes = new double[501];
+        for (int i = 0; i < latitudes.length; i++) {
+            latitudes[i] = 50.0 + i * 0.001;
+            longitudes[i] = 8.0 + (i % 2) * 0.001;
+        }
+        return new RouteRecord(latitudes, longitudes, new double[0], new double[0], Collections.<String>emptyList());
+    }
+
+    private static class RecordingListener implements MultiCategorySearch.Listener {
+        final Map<String, Integer> matched = new HashMap<>();
+        List<MultiCategorySearch.CategorizedPlace> results;
+
+        @Override
+        public void onPlaceMatched(SearchCategory category, PlaceMatchAssembler.Match<PlaceRecord> match) {
+            Integer count = matched.get(category.name);
+            matched.put(category.name, count == null ? 1 : count + 1);
+        }
+
+        @Override
+        public void onSearchFinished(List<MultiCategorySearch.CategorizedPlace> results) {
+            assertNull(this.results);
+            this.results = results;
+        }
+    }
+
+    @Test
+    public void categories_shareTheRouteAndAreSearchedAtTheSameTime() {
+        QueryBackend backend = new QueryBackend();
+        RouteSearchEngine engine = new RouteSearchEngine(backend, 1, DIRECT, null, 4);
+        PreparedRoute route = engine.prepare(route());
+        int chunks = route.chunks.size();
+        assertTrue(chunks > 1);
+
+        RecordingListener listener = new RecordingListener();
+        engine.searchCategories(route, Arrays.asList(RESTAURANTS, CAFES, FUEL), listener);
+
+        // the first chunk of every category is in flight before any of them completed
+        assertEquals(Arrays.asList("restaurants", CAFES.query, FUEL.query), backend.queries);
+
+        Map<String, Integer> counts = new HashMap<>();
+        counts.put(RESTAURANTS.query, 30);
+        counts.put(CAFES.query, 2);
+        counts.put(FUEL.query, 5);
+        while (listener.results == null) {
+            backend.completeAll(counts, null);
+        }
+        // every chunk was searched once per category
+        assertEquals(3 * chunks, backend.queries.size());
+        assertEquals(30, (int) listener.matched.get("restaurants"));
+
+        Map<String, Integer> perCategory = new HashMap<>();
+        double previousOffset = -1;
+        for (MultiCategorySearch.CategorizedPlace place : listener.results) {
+            assertTrue(place.getPlace().id.startsWith(place.category.query + "/"));
+            assertTrue(place.ranked.getOffsetInMeters() >= previousOffset);
+            previousOffset = place.ranked.getOffsetInMeters();
+            Integer count = perCategory.get(place.category.name);
+            perCategory.put(place.category.name, count == null ? 1 : count + 1);
+        }
+        // capped at maxResults of every category
+        assertEquals(10, (int) perCategory.get("restaurants"));
+        assertEquals(2, (int) perCategory.get("cafes"));
+        assertEquals(3, (int) perCategory.get("fuel"));
+    }
+
+    @Test
+    public void failedCategory_doesNotStopTheOthers() {
+        QueryBackend backend = new QueryBackend();
+        RouteSearchEngine engine = new RouteSearchEngine(backend, 4, DIRECT, null, 4);
+        RecordingListener listener = new RecordingListener();
+        PreparedRoute route = engine.prepare(route());
+        MultiCategorySearch search = engine.searchCategories(route, Arrays.asList(RESTAURANTS, FUEL), listener);
+
+        backend.completeAll(Collections.singletonMap(RESTAURANTS.query, 4), FUEL.query);
+
+        assertEquals(4, listener.results.size());
+        assertEquals(0, search.getFailedChunkCount(RESTAURANTS));
+        assertEquals(route.chunks.size(), search.getFailedChunkCount(FUEL));
+    }
+
+    @Test
+    public void cancelledSearch_isNotReported() {
+        QueryBackend backend = new QueryBackend();
+        RouteSearchEngine engine = new RouteSearchEngine(backend, 4, DIRECT, null, 4);
+        RecordingListener listener = new RecordingListener();
+        MultiCategorySearch search = engine.searchCategories(engine.prepare(route()),
+                Arrays.asList(RESTAURANTS, CAFES), listener);
+
+        search.cancel();
+        backend.completeAll(Collections.singletonMap(RESTAURANTS.query, 4), null);
+
+        assertNull(listener.results);
+        assertTrue(listener.matched.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sameCategoryTwice_isRejected() {
+        RouteSearchEngine engine = new RouteSearchEngine(new QueryBackend(), 4, DIRECT, null, 4);
+        engine.searchCategories(engine.prepare(route()), Arrays.asList(CAFES, CAFES.withMaxResults(5)),
+                new RecordingListener());
+    }
+
+    @Test
+    public void categoryQueries_nameTheirCategoryIds() {
+        SearchCategory category = SearchCategory.byCategoryId("fuelAndCharging", "700-7600-0116,700-7600-0322", 5);
+        assertTrue(SearchCategory.isCategoryQuery(category.query));
+        assertArrayEquals(new String[]{"700-7600-0116", "700-7600-0322"}, SearchCategory.categoryIds(category.query));
+        assertFalse(SearchCategory.isCategoryQuery(SearchCategory.RESTAURANTS.query));
+    }
+}
@@ -0,0 +1,57 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for ObjectPool.
+ */
+public class ObjectPoolTest {
+
+    private static ObjectPool<StringBuilder> newPool(int maxIdle) {
+        return new ObjectPool<>(new ObjectPool.Factory<StringBuilder>() {
+            @Override
+            public StringBuilder create() {
+                return new StringBuilder();
+            }
+        }, maxIdle);
+    }
+
+    @Test
+    public void repeatedCycles_reachSteadyStateWithoutAllocations() {
+        ObjectPool<StringBuilder> pool = newPool(100);
+
+        for (int cycle = 0; cycle < 5; cycle++) {
+            List<StringBuilder> inUse = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                inUse.add(pool.acquire());
+            }
+            for (StringBuilder item : inUse) {
+                pool.release(item);
+            }
+        }
+
+        assertEquals(30, pool.getCreatedCount());
+        assertEquals(4 * 30, pool.getReusedCount());
+        assertEquals(30, pool.getIdleCount());
+    }
+
+    @Test
+    public void release_dropsItemsBeyondMaxIdle() {
+        ObjectPool<StringBuilder> pool = newPool(2);
+        StringBuilder a = pool.acquire();
+        StringBuilder b = pool.acquire();
+        StringBuilder c = pool.acquire();
+        pool.release(a);
+        pool.release(b);
+        pool.release(c);
+
+        assertEquals(2, pool.getIdleCount());
+        assertEquals(1, pool.getDroppedCount());
+        assertSame(b, pool.acquire());
+    }
+}
@@ -0,0 +1,102 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for PackedPolyline and the GeoMath functions it is built on.
+ */
+public class PackedPolylineTest {
+
+    @Test
+    public void haversine_matchesGeoMath() {
+        Random random = new Random(3);
+        PackedPolyline polyline = randomPolyline(random, 200);
+        for (int i = 0; i < polyline.getVertexCount(); i++) {
+            double latitude = polyline.getLatitude(i) + (random.nextDouble() - 0.5) * 0.1;
+            double longitude = polyline.getLongitude(i) + (random.nextDouble() - 0.5) * 0.1;
+            double expected = GeoMath.haversine(polyline.getLatitude(i), polyline.getLongitude(i), latitude, longitude);
+            assertEquals(expected, polyline.haversine(i, latitude, longitude), 1e-6);
+        }
+        assertEquals(GeoMath.haversine(polyline.getLatitude(3), polyline.getLongitude(3),
+                polyline.getLatitude(7), polyline.getLongitude(7)), polyline.haversine(3, 7), 1e-6);
+    }
+
+    @Test
+    public void equirectangular_isCloseToHaversineNearTheRoute() {
+        Random random = new Random(5);
+        PackedPolyline polyline = randomPolyline(random, 200);
+        for (int i = 0; i < polyline.getVertexCount(); i++) {
+            // up to about 5 km away from the vertex
+            double latitude = polyline.getLatitude(i) + (random.nextDouble() - 0.5) * 0.09;
+            double longitude = polyline.getLongitude(i) + (random.nextDouble() - 0.5) * 0.09;
+            double expected = polyline.haversine(i, latitude, longitude);
+            assertEquals(expected, polyline.equirectangular(i, latitude, longitude), expected * 0.002 + 0.01);
+            assertEquals(expected, GeoMath.equirectangular(polyline.getLatitude(i), polyline.getLongitude(i),
+                    latitude, longitude), expected * 0.002 + 0.01);
+        }
+    }
+
+    @Test
+    public void segmentDistance_projectsOntoTheSegment() {
+        // segment of about 1112 m going north along the 13th meridian
+        PackedPolyline polyline = new PackedPolyline(new double[]{52.0, 52.01}, new double[]{13.0, 13.0});
+        double[] result = new double[2];
+        double eastOfMiddle = 13.0 + 100 / (111195.0 * Math.cos(Math.toRadians(52.005)));
+
+        polyline.segmentDistance(0, 52.005, eastOfMiddle, result);
+        assertEquals(100, result[0], 0.5);
+        assertEquals(0.5, result[1], 1e-3);
+
+        // beyond the end of the segment the distance is measured to the end vertex
+        polyline.segmentDistance(0, 52.02, 13.0, result);
+        assertEquals(GeoMath.haversine(52.01, 13.0, 52.02, 13.0), result[0], 1);
+        assertEquals(1, result[1], 0);
+    }
+
+    @Test
+    public void segmentDistance_acrossTheAntimeridian() {
+        PackedPolyline polyline = new PackedPolyline(new double[]{0, 0}, new double[]{179.99, -179.99});
+        double[] result = new double[2];
+        polyline.segmentDistance(0, 0, 180, result);
+        assertEquals(0, result[0], 0.01);
+        assertEquals(0.5, result[1], 1e-6);
+    }
+
+    @Test
+    public void centroid_matchesGeoMathCenter() {
+        Random random = new Random(11);
+        double[] latitudes = new double[500];
+        double[] longitudes = new double[500];
+        for (int i = 0; i < latitudes.length; i++) {
+            latitudes[i] = 40 + random.nextDouble() * 20;
+            longitudes[i] = -10 + random.nextDouble() * 40;
+        }
+        double[] expected = GeoMath.center(latitudes, longitudes);
+        double[] result = new double[2];
+        new PackedPolyline(latitudes, longitudes).centroid(result);
+        assertEquals(expected[0], result[0], 1e-9);
+        assertEquals(expected[1], result[1], 1e-9);
+    }
+
+    @Test
+    public void centroid_ofPointsAroundTheAntimeridian() {
+        double[] result = new double[2];
+        new PackedPolyline(new double[]{10, -10}, new double[]{170, -170}).centroid(result);
+        assertEquals(0, result[0], 1e-9);
+        assertEquals(180, Math.abs(result[1]), 1e-9);
+    }
+
+    private static PackedPolyline randomPolyline(Random random, int count) {
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            latitudes[i] = -60 + random.nextDouble() * 120;
+            longitudes[i] = -180 + random.nextDouble() * 360;
+        }
+        return new PackedPolyline(latitudes, longitudes);
+    }
+}
@@ -0,0 +1,78 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.Test;
+
+import java.util.Collection;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for PlaceClusterer.
+ */
+public class PlaceClustererTest {
+
+    @Test
+    public void nearbyPlaces_clusterWhenZoomedOutAndExpandWhenZoomedIn() {
+        PlaceClusterer clusterer = new PlaceClusterer(16, 80);
+        // about 100 m apart
+        PlaceRecord a = new PlaceRecord("a", "A", 52.5200, 13.4050);
+        PlaceRecord b = new PlaceRecord("b", "B", 52.5209, 13.4050);
+        PlaceRecord far = new PlaceRecord("far", "Far", 48.1351, 11.5820);
+        clusterer.add(a);
+        clusterer.add(b);
+        clusterer.add(far);
+
+        PlaceClusterer.Cluster cluster = clusterer.clusterOf(b, 10);
+        assertEquals(2, cluster.getCount());
+        assertSame(cluster, clusterer.clusterOf(a, 10));
+        assertEquals(52.52045, cluster.getLatitude(), 1e-9);
+        assertEquals(2, clusterer.getClusters(10).size());
+
+        // above the max zoom level every place is on its own
+        assertEquals(1, clusterer.clusterOf(a, 17).getCount());
+        assertEquals(3, clusterer.getClusters(17).size());
+
+        // everything is one cluster when looking at the whole world
+        Collection<PlaceClusterer.Cluster> world = clusterer.getClusters(0);
+        assertEquals(1, world.size());
+        assertEquals(3, world.iterator().next().getCount());
+    }
+
+    @Test
+    public void singlePlace_keepsItsKeyOnEveryZoomLevel() {
+        PlaceClusterer clusterer = new PlaceClusterer(16, 80);
+        PlaceRecord a = new PlaceRecord("a", "A", 52.52, 13.405);
+        clusterer.add(a);
+
+        assertEquals("p:a", clusterer.clusterOf(a, 3).getKey(3));
+        assertEquals("p:a", clusterer.clusterOf(a, 20).getKey(20));
+
+        clusterer.add(new PlaceRecord("b", "B", 52.5201, 13.405));
+        assertTrue(clusterer.clusterOf(a, 3).getKey(3).startsWith("c:3:"));
+
+        clusterer.clear();
+        assertEquals(0, clusterer.size());
+        assertTrue(clusterer.getClusters(3).isEmpty());
+    }
+
+    @Test
+    public void removedPlace_leavesItsClusters() {
+        PlaceClusterer clusterer = new PlaceClusterer(16, 80);
+        PlaceRecord a = new PlaceRecord("a", "A", 52.5200, 13.4050);
+        PlaceRecord b = new PlaceRecord("b", "B", 52.5209, 13.4050);
+        clusterer.add(a);
+        clusterer.add(b);
+
+        assertTrue(clusterer.remove(a));
+        assertFalse(clusterer.remove(a));
+        assertEquals(1, clusterer.size());
+        PlaceClusterer.Cluster cluster = clusterer.clusterOf(b, 10);
+        assertEquals(1, cluster.getCount());
+        assertEquals("p:b", cluster.getKey(10));
+        assertEquals(b.latitude, cluster.getLatitude(), 1e-9);
+
+        clusterer.remove(b);
+        assertNull(clusterer.clusterOf(b, 10));
+        assertTrue(clusterer.getClusters(0).isEmpty());
+    }
+}
@@ -0,0 +1,68 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for PlaceMatchAssembler.
+ */
+public class PlaceMatchAssemblerTest {
+
+    @Test
+    public void duplicates_collapseToOneMatchWithNearestDistance() {
+        PlaceMatchAssembler<String> assembler = new PlaceMatchAssembler<>();
+
+        assertTrue(assembler.offer("a", "Pizza", 150, 1000));
+        assertFalse(assembler.offer("a", "Pizza", 40, 1200));
+        assertFalse(assembler.offer("a", "Pizza", 90, 1100));
+        assertTrue(assembler.offer("b", "Sushi", 10, 50));
+
+        List<PlaceMatchAssembler.Match<String>> matches = assembler.takePending();
+        assertEquals(2, matches.size());
+        assertEquals("a", matches.get(0).id);
+        assertEquals(40, matches.get(0).getDistanceInMeters(), 0);
+        assertEquals(1200, matches.get(0).getOffsetInMeters(), 0);
+        assertEquals(2, assembler.getDuplicatesAvoided());
+    }
+
+    @Test
+    public void takePending_handsOutEveryPlaceOnce() {
+        PlaceMatchAssembler<String> assembler = new PlaceMatchAssembler<>();
+        assembler.offer("a", "Pizza", 10, 0);
+        assertEquals(1, assembler.takePending().size());
+
+        // a second search finding the same place does not render it again
+        assembler.offer("a", "Pizza", 10, 0);
+        assertTrue(assembler.takePending().isEmpty());
+        assertEquals(1, assembler.getDuplicatesAvoided());
+
+        assembler.clear();
+        assertFalse(assembler.contains("a"));
+        assertEquals(0, assembler.getDuplicatesAvoided());
+        assembler.offer("a", "Pizza", 10, 0);
+        assertEquals(1, assembler.takePending().size());
+    }
+
+    @Test
+    public void nearerOffer_replacesTheMatchInsteadOfChangingIt() {
+        PlaceMatchAssembler<String> assembler = new PlaceMatchAssembler<>();
+        assembler.offer("a", "Pizza", 150, 1000);
+        PlaceMatchAssembler.Match<String> handedOut = assembler.takePending().get(0);
+
+        assertFalse(assembler.offer("a", "Pizza", 40, 1200));
+        // the match handed out keeps its values, the assembler knows the nearer one
+        assertEquals(150, handedOut.getDistanceInMeters(), 0);
+        assertEquals(1000, handedOut.getOffsetInMeters(), 0);
+        PlaceMatchAssembler.Match<String> current = assembler.getMatches().get(0);
+        assertNotSame(handedOut, current);
+        assertEquals(40, current.getDistanceInMeters(), 0);
+        assertEquals(1200, current.getOffsetInMeters(), 0);
+        assertTrue(assembler.takePending().isEmpty());
+
+        assertTrue(assembler.remove("a"));
+        assertFalse(assembler.contains("a"));
+    }
+}
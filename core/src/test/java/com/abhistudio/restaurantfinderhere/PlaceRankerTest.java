@@ -0,0 +1,88 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for PlaceRanker and DetourEstimator.
+ */
+public class PlaceRankerTest {
+
+    // a 10 km motorway section at 30 m/s followed by a 2 km town section at 10 m/s
+    private static DetourEstimator estimator() {
+        return new DetourEstimator(new double[]{10000, 2000}, new double[]{10000 / 30.0, 200},
+                12000, 1.0, 15);
+    }
+
+    private static PlaceMatchAssembler.Match<PlaceRecord> match(String id, double lateral, double offset) {
+        return new PlaceMatchAssembler.Match<>(id, new PlaceRecord(id, id, 0, 0), lateral, offset);
+    }
+
+    @Test
+    public void detour_usesTheSpeedOfTheSectionCappedAtTheAccessSpeed() {
+        DetourEstimator estimator = estimator();
+        assertEquals(30, estimator.speedAt(5000), 1e-9);
+        assertEquals(10, estimator.speedAt(11000), 1e-9);
+        assertEquals(10, estimator.speedAt(50000), 1e-9);
+        // there and back, at most 15 m/s next to the motorway
+        assertEquals(2 * 150 / 15.0, estimator.estimateSeconds(5000, 150), 1e-9);
+        assertEquals(2 * 150 / 10.0, estimator.estimateSeconds(11000, 150), 1e-9);
+    }
+
+    @Test
+    public void sections_areScaledToThePolylineLength() {
+        // the simplified polyline is a little shorter than the route, the town section starts at 5000 m
+        DetourEstimator estimator = new DetourEstimator(new double[]{10000, 2000}, new double[]{10000 / 30.0, 200},
+                6000, 1.0, 15);
+        assertEquals(30, estimator.speedAt(4999), 1e-9);
+        assertEquals(10, estimator.speedAt(5001), 1e-9);
+    }
+
+    @Test
+    public void ranker_keepsTheShortestDetoursInRouteOrder() {
+        PlaceRanker<PlaceRecord> ranker = new PlaceRanker<>(estimator(), 2);
+        PlaceMatchAssembler.Match<PlaceRecord> near = match("near", 20, 8000);
+        PlaceMatchAssembler.Match<PlaceRecord> far = match("far", 180, 1000);
+        PlaceMatchAssembler.Match<PlaceRecord> middle = match("middle", 90, 3000);
+        PlaceMatchAssembler.Match<PlaceRecord> worse = match("worse", 190, 500);
+
+        assertNull(ranker.offer(near));
+        assertNull(ranker.offer(far));
+        // middle pushes far out of the best two
+        assertSame(far, ranker.offer(middle).match);
+        // and worse does not make it in at all
+        assertSame(worse, ranker.offer(worse).match);
+
+        List<PlaceRanker.RankedPlace<PlaceRecord>> ranked = ranker.getRanked();
+        assertEquals(2, ranked.size());
+        assertSame(middle, ranked.get(0).match);
+        assertSame(near, ranked.get(1).match);
+        assertEquals(2 * 20 / 15.0, ranked.get(1).detourSeconds, 1e-9);
+    }
+
+    @Test
+    public void ranker_matchesAFullSort() {
+        Random random = new Random(9);
+        PlaceRanker<PlaceRecord> ranker = new PlaceRanker<>(estimator(), 25);
+        double[] detours = new double[1000];
+        for (int i = 0; i < detours.length; i++) {
+            double lateral = random.nextDouble() * 200;
+            double offset = random.nextDouble() * 12000;
+            detours[i] = estimator().estimateSeconds(offset, lateral);
+            ranker.offer(match("p" + i, lateral, offset));
+        }
+        Arrays.sort(detours);
+
+        double worstKept = 0;
+        for (PlaceRanker.RankedPlace<PlaceRecord> place : ranker.getRanked()) {
+            worstKept = Math.max(worstKept, place.detourSeconds);
+        }
+        assertEquals(25, ranker.size());
+        assertEquals(detours[24], worstKept, 1e-9);
+    }
+}
@@ -0,0 +1,118 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for PlaceTileCache and TileKey.
+ */
+public class PlaceTileCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    static class ManualClock implements PlaceTileCache.Clock {
+        long now = 1000;
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+    }
+
+    private final ManualClock clock = new ManualClock();
+
+    @Test
+    public void put_thenGet_roundTripsThroughDisk() throws Exception {
+        File directory = folder.newFolder();
+        PlaceTileCache cache = new PlaceTileCache(directory, 60000, 1 << 20, clock);
+        cache.put("120", "restaurants", Arrays.asList(
+                new PlaceRecord("here:1", "Caf\u00e9 M\u00fcller", 52.5200066, 13.404954),
+                new PlaceRecord("here:2", "Pizza", -33.8688197, 151.2092955)));
+
+        // a new instance loads the entries stored by the previous one
+        PlaceTileCache reloaded = new PlaceTileCache(directory, 60000, 1 << 20, clock);
+        List<PlaceRecord> places = reloaded.get("120", "restaurants");
+        assertNotNull(places);
+        assertEquals(2, places.size());
+        assertEquals("here:1", places.get(0).id);
+        assertEquals("Caf\u00e9 M\u00fcller", places.get(0).title);
+        assertEquals(52.5200066, places.get(0).latitude, 1e-7);
+        assertEquals(151.2092955, places.get(1).longitude, 1e-7);
+
+        assertNull(reloaded.get("120", "fuel"));
+        assertNull(reloaded.get("121", "restaurants"));
+        assertEquals(1, reloaded.getHitCount());
+        assertEquals(2, reloaded.getMissCount());
+    }
+
+    @Test
+    public void longStrings_areKeptWholeOrTheTileIsNotCached() throws Exception {
+        PlaceTileCache cache = new PlaceTileCache(folder.newFolder(), 60000, 1 << 20, clock);
+        // 40000 bytes of two byte characters, longer than a signed short but within the unsigned length
+        String longId = repeat('\u00e9', 20000);
+        cache.put("120", "restaurants", Collections.singletonList(new PlaceRecord(longId, "Caf\u00e9", 52.5, 13.4)));
+        assertEquals(longId, cache.get("120", "restaurants").get(0).id);
+
+        // an ID that does not fit is never cut, the tile is searched again next time instead
+        String tooLong = repeat('\u00e9', 40000);
+        cache.put("121", "restaurants", Collections.singletonList(new PlaceRecord(tooLong, "Caf\u00e9", 52.5, 13.4)));
+        assertNull(cache.get("121", "restaurants"));
+        assertEquals(1, cache.getEntryCount());
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    @Test
+    public void expiredEntries_areMisses() throws Exception {
+        PlaceTileCache cache = new PlaceTileCache(folder.newFolder(), 60000, 1 << 20, clock);
+        cache.put("120", "restaurants", Collections.<PlaceRecord>emptyList());
+        clock.now += 60000;
+        assertNotNull(cache.get("120", "restaurants"));
+        clock.now += 1;
+        assertNull(cache.get("120", "restaurants"));
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    public void leastRecentlyUsedEntries_areEvictedBeyondMaxBytes() throws Exception {
+        List<PlaceRecord> places = Collections.singletonList(new PlaceRecord("id", "title", 1, 2));
+        PlaceTileCache probe = new PlaceTileCache(folder.newFolder(), 60000, 1 << 20, clock);
+        probe.put("0", "q", places);
+        long entrySize = probe.getSizeInBytes();
+
+        PlaceTileCache cache = new PlaceTileCache(folder.newFolder(), 60000, 2 * entrySize, clock);
+        cache.put("0", "q", places);
+        cache.put("1", "q", places);
+        // reading tile 0 makes tile 1 the least recently used one
+        assertNotNull(cache.get("0", "q"));
+        cache.put("2", "q", places);
+
+        assertEquals(2, cache.getEntryCount());
+        assertNotNull(cache.get("0", "q"));
+        assertNull(cache.get("1", "q"));
+        assertNotNull(cache.get("2", "q"));
+    }
+
+    @Test
+    public void quadKey_boundsContainThePoint() {
+        String quadKey = TileKey.quadKey(52.52, 13.405, 14);
+        assertEquals(14, quadKey.length());
+        double[] bounds = TileKey.bounds(quadKey);
+        assertTrue(bounds[0] <= 52.52 && 52.52 < bounds[2]);
+        assertTrue(bounds[1] <= 13.405 && 13.405 < bounds[3]);
+        assertEquals("1202", TileKey.quadKey(52.52, 13.405, 4));
+    }
+}
@@ -0,0 +1,194 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for PoiPack and OfflinePlaceSearchBackend.
+ */
+public class PoiPackTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // places scattered around a 10 km road going north from (52.0, 13.0)
+    private static List<PlaceRecord> placesAlongTheRoad(int count) {
+        Random random = new Random(21);
+        List<PlaceRecord> places = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double latitude = 52.0 + random.nextDouble() * 0.09;
+            double longitude = 13.0 + (random.nextDouble() - 0.5) * 0.04;
+            places.add(new PlaceRecord("poi:" + i, "Restaurant " + i, latitude, longitude));
+        }
+        return places;
+    }
+
+    private PoiPack writePack(List<PlaceRecord> places) throws Exception {
+        File file = new File(folder.getRoot(), "restaurants.pack");
+        PoiPack.write(file, "restaurants", 14, places);
+        return PoiPack.open(file);
+    }
+
+    @Test
+    public void corridorSearch_findsExactlyThePlacesInsideTheCorridor() throws Exception {
+        List<PlaceRecord> places = placesAlongTheRoad(2000);
+        PoiPack pack = writePack(places);
+        assertEquals(2000, pack.size());
+        assertEquals("restaurants", pack.getCategory());
+
+        SearchArea corridor = SearchArea.corridor(new double[]{52.0, 52.09}, new double[]{13.0, 13.0}, 200);
+        List<PlaceRecord> found = pack.search(corridor, Integer.MAX_VALUE);
+
+        int expected = 0;
+        double[] segmentDistance = new double[2];
+        for (PlaceRecord place : places) {
+            GeoMath.pointToSegment(place.latitude, place.longitude, 52.0, 13.0, 52.09, 13.0, segmentDistance);
+            if (segmentDistance[0] <= 200) {
+                expected++;
+            }
+        }
+        assertTrue(expected > 0);
+        assertEquals(expected, found.size());
+        for (PlaceRecord place : found) {
+            assertTrue(place.title.startsWith("Restaurant "));
+        }
+    }
+
+    @Test
+    public void circleSearch_isCappedAtMaxItems() throws Exception {
+        PoiPack pack = writePack(placesAlongTheRoad(2000));
+        SearchArea circle = SearchArea.circle(52.045, 13.0, 1000);
+        List<PlaceRecord> found = pack.search(circle, 1000);
+        for (PlaceRecord place : found) {
+            assertTrue(GeoMath.haversine(52.045, 13.0, place.latitude, place.longitude) <= 1000);
+        }
+        assertFalse(found.isEmpty());
+        assertEquals(3, pack.search(circle, 3).size());
+    }
+
+    @Test
+    public void write_keepsLongIdsWholeAndSkipsPlacesTooLongForThePack() throws Exception {
+        StringBuilder longId = new StringBuilder("poi:");
+        while (longId.length() < 40000) {
+            longId.append('a');
+        }
+        StringBuilder tooLongTitle = new StringBuilder();
+        while (tooLongTitle.length() < 30000) {
+            tooLongTitle.append('\u20ac');
+        }
+        List<PlaceRecord> places = new ArrayList<>();
+        places.add(new PlaceRecord(longId.toString(), "Long", 52.0, 13.0));
+        places.add(new PlaceRecord("poi:euro", tooLongTitle.toString(), 52.0, 13.0));
+        File file = new File(folder.getRoot(), "restaurants.pack");
+
+        assertEquals(1, PoiPack.write(file, "restaurants", 14, places));
+        PoiPack pack = PoiPack.open(file);
+        assertEquals(1, pack.size());
+        List<PlaceRecord> found = pack.search(SearchArea.circle(52.0, 13.0, 100), 10);
+        assertEquals(1, found.size());
+        assertEquals(longId.toString(), found.get(0).id);
+    }
+
+    @Test
+    public void offlineBackend_answersInsideThePackAndDelegatesOutside() throws Exception {
+        PoiPack pack = writePack(placesAlongTheRoad(500));
+        CorridorSearchTest.DeferredBackend online = new CorridorSearchTest.DeferredBackend();
+        OfflinePlaceSearchBackend backend = new OfflinePlaceSearchBackend(pack, online);
+        final List<PlaceRecord> results = new ArrayList<>();
+        PlaceSearchBackend.Callback callback = new PlaceSearchBackend.Callback() {
+            @Override
+            public void onSearchCompleted(SearchFailure failure, List<PlaceRecord> places) {
+                assertNull(failure);
+                results.addAll(places);
+            }
+        };
+
+        backend.search(SearchArea.corridor(new double[]{52.01, 52.08}, new double[]{13.0, 13.0}, 200),
+                "restaurants", 50, callback);
+        assertEquals(1, backend.getOfflineSearchCount());
+        assertFalse(results.isEmpty());
+        assertEquals(0, online.callbacks.size());
+
+        // outside the bounds of the pack and for other categories the online backend searches
+        backend.search(SearchArea.circle(48.1, 11.5, 1000), "restaurants", 50, callback);
+        backend.search(SearchArea.circle(52.05, 13.0, 1000), "charging stations", 50, callback);
+        assertEquals(2, online.callbacks.size());
+        assertEquals(1, backend.getOfflineSearchCount());
+    }
+
+    @Test
+    public void offlineBackend_searchesOnlineWhenThePackFindsNothing() throws Exception {
+        // the bounds of the pack span the two places, there is nothing in between
+        List<PlaceRecord> corners = new ArrayList<>();
+        corners.add(new PlaceRecord("poi:sw", "Restaurant SW", 52.0, 13.0));
+        corners.add(new PlaceRecord("poi:ne", "Restaurant NE", 52.1, 13.1));
+        PoiPack pack = writePack(corners);
+        CorridorSearchTest.DeferredBackend online = new CorridorSearchTest.DeferredBackend();
+        OfflinePlaceSearchBackend backend = new OfflinePlaceSearchBackend(pack, online);
+        final List<PlaceRecord> results = new ArrayList<>();
+        final List<SearchFailure> failures = new ArrayList<>();
+        PlaceSearchBackend.Callback callback = new PlaceSearchBackend.Callback() {
+            @Override
+            public void onSearchCompleted(SearchFailure failure, List<PlaceRecord> places) {
+                failures.add(failure);
+                results.addAll(places);
+            }
+        };
+
+        SearchArea between = SearchArea.circle(52.05, 13.05, 500);
+        assertTrue(pack.covers(between));
+        backend.search(between, "restaurants", 50, callback);
+        assertEquals(1, online.callbacks.size());
+        online.complete(0, null, new PlaceRecord("here:1", "New Restaurant", 52.05, 13.05));
+        assertEquals("here:1", results.get(0).id);
+        assertEquals(1, backend.getFallbackCount());
+        assertEquals(0, backend.getOfflineSearchCount());
+
+        // without network the empty answer of the pack is returned
+        backend.search(between, "restaurants", 50, callback);
+        online.complete(1, SearchFailure.OTHER);
+        assertEquals(1, results.size());
+        assertNull(failures.get(1));
+        assertEquals(2, backend.getFallbackCount());
+    }
+
+    @Test
+    public void offlineBackend_readsThePackOnTheLookupExecutor() throws Exception {
+        PoiPack pack = writePack(placesAlongTheRoad(500));
+        final List<Runnable> lookups = new ArrayList<>();
+        Executor lookupExecutor = new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                lookups.add(runnable);
+            }
+        };
+        CorridorSearchTest.DeferredBackend online = new CorridorSearchTest.DeferredBackend();
+        OfflinePlaceSearchBackend backend = new OfflinePlaceSearchBackend(pack, online, lookupExecutor);
+        final List<PlaceRecord> results = new ArrayList<>();
+
+        backend.search(SearchArea.corridor(new double[]{52.01, 52.08}, new double[]{13.0, 13.0}, 200),
+                "restaurants", 50, new PlaceSearchBackend.Callback() {
+                    @Override
+                    public void onSearchCompleted(SearchFailure failure, List<PlaceRecord> places) {
+                        results.addAll(places);
+                    }
+                });
+        assertTrue(results.isEmpty());
+        assertEquals(0, backend.getOfflineSearchCount());
+
+        assertEquals(1, lookups.size());
+        lookups.get(0).run();
+        assertFalse(results.isEmpty());
+        assertEquals(1, backend.getOfflineSearchCount());
+        assertEquals(0, online.callbacks.size());
+    }
+}
@@ -0,0 +1,63 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for PolylineSimplifier.
+ */
+public class PolylineSimplifierTest {
+
+    @Test
+    public void straightDenseLine_isReducedToItsEnds() {
+        double[] latitudes = new double[1000];
+        double[] longitudes = new double[1000];
+        for (int i = 0; i < latitudes.length; i++) {
+            latitudes[i] = 52.0 + i * 0.0001;
+            longitudes[i] = 13.0;
+        }
+        PolylineSimplifier.Result result = PolylineSimplifier.simplify(latitudes, longitudes, 10);
+
+        assertEquals(2, result.getVertexCount());
+        assertEquals(500, result.getReductionRatio(), 0);
+        assertEquals(latitudes[999], result.latitudes[1], 0);
+    }
+
+    @Test
+    public void everyOriginalVertex_staysWithinTolerance() {
+        int count = 5000;
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            latitudes[i] = 47.0 + i * 0.0002 + Math.sin(i / 7.0) * 0.0001;
+            longitudes[i] = 9.0 + Math.sin(i / 300.0) * 0.05 + Math.cos(i / 3.0) * 0.00005;
+        }
+        double tolerance = 15;
+        PolylineSimplifier.Result result = PolylineSimplifier.simplify(latitudes, longitudes, tolerance);
+        assertTrue(result.getVertexCount() < count / 4);
+
+        RouteIndex simplifiedIndex = new RouteIndex(result.latitudes, result.longitudes, 200);
+        for (int i = 0; i < count; i++) {
+            // small slack for the difference between the two local projections
+            assertTrue(simplifiedIndex.isWithin(latitudes[i], longitudes[i], tolerance + 0.5));
+        }
+
+        // a place 200 m away from the original route is within 200 m + tolerance of the simplified one
+        RouteIndex originalIndex = new RouteIndex(latitudes, longitudes, 200);
+        for (int i = 0; i < count; i += 97) {
+            double latitude = latitudes[i] + 0.0015;
+            RouteIndex.Projection original = originalIndex.nearest(latitude, longitudes[i], 1000);
+            if (original != null && original.distanceInMeters <= 200) {
+                assertTrue(simplifiedIndex.isWithin(latitude, longitudes[i], 200 + tolerance + 0.5));
+            }
+        }
+    }
+
+    @Test
+    public void shortPolylines_areKept() {
+        PolylineSimplifier.Result result = PolylineSimplifier.simplify(new double[]{1, 2}, new double[]{3, 4}, 10);
+        assertEquals(2, result.getVertexCount());
+        assertEquals(1, result.getReductionRatio(), 0);
+    }
+}
@@ -0,0 +1,156 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for RequestCoalescer.
+ */
+public class RequestCoalescerTest {
+
+    // Loader keeping the callbacks until the test completes them
+    static class DeferredLoader implements RequestCoalescer.Loader<String, String> {
+        final List<RequestCoalescer.Callback<String, String>> pending = new ArrayList<>();
+        final List<CancellationToken> handles = new ArrayList<>();
+
+        @Override
+        public Cancellable load(RequestCoalescer.Callback<String, String> callback) {
+            pending.add(callback);
+            CancellationToken handle = new CancellationToken();
+            handles.add(handle);
+            return handle;
+        }
+    }
+
+    static class Results implements RequestCoalescer.Callback<String, String> {
+        final List<String> values = new ArrayList<>();
+
+        @Override
+        public void onResult(String error, String value) {
+            values.add(error != null ? "error:" + error : value);
+        }
+    }
+
+    @Test
+    public void doubleTap_startsOneLoadAndAnswersOnce() {
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>(4);
+        DeferredLoader loader = new DeferredLoader();
+        Results first = new Results();
+        Results second = new Results();
+
+        coalescer.request("a", loader, first);
+        coalescer.request("a", loader, second);
+        assertEquals(1, loader.pending.size());
+
+        loader.pending.get(0).onResult(null, "route a");
+        // the first tap was superseded by the second one
+        assertTrue(first.values.isEmpty());
+        assertEquals(1, second.values.size());
+        assertEquals(1, coalescer.getCoalescedCount());
+        assertEquals(1, coalescer.getStaleDroppedCount());
+    }
+
+    @Test
+    public void supersededRequest_neverAnswersButIsCached() {
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>(4);
+        DeferredLoader loader = new DeferredLoader();
+        Results old = new Results();
+        Results latest = new Results();
+
+        coalescer.request("a", loader, old);
+        coalescer.request("b", loader, latest);
+        loader.pending.get(1).onResult(null, "route b");
+        loader.pending.get(0).onResult(null, "route a");
+        assertTrue(old.values.isEmpty());
+        assertEquals(1, latest.values.size());
+
+        Results again = new Results();
+        coalescer.request("a", loader, again);
+        assertEquals(2, loader.pending.size());
+        assertEquals("route a", again.values.get(0));
+        assertEquals(1, coalescer.getCacheHitCount());
+    }
+
+    @Test
+    public void errors_areNotCachedAndCancelPendingDropsResults() {
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>(4);
+        DeferredLoader loader = new DeferredLoader();
+        Results results = new Results();
+
+        coalescer.request("a", loader, results);
+        loader.pending.get(0).onResult("offline", null);
+        assertEquals("error:offline", results.values.get(0));
+
+        coalescer.request("a", loader, results);
+        assertEquals(2, loader.pending.size());
+        coalescer.cancelPending();
+        loader.pending.get(1).onResult(null, "route a");
+        assertEquals(1, results.values.size());
+    }
+
+    @Test
+    public void newerRequest_cancelsTheSupersededLoad() {
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>(4);
+        DeferredLoader loader = new DeferredLoader();
+        Results old = new Results();
+        Results latest = new Results();
+
+        coalescer.request("a", loader, old);
+        coalescer.request("a", loader, latest);
+        // joining the load of the same key does not cancel it
+        assertFalse(loader.handles.get(0).isCancelled());
+
+        coalescer.request("b", loader, latest);
+        assertTrue(loader.handles.get(0).isCancelled());
+        assertFalse(loader.handles.get(1).isCancelled());
+        assertEquals(1, coalescer.getCancelledCount());
+        assertEquals(2, coalescer.getStaleDroppedCount());
+
+        // a new request for the cancelled key loads it again
+        coalescer.request("a", loader, latest);
+        assertEquals(3, loader.pending.size());
+        assertTrue(loader.handles.get(1).isCancelled());
+
+        coalescer.cancelPending();
+        assertTrue(loader.handles.get(2).isCancelled());
+        assertEquals(3, coalescer.getCancelledCount());
+        loader.pending.get(2).onResult(null, "route a");
+        assertTrue(latest.values.isEmpty());
+    }
+
+    @Test
+    public void loaderCompletingSynchronously_isNotCancelledLater() {
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>(4);
+        final CancellationToken handle = new CancellationToken();
+        Results results = new Results();
+        coalescer.request("a", new RequestCoalescer.Loader<String, String>() {
+            @Override
+            public Cancellable load(RequestCoalescer.Callback<String, String> callback) {
+                callback.onResult(null, "route a");
+                return handle;
+            }
+        }, results);
+        coalescer.request("b", new DeferredLoader(), new Results());
+
+        assertEquals("route a", results.values.get(0));
+        assertFalse(handle.isCancelled());
+        assertEquals(0, coalescer.getCancelledCount());
+    }
+
+    @Test
+    public void cache_keepsMostRecentlyUsedValues() {
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>(1);
+        DeferredLoader loader = new DeferredLoader();
+        coalescer.request("a", loader, new Results());
+        loader.pending.get(0).onResult(null, "route a");
+        coalescer.request("b", loader, new Results());
+        loader.pending.get(1).onResult(null, "route b");
+
+        coalescer.request("a", loader, new Results());
+        assertEquals(3, loader.pending.size());
+    }
+}
@@ -0,0 +1,157 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for ResultStore.
+ */
+public class ResultStoreTest {
+
+    // every place is 100 bytes, an entry 300 bytes with the overhead of the store
+    private static final ResultStore.Sizer<PlaceRecord> SIZER = new ResultStore.Sizer<PlaceRecord>() {
+        @Override
+        public long estimateBytes(PlaceRecord place) {
+            return 100;
+        }
+    };
+
+    private final PlaceTileCacheTest.ManualClock clock = new PlaceTileCacheTest.ManualClock();
+
+    private static PlaceMatchAssembler.Match<PlaceRecord> match(String id, double offset) {
+        return new PlaceMatchAssembler.Match<>(id, new PlaceRecord(id, id, 0, 0), 10, offset);
+    }
+
+    private ResultStore<PlaceRecord> store(int maxItems, long maxBytes) {
+        return new ResultStore<>(maxItems, maxBytes, 1000, 60000, SIZER, clock);
+    }
+
+    private static String ids(List<PlaceMatchAssembler.Match<PlaceRecord>> matches) {
+        StringBuilder ids = new StringBuilder();
+        for (PlaceMatchAssembler.Match<PlaceRecord> match : matches) {
+            ids.append(ids.length() == 0 ? "" : ",").append(match.id);
+        }
+        return ids.toString();
+    }
+
+    @Test
+    public void add_overItemBudget_evictsFurthestAheadWhileNothingIsBehind() {
+        ResultStore<PlaceRecord> store = store(3, Long.MAX_VALUE);
+        assertTrue(store.add(match("a", 500)).isEmpty());
+        assertTrue(store.add(match("b", 3000)).isEmpty());
+        assertTrue(store.add(match("c", 1500)).isEmpty());
+
+        assertEquals("b", ids(store.add(match("d", 2000))));
+        assertEquals("a,c,d", ids(store.getMatches()));
+        assertEquals(1, store.getEvictedCount());
+    }
+
+    @Test
+    public void add_overItemBudget_evictsBehindTheVehicleFirst() {
+        ResultStore<PlaceRecord> store = store(3, Long.MAX_VALUE);
+        store.add(match("a", 500));
+        store.add(match("b", 3000));
+        store.add(match("c", 1500));
+        assertTrue(store.updateVehicleOffset(1000).isEmpty());
+
+        assertEquals("a", ids(store.add(match("d", 2000))));
+        assertEquals("c,d,b", ids(store.getMatches()));
+    }
+
+    @Test
+    public void add_overByteBudget_staysWithinTheBudget() {
+        ResultStore<PlaceRecord> store = store(100, 1000);
+        for (int i = 0; i < 10; i++) {
+            store.add(match("p" + i, i * 100));
+            assertTrue(store.getRetainedBytes() <= 1000);
+        }
+        assertEquals(3, store.size());
+        assertEquals(900, store.getRetainedBytes());
+        assertEquals(7, store.getEvictedCount());
+        assertEquals("p0,p1,p2", ids(store.getMatches()));
+    }
+
+    @Test
+    public void add_sameId_replacesWithoutGrowing() {
+        ResultStore<PlaceRecord> store = store(3, Long.MAX_VALUE);
+        store.add(match("a", 500));
+        PlaceMatchAssembler.Match<PlaceRecord> replacement = match("a", 800);
+        assertTrue(store.add(replacement).isEmpty());
+
+        assertEquals(1, store.size());
+        assertEquals(300, store.getRetainedBytes());
+        assertSame(replacement, store.getMatches().get(0));
+    }
+
+    @Test
+    public void updateVehicleOffset_evictsPlacesTooFarBehind() {
+        ResultStore<PlaceRecord> store = store(10, Long.MAX_VALUE);
+        store.add(match("a", 500));
+        store.add(match("b", 1800));
+        store.add(match("c", 4000));
+
+        assertTrue(store.updateVehicleOffset(1400).isEmpty());
+        assertEquals("a", ids(store.updateVehicleOffset(2000)));
+        assertEquals("b", ids(store.updateVehicleOffset(3500)));
+        assertEquals("c", ids(store.getMatches()));
+        assertFalse(store.contains("a"));
+        assertEquals(300, store.getRetainedBytes());
+    }
+
+    @Test
+    public void evictExpired_evictsPlacesAddedTooLongAgo() {
+        ResultStore<PlaceRecord> store = store(10, Long.MAX_VALUE);
+        store.add(match("a", 3000));
+        clock.now += 30000;
+        store.add(match("b", 1000));
+        clock.now += 30000;
+        assertTrue(store.evictExpired().isEmpty());
+
+        clock.now += 1;
+        assertEquals("a", ids(store.evictExpired()));
+        assertEquals("b", ids(store.getMatches()));
+        clock.now += 30000;
+        assertEquals("b", ids(store.evictExpired()));
+        assertEquals(0, store.size());
+        assertEquals(0, store.getRetainedBytes());
+    }
+
+    @Test
+    public void longDrive_retainedBytesStayFlat() {
+        ResultStore<PlaceRecord> store = store(50, 12000);
+        long maxRetained = 0;
+        for (int km = 0; km < 1000; km++) {
+            for (int i = 0; i < 5; i++) {
+                store.add(match(km + "-" + i, km * 1000 + i * 200));
+            }
+            store.updateVehicleOffset(km * 1000);
+            maxRetained = Math.max(maxRetained, store.getRetainedBytes());
+        }
+        assertTrue(maxRetained <= 12000);
+        assertEquals(5000 - store.size(), store.getEvictedCount());
+    }
+
+    @Test
+    public void clear_forgetsEveryPlace() {
+        ResultStore<PlaceRecord> store = store(10, Long.MAX_VALUE);
+        store.add(match("a", 500));
+        store.updateVehicleOffset(5000);
+        store.clear();
+        store.add(match("b", 500));
+
+        assertEquals("b", ids(store.getMatches()));
+        assertEquals(300, store.getRetainedBytes());
+        assertTrue(store.updateVehicleOffset(1000).isEmpty());
+    }
+
+    @Test
+    public void estimateRetainedBytes_growsWithTheStrings() {
+        PlaceRecord shortName = new PlaceRecord("here:1", "Pizza", 0, 0);
+        PlaceRecord longName = new PlaceRecord("here:1", "Pizzeria da Michele", 0, 0);
+        assertTrue(shortName.estimateRetainedBytes() > 0);
+        assertEquals(2 * 14, longName.estimateRetainedBytes() - shortName.estimateRetainedBytes());
+    }
+}
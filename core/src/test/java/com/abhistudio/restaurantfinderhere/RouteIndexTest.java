@@ -0,0 +1,132 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for RouteIndex, they run on the development machine without the HERE SDK.
+ */
+public class RouteIndexTest {
+
+    // Roughly 10 km long straight route going north with only two vertices
+    private static final double[] SPARSE_LATITUDES = {52.50, 52.59};
+    private static final double[] SPARSE_LONGITUDES = {13.40, 13.40};
+
+    // one degree of longitude at 52.545 degrees north is about 67.7 km
+    private static double metersToLongitude(double meters, double latitude) {
+        return meters / (Math.toRadians(1) * GeoMath.EARTH_RADIUS_IN_METERS * Math.cos(Math.toRadians(latitude)));
+    }
+
+    @Test
+    public void pointNextToSparseSegment_isWithin() {
+        RouteIndex index = new RouteIndex(SPARSE_LATITUDES, SPARSE_LONGITUDES, 500);
+        double longitude = 13.40 + metersToLongitude(150, 52.545);
+
+        // both vertices are about 5 km away, only the segment is close
+        assertTrue(index.isWithin(52.545, longitude, 200));
+        assertFalse(index.isWithin(52.545, longitude, 100));
+    }
+
+    @Test
+    public void nearest_reportsLateralDistanceAndOffset() {
+        RouteIndex index = new RouteIndex(SPARSE_LATITUDES, SPARSE_LONGITUDES, 500);
+        double longitude = 13.40 - metersToLongitude(120, 52.545);
+
+        RouteIndex.Projection projection = index.nearest(52.545, longitude, 200);
+        assertNotNull(projection);
+        assertEquals(120, projection.distanceInMeters, 1);
+        assertEquals(index.getLengthInMeters() / 2, projection.offsetInMeters, 5);
+        assertEquals(0, projection.segmentIndex);
+    }
+
+    @Test
+    public void pointBeyondRouteEnd_isMeasuredToLastVertex() {
+        RouteIndex index = new RouteIndex(SPARSE_LATITUDES, SPARSE_LONGITUDES, 500);
+        double latitude = 52.59 + 150 / (Math.toRadians(1) * GeoMath.EARTH_RADIUS_IN_METERS);
+
+        RouteIndex.Projection projection = index.nearest(latitude, 13.40, 200);
+        assertNotNull(projection);
+        assertEquals(150, projection.distanceInMeters, 1);
+        assertEquals(index.getLengthInMeters(), projection.offsetInMeters, 1);
+    }
+
+    @Test
+    public void denseRoute_matchesBruteForceDistance() {
+        int count = 2000;
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            latitudes[i] = 48.0 + i * 0.001;
+            longitudes[i] = 11.0 + Math.sin(i / 50.0) * 0.01;
+        }
+        RouteIndex index = new RouteIndex(latitudes, longitudes, 300);
+
+        for (int i = 0; i < count; i += 37) {
+            double latitude = latitudes[i] + 0.0004;
+            double longitude = longitudes[i] + 0.002;
+            double bruteForce = Double.MAX_VALUE;
+            for (int v = 0; v < count; v++) {
+                bruteForce = Math.min(bruteForce, GeoMath.haversine(latitude, longitude, latitudes[v], longitudes[v]));
+            }
+            RouteIndex.Projection projection = index.nearest(latitude, longitude, 1000);
+            assertNotNull(projection);
+            // distance to a segment is never larger than distance to its vertices
+            assertTrue(projection.distanceInMeters <= bruteForce + 0.5);
+        }
+    }
+
+    @Test
+    public void emptyAndSingleVertexRoutes() {
+        RouteIndex empty = new RouteIndex(new double[0], new double[0], 500);
+        assertFalse(empty.isWithin(52.5, 13.4, 1000));
+
+        RouteIndex single = new RouteIndex(new double[]{52.5}, new double[]{13.4}, 500);
+        assertTrue(single.isWithin(52.5005, 13.4, 100));
+        assertFalse(single.isWithin(52.51, 13.4, 100));
+    }
+
+    @Test
+    public void mutableProjection_matchesProjectionWithoutAllocating() {
+        int count = 2000;
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            latitudes[i] = 48.0 + i * 0.001;
+            longitudes[i] = 11.0 + Math.sin(i / 50.0) * 0.01;
+        }
+        RouteIndex index = new RouteIndex(latitudes, longitudes, 300);
+        RouteIndex.MutableProjection mutable = new RouteIndex.MutableProjection();
+        for (int i = 0; i < count; i += 37) {
+            RouteIndex.Projection projection = index.nearest(latitudes[i] + 0.0004, longitudes[i] + 0.002, 1000);
+            assertTrue(index.nearest(latitudes[i] + 0.0004, longitudes[i] + 0.002, 1000, mutable));
+            assertEquals(projection.distanceInMeters, mutable.distanceInMeters, 1e-9);
+            assertEquals(projection.offsetInMeters, mutable.offsetInMeters, 1e-9);
+            assertEquals(projection.segmentIndex, mutable.segmentIndex);
+        }
+        assertFalse(index.nearest(60.0, 11.0, 1000, mutable));
+
+        MetricsTest.JvmAllocationCounter allocations = new MetricsTest.JvmAllocationCounter();
+        if (allocations.allocatedBytes() < 0) {
+            return;
+        }
+        // warm up, then the queries must not allocate, a boxed cell key per probe would be hundreds of KB
+        int matches = 0;
+        for (int round = 0; round < 2; round++) {
+            long before = allocations.allocatedBytes();
+            for (int i = 0; i < 10000; i++) {
+                int vertex = i % count;
+                if (index.nearest(latitudes[vertex] + 0.0004, longitudes[vertex] + 0.002, 1000, mutable)) {
+                    matches++;
+                }
+                if (index.isWithin(latitudes[vertex] + 0.0004, longitudes[vertex], 200)) {
+                    matches++;
+                }
+            }
+            if (round == 1) {
+                assertTrue(allocations.allocatedBytes() - before < 1024);
+            }
+        }
+        assertEquals(40000, matches);
+    }
+}
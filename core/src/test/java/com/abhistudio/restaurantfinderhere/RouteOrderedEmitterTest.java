@@ -0,0 +1,95 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for RouteOrderedEmitter and FrameBatcher.
+ */
+public class RouteOrderedEmitterTest {
+
+    static class RecordingListener implements PlaceMatchListener {
+        final List<String> emitted = new ArrayList<>();
+        boolean finished;
+
+        @Override
+        public void onPlaceMatched(PlaceMatchAssembler.Match<PlaceRecord> match) {
+            emitted.add(match.id);
+        }
+
+        @Override
+        public void onSearchFinished(int matchCount, int duplicatesAvoided) {
+            finished = true;
+        }
+    }
+
+    private static List<PlaceMatchAssembler.Match<PlaceRecord>> matches(PlaceMatchAssembler<PlaceRecord> assembler,
+                                                                        String id, double offset) {
+        assembler.offer(id, new PlaceRecord(id, id, 0, 0), 10, offset);
+        return assembler.takePending();
+    }
+
+    @Test
+    public void places_areEmittedInRouteOrderOnceEarlierChunksCompleted() {
+        RouteIndex routeIndex = CorridorPlannerTest.straightRoute(1001);
+        List<CorridorPlanner.Chunk> chunks = new CorridorPlanner(40000, 1000, 1000).plan(routeIndex);
+        assertEquals(3, chunks.size());
+        PlaceMatchAssembler<PlaceRecord> assembler = new PlaceMatchAssembler<>();
+        RecordingListener listener = new RecordingListener();
+        RouteOrderedEmitter emitter = new RouteOrderedEmitter(chunks, 200, listener);
+
+        // chunk 2 completes first, nothing can be emitted while chunk 0 and 1 are running
+        emitter.onPlacesFound(chunks.get(2), matches(assembler, "c", 100000));
+        assertTrue(listener.emitted.isEmpty());
+
+        // chunk 0 is done, its places before the start of chunk 1 are emitted in order
+        List<PlaceMatchAssembler.Match<PlaceRecord>> first = new ArrayList<>();
+        first.addAll(matches(assembler, "a2", 20000));
+        first.addAll(matches(assembler, "a1", 5000));
+        first.addAll(matches(assembler, "overlap", chunks.get(1).startOffsetInMeters + 50));
+        emitter.onPlacesFound(chunks.get(0), first);
+        assertEquals(Arrays.asList("a1", "a2"), listener.emitted);
+
+        emitter.onChunkFailed(chunks.get(1), SearchFailure.OTHER);
+        assertEquals(Arrays.asList("a1", "a2", "overlap", "c"), listener.emitted);
+
+        emitter.onSearchFinished(4, 0);
+        assertTrue(listener.finished);
+    }
+
+    @Test
+    public void frameBatcher_rendersAtMostMaxItemsPerFrame() {
+        final List<Runnable> frames = new ArrayList<>();
+        final List<Integer> rendered = new ArrayList<>();
+        FrameBatcher<Integer> batcher = new FrameBatcher<>(new FrameBatcher.FrameScheduler() {
+            @Override
+            public void scheduleFrame(Runnable onFrame) {
+                frames.add(onFrame);
+            }
+        }, 2, new FrameBatcher.Renderer<Integer>() {
+            @Override
+            public void render(Integer item) {
+                rendered.add(item);
+            }
+        });
+
+        for (int i = 0; i < 5; i++) {
+            batcher.add(i);
+        }
+        assertEquals(1, frames.size());
+        assertTrue(rendered.isEmpty());
+
+        frames.get(0).run();
+        assertEquals(Arrays.asList(0, 1), rendered);
+        frames.get(1).run();
+        frames.get(2).run();
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), rendered);
+        assertEquals(3, frames.size());
+        assertEquals(3, batcher.getFramesFlushed());
+    }
+}
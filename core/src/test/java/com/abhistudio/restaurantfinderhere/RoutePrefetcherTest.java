@@ -0,0 +1,102 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for RoutePrefetcher, on a straight route of about 111 km split into 6 chunks.
+ */
+public class RoutePrefetcherTest {
+
+    private final RouteIndex routeIndex = CorridorPlannerTest.straightRoute(1001);
+    private final List<CorridorPlanner.Chunk> chunks = new CorridorPlanner(20000, 1000, 1000).plan(routeIndex);
+
+    @Test
+    public void window_prefetchesAheadInRouteOrderWithinBudget() {
+        CorridorSearchTest.DeferredBackend backend = new CorridorSearchTest.DeferredBackend();
+        RoutePrefetcher prefetcher = new RoutePrefetcher(backend, "restaurants", 30, 30000, 0, 1, 4);
+        prefetcher.setRoute(routeIndex, chunks, 200, null);
+
+        // one request at a time, the chunks starting within 30 km of the origin
+        assertEquals(1, backend.pending());
+        backend.complete(0, null);
+        assertTrue(prefetcher.isPrefetched(0));
+        assertEquals(1, backend.pending());
+        backend.complete(1, null);
+        assertEquals(0, backend.pending());
+        assertEquals(2, prefetcher.getRequestCount());
+
+        // nothing new starts while paused, the vehicle passed chunk 0 at about 33 km
+        prefetcher.setPaused(true);
+        prefetcher.updatePosition(50.3, 8.0);
+        assertEquals(33000, prefetcher.getOffsetInMeters(), 500);
+        assertEquals(1, prefetcher.getEvictedCount());
+        assertFalse(prefetcher.isPrefetched(0));
+        assertTrue(prefetcher.isPrefetched(1));
+        assertEquals(0, backend.pending());
+
+        // after the pause chunks 2 and 3 enter the window, then the budget of 4 requests is used up
+        prefetcher.setPaused(false);
+        backend.complete(2, null);
+        backend.complete(3, null);
+        assertEquals(4, prefetcher.getRequestCount());
+        assertEquals(4, prefetcher.getPrefetchedCount());
+        prefetcher.updatePosition(50.6, 8.0);
+        assertEquals(0, backend.pending());
+        assertEquals(4, backend.callbacks.size());
+    }
+
+    @Test
+    public void positions_offRouteOrBehindDoNotMoveTheWindow() {
+        CorridorSearchTest.DeferredBackend backend = new CorridorSearchTest.DeferredBackend();
+        RoutePrefetcher prefetcher = new RoutePrefetcher(backend, "restaurants", 30, 10000, 0, 2, 10);
+        prefetcher.setRoute(routeIndex, chunks, 200, null);
+
+        prefetcher.updatePosition(50.5, 8.0);
+        double offset = prefetcher.getOffsetInMeters();
+        prefetcher.updatePosition(50.6, 8.1);
+        prefetcher.updatePosition(50.4, 8.0);
+        assertEquals(offset, prefetcher.getOffsetInMeters(), 0);
+        assertEquals(offset + 10000, prefetcher.getWindowEndInMeters(), 0);
+    }
+
+    @Test
+    public void timeWindow_followsTheSpeedsOfTheSections() {
+        CorridorSearchTest.DeferredBackend backend = new CorridorSearchTest.DeferredBackend();
+        RoutePrefetcher prefetcher = new RoutePrefetcher(backend, "restaurants", 30, 0, 1000, 1, 10);
+        // 50 km at 25 m/s, then 61 km at 10 m/s
+        DetourEstimator speeds = new DetourEstimator(new double[]{50000, 61000}, new double[]{2000, 6100},
+                routeIndex.getLengthInMeters(), 1.4, 14);
+        prefetcher.setRoute(routeIndex, chunks, 200, speeds);
+        assertEquals(25000, prefetcher.getWindowEndInMeters(), 1);
+
+        prefetcher.updatePosition(50.45, 8.0);
+        double offset = prefetcher.getOffsetInMeters();
+        double fastSeconds = (50000 * routeIndex.getLengthInMeters() / 111000 - offset) / 25;
+        assertEquals(offset + (50000 * routeIndex.getLengthInMeters() / 111000 - offset) + (1000 - fastSeconds) * 10,
+                prefetcher.getWindowEndInMeters(), 300);
+    }
+
+    @Test
+    public void newRoute_dropsLateResultsOfTheOldOne() {
+        CorridorSearchTest.DeferredBackend backend = new CorridorSearchTest.DeferredBackend();
+        RoutePrefetcher prefetcher = new RoutePrefetcher(backend, "restaurants", 30, 30000, 0, 1, 10);
+        prefetcher.setRoute(routeIndex, chunks, 200, null);
+        prefetcher.setRoute(routeIndex, chunks, 200, null);
+        assertEquals(2, backend.pending());
+
+        backend.complete(0, null);
+        assertEquals(0, prefetcher.getPrefetchedCount());
+        backend.complete(1, null);
+        assertEquals(1, prefetcher.getPrefetchedCount());
+
+        prefetcher.clear();
+        assertEquals(1, backend.pending());
+        backend.complete(2, null);
+        assertEquals(1, prefetcher.getPrefetchedCount());
+        assertEquals(3, backend.callbacks.size());
+    }
+}
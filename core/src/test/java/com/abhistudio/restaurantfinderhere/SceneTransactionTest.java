@@ -0,0 +1,96 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for SceneTransaction.
+ */
+public class SceneTransactionTest {
+
+    // Scene recording its items and every bulk call it gets
+    private static class RecordingScene implements SceneTransaction.Scene<String> {
+        final Set<String> items = new LinkedHashSet<>();
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void addAll(List<String> added) {
+            calls.add("add " + added);
+            for (String item : added) {
+                assertTrue(items.add(item));
+            }
+        }
+
+        @Override
+        public void removeAll(List<String> removed) {
+            calls.add("remove " + removed);
+            for (String item : removed) {
+                assertTrue(items.remove(item));
+            }
+        }
+    }
+
+    @Test
+    public void changes_areAppliedOnCommitOnly() {
+        RecordingScene scene = new RecordingScene();
+        SceneTransaction<String> transaction = new SceneTransaction<>(scene);
+        for (int i = 0; i < 300; i++) {
+            transaction.add("marker-" + i);
+        }
+        assertTrue(scene.items.isEmpty());
+        assertEquals(300, transaction.getPendingCount());
+
+        assertEquals(300, transaction.commit());
+        // one call for all of them
+        assertEquals(1, scene.calls.size());
+        assertEquals(300, scene.items.size());
+        assertEquals(0, transaction.getPendingCount());
+    }
+
+    @Test
+    public void replacedLayer_isSwappedInOneCommit() {
+        RecordingScene scene = new RecordingScene();
+        SceneTransaction<String> transaction = new SceneTransaction<>(scene);
+        transaction.add("a");
+        transaction.add("b");
+        transaction.commit();
+
+        transaction.remove("a");
+        transaction.remove("b");
+        transaction.add("c");
+        transaction.commit();
+
+        // the old items are removed before the new ones are added
+        assertEquals(Arrays.asList("add [a, b]", "remove [a, b]", "add [c]"), scene.calls);
+        assertEquals(new LinkedHashSet<>(Arrays.asList("c")), scene.items);
+        assertEquals(2, transaction.getCommitCount());
+    }
+
+    @Test
+    public void onlyTheNetChange_isApplied() {
+        RecordingScene scene = new RecordingScene();
+        SceneTransaction<String> transaction = new SceneTransaction<>(scene);
+        transaction.add("kept");
+        transaction.commit();
+
+        // added and removed again, never reaches the scene
+        transaction.add("gone");
+        transaction.remove("gone");
+        // removed and added again, e.g. a pooled marker reused in the same frame, stays on the scene
+        transaction.remove("kept");
+        transaction.add("kept");
+
+        assertEquals(0, transaction.getPendingCount());
+        assertEquals(0, transaction.commit());
+        assertEquals(1, scene.calls.size());
+        assertEquals(1, transaction.getCommitCount());
+        assertTrue(scene.items.contains("kept"));
+    }
+}
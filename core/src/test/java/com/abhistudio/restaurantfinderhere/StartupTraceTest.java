@@ -0,0 +1,76 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for StartupTrace.
+ */
+public class StartupTraceTest {
+
+    // Tracer recording the sections it gets
+    private static class RecordingTracer implements StartupTrace.Tracer {
+        final List<String> sections = new ArrayList<>();
+
+        @Override
+        public void beginSection(String name, int cookie) {
+            sections.add("begin " + name + " " + cookie);
+        }
+
+        @Override
+        public void endSection(String name, int cookie) {
+            sections.add("end " + name + " " + cookie);
+        }
+    }
+
+    @Test
+    public void overlappingPhases_areRecordedAndTraced() {
+        RecordingTracer tracer = new RecordingTracer();
+        StartupTrace trace = new StartupTrace(tracer);
+        StartupTrace.Section scene = trace.begin("map.loadScene");
+        StartupTrace.Section engine = trace.begin("engine.routing");
+        assertEquals(-1, trace.getPhaseNanos("map.loadScene"));
+
+        scene.end();
+        engine.end();
+        // a second end changes nothing
+        engine.end();
+
+        assertTrue(trace.getPhaseNanos("map.loadScene") >= 0);
+        assertTrue(trace.getPhaseNanos("engine.routing") >= 0);
+        assertEquals(-1, trace.getPhaseNanos("engine.search"));
+        assertEquals(Arrays.asList("begin map.loadScene 0", "begin engine.routing 1",
+                "end map.loadScene 0", "end engine.routing 1"), tracer.sections);
+    }
+
+    @Test
+    public void milestones_keepTheirFirstTime() {
+        StartupTrace trace = new StartupTrace(StartupTrace.NO_TRACER);
+        assertEquals(-1, trace.getMarkNanos("interactive"));
+
+        trace.mark("interactive");
+        long interactive = trace.getMarkNanos("interactive");
+        assertTrue(interactive >= 0);
+        trace.mark("interactive");
+        assertEquals(interactive, trace.getMarkNanos("interactive"));
+    }
+
+    @Test
+    public void dump_listsPhasesInOrder() {
+        StartupTrace trace = new StartupTrace(StartupTrace.NO_TRACER);
+        trace.begin("activity.onCreate").end();
+        trace.begin("engine.search");
+        trace.mark("interactive");
+
+        String[] lines = trace.dump().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].matches("activity\\.onCreate: \\d+\\.\\d ms"));
+        assertEquals("engine.search: running", lines[1]);
+        assertTrue(lines[2].startsWith("interactive after "));
+    }
+}
@@ -0,0 +1,77 @@
+package com.abhistudio.restaurantfinderhere;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for ViewportCuller.
+ */
+public class ViewportCullerTest {
+
+    @Test
+    public void region_isTheViewportWithMargin() {
+        ViewportCuller culler = new ViewportCuller(0.5, 13);
+        assertTrue(culler.contains(10, 100));
+
+        assertTrue(culler.update(52.0, 13.0, 52.2, 13.4, 12));
+        // half the viewport size beyond every edge
+        assertTrue(culler.contains(52.29, 13.59));
+        assertTrue(culler.contains(51.91, 12.81));
+        assertFalse(culler.contains(52.31, 13.2));
+        assertFalse(culler.contains(52.1, 12.79));
+        assertEquals(1, culler.getRegionCount());
+    }
+
+    @Test
+    public void smallMoves_keepTheRegion() {
+        ViewportCuller culler = new ViewportCuller(0.5, 13);
+        culler.update(52.0, 13.0, 52.2, 13.4, 12);
+
+        // panning within the margin and zooming within the same level change nothing
+        assertFalse(culler.update(52.05, 13.1, 52.25, 13.5, 12));
+        assertFalse(culler.update(52.05, 13.15, 52.15, 13.3, 12));
+        assertEquals(1, culler.getRegionCount());
+
+        // leaving the margin takes a new region around the new viewport
+        assertTrue(culler.update(52.25, 13.0, 52.45, 13.4, 12));
+        assertTrue(culler.contains(52.5, 13.2));
+        assertFalse(culler.contains(52.0, 13.2));
+        assertEquals(2, culler.getRegionCount());
+    }
+
+    @Test
+    public void labels_areHiddenBelowTheLabelZoom() {
+        ViewportCuller culler = new ViewportCuller(0.5, 13);
+        culler.update(52.0, 13.0, 52.2, 13.4, 12);
+        assertFalse(culler.showsLabels());
+
+        // a new zoom level culls again, even inside the region
+        assertTrue(culler.update(52.05, 13.1, 52.1, 13.2, 13));
+        assertTrue(culler.showsLabels());
+    }
+
+    @Test
+    public void viewportAcrossTheAntimeridian_wraps() {
+        ViewportCuller culler = new ViewportCuller(0.5, 13);
+        culler.update(-20, 170, -10, -170, 6);
+
+        assertTrue(culler.contains(-15, 179));
+        assertTrue(culler.contains(-15, -179));
+        assertTrue(culler.contains(-15, 165));
+        assertTrue(culler.contains(-15, -165));
+        assertFalse(culler.contains(-15, 0));
+        assertFalse(culler.update(-18, 175, -12, -175, 6));
+    }
+
+    @Test
+    public void showAll_coversTheWorld() {
+        ViewportCuller culler = new ViewportCuller(0.5, 13);
+        culler.update(52.0, 13.0, 52.2, 13.4, 14);
+        assertFalse(culler.contains(48.1, 11.6));
+
+        assertTrue(culler.showAll(14));
+        assertTrue(culler.contains(48.1, 11.6));
+        assertFalse(culler.showAll(14));
+    }
+}
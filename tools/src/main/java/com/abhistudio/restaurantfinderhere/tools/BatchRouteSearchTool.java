@@ -0,0 +1,342 @@
+package com.abhistudio.restaurantfinderhere.tools;
+
+import com.abhistudio.restaurantfinderhere.AdaptiveSearchController;
+import com.abhistudio.restaurantfinderhere.BatchRouteSearch;
+import com.abhistudio.restaurantfinderhere.CachingPlaceSearchBackend;
+import com.abhistudio.restaurantfinderhere.FakePlaceSearchBackend;
+import com.abhistudio.restaurantfinderhere.OfflinePlaceSearchBackend;
+import com.abhistudio.restaurantfinderhere.PlaceRanker;
+import com.abhistudio.restaurantfinderhere.PlaceRecord;
+import com.abhistudio.restaurantfinderhere.PlaceSearchBackend;
+import com.abhistudio.restaurantfinderhere.PlaceTileCache;
+import com.abhistudio.restaurantfinderhere.PoiPack;
+import com.abhistudio.restaurantfinderhere.RouteRecord;
+import com.abhistudio.restaurantfinderhere.RouteSearchEngine;
+import com.abhistudio.restaurantfinderhere.SearchArea;
+import com.abhistudio.restaurantfinderhere.SearchFailure;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Command line runner of a BatchRouteSearch over a file of trips.
+ * <pre>
+ *   BatchRouteSearchTool trips.jsonl|trips.csv results.jsonl|results.csv poi.pack|fake [threads] [cacheDirectory]
+ * </pre>
+ * JSON Lines trips have one object per line: {"id": "trip-1", "coordinates": [[longitude, latitude], ...]},
+ * the coordinates in GeoJSON order. CSV trips have the columns trip,latitude,longitude, consecutive lines
+ * of the same trip form its route and a first line starting with "trip" is skipped.
+ *
+ * Restaurants are searched in the given PoiPack, outside of it the searches fail, or in the synthetic
+ * places of the FakePlaceSearchBackend for load tests. With a cacheDirectory the searches go through a
+ * CachingPlaceSearchBackend shared by all trips.
+ */
+public final class BatchRouteSearchTool {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String QUERY = "restaurants";
+    // Restaurants written per trip, the ones with the shortest detour
+    private static final int MAX_PLACES_PER_TRIP = 50;
+    // Trips searched at the same time per thread of the pool, the searches of a trip wait for the backend
+    private static final int TRIPS_IN_FLIGHT_PER_THREAD = 4;
+    private static final int MAX_SEARCHES_IN_FLIGHT_PER_TRIP = 4;
+    private static final int MAX_PREPARED_ROUTES = 64;
+    // Place cache of the searches, see CachingPlaceSearchBackend
+    private static final long PLACE_TILE_CACHE_TIME_TO_LIVE_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final long PLACE_TILE_CACHE_MAX_BYTES = 500 * 1024 * 1024L;
+    private static final int PLACE_TILE_LEVEL = 14;
+    private static final int MAX_ITEMS_PER_TILE = 50;
+    // Corridor widening of the AdaptiveSearchController, as in the app
+    private static final double MAX_HALF_WIDTH_IN_METERS = 1000;
+    private static final int TARGET_PLACES_PER_CHUNK = 10;
+    private static final int MAX_ITEMS_PER_REQUEST = 100;
+
+    private BatchRouteSearchTool() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 3) {
+            System.err.println("Usage: BatchRouteSearchTool trips.jsonl|trips.csv results.jsonl|results.csv "
+                    + "poi.pack|fake [threads] [cacheDirectory]");
+            System.exit(2);
+            return;
+        }
+        File input = new File(args[0]);
+        File output = new File(args[1]);
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        PlaceSearchBackend backend;
+        if ("fake".equals(args[2])) {
+            backend = new FakePlaceSearchBackend(1, null);
+        } else {
+            backend = new OfflinePlaceSearchBackend(PoiPack.open(new File(args[2])), new PlaceSearchBackend() {
+                @Override
+                public void search(SearchArea area, String query, int maxItems, Callback callback) {
+                    callback.onSearchCompleted(SearchFailure.OTHER, null);
+                }
+            });
+        }
+        if (args.length > 4) {
+            PlaceTileCache cache = new PlaceTileCache(new File(args[4]), PLACE_TILE_CACHE_TIME_TO_LIVE_MILLIS,
+                    PLACE_TILE_CACHE_MAX_BYTES, PlaceTileCache.SYSTEM_CLOCK);
+            backend = new CachingPlaceSearchBackend(backend, cache, PLACE_TILE_LEVEL, MAX_ITEMS_PER_TILE,
+                    threads * TRIPS_IN_FLIGHT_PER_THREAD);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        RouteSearchEngine engine = new RouteSearchEngine(backend, MAX_SEARCHES_IN_FLIGHT_PER_TRIP, pool,
+                new AdaptiveSearchController(MAX_HALF_WIDTH_IN_METERS, TARGET_PLACES_PER_CHUNK, MAX_ITEMS_PER_REQUEST,
+                        AdaptiveSearchController.IMMEDIATE), MAX_PREPARED_ROUTES);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(input), UTF_8));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output), UTF_8));
+        BatchRouteSearch.Summary summary;
+        try {
+            boolean jsonInput = input.getName().toLowerCase(Locale.US).endsWith(".jsonl");
+            Iterator<BatchRouteSearch.Trip> trips = jsonInput ? readJsonLines(reader) : readCsv(reader);
+            boolean jsonOutput = output.getName().toLowerCase(Locale.US).endsWith(".jsonl");
+            BatchRouteSearch.ResultWriter resultWriter = jsonOutput ? jsonLinesWriter(writer) : csvWriter(writer);
+            summary = new BatchRouteSearch(engine, pool, QUERY, threads * TRIPS_IN_FLIGHT_PER_THREAD,
+                    MAX_PLACES_PER_TRIP, resultWriter).run(trips);
+        } finally {
+            reader.close();
+            writer.close();
+            pool.shutdown();
+        }
+        System.out.println(String.format(Locale.US, "Searched %d trips (%d failed) on %d threads in %d ms, "
+                        + "%.1f trips/s, %d %s written, %d chunk searches failed",
+                summary.tripCount, summary.failedTripCount, threads, summary.durationNanos / 1000000,
+                summary.getTripsPerSecond(), summary.placeCount, QUERY, summary.failedChunkCount));
+    }
+
+    /**
+     * Reads the trips of a JSON Lines file one line at a time
+     * */
+    static Iterator<BatchRouteSearch.Trip> readJsonLines(final BufferedReader reader) {
+        return new TripIterator() {
+            private int lineNumber;
+
+            @Override
+            @SuppressWarnings("unchecked")
+            BatchRouteSearch.Trip readTrip() throws IOException {
+                String line;
+                do {
+                    line = reader.readLine();
+                    lineNumber++;
+                    if (line == null) {
+                        return null;
+                    }
+                } while (line.trim().isEmpty());
+                Object root = new PoiPackImporter.JsonParser(new StringReader(line)).parse();
+                if (!(root instanceof Map) || !(((Map<String, Object>) root).get("coordinates") instanceof List)) {
+                    throw new IOException("Line " + lineNumber + ": expected an object with coordinates");
+                }
+                Map<String, Object> trip = (Map<String, Object>) root;
+                List<Object> coordinates = (List<Object>) trip.get("coordinates");
+                double[] latitudes = new double[coordinates.size()];
+                double[] longitudes = new double[coordinates.size()];
+                for (int i = 0; i < coordinates.size(); i++) {
+                    List<Object> position = (List<Object>) coordinates.get(i);
+                    longitudes[i] = ((Number) position.get(0)).doubleValue();
+                    latitudes[i] = ((Number) position.get(1)).doubleValue();
+                }
+                Object id = trip.get("id");
+                if (id instanceof Number && ((Number) id).doubleValue() == ((Number) id).longValue()) {
+                    // numeric ids are parsed as doubles, 7 stays 7 rather than 7.0
+                    id = ((Number) id).longValue();
+                }
+                return new BatchRouteSearch.Trip(id != null ? String.valueOf(id) : "line-" + lineNumber,
+                        route(latitudes, longitudes));
+            }
+        };
+    }
+
+    /**
+     * Reads the trips of a CSV file of trip,latitude,longitude lines, one trip at a time
+     * */
+    static Iterator<BatchRouteSearch.Trip> readCsv(final BufferedReader reader) {
+        return new TripIterator() {
+            private int lineNumber;
+            // first line of the next trip, read while looking for the end of the current one
+            private List<String> next;
+
+            @Override
+            BatchRouteSearch.Trip readTrip() throws IOException {
+                if (next == null) {
+                    next = readLine();
+                    if (next == null) {
+                        return null;
+                    }
+                }
+                String id = next.get(0);
+                List<double[]> positions = new ArrayList<>();
+                while (next != null && next.get(0).equals(id)) {
+                    try {
+                        positions.add(new double[]{Double.parseDouble(next.get(1).trim()),
+                                Double.parseDouble(next.get(2).trim())});
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Line " + lineNumber + ": " + e.getMessage());
+                    }
+                    next = readLine();
+                }
+                double[] latitudes = new double[positions.size()];
+                double[] longitudes = new double[positions.size()];
+                for (int i = 0; i < positions.size(); i++) {
+                    latitudes[i] = positions.get(i)[0];
+                    longitudes[i] = positions.get(i)[1];
+                }
+                return new BatchRouteSearch.Trip(id, route(latitudes, longitudes));
+            }
+
+            private List<String> readLine() throws IOException {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (line.trim().isEmpty() || (lineNumber == 1 && line.toLowerCase(Locale.US).startsWith("trip"))) {
+                        continue;
+                    }
+                    List<String> columns = PoiPackImporter.splitCsv(line);
+                    if (columns.size() < 3) {
+                        throw new IOException("Line " + lineNumber + ": expected trip,latitude,longitude");
+                    }
+                    return columns;
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Writes one JSON object per trip with its places ranked by detour, in route order
+     * */
+    static BatchRouteSearch.ResultWriter jsonLinesWriter(final Writer writer) {
+        return new BatchRouteSearch.ResultWriter() {
+            @Override
+            public void write(BatchRouteSearch.Trip trip, List<PlaceRanker.RankedPlace<PlaceRecord>> places,
+                              int failedChunks) throws IOException {
+                StringBuilder line = new StringBuilder("{\"trip\":");
+                appendJsonString(line, trip.id);
+                line.append(",\"failedChunks\":").append(failedChunks).append(",\"places\":[");
+                for (int i = 0; i < places.size(); i++) {
+                    PlaceRanker.RankedPlace<PlaceRecord> ranked = places.get(i);
+                    PlaceRecord place = ranked.match.place;
+                    line.append(i == 0 ? "{\"id\":" : ",{\"id\":");
+                    appendJsonString(line, place.id);
+                    line.append(",\"title\":");
+                    appendJsonString(line, place.title);
+                    line.append(String.format(Locale.US, ",\"latitude\":%.7f,\"longitude\":%.7f,\"distanceInMeters\":%.1f,"
+                                    + "\"offsetInMeters\":%.1f,\"detourSeconds\":%.1f}",
+                            place.latitude, place.longitude, ranked.getLateralDistanceInMeters(),
+                            ranked.getOffsetInMeters(), ranked.detourSeconds));
+                }
+                writer.write(line.append("]}\n").toString());
+            }
+        };
+    }
+
+    /**
+     * Writes one CSV line per place, after a header line
+     * */
+    static BatchRouteSearch.ResultWriter csvWriter(final Writer writer) throws IOException {
+        writer.write("trip,id,title,latitude,longitude,distanceInMeters,offsetInMeters,detourSeconds\n");
+        return new BatchRouteSearch.ResultWriter() {
+            @Override
+            public void write(BatchRouteSearch.Trip trip, List<PlaceRanker.RankedPlace<PlaceRecord>> places,
+                              int failedChunks) throws IOException {
+                StringBuilder lines = new StringBuilder();
+                for (PlaceRanker.RankedPlace<PlaceRecord> ranked : places) {
+                    PlaceRecord place = ranked.match.place;
+                    lines.append(csvColumn(trip.id)).append(',').append(csvColumn(place.id)).append(',')
+                            .append(csvColumn(place.title))
+                            .append(String.format(Locale.US, ",%.7f,%.7f,%.1f,%.1f,%.1f\n", place.latitude,
+                                    place.longitude, ranked.getLateralDistanceInMeters(), ranked.getOffsetInMeters(),
+                                    ranked.detourSeconds));
+                }
+                writer.write(lines.toString());
+            }
+        };
+    }
+
+    // Trips only have a polyline, the detours are estimated with the maximum access speed
+    private static RouteRecord route(double[] latitudes, double[] longitudes) {
+        return new RouteRecord(latitudes, longitudes, new double[0], new double[0], Collections.<String>emptyList());
+    }
+
+    private static String csvColumn(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static void appendJsonString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format(Locale.US, "\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Iterator reading one trip ahead, IOExceptions of the reader are rethrown as UncheckedIOException
+     * */
+    private abstract static class TripIterator implements Iterator<BatchRouteSearch.Trip> {
+        private BatchRouteSearch.Trip next;
+        private boolean read;
+
+        abstract BatchRouteSearch.Trip readTrip() throws IOException;
+
+        @Override
+        public boolean hasNext() {
+            if (!read) {
+                try {
+                    next = readTrip();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                read = true;
+            }
+            return next != null;
+        }
+
+        @Override
+        public BatchRouteSearch.Trip next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            read = false;
+            return next;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
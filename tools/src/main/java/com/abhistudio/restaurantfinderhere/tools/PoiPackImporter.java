@@ -0,0 +1,337 @@
+package com.abhistudio.restaurantfinderhere.tools;
+
+import com.abhistudio.restaurantfinderhere.PlaceRecord;
+import com.abhistudio.restaurantfinderhere.PoiPack;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line importer building a PoiPack from a CSV or GeoJSON file.
+ * <pre>
+ *   PoiPackImporter input.csv|input.geojson output.pack [category] [level]
+ * </pre>
+ * CSV files have the columns id,title,latitude,longitude, a first line starting with "id" is skipped.
+ * GeoJSON files are a FeatureCollection of Points, the title is the "name" or "title" property
+ * and the id the feature id or the "id" property.
+ */
+public final class PoiPackImporter {
+
+    private static final String DEFAULT_CATEGORY = "restaurants";
+    private static final int DEFAULT_LEVEL = 14;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private PoiPackImporter() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: PoiPackImporter input.csv|input.geojson output.pack [category] [level]");
+            System.exit(2);
+            return;
+        }
+        File input = new File(args[0]);
+        File output = new File(args[1]);
+        String category = args.length > 2 ? args[2] : DEFAULT_CATEGORY;
+        int level = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_LEVEL;
+
+        long start = System.nanoTime();
+        Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(input), UTF_8));
+        List<PlaceRecord> places;
+        try {
+            String name = input.getName().toLowerCase();
+            places = name.endsWith(".json") || name.endsWith(".geojson") ? readGeoJson(reader) : readCsv(reader);
+        } finally {
+            reader.close();
+        }
+        int written = PoiPack.write(output, category, level, places);
+        System.out.println("Wrote " + written + " " + category + " to " + output + " (" + output.length()
+                + " bytes) in " + (System.nanoTime() - start) / 1000000 + " ms");
+        if (written < places.size()) {
+            System.err.println("Skipped " + (places.size() - written) + " places with an ID or title too long for the pack");
+        }
+    }
+
+    /**
+     * Reads places from CSV lines of id,title,latitude,longitude, titles may be quoted
+     * */
+    static List<PlaceRecord> readCsv(Reader reader) throws IOException {
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        List<PlaceRecord> places = new ArrayList<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty() || (lineNumber == 1 && line.toLowerCase().startsWith("id"))) {
+                continue;
+            }
+            List<String> columns = splitCsv(line);
+            if (columns.size() < 4) {
+                throw new IOException("Line " + lineNumber + ": expected id,title,latitude,longitude");
+            }
+            try {
+                places.add(new PlaceRecord(columns.get(0), columns.get(1),
+                        Double.parseDouble(columns.get(2).trim()), Double.parseDouble(columns.get(3).trim())));
+            } catch (NumberFormatException e) {
+                throw new IOException("Line " + lineNumber + ": " + e.getMessage());
+            }
+        }
+        return places;
+    }
+
+    /**
+     * Reads the Point features of a GeoJSON FeatureCollection
+     * */
+    @SuppressWarnings("unchecked")
+    static List<PlaceRecord> readGeoJson(Reader reader) throws IOException {
+        Object root = new JsonParser(reader).parse();
+        if (!(root instanceof Map) || !(((Map<String, Object>) root).get("features") instanceof List)) {
+            throw new IOException("Expected a GeoJSON FeatureCollection");
+        }
+        List<PlaceRecord> places = new ArrayList<>();
+        int index = 0;
+        for (Object item : (List<Object>) ((Map<String, Object>) root).get("features")) {
+            index++;
+            if (!(item instanceof Map)) {
+                continue;
+            }
+            Map<String, Object> feature = (Map<String, Object>) item;
+            Object geometry = feature.get("geometry");
+            if (!(geometry instanceof Map) || !"Point".equals(((Map<String, Object>) geometry).get("type"))) {
+                continue;
+            }
+            List<Object> coordinates = (List<Object>) ((Map<String, Object>) geometry).get("coordinates");
+            Map<String, Object> properties = feature.get("properties") instanceof Map
+                    ? (Map<String, Object>) feature.get("properties") : new LinkedHashMap<String, Object>();
+            Object id = feature.get("id") != null ? feature.get("id") : properties.get("id");
+            Object title = properties.get("name") != null ? properties.get("name") : properties.get("title");
+            // GeoJSON positions are longitude first
+            places.add(new PlaceRecord(id != null ? String.valueOf(id) : "feature-" + index,
+                    title != null ? String.valueOf(title) : "",
+                    ((Number) coordinates.get(1)).doubleValue(), ((Number) coordinates.get(0)).doubleValue()));
+        }
+        return places;
+    }
+
+    static List<String> splitCsv(String line) {
+        List<String> columns = new ArrayList<>();
+        StringBuilder column = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    column.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    column.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                columns.add(column.toString());
+                column.setLength(0);
+            } else {
+                column.append(c);
+            }
+        }
+        columns.add(column.toString());
+        return columns;
+    }
+
+    // Minimal JSON parser for the importers: objects become Maps, arrays Lists, numbers Doubles
+    static class JsonParser {
+        private final Reader reader;
+        private int next = -2;
+
+        JsonParser(Reader reader) {
+            this.reader = reader;
+        }
+
+        Object parse() throws IOException {
+            Object value = value();
+            if (peekSkippingWhitespace() != -1) {
+                throw new IOException("Unexpected content after JSON value");
+            }
+            return value;
+        }
+
+        private Object value() throws IOException {
+            int c = peekSkippingWhitespace();
+            switch (c) {
+                case '{':
+                    return object();
+                case '[':
+                    return array();
+                case '"':
+                    return string();
+                case 't':
+                    literal("true");
+                    return Boolean.TRUE;
+                case 'f':
+                    literal("false");
+                    return Boolean.FALSE;
+                case 'n':
+                    literal("null");
+                    return null;
+                default:
+                    if (c == '-' || (c >= '0' && c <= '9')) {
+                        return number();
+                    }
+                    throw new IOException("Unexpected character '" + (char) c + "'");
+            }
+        }
+
+        private Map<String, Object> object() throws IOException {
+            Map<String, Object> object = new LinkedHashMap<>();
+            read();
+            if (peekSkippingWhitespace() == '}') {
+                read();
+                return object;
+            }
+            while (true) {
+                if (peekSkippingWhitespace() != '"') {
+                    throw new IOException("Expected a property name");
+                }
+                String name = string();
+                expect(':');
+                object.put(name, value());
+                int c = peekSkippingWhitespace();
+                read();
+                if (c == '}') {
+                    return object;
+                }
+                if (c != ',') {
+                    throw new IOException("Expected ',' or '}'");
+                }
+            }
+        }
+
+        private List<Object> array() throws IOException {
+            List<Object> array = new ArrayList<>();
+            read();
+            if (peekSkippingWhitespace() == ']') {
+                read();
+                return array;
+            }
+            while (true) {
+                array.add(value());
+                int c = peekSkippingWhitespace();
+                read();
+                if (c == ']') {
+                    return array;
+                }
+                if (c != ',') {
+                    throw new IOException("Expected ',' or ']'");
+                }
+            }
+        }
+
+        private String string() throws IOException {
+            read();
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                int c = read();
+                if (c == -1) {
+                    throw new IOException("Unterminated string");
+                }
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append((char) c);
+                    continue;
+                }
+                int escaped = read();
+                switch (escaped) {
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'u':
+                        char[] hex = new char[4];
+                        for (int i = 0; i < 4; i++) {
+                            hex[i] = (char) read();
+                        }
+                        value.append((char) Integer.parseInt(new String(hex), 16));
+                        break;
+                    default:
+                        value.append((char) escaped);
+                }
+            }
+        }
+
+        private Double number() throws IOException {
+            StringBuilder value = new StringBuilder();
+            int c = peek();
+            while (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' || (c >= '0' && c <= '9')) {
+                value.append((char) read());
+                c = peek();
+            }
+            try {
+                return Double.valueOf(value.toString());
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid number " + value);
+            }
+        }
+
+        private void literal(String literal) throws IOException {
+            for (int i = 0; i < literal.length(); i++) {
+                if (read() != literal.charAt(i)) {
+                    throw new IOException("Expected " + literal);
+                }
+            }
+        }
+
+        private void expect(char expected) throws IOException {
+            if (peekSkippingWhitespace() != expected) {
+                throw new IOException("Expected '" + expected + "'");
+            }
+            read();
+        }
+
+        private int peekSkippingWhitespace() throws IOException {
+            int c = peek();
+            while (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                read();
+                c = peek();
+            }
+            return c;
+        }
+
+        private int peek() throws IOException {
+            if (next == -2) {
+                next = reader.read();
+            }
+            return next;
+        }
+
+        private int read() throws IOException {
+            int c = peek();
+            next = -2;
+            return c;
+        }
+    }
+}
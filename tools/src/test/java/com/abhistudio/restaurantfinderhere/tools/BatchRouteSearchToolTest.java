@@ -0,0 +1,101 @@
+package com.abhistudio.restaurantfinderhere.tools;
+
+import com.abhistudio.restaurantfinderhere.BatchRouteSearch;
+import com.abhistudio.restaurantfinderhere.PlaceRecord;
+import com.abhistudio.restaurantfinderhere.PlaceSearchBackend;
+import com.abhistudio.restaurantfinderhere.RouteRecord;
+import com.abhistudio.restaurantfinderhere.RouteSearchEngine;
+import com.abhistudio.restaurantfinderhere.SearchArea;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the readers and writers of BatchRouteSearchTool.
+ */
+public class BatchRouteSearchToolTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    // about 11 km to the north, starting at the given longitude
+    private static RouteRecord route(double longitude) {
+        double[] latitudes = new double[101];
+        double[] longitudes = new double[101];
+        for (int i = 0; i < latitudes.length; i++) {
+            latitudes[i] = 50.0 + i * 0.001;
+            longitudes[i] = longitude;
+        }
+        return new RouteRecord(latitudes, longitudes, new double[0], new double[0], Collections.<String>emptyList());
+    }
+
+    private RouteSearchEngine engine(PlaceSearchBackend backend) {
+        return new RouteSearchEngine(backend, 2, pool, null, 8);
+    }
+
+    @Test
+    public void readers_readTheTripsOfJsonLinesAndCsv() {
+        Iterator<BatchRouteSearch.Trip> json = BatchRouteSearchTool.readJsonLines(new BufferedReader(new StringReader(
+                "{\"id\": \"a\", \"coordinates\": [[8.0, 50.0], [8.0, 50.1]]}\n\n"
+                        + "{\"id\": 7, \"coordinates\": [[9.0, 51.0], [9.1, 51.0], [9.2, 51.0]]}\n")));
+        BatchRouteSearch.Trip a = json.next();
+        assertEquals("a", a.id);
+        assertEquals(50.1, a.route.latitudes[1], 0);
+        assertEquals(8.0, a.route.longitudes[1], 0);
+        BatchRouteSearch.Trip b = json.next();
+        assertEquals("7", b.id);
+        assertEquals(3, b.route.latitudes.length);
+        assertFalse(json.hasNext());
+
+        Iterator<BatchRouteSearch.Trip> csv = BatchRouteSearchTool.readCsv(new BufferedReader(new StringReader(
+                "trip,latitude,longitude\na,50.0,8.0\na,50.1,8.0\nb,51.0,9.0\nb,51.0,9.1\nb,51.0,9.2\n")));
+        a = csv.next();
+        assertEquals("a", a.id);
+        assertEquals(2, a.route.latitudes.length);
+        assertEquals(50.1, a.route.latitudes[1], 0);
+        b = csv.next();
+        assertEquals("b", b.id);
+        assertEquals(9.2, b.route.longitudes[2], 0);
+        assertFalse(csv.hasNext());
+    }
+
+    @Test
+    public void writers_escapeTitles() throws Exception {
+        final PlaceRecord place = new PlaceRecord("p\"1", "Caf\u00e9, \"Zur Post\"", 50.05, 8.001);
+        List<BatchRouteSearch.Trip> trips = Collections.singletonList(new BatchRouteSearch.Trip("trip", route(8.0)));
+        PlaceSearchBackend backend = new PlaceSearchBackend() {
+            @Override
+            public void search(SearchArea area, String query, int maxItems, Callback callback) {
+                callback.onSearchCompleted(null, Collections.singletonList(place));
+            }
+        };
+
+        StringWriter json = new StringWriter();
+        new BatchRouteSearch(engine(backend), pool, "restaurants", 1, 10,
+                BatchRouteSearchTool.jsonLinesWriter(json)).run(trips.iterator());
+        assertTrue(json.toString().startsWith("{\"trip\":\"trip\",\"failedChunks\":0,\"places\":[{\"id\":\"p\\\"1\","
+                + "\"title\":\"Caf\u00e9, \\\"Zur Post\\\"\",\"latitude\":50.0500000,\"longitude\":8.0010000,"));
+        assertTrue(json.toString().endsWith("}]}\n"));
+
+        StringWriter csv = new StringWriter();
+        new BatchRouteSearch(engine(backend), pool, "restaurants", 1, 10,
+                BatchRouteSearchTool.csvWriter(csv)).run(trips.iterator());
+        String[] lines = csv.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[1].startsWith("trip,\"p\"\"1\",\"Caf\u00e9, \"\"Zur Post\"\"\",50.0500000,8.0010000,"));
+    }
+}
@@ -0,0 +1,61 @@
+package com.abhistudio.restaurantfinderhere.tools;
+
+import com.abhistudio.restaurantfinderhere.PlaceRecord;
+import com.abhistudio.restaurantfinderhere.PoiPack;
+import com.abhistudio.restaurantfinderhere.SearchArea;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for PoiPackImporter.
+ */
+public class PoiPackImporterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PoiPack writePack(List<PlaceRecord> places) throws Exception {
+        File file = new File(folder.getRoot(), "restaurants.pack");
+        PoiPack.write(file, "restaurants", 14, places);
+        return PoiPack.open(file);
+    }
+
+    @Test
+    public void importer_readsCsvAndGeoJson() throws Exception {
+        List<PlaceRecord> csv = PoiPackImporter.readCsv(new StringReader(
+                "id,title,latitude,longitude\n"
+                        + "1,\"Pizza, Pasta & \"\"More\"\"\",52.5,13.4\n"
+                        + "2,Caf\u00e9,48.1,11.5\n"));
+        assertEquals(2, csv.size());
+        assertEquals("Pizza, Pasta & \"More\"", csv.get(0).title);
+        assertEquals(13.4, csv.get(0).longitude, 0);
+        assertEquals("Caf\u00e9", csv.get(1).title);
+
+        List<PlaceRecord> geoJson = PoiPackImporter.readGeoJson(new StringReader(
+                "{\"type\": \"FeatureCollection\", \"features\": ["
+                        + "{\"type\": \"Feature\", \"id\": \"node/1\", \"geometry\": {\"type\": \"Point\","
+                        + " \"coordinates\": [13.4, 52.5]}, \"properties\": {\"name\": \"D\\u00f6ner\", \"cuisine\": null}},"
+                        + "{\"type\": \"Feature\", \"geometry\": {\"type\": \"LineString\", \"coordinates\": [[0, 0], [1, 1]]},"
+                        + " \"properties\": {}},"
+                        + "{\"type\": \"Feature\", \"geometry\": {\"type\": \"Point\", \"coordinates\": [-0.1, 51.5e0]},"
+                        + " \"properties\": {\"title\": \"Pub\", \"open\": true}}]}"));
+        assertEquals(2, geoJson.size());
+        assertEquals("node/1", geoJson.get(0).id);
+        assertEquals("D\u00f6ner", geoJson.get(0).title);
+        assertEquals(52.5, geoJson.get(0).latitude, 0);
+        assertEquals("feature-3", geoJson.get(1).id);
+        assertEquals(-0.1, geoJson.get(1).longitude, 0);
+
+        // and the pack keeps the UTF-8 titles
+        PoiPack pack = writePack(csv);
+        assertEquals("Caf\u00e9", pack.search(SearchArea.circle(48.1, 11.5, 100), 10).get(0).title);
+    }
+}